@@ -17,6 +17,7 @@
 
 package be.nbb.demetra.gairline;
 
+import ec.demetra.realfunctions.MinimizerBudget;
 import ec.tstoolkit.arima.estimation.GlsArimaMonitor;
 import ec.tstoolkit.arima.estimation.RegArimaEstimation;
 import ec.tstoolkit.arima.estimation.RegArimaModel;
@@ -57,6 +58,8 @@ public class GeneralizedAirlineMonitor {
     private boolean m_mean;
     private final HashMap<Long, RegArimaEstimation<GeneralizedAirlineModel>> m_smodel = new HashMap<>();
     private static final int m_nsel = 5;
+    private MinimizerBudget m_budget;
+    private boolean m_bexhausted;
 
     /**
      * Estimates the generalized airline model for a given series.
@@ -70,6 +73,7 @@ public class GeneralizedAirlineMonitor {
             return false;
         m_smodel.clear();
         m_rslts = null;
+        m_bexhausted = false;
         m_series = series;
         m_regs = saregs;
         int freq = m_series.getFrequency().intValue();
@@ -161,6 +165,9 @@ public class GeneralizedAirlineMonitor {
 
         for (int i = 0; i < C.getRowsCount(); ++i) {
             try {
+                if (exhausted()) {
+                    break;
+                }
                 if (Math.abs(drank[i]) >= threshold) {
                     rtmp.add(estimate(freq, regs, C.row(i)));
                 }
@@ -211,6 +218,9 @@ public class GeneralizedAirlineMonitor {
         int jbest = -1;
         double ll = Double.MIN_VALUE;
         for (int j = 0; j < C.getLength(); ++j) {
+            if (exhausted()) {
+                break;
+            }
             if (C.get(j) != q) {
                 C.set(j, q);
                 RegArimaEstimation<GeneralizedAirlineModel> est = estimate(
@@ -245,7 +255,7 @@ public class GeneralizedAirlineMonitor {
             return false;
         }
 
-        for (int i = 1; i < m_rslts.length; ++i) {
+        for (int i = 1; i < m_rslts.length && !exhausted(); ++i) {
             try {
                 m_rslts[i] = estimate(freq, regs, C.row(i - 1));
             } catch (Exception e) {
@@ -467,7 +477,7 @@ public class GeneralizedAirlineMonitor {
                     est.model.setArima(gairline);
                 }
             } while ((m_spec.isFixingUnitRoots() && gairline.fixUnitRoots(ok ? .001 : 0.01))
-                    && gairline.getParametersCount() > 0);
+                    && gairline.getParametersCount() > 0 && !exhausted());
             return est;
 //            // RegArimaFunction
 //            SsqFunction<RegArimaModel<GeneralizedAirlineModel>, DefaultLikelihoodEvaluation<ConcentratedLikelihood>> fn = new SsqFunction<RegArimaModel<GeneralizedAirlineModel>, DefaultLikelihoodEvaluation<ConcentratedLikelihood>>();
@@ -670,6 +680,40 @@ public class GeneralizedAirlineMonitor {
         m_bfreeestimation = value;
     }
 
+    public MinimizerBudget getBudget() {
+        return m_budget;
+    }
+
+    /**
+     * Sets the budget of the next calls to process. The estimations of the
+     * different models are done by the minimizers of the toolkit, which can't
+     * be interrupted; the budget (time and cancellation) is checked between
+     * them. When it is exhausted, the remaining models are not estimated.
+     * The budget is not restarted by process (see MinimizerBudget.start).
+     *
+     * @param budget The budget. Null for an unlimited processing
+     */
+    public void setBudget(MinimizerBudget budget) {
+        m_budget = budget;
+    }
+
+    /**
+     *
+     * @return True if the last processing was interrupted because its budget
+     * was exhausted (or cancelled). Only a part of the models have then been
+     * estimated
+     */
+    public boolean isBudgetExceeded() {
+        return m_bexhausted;
+    }
+
+    private boolean exhausted() {
+        if (m_budget != null && m_budget.isExhausted()) {
+            m_bexhausted = true;
+        }
+        return m_bexhausted;
+    }
+
     public boolean isMeanCorrection() {
         return m_mean;
     }
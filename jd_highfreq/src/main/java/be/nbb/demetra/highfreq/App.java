@@ -33,6 +33,7 @@ import ec.tstoolkit.arima.estimation.RegArimaModel;
 import ec.tstoolkit.data.AutoRegressiveSpectrum;
 import ec.tstoolkit.data.DataBlock;
 import ec.tstoolkit.data.DataBlockStorage;
+import ec.tstoolkit.data.IReadDataBlock;
 import ec.tstoolkit.data.ReadDataBlock;
 import ec.tstoolkit.maths.matrices.Matrix;
 import ec.tstoolkit.maths.matrices.SubMatrix;
@@ -505,6 +506,14 @@ public class App {
     }
 
     private static boolean estimateModel(int col) {
+        DataBlock y = y(col);
+        if (y.getLength() > WhittleInitializer.MIN_LENGTH) {
+            // starting values from the (fast) Whittle likelihood
+            IReadDataBlock p0 = WhittleInitializer.startingValues(mapping, y, arima);
+            if (p0 != null) {
+                arima = mapping.map(p0);
+            }
+        }
         GlsArimaMonitor monitor = new GlsArimaMonitor();
         monitor.setMultiThread(true);
         monitor.setMapping(mapping);
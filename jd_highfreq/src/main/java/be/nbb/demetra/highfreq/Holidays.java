@@ -18,17 +18,14 @@ package be.nbb.demetra.highfreq;
 
 import ec.demetra.timeseries.calendars.EasterRelatedHoliday;
 import ec.demetra.timeseries.calendars.FixedDateHoliday;
+import ec.demetra.timeseries.calendars.HolidayIndex;
 import ec.demetra.timeseries.calendars.IHoliday;
-import ec.demetra.timeseries.calendars.IHolidayInfo;
 import ec.tstoolkit.maths.matrices.Matrix;
 import ec.tstoolkit.maths.matrices.SubMatrix;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.Month;
-import static java.time.temporal.ChronoUnit.DAYS;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -38,6 +35,7 @@ import java.util.List;
 public class Holidays {
 
     protected final List<IHoliday> holidays = new ArrayList<>();
+    private volatile HolidayIndex index;
 
     public static Holidays france() {
         Holidays holidays = new Holidays();
@@ -72,18 +70,51 @@ public class Holidays {
 
     public void add(IHoliday hol) {
         holidays.add(hol);
+        index = null;
+    }
+
+    /**
+     * Gets an index of the holidays that covers a given time span. The index is
+     * computed once (by whole years) and re-used as long as it covers the
+     * requested days. The index being immutable, it can be used concurrently
+     *
+     * @param start The first day (included)
+     * @param end The last day (excluded)
+     * @return
+     */
+    public HolidayIndex index(final LocalDate start, final LocalDate end) {
+        HolidayIndex cur = index;
+        if (cur != null && cur.covers(start, end)) {
+            return cur;
+        }
+        LocalDate beg = LocalDate.of(start.getYear(), 1, 1), last = LocalDate.of(end.getYear() + 1, 1, 1);
+        if (cur != null) {
+            if (cur.getStart().isBefore(beg)) {
+                beg = cur.getStart();
+            }
+            if (cur.getEnd().isAfter(last)) {
+                last = cur.getEnd();
+            }
+        }
+        cur = HolidayIndex.of(beg, last, holidays);
+        index = cur;
+        return cur;
+    }
+
+    // day of week (0 = Monday, 6 = Sunday) of the day start + pos
+    private static boolean isSunday(int dw0, int pos) {
+        return Math.floorMod(dw0 + pos, 7) == 6;
     }
 
     public void fillDays(final SubMatrix D, final LocalDate start, int n) {
         LocalDate end = start.plusDays(n);
+        HolidayIndex idx = index(start, end);
+        int dw0 = start.getDayOfWeek().getValue() - 1;
         int col = 0;
-        for (IHoliday item : holidays) {
-            Iterator<IHolidayInfo> iter = item.getIterable(start, end).iterator();
-            while (iter.hasNext()) {
-                LocalDate date = iter.next().getDate();
-                if (date.getDayOfWeek() != DayOfWeek.SUNDAY) {
-                    long pos = start.until(date, DAYS);
-                    D.set((int) pos, col, 1);
+        for (int i = 0; i < idx.getHolidaysCount(); ++i) {
+            for (int pos : idx.days(i, start, end)) {
+                if (!isSunday(dw0, pos)) {
+                    D.set(pos, col, 1);
                 }
             }
             if (D.getColumnsCount() > 1) {
@@ -95,15 +126,18 @@ public class Holidays {
     public void fillPreviousWorkingDays(final SubMatrix D, final LocalDate start, int n, final int del) {
         LocalDate nstart = start.plusDays(del);
         LocalDate end = start.plusDays(n);
+        HolidayIndex idx = index(nstart, end);
+        int dw0 = start.getDayOfWeek().getValue() - 1;
         int col = 0;
-        for (IHoliday item : holidays) {
-            Iterator<IHolidayInfo> iter = item.getIterable(nstart, end).iterator();
-            while (iter.hasNext()) {
-                LocalDate date = iter.next().getDate().minusDays(del);
-                date = IHolidayInfo.getPreviousWorkingDate(date);
-                long pos = start.until(date, DAYS);
+        for (int i = 0; i < idx.getHolidaysCount(); ++i) {
+            // the offsets from nstart of the holidays are the offsets from
+            // start of the shifted days
+            for (int pos : idx.days(i, nstart, end)) {
+                if (isSunday(dw0, pos)) {
+                    --pos;
+                }
                 if (pos >= 0 && pos < n) {
-                    D.set((int) pos, col, 1);
+                    D.set(pos, col, 1);
                 }
             }
             if (D.getColumnsCount() > 1) {
@@ -115,15 +149,16 @@ public class Holidays {
     public void fillNextWorkingDays(final SubMatrix D, final LocalDate start, int n, final int del) {
         LocalDate nstart = start.minusDays(del);
         LocalDate end = nstart.plusDays(n);
+        HolidayIndex idx = index(nstart, end);
+        int dw0 = start.getDayOfWeek().getValue() - 1;
         int col = 0;
-        for (IHoliday item : holidays) {
-            Iterator<IHolidayInfo> iter = item.getIterable(nstart, end).iterator();
-            while (iter.hasNext()) {
-                LocalDate date = iter.next().getDate().plusDays(del);
-                date = IHolidayInfo.getNextWorkingDate(date);
-                long pos = start.until(date, DAYS);
+        for (int i = 0; i < idx.getHolidaysCount(); ++i) {
+            for (int pos : idx.days(i, nstart, end)) {
+                if (isSunday(dw0, pos)) {
+                    ++pos;
+                }
                 if (pos >= 0 && pos < n) {
-                    D.set((int) pos, col, 1);
+                    D.set(pos, col, 1);
                 }
             }
             if (D.getColumnsCount() > 1) {
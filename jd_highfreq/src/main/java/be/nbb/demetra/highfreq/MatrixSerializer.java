@@ -16,6 +16,7 @@
  */
 package be.nbb.demetra.highfreq;
 
+import ec.demetra.maths.matrices.MatrixReader;
 import ec.tstoolkit.arima.ArimaModel;
 import ec.tstoolkit.arima.estimation.RegArimaEstimation;
 import ec.tstoolkit.data.IReadDataBlock;
@@ -43,8 +44,21 @@ import javax.swing.text.NumberFormatter;
  */
 public class MatrixSerializer {
 
+    /**
+     * Reads a matrix written with the default format ('.' as decimal
+     * separator). The file is parsed by the streaming reader of jdemetra-core
+     *
+     * @param file
+     * @return
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
     public static Matrix read(File file) throws FileNotFoundException, IOException {
-        return read(file, Locale.ROOT);
+        if (!file.exists()) {
+            throw new FileNotFoundException(file.getPath());
+        }
+        ec.demetra.maths.matrices.Matrix m = MatrixReader.read(file.toPath(), true);
+        return m == null ? null : m.asToolkitMatrix();
     }
 
     public static void write(Matrix m, File file) throws FileNotFoundException, IOException {
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package be.nbb.demetra.highfreq;
+
+import ec.demetra.arima.WhittleFunction;
+import ec.demetra.realfunctions.IFunctionPoint;
+import ec.demetra.realfunctions.ParamValidation;
+import ec.demetra.realfunctions.bfgs.Bfgs;
+import ec.tstoolkit.arima.ArimaModel;
+import ec.tstoolkit.data.IDataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.maths.realfunctions.IParametricMapping;
+
+/**
+ * Computes starting values for the daily/weekly models by maximizing their
+ * Whittle likelihood. Each evaluation is in O(n log n), so that the exact
+ * likelihood only has to refine the solution.
+ *
+ * @author Jean Palate
+ */
+public class WhittleInitializer {
+
+    /**
+     * Minimal length of the series for which the Whittle likelihood is used
+     */
+    public static final int MIN_LENGTH = 2000;
+
+    private static final int MAX_ITER = 50;
+
+    /**
+     * Maximizes the Whittle likelihood
+     *
+     * @param mapping The mapping of the model
+     * @param y The original series
+     * @param start The starting model
+     * @return The parameters that maximize the Whittle likelihood or null if
+     * the optimization failed
+     */
+    public static IReadDataBlock startingValues(IParametricMapping<ArimaModel> mapping, IReadDataBlock y, ArimaModel start) {
+        try {
+            WhittleFunction<ArimaModel> fn = new WhittleFunction<>(y, new Mapping(mapping, start));
+            Bfgs bfgs = new Bfgs();
+            bfgs.setMaxIter(MAX_ITER);
+            bfgs.minimize(fn);
+            IFunctionPoint rslt = bfgs.getResult();
+            if (rslt == null || !Double.isFinite(rslt.getValue())) {
+                return null;
+            }
+            return rslt.getParameters();
+        } catch (RuntimeException err) {
+            return null;
+        }
+    }
+
+    private WhittleInitializer() {
+    }
+
+    private static class Mapping implements ec.demetra.realfunctions.IParametricMapping<ArimaModel> {
+
+        private final IParametricMapping<ArimaModel> mapping;
+        private final IReadDataBlock p0;
+
+        Mapping(IParametricMapping<ArimaModel> mapping, ArimaModel start) {
+            this.mapping = mapping;
+            this.p0 = mapping.map(start);
+        }
+
+        @Override
+        public ArimaModel map(IReadDataBlock p) {
+            return mapping.map(p);
+        }
+
+        @Override
+        public boolean checkBoundaries(IReadDataBlock inparams) {
+            return mapping.checkBoundaries(inparams);
+        }
+
+        @Override
+        public double epsilon(IReadDataBlock inparams, int idx) {
+            return mapping.epsilon(inparams, idx);
+        }
+
+        @Override
+        public int getDim() {
+            return mapping.getDim();
+        }
+
+        @Override
+        public double lbound(int idx) {
+            return mapping.lbound(idx);
+        }
+
+        @Override
+        public double ubound(int idx) {
+            return mapping.ubound(idx);
+        }
+
+        @Override
+        public ParamValidation validate(IDataBlock ioparams) {
+            return ParamValidation.valueOf(mapping.validate(ioparams).name());
+        }
+
+        @Override
+        public IReadDataBlock getDefault() {
+            return p0;
+        }
+
+        @Override
+        public String getDescription(int idx) {
+            return mapping.getDescription(idx);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package be.nbb.demetra.highfreq;
+
+import ec.demetra.timeseries.calendars.FixedDateHoliday;
+import ec.demetra.timeseries.calendars.IHoliday;
+import ec.demetra.timeseries.calendars.IHolidayInfo;
+import ec.tstoolkit.maths.matrices.Matrix;
+import ec.tstoolkit.maths.matrices.SubMatrix;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import static java.time.temporal.ChronoUnit.DAYS;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class HolidaysTest {
+
+    public HolidaysTest() {
+    }
+
+    // reference computations, by iterating the holidays of each time span
+    private static void fillDays(Holidays holidays, SubMatrix D, LocalDate start, int n) {
+        LocalDate end = start.plusDays(n);
+        int col = 0;
+        for (IHoliday item : holidays.getHolidays()) {
+            for (IHolidayInfo info : item.getIterable(start, end)) {
+                LocalDate date = info.getDate();
+                if (date.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                    D.set((int) start.until(date, DAYS), col, 1);
+                }
+            }
+            if (D.getColumnsCount() > 1) {
+                ++col;
+            }
+        }
+    }
+
+    private static void fillPreviousWorkingDays(Holidays holidays, SubMatrix D, LocalDate start, int n, int del) {
+        LocalDate nstart = start.plusDays(del);
+        LocalDate end = start.plusDays(n);
+        int col = 0;
+        for (IHoliday item : holidays.getHolidays()) {
+            for (IHolidayInfo info : item.getIterable(nstart, end)) {
+                LocalDate date = IHolidayInfo.getPreviousWorkingDate(info.getDate().minusDays(del));
+                long pos = start.until(date, DAYS);
+                if (pos >= 0 && pos < n) {
+                    D.set((int) pos, col, 1);
+                }
+            }
+            if (D.getColumnsCount() > 1) {
+                ++col;
+            }
+        }
+    }
+
+    private static void fillNextWorkingDays(Holidays holidays, SubMatrix D, LocalDate start, int n, int del) {
+        LocalDate nstart = start.minusDays(del);
+        LocalDate end = nstart.plusDays(n);
+        int col = 0;
+        for (IHoliday item : holidays.getHolidays()) {
+            for (IHolidayInfo info : item.getIterable(nstart, end)) {
+                LocalDate date = IHolidayInfo.getNextWorkingDate(info.getDate().plusDays(del));
+                long pos = start.until(date, DAYS);
+                if (pos >= 0 && pos < n) {
+                    D.set((int) pos, col, 1);
+                }
+            }
+            if (D.getColumnsCount() > 1) {
+                ++col;
+            }
+        }
+    }
+
+    private static void check(Holidays holidays, LocalDate start, int n, int del, int ncols) {
+        int nhol = ncols == 1 ? 1 : holidays.getHolidays().size();
+        Matrix M = new Matrix(n, nhol), R = new Matrix(n, nhol);
+        holidays.fillDays(M.all(), start, n);
+        fillDays(holidays, R.all(), start, n);
+        assertArrayEquals(R.internalStorage(), M.internalStorage(), 0);
+        M = new Matrix(n, nhol);
+        R = new Matrix(n, nhol);
+        holidays.fillPreviousWorkingDays(M.all(), start, n, del);
+        fillPreviousWorkingDays(holidays, R.all(), start, n, del);
+        assertArrayEquals(R.internalStorage(), M.internalStorage(), 0);
+        M = new Matrix(n, nhol);
+        R = new Matrix(n, nhol);
+        holidays.fillNextWorkingDays(M.all(), start, n, del);
+        fillNextWorkingDays(holidays, R.all(), start, n, del);
+        assertArrayEquals(R.internalStorage(), M.internalStorage(), 0);
+    }
+
+    @Test
+    public void testRandomSpans() {
+        Random rnd = new Random(0);
+        // the same object is used for all the spans, so that its index is
+        // re-used or extended
+        Holidays holidays = Holidays.france();
+        LocalDate d0 = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < 200; ++i) {
+            LocalDate start = d0.plusDays(rnd.nextInt(20 * 365));
+            int n = 1 + rnd.nextInt(3 * 365);
+            int del = rnd.nextInt(15);
+            check(holidays, start, n, del, 1 + rnd.nextInt(2) * 10);
+        }
+    }
+
+    @Test
+    public void testIndexBoundaries() {
+        Holidays holidays = Holidays.belgium();
+        // the first index covers 2010
+        check(holidays, LocalDate.of(2010, 3, 15), 200, 0, 10);
+        // spans starting in the first days of a year: the shifts (del) move
+        // the start of the holidays before the current index
+        for (int del = 0; del < 12; ++del) {
+            check(holidays, LocalDate.of(2010, 1, 1).plusDays(del % 3), 30, del, 10);
+            check(holidays, LocalDate.of(2009 - del, 1, 2), 365 + del, del, 10);
+        }
+        // spans ending in the last days of a year
+        for (int del = 0; del < 12; ++del) {
+            check(holidays, LocalDate.of(2020 + del, 12, 20), 12 + del, del, 1);
+        }
+        // new holiday: the index is rebuilt
+        holidays.add(new FixedDateHoliday(Month.DECEMBER, 31));
+        check(holidays, LocalDate.of(2015, 12, 25), 10, 3, 10);
+    }
+}
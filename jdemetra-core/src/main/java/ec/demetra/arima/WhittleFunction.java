@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.arima;
+
+import ec.demetra.realfunctions.IFunction;
+import ec.demetra.realfunctions.IFunctionPoint;
+import ec.demetra.realfunctions.IParametersDomain;
+import ec.demetra.realfunctions.IParametricMapping;
+import ec.tstoolkit.arima.IArimaModel;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.design.Development;
+
+/**
+ * Whittle likelihood of a parametric arima model, considered as a function of
+ * its parameters. The value of the function is -ll (up to a constant), so
+ * that it can be minimized by any IFunctionMinimizer.
+ *
+ * The differencing operator is taken from the model corresponding to the
+ * default parameters of the mapping. It should not depend on the
+ * parameters (which is the case for the usual airline-like models).
+ *
+ * The function is intended to provide (cheap) starting values for the
+ * estimation by exact maximum likelihood, especially for long series.
+ *
+ * @author Jean Palate
+ * @param <T>
+ */
+@Development(status = Development.Status.Alpha)
+public class WhittleFunction<T extends IArimaModel> implements IFunction {
+
+    private final IParametricMapping<T> mapping;
+    private final WhittleLikelihood likelihood;
+
+    /**
+     *
+     * @param y The original (non differenced) series
+     * @param mapping The mapping
+     */
+    public WhittleFunction(IReadDataBlock y, IParametricMapping<T> mapping) {
+        this.mapping = mapping;
+        T arima = mapping.map(mapping.getDefault());
+        likelihood = WhittleLikelihood.of(y, arima.getNonStationaryAR());
+    }
+
+    public WhittleLikelihood getLikelihood() {
+        return likelihood;
+    }
+
+    public IParametricMapping<T> getMapping() {
+        return mapping;
+    }
+
+    @Override
+    public Point evaluate(IReadDataBlock parameters) {
+        return new Point(parameters);
+    }
+
+    @Override
+    public IParametersDomain getDomain() {
+        return mapping;
+    }
+
+    public class Point implements IFunctionPoint {
+
+        private final DataBlock p;
+        private final T arima;
+        private final WhittleLikelihood.Result ll;
+
+        private Point(IReadDataBlock p) {
+            this.p = new DataBlock(p);
+            arima = mapping.map(p);
+            ll = likelihood.compute(arima);
+        }
+
+        public T getModel() {
+            return arima;
+        }
+
+        public WhittleLikelihood.Result getLikelihood() {
+            return ll;
+        }
+
+        @Override
+        public IFunction getFunction() {
+            return WhittleFunction.this;
+        }
+
+        @Override
+        public IReadDataBlock getParameters() {
+            return p;
+        }
+
+        @Override
+        public double getValue() {
+            return ll.getObjective();
+        }
+    }
+}
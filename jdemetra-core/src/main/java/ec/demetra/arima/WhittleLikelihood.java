@@ -0,0 +1,237 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.arima;
+
+import ec.demetra.maths.fft.FastFourierTransform;
+import ec.tstoolkit.arima.IArimaModel;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.design.Immutable;
+import ec.tstoolkit.maths.linearfilters.BackFilter;
+
+/**
+ * Frequency-domain (Whittle) approximation of the likelihood of a stationary
+ * ARMA process.
+ *
+ * For the Fourier frequencies w(j)=2*pi*j/n, j=1...m, m=(n-1)/2, the
+ * periodogram I(j)=|sum(z(t)*exp(-i*w(j)*t))|^2/n is approximately distributed
+ * as sig2*g(j)*chi2(2)/2, where g(j)=|ma(exp(-i*w(j)))|^2/|ar(exp(-i*w(j)))|^2
+ * is the (normalized) spectrum of the model. The innovation variance is
+ * concentrated out: sig2 = sum(I(j)/g(j))/m.
+ * Then, ll=-[m*(log(2*pi*sig2)+1)+sum(log(g(j)))]
+ *
+ * The frequency 0 is not used, so that the mean of the series doesn't matter.
+ * The periodogram is computed once; each evaluation of the likelihood
+ * requires two discrete Fourier transforms of the polynomials, which gives a
+ * cost in O(n log n).
+ *
+ * The object is immutable and can be shared between threads.
+ *
+ * @author Jean Palate
+ */
+@Immutable
+@Development(status = Development.Status.Alpha)
+public class WhittleLikelihood {
+
+    private static final double EPS = 1e-12;
+
+    private final FastFourierTransform fft;
+    private final double[] pgram;
+    private final int n;
+
+    /**
+     * Creates the likelihood for a stationary series. Missing values are
+     * replaced by 0
+     *
+     * @param z The stationary series (typically the differenced series)
+     */
+    public WhittleLikelihood(IReadDataBlock z) {
+        n = z.getLength();
+        int m = (n - 1) / 2;
+        if (m < 1) {
+            throw new IllegalArgumentException("Not enough observations");
+        }
+        fft = new FastFourierTransform(n);
+        double[] x = new double[n];
+        z.copyTo(x, 0);
+        for (int i = 0; i < n; ++i) {
+            if (!Double.isFinite(x[i])) {
+                x[i] = 0;
+            }
+        }
+        double[] q = new double[m + 1];
+        fft.squaredModulus(x, 0, n, q);
+        pgram = new double[m];
+        for (int j = 0; j < m; ++j) {
+            pgram[j] = q[j + 1] / n;
+        }
+    }
+
+    /**
+     * Differences a series and creates the likelihood of the differenced data
+     *
+     * @param y The original series
+     * @param ur The differencing operator (non stationary auto-regressive
+     * polynomial)
+     * @return
+     */
+    public static WhittleLikelihood of(IReadDataBlock y, BackFilter ur) {
+        int d = ur == null ? 0 : ur.getDegree();
+        if (d == 0) {
+            return new WhittleLikelihood(y);
+        }
+        int ny = y.getLength();
+        double[] z = new double[ny - d];
+        for (int t = d; t < ny; ++t) {
+            double s = 0;
+            for (int k = 0; k <= d; ++k) {
+                double c = ur.get(k);
+                if (c != 0) {
+                    s += c * y.get(t - k);
+                }
+            }
+            z[t - d] = s;
+        }
+        return new WhittleLikelihood(new ReadDataBlock(z));
+    }
+
+    /**
+     * Number of observations of the stationary series
+     *
+     * @return
+     */
+    public int getObsCount() {
+        return n;
+    }
+
+    /**
+     * Number of Fourier frequencies used in the likelihood
+     *
+     * @return
+     */
+    public int getFrequenciesCount() {
+        return pgram.length;
+    }
+
+    /**
+     * Computes the Whittle likelihood of the stationary part of a given
+     * model. The non-stationary auto-regressive polynomial is not used (it
+     * should correspond to the differencing used to build the series)
+     *
+     * @param arima
+     * @return
+     */
+    public Result compute(IArimaModel arima) {
+        double[] gma = spectrum(arima.getMA());
+        double[] gar = spectrum(arima.getStationaryAR());
+        int m = pgram.length;
+        double ssq = 0, ldet = 0;
+        for (int j = 0; j < m; ++j) {
+            double g = gma == null ? 1 : gma[j];
+            if (gar != null) {
+                g /= gar[j];
+            }
+            if (g < EPS) {
+                g = EPS;
+            }
+            ssq += pgram[j] / g;
+            ldet += Math.log(g);
+        }
+        return new Result(m, ssq, ldet);
+    }
+
+    /**
+     * Computes |p(exp(-i*w(j)))|^2, j=1...m
+     *
+     * @param p
+     * @return null if p is the identity
+     */
+    private double[] spectrum(BackFilter p) {
+        int deg = p == null ? 0 : p.getDegree();
+        if (deg == 0) {
+            return null;
+        }
+        int m = pgram.length;
+        double[] c = new double[deg + 1];
+        for (int k = 0; k <= deg; ++k) {
+            c[k] = p.get(k);
+        }
+        double[] q = new double[m + 1];
+        if (deg < n) {
+            fft.squaredModulus(c, 0, c.length, q);
+        } else {
+            for (int j = 1; j <= m; ++j) {
+                double w = 2 * Math.PI * j / n, re = 0, im = 0;
+                for (int k = 0; k <= deg; ++k) {
+                    re += c[k] * Math.cos(w * k);
+                    im -= c[k] * Math.sin(w * k);
+                }
+                q[j] = re * re + im * im;
+            }
+        }
+        double[] g = new double[m];
+        System.arraycopy(q, 1, g, 0, m);
+        return g;
+    }
+
+    @Immutable
+    public static class Result {
+
+        private final int m;
+        private final double ssq, ldet;
+
+        private Result(int m, double ssq, double ldet) {
+            this.m = m;
+            this.ssq = ssq;
+            this.ldet = ldet;
+        }
+
+        /**
+         * Concentrated innovation variance
+         *
+         * @return
+         */
+        public double getSigma2() {
+            return ssq / m;
+        }
+
+        /**
+         * Sum of the log of the (normalized) spectrum at the Fourier
+         * frequencies
+         *
+         * @return
+         */
+        public double getLogDeterminant() {
+            return ldet;
+        }
+
+        public double getLogLikelihood() {
+            return -m * (Math.log(2 * Math.PI * ssq / m) + 1) - ldet;
+        }
+
+        /**
+         * Objective function that should be minimized: m*log(sig2)+ldet. It
+         * corresponds to -ll, up to a constant
+         *
+         * @return
+         */
+        public double getObjective() {
+            return m * Math.log(ssq / m) + ldet;
+        }
+    }
+}
@@ -17,7 +17,9 @@
 package ec.demetra.data;
 
 import ec.demetra.maths.matrices.SubMatrix;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.function.DoublePredicate;
 
 /**
  *
@@ -92,6 +94,227 @@ public abstract class DataBlock implements IArrayOfDoubles, Iterable<DataBlock.C
         return IArrayOfDoublesReader.toString(this, fmt);
     }
 
+    // Specialized implementations of the main reductions and updates. They
+    // work directly on the underlying array (contiguous or strided), without
+    // cells or lambdas. The reductions use 4 independent accumulators, which
+    // removes the dependency between successive additions (the JIT doesn't
+    // reorder floating-point additions by itself); the updates are simple
+    // counted loops, which can be vectorized by the JIT when inc == 1.
+    @Override
+    public double sum() {
+        double s = sum(getData(), getStartPosition(), getLength(), getIncrement());
+        // missing values (non finite) are skipped by the generic implementation
+        return Double.isFinite(s) ? s : IArrayOfDoubles.super.sum();
+    }
+
+    @Override
+    public double ssq() {
+        double s = dot(getData(), getStartPosition(), getIncrement(),
+                getData(), getStartPosition(), getIncrement(), getLength());
+        return Double.isFinite(s) ? s : IArrayOfDoubles.super.ssq();
+    }
+
+    @Override
+    public double dot(IArrayOfDoublesReader data) {
+        if (!(data instanceof DataBlock)) {
+            return IArrayOfDoubles.super.dot(data);
+        }
+        DataBlock y = (DataBlock) data;
+        return dot(getData(), getStartPosition(), getIncrement(),
+                y.getData(), y.getStartPosition(), y.getIncrement(), getLength());
+    }
+
+    @Override
+    public void addAY(double a, IArrayOfDoubles y) {
+        if (a == 0) {
+            return;
+        }
+        if (!(y instanceof DataBlock)) {
+            IArrayOfDoubles.super.addAY(a, y);
+            return;
+        }
+        DataBlock by = (DataBlock) y;
+        double[] x = getData(), z = by.getData();
+        int n = getLength(), xinc = getIncrement(), yinc = by.getIncrement();
+        int xpos = getStartPosition(), ypos = by.getStartPosition();
+        if (xinc == 1 && yinc == 1) {
+            if (a == 1) {
+                for (int i = 0; i < n; ++i) {
+                    x[xpos + i] += z[ypos + i];
+                }
+            } else if (a == -1) {
+                for (int i = 0; i < n; ++i) {
+                    x[xpos + i] -= z[ypos + i];
+                }
+            } else {
+                for (int i = 0; i < n; ++i) {
+                    x[xpos + i] += a * z[ypos + i];
+                }
+            }
+        } else {
+            for (int i = 0; i < n; ++i, xpos += xinc, ypos += yinc) {
+                x[xpos] += a * z[ypos];
+            }
+        }
+    }
+
+    @Override
+    public void mul(double a) {
+        if (a == 1) {
+            return;
+        }
+        double[] x = getData();
+        int n = getLength(), inc = getIncrement(), pos = getStartPosition();
+        if (inc == 1) {
+            if (a == 0) {
+                for (int i = 0; i < n; ++i) {
+                    x[pos + i] = 0;
+                }
+            } else {
+                for (int i = 0; i < n; ++i) {
+                    x[pos + i] *= a;
+                }
+            }
+        } else {
+            for (int i = 0; i < n; ++i, pos += inc) {
+                x[pos] = a == 0 ? 0 : x[pos] * a;
+            }
+        }
+    }
+
+    @Override
+    public void mul(IArrayOfDoublesReader data) {
+        if (!(data instanceof DataBlock)) {
+            IArrayOfDoubles.super.mul(data);
+            return;
+        }
+        DataBlock y = (DataBlock) data;
+        double[] x = getData(), z = y.getData();
+        int n = getLength(), xinc = getIncrement(), yinc = y.getIncrement();
+        int xpos = getStartPosition(), ypos = y.getStartPosition();
+        if (xinc == 1 && yinc == 1) {
+            for (int i = 0; i < n; ++i) {
+                x[xpos + i] *= z[ypos + i];
+            }
+        } else {
+            for (int i = 0; i < n; ++i, xpos += xinc, ypos += yinc) {
+                x[xpos] *= z[ypos];
+            }
+        }
+    }
+
+    @Override
+    public boolean check(DoublePredicate pred) {
+        double[] x = getData();
+        int n = getLength(), inc = getIncrement();
+        for (int i = 0, pos = getStartPosition(); i < n; ++i, pos += inc) {
+            if (!pred.test(x[pos])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int count(DoublePredicate pred) {
+        double[] x = getData();
+        int n = getLength(), inc = getIncrement();
+        int m = 0;
+        for (int i = 0, pos = getStartPosition(); i < n; ++i, pos += inc) {
+            if (pred.test(x[pos])) {
+                ++m;
+            }
+        }
+        return m;
+    }
+
+    @Override
+    public int first(DoublePredicate pred) {
+        double[] x = getData();
+        int n = getLength(), inc = getIncrement();
+        for (int i = 0, pos = getStartPosition(); i < n; ++i, pos += inc) {
+            if (pred.test(x[pos])) {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public int last(DoublePredicate pred) {
+        double[] x = getData();
+        int n = getLength(), inc = getIncrement();
+        for (int i = n - 1, pos = getStartPosition() + i * inc; i >= 0; --i, pos -= inc) {
+            if (pred.test(x[pos])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int[] search(DoublePredicate pred) {
+        double[] x = getData();
+        int n = getLength(), inc = getIncrement();
+        int[] idx = new int[n];
+        int m = 0;
+        for (int i = 0, pos = getStartPosition(); i < n; ++i, pos += inc) {
+            if (pred.test(x[pos])) {
+                idx[m++] = i;
+            }
+        }
+        return m == n ? idx : Arrays.copyOf(idx, m);
+    }
+
+    private static double sum(double[] x, int pos, int n, int inc) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        if (inc == 1) {
+            for (; i + 3 < n; i += 4, pos += 4) {
+                s0 += x[pos];
+                s1 += x[pos + 1];
+                s2 += x[pos + 2];
+                s3 += x[pos + 3];
+            }
+        } else {
+            int inc2 = 2 * inc, inc3 = 3 * inc, inc4 = 4 * inc;
+            for (; i + 3 < n; i += 4, pos += inc4) {
+                s0 += x[pos];
+                s1 += x[pos + inc];
+                s2 += x[pos + inc2];
+                s3 += x[pos + inc3];
+            }
+        }
+        for (; i < n; ++i, pos += inc) {
+            s0 += x[pos];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private static double dot(double[] x, int xpos, int xinc, double[] y, int ypos, int yinc, int n) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        if (xinc == 1 && yinc == 1) {
+            for (; i + 3 < n; i += 4, xpos += 4, ypos += 4) {
+                s0 += x[xpos] * y[ypos];
+                s1 += x[xpos + 1] * y[ypos + 1];
+                s2 += x[xpos + 2] * y[ypos + 2];
+                s3 += x[xpos + 3] * y[ypos + 3];
+            }
+        } else {
+            for (; i + 3 < n; i += 4, xpos += 4 * xinc, ypos += 4 * yinc) {
+                s0 += x[xpos] * y[ypos];
+                s1 += x[xpos + xinc] * y[ypos + yinc];
+                s2 += x[xpos + 2 * xinc] * y[ypos + 2 * yinc];
+                s3 += x[xpos + 3 * xinc] * y[ypos + 3 * yinc];
+            }
+        }
+        for (; i < n; ++i, xpos += xinc, ypos += yinc) {
+            s0 += x[xpos] * y[ypos];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
 
 
     public static class Cell {
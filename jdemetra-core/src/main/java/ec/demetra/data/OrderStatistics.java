@@ -0,0 +1,354 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.data;
+
+import ec.tstoolkit.design.Development;
+import java.util.Arrays;
+
+/**
+ * Medians, quantiles and median absolute deviations, on complete arrays or on
+ * moving windows.
+ *
+ * The static methods on complete arrays use a selection algorithm (O(n)
+ * instead of O(n log n) for a sort). The data must not contain NaN.
+ *
+ * The moving statistics are computed for all the windows of length w
+ * [x(i), x(i+w)[ (i = 0, n-w). A window that contains a missing (non finite)
+ * value gives a missing value (NaN). The values of the series are ranked once;
+ * the ranks of the current window are stored in a Fenwick tree, so that each
+ * order statistic is obtained in O(log n) and each step of the window in
+ * O(log n).
+ *
+ * The quantiles are defined by linear interpolation between the order
+ * statistics: q(p) = x(h) + (h - [h]) * (x([h]+1) - x([h])), with h = p*(n-1)
+ * (0-based). So, the median of an even number of values is the average of the
+ * two central values.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class OrderStatistics {
+
+    private OrderStatistics() {
+    }
+
+    /**
+     * Median of an array of doubles
+     *
+     * @param x The data (unchanged)
+     * @return
+     */
+    public static double median(double[] x) {
+        return quantile(x, .5);
+    }
+
+    /**
+     * Quantile of an array of doubles
+     *
+     * @param x The data (unchanged)
+     * @param p The probability, in [0, 1]
+     * @return
+     */
+    public static double quantile(double[] x, double p) {
+        int n = x.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double[] a = x.clone();
+        double h = p * (n - 1);
+        int k = (int) Math.floor(h);
+        double q = select(a, 0, n, k);
+        double f = h - k;
+        if (f == 0 || k == n - 1) {
+            return q;
+        }
+        // the next order statistic is the smallest element above position k
+        double q1 = a[k + 1];
+        for (int i = k + 2; i < n; ++i) {
+            if (a[i] < q1) {
+                q1 = a[i];
+            }
+        }
+        return q + f * (q1 - q);
+    }
+
+    /**
+     * Median absolute deviation (around the median), without scaling factor
+     *
+     * @param x The data (unchanged)
+     * @return
+     */
+    public static double mad(double[] x) {
+        double m = median(x);
+        double[] d = new double[x.length];
+        for (int i = 0; i < d.length; ++i) {
+            d[i] = Math.abs(x[i] - m);
+        }
+        return median(d);
+    }
+
+    /**
+     * Partial sorting of a[from, to[ such that a[k] is the value that would be
+     * in position k after a complete sorting (Hoare's selection). The smaller
+     * (larger) values are before (after) k.
+     *
+     * @param a The data
+     * @param from The first position (included)
+     * @param to The last position (excluded)
+     * @param k The position of the selected value
+     * @return a[k]
+     */
+    public static double select(double[] a, int from, int to, int k) {
+        int lo = from, hi = to - 1;
+        while (hi > lo) {
+            int mid = (lo + hi) >>> 1;
+            // median of three
+            if (a[mid] < a[lo]) {
+                swap(a, mid, lo);
+            }
+            if (a[hi] < a[lo]) {
+                swap(a, hi, lo);
+            }
+            if (a[hi] < a[mid]) {
+                swap(a, hi, mid);
+            }
+            double pivot = a[mid];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) {
+                    ++i;
+                }
+                while (a[j] > pivot) {
+                    --j;
+                }
+                if (i <= j) {
+                    swap(a, i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return a[k];
+    }
+
+    private static void swap(double[] a, int i, int j) {
+        double tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    /**
+     * Moving medians
+     *
+     * @param x The data
+     * @param w The length of the window
+     * @return An array of length x.length-w+1 (or 0)
+     */
+    public static double[] movingMedian(double[] x, int w) {
+        return movingQuantile(x, w, .5);
+    }
+
+    /**
+     * Moving quantiles
+     *
+     * @param x The data
+     * @param w The length of the window
+     * @param p The probability, in [0, 1]
+     * @return An array of length x.length-w+1 (or 0)
+     */
+    public static double[] movingQuantile(double[] x, int w, double p) {
+        Window window = new Window(x, w);
+        double[] q = new double[window.count()];
+        double h = p * (w - 1);
+        int k = (int) Math.floor(h);
+        double f = h - k;
+        for (int i = 0; i < q.length; ++i) {
+            window.moveTo(i);
+            if (window.missing > 0) {
+                q[i] = Double.NaN;
+            } else {
+                double q0 = window.get(k);
+                q[i] = f == 0 ? q0 : q0 + f * (window.get(k + 1) - q0);
+            }
+        }
+        return q;
+    }
+
+    /**
+     * Moving median absolute deviations (around the median of each window),
+     * without scaling factor
+     *
+     * @param x The data
+     * @param w The length of the window
+     * @return An array of length x.length-w+1 (or 0)
+     */
+    public static double[] movingMad(double[] x, int w) {
+        Window window = new Window(x, w);
+        double[] mad = new double[window.count()];
+        int h = (w - 1) / 2;
+        boolean even = w % 2 == 0;
+        for (int i = 0; i < mad.length; ++i) {
+            window.moveTo(i);
+            if (window.missing > 0) {
+                mad[i] = Double.NaN;
+            } else {
+                double m = window.get(h);
+                if (even) {
+                    m = (m + window.get(h + 1)) / 2;
+                }
+                // the h+1 first order statistics are <= m
+                int c = h + 1;
+                double d = window.distance(m, c, h);
+                if (even) {
+                    d = (d + window.distance(m, c, h + 1)) / 2;
+                }
+                mad[i] = d;
+            }
+        }
+        return mad;
+    }
+
+    /**
+     * Window on a series, based on a Fenwick tree on the ranks of the values.
+     */
+    private static class Window {
+
+        private final double[] x;
+        private final int w;
+        private final double[] values; // sorted distinct finite values
+        private final int[] ranks;     // rank of each observation (-1 if missing)
+        private final int[] tree;
+        private final int log;
+        private int missing, pos = -1;
+
+        Window(double[] x, int w) {
+            if (w < 1) {
+                throw new IllegalArgumentException();
+            }
+            this.x = x;
+            this.w = w;
+            int n = x.length;
+            double[] s = new double[n];
+            int m = 0;
+            for (int i = 0; i < n; ++i) {
+                if (Double.isFinite(x[i])) {
+                    s[m++] = x[i];
+                }
+            }
+            Arrays.sort(s, 0, m);
+            int u = 0;
+            for (int i = 0; i < m; ++i) {
+                if (u == 0 || s[i] != s[u - 1]) {
+                    s[u++] = s[i];
+                }
+            }
+            values = Arrays.copyOf(s, u);
+            ranks = new int[n];
+            for (int i = 0; i < n; ++i) {
+                ranks[i] = Double.isFinite(x[i]) ? Arrays.binarySearch(values, x[i]) : -1;
+            }
+            tree = new int[u + 1];
+            int l = 1;
+            while (l * 2 <= u) {
+                l *= 2;
+            }
+            log = l;
+        }
+
+        int count() {
+            return Math.max(0, x.length - w + 1);
+        }
+
+        private void update(int i, int delta) {
+            int r = ranks[i];
+            if (r < 0) {
+                missing += delta;
+            } else {
+                for (++r; r < tree.length; r += r & -r) {
+                    tree[r] += delta;
+                }
+            }
+        }
+
+        /**
+         * Moves the window to [start, start+w[. The window can only move
+         * forward.
+         */
+        void moveTo(int start) {
+            if (pos < 0) {
+                for (int i = start; i < start + w; ++i) {
+                    update(i, 1);
+                }
+            } else {
+                for (int i = pos; i < start; ++i) {
+                    update(i, -1);
+                    update(i + w, 1);
+                }
+            }
+            pos = start;
+        }
+
+        /**
+         * k-th smallest value of the window (0-based)
+         */
+        double get(int k) {
+            // Fenwick descent: largest prefix with a count <= k
+            int idx = 0, rem = k;
+            for (int step = log; step > 0; step >>= 1) {
+                int next = idx + step;
+                if (next < tree.length && tree[next] <= rem) {
+                    idx = next;
+                    rem -= tree[next];
+                }
+            }
+            return values[idx];
+        }
+
+        /**
+         * k-th smallest distance (0-based) between m and the values of the
+         * window. The c first order statistics are <= m
+         */
+        double distance(double m, int c, int k) {
+            // left(j) = m - x(c-1-j), j in [0, c[ ; right(j) = x(c+j) - m, j in
+            // [0, w-c[. Both are increasing. We search the number i of values
+            // taken in left among the k+1 smallest distances
+            int kk = k + 1;
+            int lo = Math.max(0, kk - (w - c)), hi = Math.min(kk, c);
+            while (lo < hi) {
+                int i = (lo + hi) >>> 1;
+                if (m - get(c - 1 - i) < get(c + kk - i - 1) - m) {
+                    lo = i + 1;
+                } else {
+                    hi = i;
+                }
+            }
+            double d = Double.NEGATIVE_INFINITY;
+            if (lo > 0) {
+                d = m - get(c - lo);
+            }
+            if (kk - lo > 0) {
+                d = Math.max(d, get(c + kk - lo - 1) - m);
+            }
+            return d;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.fft;
+
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.design.Immutable;
+
+/**
+ * Discrete Fourier transform of arbitrary length.
+ * X(k) = sum(x(t)*exp(-2*pi*i*k*t/n), t=0...n-1)
+ *
+ * Powers of 2 are handled by an iterative radix-2 algorithm. Other lengths
+ * are handled by the chirp-z (Bluestein) algorithm, which uses radix-2
+ * convolutions. So, the transform is always in O(n log n).
+ *
+ * The twiddle factors and the chirp are computed once in the constructor.
+ * The object can be shared between threads (the work arrays are allocated by
+ * each call).
+ *
+ * @author Jean Palate
+ */
+@Immutable
+@Development(status = Development.Status.Alpha)
+public final class FastFourierTransform {
+
+    private final int n;
+    // radix-2 part (length m, power of 2)
+    private final int m;
+    private final double[] cos, sin;
+    // chirp-z part
+    private final double[] wr, wi, bre, bim;
+
+    /**
+     * Creates a transform for series of a given length
+     *
+     * @param n The length of the series. Should be strictly positive
+     */
+    public FastFourierTransform(final int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.n = n;
+        if (isPowerOf2(n)) {
+            m = n;
+        } else {
+            int p = 1;
+            while (p < 2 * n - 1) {
+                p <<= 1;
+            }
+            m = p;
+        }
+        int h = m / 2;
+        cos = new double[h];
+        sin = new double[h];
+        for (int k = 0; k < h; ++k) {
+            double a = 2 * Math.PI * k / m;
+            cos[k] = Math.cos(a);
+            sin[k] = -Math.sin(a);
+        }
+        if (m == n) {
+            wr = null;
+            wi = null;
+            bre = null;
+            bim = null;
+        } else {
+            // chirp: w(k) = exp(-i*pi*k^2/n). k^2 is reduced modulo 2n
+            wr = new double[n];
+            wi = new double[n];
+            long n2 = 2L * n;
+            for (int k = 0; k < n; ++k) {
+                double a = Math.PI * (((long) k * k) % n2) / n;
+                wr[k] = Math.cos(a);
+                wi[k] = -Math.sin(a);
+            }
+            // transform of the conjugated chirp, used in the convolution
+            double[] re = new double[m], im = new double[m];
+            re[0] = wr[0];
+            im[0] = -wi[0];
+            for (int k = 1; k < n; ++k) {
+                re[k] = re[m - k] = wr[k];
+                im[k] = im[m - k] = -wi[k];
+            }
+            radix2(re, im, false);
+            bre = re;
+            bim = im;
+        }
+    }
+
+    public int getLength() {
+        return n;
+    }
+
+    /**
+     * In place forward transform
+     *
+     * @param re Real part. Length = n
+     * @param im Imaginary part. Length = n
+     */
+    public void transform(double[] re, double[] im) {
+        if (wr == null) {
+            radix2(re, im, false);
+        } else {
+            bluestein(re, im, false);
+        }
+    }
+
+    /**
+     * In place backward transform (without scaling by 1/n)
+     *
+     * @param re Real part. Length = n
+     * @param im Imaginary part. Length = n
+     */
+    public void backTransform(double[] re, double[] im) {
+        if (wr == null) {
+            radix2(re, im, true);
+        } else {
+            bluestein(re, im, true);
+        }
+    }
+
+    /**
+     * Computes the squared moduli of the transform of a real series. The
+     * series is padded with zeroes if its length is smaller than n.
+     *
+     * @param x The real series. Its length should be lower or equal to n
+     * @param start The position of the first element in x
+     * @param len The number of elements in x
+     * @param q The array that will contain |X(k)|^2, k=0...q.length-1
+     * (q.length &le; n)
+     */
+    public void squaredModulus(double[] x, int start, int len, double[] q) {
+        double[] re = new double[n], im = new double[n];
+        System.arraycopy(x, start, re, 0, len);
+        transform(re, im);
+        for (int k = 0; k < q.length; ++k) {
+            q[k] = re[k] * re[k] + im[k] * im[k];
+        }
+    }
+
+    private void bluestein(double[] re, double[] im, boolean inverse) {
+        double[] are = new double[m], aim = new double[m];
+        double s = inverse ? -1 : 1;
+        for (int k = 0; k < n; ++k) {
+            double cr = wr[k], ci = s * wi[k];
+            are[k] = re[k] * cr - im[k] * ci;
+            aim[k] = re[k] * ci + im[k] * cr;
+        }
+        radix2(are, aim, false);
+        for (int k = 0; k < m; ++k) {
+            double br = bre[k], bi = s * bim[k];
+            double r = are[k] * br - aim[k] * bi;
+            aim[k] = are[k] * bi + aim[k] * br;
+            are[k] = r;
+        }
+        radix2(are, aim, true);
+        for (int k = 0; k < n; ++k) {
+            double cr = wr[k], ci = s * wi[k];
+            double r = (are[k] * cr - aim[k] * ci) / m;
+            im[k] = (are[k] * ci + aim[k] * cr) / m;
+            re[k] = r;
+        }
+    }
+
+    private void radix2(double[] re, double[] im, boolean inverse) {
+        // bit reversal
+        for (int i = 1, j = 0; i < m; ++i) {
+            int bit = m >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        double s = inverse ? -1 : 1;
+        for (int len = 2; len <= m; len <<= 1) {
+            int h = len >> 1, step = m / len;
+            for (int i = 0; i < m; i += len) {
+                for (int j = 0, k = 0; j < h; ++j, k += step) {
+                    double c = cos[k], d = s * sin[k];
+                    int u = i + j, v = u + h;
+                    double tr = re[v] * c - im[v] * d;
+                    double ti = re[v] * d + im[v] * c;
+                    re[v] = re[u] - tr;
+                    im[v] = im[u] - ti;
+                    re[u] += tr;
+                    im[u] += ti;
+                }
+            }
+        }
+    }
+
+    private static boolean isPowerOf2(int n) {
+        return (n & (n - 1)) == 0;
+    }
+}
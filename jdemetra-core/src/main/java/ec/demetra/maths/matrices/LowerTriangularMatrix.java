@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import ec.demetra.data.DataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.MatrixException;
+
+/**
+ * Operations on lower triangular matrices. The upper part of the matrices
+ * is never used. The solvers rely on MatrixKernels.trsm.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class LowerTriangularMatrix {
+
+    private LowerTriangularMatrix() {
+    }
+
+    /**
+     * Solves L * X = B. B is replaced by the solution
+     *
+     * @param L
+     * @param B
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void rsolve(final SubMatrix L, final SubMatrix B) {
+        MatrixKernels.trsm(L, true, B);
+    }
+
+    /**
+     * Solves X * L = B (or L' * X' = B'). B is replaced by the solution
+     *
+     * @param L
+     * @param B
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void lsolve(final SubMatrix L, final SubMatrix B) {
+        MatrixKernels.trsm(L.transpose(), false, B.transpose());
+    }
+
+    /**
+     * Solves L * x = b. b is replaced by the solution
+     *
+     * @param L
+     * @param b
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void rsolve(final SubMatrix L, final DataBlock b) {
+        MatrixKernels.trsm(L, true, SubMatrix.columnOf(b));
+    }
+
+    /**
+     * Solves x * L = b (or L' * x = b). b is replaced by the solution
+     *
+     * @param L
+     * @param b
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void lsolve(final SubMatrix L, final DataBlock b) {
+        MatrixKernels.trsm(L.transpose(), false, SubMatrix.columnOf(b));
+    }
+
+    /**
+     * Computes the inverse of a lower triangular matrix
+     *
+     * @param L
+     * @return A new lower triangular matrix
+     * @throws MatrixException if the matrix is singular
+     */
+    public static Matrix inverse(final SubMatrix L) {
+        Matrix I = Matrix.identity(L.getRowsCount());
+        rsolve(L, I.all());
+        return I;
+    }
+}
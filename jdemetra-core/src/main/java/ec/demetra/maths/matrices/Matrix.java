@@ -26,10 +26,64 @@ public final class Matrix {
         return new Matrix(data, nrows, ncols);
     }
     
+    public static Matrix identity(int n){
+        Matrix I=new Matrix(n, n);
+        for (int i=0; i<I.data.length; i+=n+1)
+            I.data[i]=1;
+        return I;
+    }
+
+    /**
+     * Creates a matrix that shares the storage of a tstoolkit matrix. The
+     * operations of this package can so be applied to the matrices
+     * used by the existing algorithms without copies
+     * @param m
+     * @return
+     */
+    public static Matrix of(ec.tstoolkit.maths.matrices.Matrix m){
+        return new Matrix(m.internalStorage(), m.getRowsCount(), m.getColumnsCount());
+    }
+
+    /**
+     * Creates a tstoolkit matrix that shares the storage of this matrix
+     * @return
+     */
+    public ec.tstoolkit.maths.matrices.Matrix asToolkitMatrix(){
+        return new ec.tstoolkit.maths.matrices.Matrix(data, nrows, ncols);
+    }
+    
     public SubMatrix all(){
         return new SubMatrix(data, 0, nrows, ncols, 1, nrows);
     }
 
+    public double get(int row, int col){
+        return data[row+col*nrows];
+    }
+
+    public void set(int row, int col, double value){
+        data[row+col*nrows]=value;
+    }
+
+    public int getRowsCount(){
+        return nrows;
+    }
+
+    public int getColumnsCount(){
+        return ncols;
+    }
+
+    /**
+     * Gets the storage of the matrix (column-major)
+     * @return
+     */
+    public double[] internalStorage(){
+        return data;
+    }
+
+    public Matrix deepClone(){
+        return new Matrix(data.clone(), nrows, ncols);
+    }
+
     /**
      * Creates a sub-matrix from this matrix
      *
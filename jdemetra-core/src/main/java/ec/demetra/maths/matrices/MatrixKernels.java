@@ -0,0 +1,334 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.MatrixException;
+
+/**
+ * Cache-blocked kernels for the products of sub-matrices (GEMM, SYRK) and
+ * the triangular systems (TRSM).
+ *
+ * The kernels work directly on the storage of the sub-matrices. The left
+ * operand is split into blocks of MB x KB elements; the blocks that don't
+ * have contiguous columns are first copied (packed) in a contiguous buffer.
+ * The inner loops then combine 4 columns of the block at a time on
+ * contiguous data, a form that the JIT compiler vectorizes. The result is
+ * accumulated in place, column by column; sub-matrices with non unit row
+ * increments are handled by a (slower) strided variant of the same loops.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class MatrixKernels {
+
+    private MatrixKernels() {
+    }
+
+    /**
+     * Size of the blocks of the left operand (rows x columns). A packed block
+     * takes 128 KB, which stays in the L2 cache of current processors
+     */
+    static final int MB = 128, KB = 128;
+    /**
+     * Size of the diagonal blocks in the triangular solvers
+     */
+    static final int TB = 64;
+    /**
+     * Under that number of multiplications, the strided operands are not
+     * packed
+     */
+    private static final int SMALL = 4096;
+
+    /**
+     * Computes C = alpha * A * B (add = false) or C = C + alpha * A * B (add
+     * = true)
+     *
+     * @param C The result (m x n). It can't overlap A or B
+     * @param A The left operand (m x k)
+     * @param B The right operand (k x n)
+     * @param alpha The scaling factor
+     * @param add True if the product is added to C
+     */
+    public static void gemm(SubMatrix C, SubMatrix A, SubMatrix B, double alpha, boolean add) {
+        int m = C.m_nrows, n = C.m_ncols, k = A.m_ncols;
+        if (A.m_nrows != m || B.m_nrows != k || B.m_ncols != n) {
+            throw new MatrixException("Incompatible dimensions");
+        }
+        if (!add) {
+            clear(C);
+        }
+        if (m == 0 || n == 0 || k == 0 || alpha == 0) {
+            return;
+        }
+        if (A.m_row_inc != 1 && (long) m * n * k <= SMALL) {
+            // small strided problem: no packing
+            for (int j = 0; j < n; ++j) {
+                int bpos = B.m_start + j * B.m_col_inc;
+                for (int i = 0, cpos = C.m_start + j * C.m_col_inc; i < m; ++i, cpos += C.m_row_inc) {
+                    double s = 0;
+                    for (int p = 0, apos = A.m_start + i * A.m_row_inc, bcur = bpos; p < k; ++p, apos += A.m_col_inc, bcur += B.m_row_inc) {
+                        s += A.m_data[apos] * B.m_data[bcur];
+                    }
+                    C.m_data[cpos] += alpha * s;
+                }
+            }
+            return;
+        }
+        double[] buffer = A.m_row_inc == 1 ? null : new double[Math.min(m, MB) * Math.min(k, KB)];
+        for (int k0 = 0; k0 < k; k0 += KB) {
+            int kb = Math.min(KB, k - k0);
+            for (int i0 = 0; i0 < m; i0 += MB) {
+                int mb = Math.min(MB, m - i0);
+                double[] a;
+                int a0, ainc;
+                if (buffer == null) {
+                    a = A.m_data;
+                    a0 = A.m_start + i0 + k0 * A.m_col_inc;
+                    ainc = A.m_col_inc;
+                } else {
+                    pack(A, i0, k0, mb, kb, buffer);
+                    a = buffer;
+                    a0 = 0;
+                    ainc = mb;
+                }
+                for (int j = 0; j < n; ++j) {
+                    int c0 = C.m_start + i0 * C.m_row_inc + j * C.m_col_inc;
+                    int b0 = B.m_start + k0 * B.m_row_inc + j * B.m_col_inc;
+                    axpy(C.m_data, c0, C.m_row_inc, a, a0, ainc, B.m_data, b0, B.m_row_inc, alpha, mb, kb);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the symmetric matrix C = A * A' (add = false) or C = C + A *
+     * A' (add = true). Only the lower triangle is computed; it is then copied
+     * in the upper triangle
+     *
+     * @param C The result (n x n). It can't overlap A
+     * @param A The operand (n x k)
+     * @param add True if the product is added to C
+     */
+    public static void syrk(SubMatrix C, SubMatrix A, boolean add) {
+        int n = C.m_nrows, k = A.m_ncols;
+        if (C.m_ncols != n || A.m_nrows != n) {
+            throw new MatrixException("Incompatible dimensions");
+        }
+        if (!add) {
+            clear(C);
+        }
+        if (n == 0 || k == 0) {
+            return;
+        }
+        double[] buffer = A.m_row_inc == 1 ? null : new double[n * Math.min(k, KB)];
+        for (int k0 = 0; k0 < k; k0 += KB) {
+            int kb = Math.min(KB, k - k0);
+            double[] a;
+            int a0, ainc;
+            if (buffer == null) {
+                a = A.m_data;
+                a0 = A.m_start + k0 * A.m_col_inc;
+                ainc = A.m_col_inc;
+            } else {
+                pack(A, 0, k0, n, kb, buffer);
+                a = buffer;
+                a0 = 0;
+                ainc = n;
+            }
+            for (int j = 0; j < n; ++j) {
+                int c0 = C.m_start + j * (C.m_row_inc + C.m_col_inc);
+                // C(j:n, j) += A(j:n, k0:k0+kb) * A(j, k0:k0+kb)'
+                axpy(C.m_data, c0, C.m_row_inc, a, a0 + j, ainc, a, a0 + j, ainc, 1, n - j, kb);
+            }
+        }
+        // symmetrize
+        for (int j = 0; j < n; ++j) {
+            int src = C.m_start + j * (C.m_row_inc + C.m_col_inc) + C.m_row_inc;
+            int dst = C.m_start + j * (C.m_row_inc + C.m_col_inc) + C.m_col_inc;
+            for (int i = j + 1; i < n; ++i, src += C.m_row_inc, dst += C.m_col_inc) {
+                C.m_data[dst] = C.m_data[src];
+            }
+        }
+    }
+
+    /**
+     * Solves T * X = B, where T is a triangular matrix. B is replaced by the
+     * solution. The upper (resp. lower) part of a lower (resp. upper)
+     * triangular matrix is not used, so that the transposed system (L' * X =
+     * B) is solved by trsm(L.transpose(), false, B).
+     *
+     * The system is solved by diagonal blocks; the other rows of B are updated
+     * after each block by means of gemm.
+     *
+     * @param T The triangular matrix (n x n)
+     * @param lower True if T is lower triangular, false if it is upper
+     * triangular
+     * @param B The right-hand side (n x m). It can't overlap T
+     * @throws MatrixException if T is singular
+     */
+    public static void trsm(SubMatrix T, boolean lower, SubMatrix B) {
+        int n = T.m_nrows, m = B.m_ncols;
+        if (T.m_ncols != n || B.m_nrows != n) {
+            throw new MatrixException("Incompatible dimensions");
+        }
+        if (n == 0 || m == 0) {
+            return;
+        }
+        if (lower) {
+            for (int r0 = 0; r0 < n; r0 += TB) {
+                int r1 = Math.min(n, r0 + TB);
+                solveBlock(T, true, B, r0, r1);
+                if (r1 < n) {
+                    gemm(B.extract(r1, n, 0, m), T.extract(r1, n, r0, r1), B.extract(r0, r1, 0, m), -1, true);
+                }
+            }
+        } else {
+            for (int r1 = n; r1 > 0; r1 -= TB) {
+                int r0 = Math.max(0, r1 - TB);
+                solveBlock(T, false, B, r0, r1);
+                if (r0 > 0) {
+                    gemm(B.extract(0, r0, 0, m), T.extract(0, r0, r0, r1), B.extract(r0, r1, 0, m), -1, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves the diagonal block [r0, r1[ of a triangular system (by
+     * substitution, column by column)
+     */
+    private static void solveBlock(SubMatrix T, boolean lower, SubMatrix B, int r0, int r1) {
+        double[] t = T.m_data, b = B.m_data;
+        int tr = T.m_row_inc, tc = T.m_col_inc, br = B.m_row_inc;
+        for (int j = 0; j < B.m_ncols; ++j) {
+            int bcol = B.m_start + j * B.m_col_inc;
+            if (lower) {
+                for (int p = r0; p < r1; ++p) {
+                    int tp = T.m_start + p * (tr + tc);
+                    double d = t[tp];
+                    if (d == 0) {
+                        throw new MatrixException("Singular triangular matrix");
+                    }
+                    double x = b[bcol + p * br] / d;
+                    b[bcol + p * br] = x;
+                    if (x != 0) {
+                        for (int i = p + 1, ti = tp + tr, bi = bcol + i * br; i < r1; ++i, ti += tr, bi += br) {
+                            b[bi] -= x * t[ti];
+                        }
+                    }
+                }
+            } else {
+                for (int p = r1 - 1; p >= r0; --p) {
+                    int tp = T.m_start + p * (tr + tc);
+                    double d = t[tp];
+                    if (d == 0) {
+                        throw new MatrixException("Singular triangular matrix");
+                    }
+                    double x = b[bcol + p * br] / d;
+                    b[bcol + p * br] = x;
+                    if (x != 0) {
+                        for (int i = r0, ti = T.m_start + r0 * tr + p * tc, bi = bcol + r0 * br; i < p; ++i, ti += tr, bi += br) {
+                            b[bi] -= x * t[ti];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the block A(i0:i0+mb, k0:k0+kb) in a contiguous column-major
+     * buffer
+     */
+    private static void pack(SubMatrix A, int i0, int k0, int mb, int kb, double[] buffer) {
+        double[] a = A.m_data;
+        int ri = A.m_row_inc, ci = A.m_col_inc;
+        int q = 0;
+        for (int p = 0, col = A.m_start + i0 * ri + k0 * ci; p < kb; ++p, col += ci) {
+            for (int i = 0, pos = col; i < mb; ++i, pos += ri) {
+                buffer[q++] = a[pos];
+            }
+        }
+    }
+
+    private static void clear(SubMatrix C) {
+        double[] c = C.m_data;
+        if (C.m_row_inc == 1) {
+            for (int j = 0, col = C.m_start; j < C.m_ncols; ++j, col += C.m_col_inc) {
+                for (int i = col; i < col + C.m_nrows; ++i) {
+                    c[i] = 0;
+                }
+            }
+        } else {
+            for (int j = 0, col = C.m_start; j < C.m_ncols; ++j, col += C.m_col_inc) {
+                for (int i = 0, pos = col; i < C.m_nrows; ++i, pos += C.m_row_inc) {
+                    c[pos] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * c(0:mb) += alpha * a(0:mb, 0:kb) * b(0:kb), where the columns of a are
+     * contiguous (starting at a0, a0+ainc...), c has an increment cinc and b
+     * an increment binc.
+     */
+    private static void axpy(double[] c, int c0, int cinc, double[] a, int a0, int ainc,
+            double[] b, int b0, int binc, double alpha, int mb, int kb) {
+        int p = 0;
+        if (cinc == 1) {
+            for (; p + 3 < kb; p += 4) {
+                int q0 = a0 + p * ainc, q1 = q0 + ainc, q2 = q1 + ainc, q3 = q2 + ainc;
+                int bp = b0 + p * binc;
+                double x0 = alpha * b[bp], x1 = alpha * b[bp + binc],
+                        x2 = alpha * b[bp + 2 * binc], x3 = alpha * b[bp + 3 * binc];
+                for (int i = 0; i < mb; ++i) {
+                    c[c0 + i] += a[q0 + i] * x0 + a[q1 + i] * x1 + a[q2 + i] * x2 + a[q3 + i] * x3;
+                }
+            }
+            for (; p < kb; ++p) {
+                int q0 = a0 + p * ainc;
+                double x0 = alpha * b[b0 + p * binc];
+                if (x0 != 0) {
+                    for (int i = 0; i < mb; ++i) {
+                        c[c0 + i] += a[q0 + i] * x0;
+                    }
+                }
+            }
+        } else {
+            for (; p + 3 < kb; p += 4) {
+                int q0 = a0 + p * ainc, q1 = q0 + ainc, q2 = q1 + ainc, q3 = q2 + ainc;
+                int bp = b0 + p * binc;
+                double x0 = alpha * b[bp], x1 = alpha * b[bp + binc],
+                        x2 = alpha * b[bp + 2 * binc], x3 = alpha * b[bp + 3 * binc];
+                for (int i = 0, ci = c0; i < mb; ++i, ci += cinc) {
+                    c[ci] += a[q0 + i] * x0 + a[q1 + i] * x1 + a[q2 + i] * x2 + a[q3 + i] * x3;
+                }
+            }
+            for (; p < kb; ++p) {
+                int q0 = a0 + p * ainc;
+                double x0 = alpha * b[b0 + p * binc];
+                if (x0 != 0) {
+                    for (int i = 0, ci = c0; i < mb; ++i, ci += cinc) {
+                        c[ci] += a[q0 + i] * x0;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import ec.tstoolkit.design.Development;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a matrix of numbers from a text file (one row by line, the values
+ * being separated by blanks and/or by a comma). Blank lines are skipped.
+ *
+ * The file is memory-mapped and parsed in two passes: the first one counts
+ * the rows, the second one parses the numbers directly into the column-major
+ * storage of the matrix, without intermediate strings. The numbers use the
+ * '.' as decimal separator (no grouping); usual decimal numbers are converted
+ * exactly by a fast path, other forms (long mantissas, large exponents, NaN,
+ * Infinity) by Double.parseDouble.
+ *
+ * The file can be split in blocks of lines that are parsed in parallel.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class MatrixReader {
+
+    private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
+    // minimal size of a block for a parallel processing
+    private static final int BLOCK_SIZE = 1 << 20;
+    // exact powers of 10
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7,
+        1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private MatrixReader() {
+    }
+
+    /**
+     * Reads a matrix (sequential processing)
+     *
+     * @param path The file
+     * @return The matrix, or null if the file is empty or if it contains
+     * invalid numbers or rows of different lengths
+     * @throws IOException
+     */
+    public static Matrix read(Path path) throws IOException {
+        return read(path, false);
+    }
+
+    /**
+     * Reads a matrix
+     *
+     * @param path The file. It must be smaller than 2GB
+     * @param parallel If true, large files are split in blocks of lines that
+     * are parsed in parallel
+     * @return The matrix, or null if the file is empty or if it contains
+     * invalid numbers or rows of different lengths
+     * @throws IOException
+     */
+    public static Matrix read(Path path, boolean parallel) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large");
+            }
+            if (size == 0) {
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buffer, parallel);
+        }
+    }
+
+    /**
+     * Reads a matrix from a buffer of (ASCII) text
+     *
+     * @param buffer The buffer. Its content between 0 and its limit is read.
+     * Its position is unchanged
+     * @param parallel If true, large buffers are split in blocks of lines that
+     * are parsed in parallel
+     * @return The matrix, or null if the buffer is empty or if it contains
+     * invalid numbers or rows of different lengths
+     */
+    public static Matrix read(ByteBuffer buffer, boolean parallel) {
+        int size = buffer.limit();
+        int nblocks = parallel ? Math.min(NTHREADS, Math.max(1, size / BLOCK_SIZE)) : 1;
+        // limits of the blocks, at the beginning of a line
+        int[] limits = new int[nblocks + 1];
+        for (int i = 1; i < nblocks; ++i) {
+            int pos = Math.max(limits[i - 1], (int) ((long) size * i / nblocks));
+            while (pos < size && pos > 0 && buffer.get(pos - 1) != '\n') {
+                ++pos;
+            }
+            limits[i] = pos;
+        }
+        limits[nblocks] = size;
+        int ncols = columns(buffer, size);
+        if (ncols <= 0) {
+            return null;
+        }
+        // first pass: number of rows in each block
+        int[] rows = run(nblocks, b -> countRows(buffer, limits[b], limits[b + 1]));
+        int nrows = 0;
+        int[] start = new int[nblocks];
+        for (int b = 0; b < nblocks; ++b) {
+            start[b] = nrows;
+            nrows += rows[b];
+        }
+        // second pass: parsing
+        double[] data = new double[nrows * ncols];
+        int nr = nrows;
+        int[] ok = run(nblocks, b -> parse(buffer, limits[b], limits[b + 1], data, start[b], nr, ncols) ? 1 : 0);
+        for (int b = 0; b < nblocks; ++b) {
+            if (ok[b] == 0) {
+                return null;
+            }
+        }
+        return Matrix.of(data, nrows);
+    }
+
+    @FunctionalInterface
+    private static interface BlockTask {
+
+        int apply(int block);
+    }
+
+    private static int[] run(int nblocks, BlockTask task) {
+        int[] rslt = new int[nblocks];
+        if (nblocks == 1) {
+            rslt[0] = task.apply(0);
+            return rslt;
+        }
+        List<Callable<Integer>> tasks = new ArrayList<>(nblocks);
+        for (int b = 0; b < nblocks; ++b) {
+            int cur = b;
+            tasks.add(() -> task.apply(cur));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(nblocks);
+        try {
+            List<Future<Integer>> futures = executorService.invokeAll(tasks);
+            for (int b = 0; b < nblocks; ++b) {
+                rslt[b] = futures.get(b).get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            executorService.shutdown();
+        }
+        return rslt;
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isSeparator(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == ',';
+    }
+
+    /**
+     * Number of values in the first non blank line
+     */
+    private static int columns(ByteBuffer buffer, int size) {
+        int n = 0;
+        boolean token = false;
+        for (int pos = 0; pos < size; ++pos) {
+            byte c = buffer.get(pos);
+            if (c == '\n') {
+                if (n > 0 || token) {
+                    break;
+                }
+            } else if (isSeparator(c)) {
+                token = false;
+            } else if (!token) {
+                token = true;
+                ++n;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Number of non blank lines in [beg, end[
+     */
+    private static int countRows(ByteBuffer buffer, int beg, int end) {
+        int n = 0;
+        boolean blank = true;
+        for (int pos = beg; pos < end; ++pos) {
+            byte c = buffer.get(pos);
+            if (c == '\n') {
+                if (!blank) {
+                    ++n;
+                    blank = true;
+                }
+            } else if (blank && !isBlank(c)) {
+                blank = false;
+            }
+        }
+        if (!blank) {
+            ++n;
+        }
+        return n;
+    }
+
+    /**
+     * Parses the lines in [beg, end[ into the rows [row0, ...[ of the
+     * column-major storage data (nrows x ncols)
+     */
+    private static boolean parse(ByteBuffer buffer, int beg, int end, double[] data, int row0, int nrows, int ncols) {
+        int row = row0, pos = beg;
+        double[] value = new double[1];
+        while (pos < end) {
+            // skip blanks at the beginning of the line
+            while (pos < end && isBlank(buffer.get(pos))) {
+                ++pos;
+            }
+            if (pos == end) {
+                break;
+            }
+            if (buffer.get(pos) == '\n') {
+                ++pos;
+                continue;
+            }
+            for (int col = 0; col < ncols; ++col) {
+                if (col > 0) {
+                    // separator: blanks with at most one comma
+                    int p0 = pos;
+                    boolean comma = false;
+                    while (pos < end) {
+                        byte c = buffer.get(pos);
+                        if (c == ',' && !comma) {
+                            comma = true;
+                        } else if (!isBlank(c)) {
+                            break;
+                        }
+                        ++pos;
+                    }
+                    if (pos == p0) {
+                        return false;
+                    }
+                }
+                pos = parseDouble(buffer, pos, end, value);
+                if (pos < 0) {
+                    return false;
+                }
+                data[row + col * nrows] = value[0];
+            }
+            // end of the line
+            while (pos < end && isBlank(buffer.get(pos))) {
+                ++pos;
+            }
+            if (pos < end) {
+                if (buffer.get(pos) != '\n') {
+                    return false;
+                }
+                ++pos;
+            }
+            ++row;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a number starting at pos
+     *
+     * @return The position after the number, -1 if the number is invalid
+     */
+    private static int parseDouble(ByteBuffer buffer, int pos, int end, double[] value) {
+        int start = pos;
+        boolean neg = false;
+        if (pos < end) {
+            byte c = buffer.get(pos);
+            if (c == '-' || c == '+') {
+                neg = c == '-';
+                ++pos;
+            }
+        }
+        long mantissa = 0;
+        int ndigits = 0, scale = 0;
+        boolean digits = false, point = false;
+        while (pos < end) {
+            byte c = buffer.get(pos);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+                if (ndigits < 18) {
+                    if (mantissa != 0 || c != '0') {
+                        ++ndigits;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (point) {
+                        --scale;
+                    }
+                } else {
+                    // the digit is lost (slow path below)
+                    ++ndigits;
+                    if (!point) {
+                        ++scale;
+                    }
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+            ++pos;
+        }
+        if (pos < end && digits) {
+            byte c = buffer.get(pos);
+            if (c == 'e' || c == 'E') {
+                int p = pos + 1;
+                boolean eneg = false;
+                if (p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+                    eneg = buffer.get(p) == '-';
+                    ++p;
+                }
+                int exp = 0;
+                boolean edigits = false;
+                while (p < end && buffer.get(p) >= '0' && buffer.get(p) <= '9') {
+                    if (exp < 100000) {
+                        exp = exp * 10 + (buffer.get(p) - '0');
+                    }
+                    edigits = true;
+                    ++p;
+                }
+                if (!edigits) {
+                    return -1;
+                }
+                scale += eneg ? -exp : exp;
+                pos = p;
+            }
+        }
+        if (pos < end && !isSeparator(buffer.get(pos)) && buffer.get(pos) != '\n') {
+            // NaN, Infinity...
+            while (pos < end && !isSeparator(buffer.get(pos)) && buffer.get(pos) != '\n') {
+                ++pos;
+            }
+            return slowParse(buffer, start, pos, value);
+        }
+        if (!digits) {
+            return -1;
+        }
+        if (ndigits <= 15 && scale >= -22 && scale <= 22) {
+            // exact: the mantissa and the power of 10 are exactly represented
+            double d = mantissa;
+            d = scale < 0 ? d / POW10[-scale] : d * POW10[scale];
+            value[0] = neg ? -d : d;
+            return pos;
+        }
+        return slowParse(buffer, start, pos, value);
+    }
+
+    private static int slowParse(ByteBuffer buffer, int beg, int end, double[] value) {
+        byte[] bytes = new byte[end - beg];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = buffer.get(beg + i);
+        }
+        try {
+            value[0] = Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+            return end;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
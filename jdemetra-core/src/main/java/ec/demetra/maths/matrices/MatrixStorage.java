@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import ec.demetra.data.DataBlock;
+import ec.tstoolkit.design.Development;
+import java.util.Arrays;
+
+/**
+ * Reusable workspace for temporary matrices and vectors. Each slot keeps its
+ * storage between the calls, so that algorithms that repeat the same
+ * operations (typically the filters, at each period) don't allocate new
+ * arrays. The storage of a slot only grows.
+ *
+ * The content of a temporary matrix is undefined when it is obtained, and it
+ * is overwritten by the next request on the same slot. The class is not
+ * thread-safe: a workspace should be confined to one thread (see
+ * ThreadLocal.withInitial(MatrixStorage::new)).
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class MatrixStorage {
+
+    private double[][] buffers = new double[4][];
+
+    /**
+     * Gets a temporary matrix
+     *
+     * @param slot The slot of the workspace (0-based)
+     * @param nrows
+     * @param ncols
+     * @return A column-major matrix (row increment = 1, column increment =
+     * nrows)
+     */
+    public SubMatrix matrix(int slot, int nrows, int ncols) {
+        return new SubMatrix(buffer(slot, nrows * ncols), nrows, ncols);
+    }
+
+    /**
+     * Gets a temporary vector
+     *
+     * @param slot The slot of the workspace (0-based)
+     * @param n
+     * @return A contiguous block of data
+     */
+    public DataBlock vector(int slot, int n) {
+        return DataBlock.of(buffer(slot, n), 0, n);
+    }
+
+    /**
+     * Releases all the storage
+     */
+    public void clear() {
+        Arrays.fill(buffers, null);
+    }
+
+    private double[] buffer(int slot, int size) {
+        if (slot >= buffers.length) {
+            buffers = Arrays.copyOf(buffers, Math.max(slot + 1, 2 * buffers.length));
+        }
+        double[] b = buffers[slot];
+        if (b == null || b.length < size) {
+            b = new double[size];
+            buffers[slot] = b;
+        }
+        return b;
+    }
+}
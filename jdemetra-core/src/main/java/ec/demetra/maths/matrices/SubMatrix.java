@@ -240,6 +240,44 @@ public final class SubMatrix implements Cloneable {
         m_data[m_start + row * m_row_inc + col * m_col_inc] = value;
     }
 
+    /**
+     * Sets all the elements of this sub-matrix to a given value
+     *
+     * @param value
+     */
+    public void set(double value) {
+        for (int c = 0, cpos = m_start; c < m_ncols; ++c, cpos += m_col_inc) {
+            for (int r = 0, pos = cpos; r < m_nrows; ++r, pos += m_row_inc) {
+                m_data[pos] = value;
+            }
+        }
+    }
+
+    /**
+     * Copies a sub-matrix of the same dimensions in this one
+     *
+     * @param x
+     */
+    public void copy(SubMatrix x) {
+        double[] y = x.m_data;
+        for (int c = 0, cpos = m_start, xcpos = x.m_start; c < m_ncols; ++c, cpos += m_col_inc, xcpos += x.m_col_inc) {
+            for (int r = 0, pos = cpos, xpos = xcpos; r < m_nrows; ++r, pos += m_row_inc, xpos += x.m_row_inc) {
+                m_data[pos] = y[xpos];
+            }
+        }
+    }
+
+    /**
+     * Views a block of data as a column matrix
+     *
+     * @param x
+     * @return
+     */
+    static SubMatrix columnOf(DataBlock x) {
+        int n = x.getLength(), inc = x.getIncrement();
+        return new SubMatrix(x.getData(), x.getStartPosition(), n, 1, inc, n * inc);
+    }
+
     /**
      *
      * @return
@@ -351,78 +389,48 @@ public final class SubMatrix implements Cloneable {
     }
 
     public void add(SubMatrix x) {
-        if (m_col_inc == 1 && x.m_col_inc == 1) {
-            DataBlock row = row(0);
-            DataBlock xrow = x.row(0);
-            int c = 0;
-            do {
-                row.add(xrow);
-                row.slide(m_row_inc);
-                row.slide(x.m_row_inc);
-            } while (++c < m_nrows);
+        double[] y = x.m_data;
+        if (m_row_inc == 1 && x.m_row_inc == 1) {
+            // contiguous columns
+            for (int c = 0, pos = m_start, xpos = x.m_start; c < m_ncols; ++c, pos += m_col_inc, xpos += x.m_col_inc) {
+                for (int r = 0; r < m_nrows; ++r) {
+                    m_data[pos + r] += y[xpos + r];
+                }
+            }
+        } else if (m_col_inc == 1 && x.m_col_inc == 1) {
+            // contiguous rows
+            for (int r = 0, pos = m_start, xpos = x.m_start; r < m_nrows; ++r, pos += m_row_inc, xpos += x.m_row_inc) {
+                for (int c = 0; c < m_ncols; ++c) {
+                    m_data[pos + c] += y[xpos + c];
+                }
+            }
         } else {
-            DataBlock col = column(0);
-            DataBlock xcol = x.column(0);
-            int c = 0;
-            do {
-                col.add(xcol);
-                col.slide(m_col_inc);
-                col.slide(x.m_col_inc);
-            } while (++c < m_ncols);
-
+            for (int c = 0, cpos = m_start, xcpos = x.m_start; c < m_ncols; ++c, cpos += m_col_inc, xcpos += x.m_col_inc) {
+                for (int r = 0, pos = cpos, xpos = xcpos; r < m_nrows; ++r, pos += m_row_inc, xpos += x.m_row_inc) {
+                    m_data[pos] += y[xpos];
+                }
+            }
         }
     }
 
-    private static final int PROD_THRESHOLD = 6;
-
     /**
+     * Computes this = lm * rm (see MatrixKernels.gemm)
      *
      * @param lm
      * @param rm
      */
     public void product(final SubMatrix lm, final SubMatrix rm) {
-        if (lm.getColumnsCount() < PROD_THRESHOLD * (lm.getRowsCount())) {
-//            Iterator<DataBlock> rcols = rm.columns().iterator();
-//            for (DataBlock col : columns()) {
-//                Iterator<DataBlock> lcols = lm.columns().iterator();
-//                DataBlock rcol = rcols.next();
-//                int k = 0;
-//                col.setAY(rcol.get(k++), lcols.next());
-//                while (lcols.hasNext()) {
-//                    col.addAY(rcol.get(k++), lcols.next());
-//                }
-//            }
-            DataBlock rcol = rm.column(0), col = column(0);
-            for (int i = 0; i < m_ncols; ++i) {
-                DataBlock lcol = lm.column(0);
-                col.setAY(rcol.get(0), lcol);
-                for (int j = 1; j < lm.m_ncols; ++j) {
-                    lcol.slide(lm.m_col_inc);
-                    col.addAY(rcol.get(j), lcol);
-                }
-                rcol.slide(rm.m_col_inc);
-                col.slide(m_col_inc);
-            }
-        } else {
-//            Iterator<DataBlock> rcols = rm.columns().iterator();
-//            for (DataBlock col : columns()) {
-//                int k = 0;
-//                DataBlock rcol = rcols.next();
-//                for (DataBlock row : lm.rows()) {
-//                    col.set(k++, row.dot(rcol));
-//                }
-//            }
-            DataBlock rcol = rm.column(0), col = column(0);
-            for (int i = 0; i < m_ncols; ++i) {
-                DataBlock lrow = lm.row(0);
-                for (int j = 0; j < lm.m_nrows; ++j) {
-                    col.set(j, lrow.dot(rcol));
-                    lrow.slide(lm.m_row_inc);
-                }
-                rcol.slide(rm.m_col_inc);
-                col.slide(m_col_inc);
-            }
-        }
+        MatrixKernels.gemm(this, lm, rm, 1, false);
+    }
+
+    /**
+     * Computes this = this + lm * rm (see MatrixKernels.gemm)
+     *
+     * @param lm
+     * @param rm
+     */
+    public void addProduct(final SubMatrix lm, final SubMatrix rm) {
+        MatrixKernels.gemm(this, lm, rm, 1, true);
     }
 
     /**
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import ec.demetra.data.DataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.MatrixException;
+
+/**
+ * Operations on symmetric matrices. The methods follow the corresponding
+ * methods of ec.tstoolkit.maths.matrices.SymmetricMatrix, on the matrices of
+ * this package.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class SymmetricMatrix {
+
+    private SymmetricMatrix() {
+    }
+
+    public static final double EPSILON = 1e-13;
+
+    /**
+     * Computes the Cholesky factor of a symmetric positive semi-definite
+     * matrix: S = L * L'. The lower triangular matrix L replaces the lower
+     * part of S; the upper part is set to 0. Columns with a pivot smaller than
+     * EPSILON are set to 0.
+     *
+     * @param S
+     * @throws MatrixException if the matrix is not positive semi-definite
+     */
+    public static void lcholesky(final SubMatrix S) {
+        lcholesky(S, EPSILON);
+    }
+
+    /**
+     * Computes the Cholesky factor of a symmetric positive semi-definite
+     * matrix (left-looking algorithm; the update of each column is done by
+     * MatrixKernels.gemm)
+     *
+     * @param S
+     * @param eps Pivots smaller than eps are considered as 0
+     * @throws MatrixException if the matrix is not positive semi-definite
+     */
+    public static void lcholesky(final SubMatrix S, final double eps) {
+        int n = S.m_nrows;
+        if (S.m_ncols != n) {
+            throw new MatrixException(MatrixException.SquareOnly);
+        }
+        double[] s = S.m_data;
+        int ri = S.m_row_inc, ci = S.m_col_inc;
+        for (int j = 0; j < n; ++j) {
+            if (j > 0) {
+                // S(j:n, j) -= L(j:n, 0:j) * L(j, 0:j)'
+                MatrixKernels.gemm(S.extract(j, n, j, j + 1), S.extract(j, n, 0, j),
+                        S.extract(j, j + 1, 0, j).transpose(), -1, true);
+            }
+            int jj = S.m_start + j * (ri + ci);
+            double d = s[jj];
+            if (d < -eps) {
+                throw new MatrixException("Cholesky decomposition: the matrix is not positive semi-definite");
+            }
+            if (d <= eps) {
+                for (int i = j, pos = jj; i < n; ++i, pos += ri) {
+                    s[pos] = 0;
+                }
+            } else {
+                d = Math.sqrt(d);
+                s[jj] = d;
+                for (int i = j + 1, pos = jj + ri; i < n; ++i, pos += ri) {
+                    s[pos] /= d;
+                }
+            }
+            // upper part
+            for (int i = 0, pos = S.m_start + j * ci; i < j; ++i, pos += ri) {
+                s[pos] = 0;
+            }
+        }
+    }
+
+    /**
+     * Computes X * X'
+     *
+     * @param X
+     * @return A new symmetric matrix
+     */
+    public static Matrix XXt(final SubMatrix X) {
+        Matrix M = Matrix.square(X.m_nrows);
+        MatrixKernels.syrk(M.all(), X, false);
+        return M;
+    }
+
+    /**
+     * Computes X' * X
+     *
+     * @param X
+     * @return A new symmetric matrix
+     */
+    public static Matrix XtX(final SubMatrix X) {
+        return XXt(X.transpose());
+    }
+
+    /**
+     * Computes M = X * S * X'
+     *
+     * @param S A symmetric matrix (n x n)
+     * @param X A matrix (m x n)
+     * @param M The result (m x m). It can't overlap S or X
+     */
+    public static void quadraticFormT(final SubMatrix S, final SubMatrix X, final SubMatrix M) {
+        Matrix XS = Matrix.of(X.m_nrows, S.m_ncols);
+        MatrixKernels.gemm(XS.all(), X, S, 1, false);
+        MatrixKernels.gemm(M, XS.all(), X.transpose(), 1, false);
+        reinforceSymmetry(M);
+    }
+
+    /**
+     * Computes x' * S * x
+     *
+     * @param S A symmetric matrix
+     * @param x
+     * @return
+     */
+    public static double quadraticForm(final SubMatrix S, final DataBlock x) {
+        int n = S.m_nrows;
+        double[] s = S.m_data;
+        double q = 0;
+        for (int j = 0; j < n; ++j) {
+            double xj = x.get(j);
+            if (xj == 0) {
+                continue;
+            }
+            int jj = S.m_start + j * (S.m_row_inc + S.m_col_inc);
+            double t = 0;
+            for (int i = j + 1, pos = jj + S.m_row_inc; i < n; ++i, pos += S.m_row_inc) {
+                t += s[pos] * x.get(i);
+            }
+            q += xj * (s[jj] * xj + 2 * t);
+        }
+        return q;
+    }
+
+    /**
+     * Computes S = S + a * x * x'
+     *
+     * @param S A symmetric matrix
+     * @param a
+     * @param x
+     */
+    public static void addXaXt(final SubMatrix S, final double a, final DataBlock x) {
+        int n = S.m_nrows;
+        double[] s = S.m_data;
+        for (int j = 0; j < n; ++j) {
+            double axj = a * x.get(j);
+            if (axj == 0) {
+                continue;
+            }
+            for (int i = j, pos = S.m_start + j * (S.m_row_inc + S.m_col_inc); i < n; ++i, pos += S.m_row_inc) {
+                s[pos] += axj * x.get(i);
+            }
+        }
+        fromLower(S);
+    }
+
+    /**
+     * Copies the lower part of a square matrix in its upper part
+     *
+     * @param S
+     */
+    public static void fromLower(final SubMatrix S) {
+        int n = S.m_nrows;
+        double[] s = S.m_data;
+        for (int j = 0; j < n; ++j) {
+            int jj = S.m_start + j * (S.m_row_inc + S.m_col_inc);
+            for (int i = j + 1, l = jj + S.m_row_inc, u = jj + S.m_col_inc; i < n; ++i, l += S.m_row_inc, u += S.m_col_inc) {
+                s[u] = s[l];
+            }
+        }
+    }
+
+    /**
+     * Replaces S by (S + S') / 2
+     *
+     * @param S
+     */
+    public static void reinforceSymmetry(final SubMatrix S) {
+        int n = S.m_nrows;
+        double[] s = S.m_data;
+        for (int j = 0; j < n; ++j) {
+            int jj = S.m_start + j * (S.m_row_inc + S.m_col_inc);
+            for (int i = j + 1, l = jj + S.m_row_inc, u = jj + S.m_col_inc; i < n; ++i, l += S.m_row_inc, u += S.m_col_inc) {
+                double q = (s[u] + s[l]) / 2;
+                s[u] = q;
+                s[l] = q;
+            }
+        }
+    }
+
+    /**
+     * Solves S * X = B, where S is a symmetric positive definite matrix
+     * (Cholesky decomposition). B is replaced by the solution.
+     *
+     * @param S The symmetric matrix (unchanged)
+     * @param B The right-hand side
+     * @throws MatrixException if the matrix is not positive definite
+     */
+    public static void solve(final SubMatrix S, final SubMatrix B) {
+        Matrix L = Matrix.square(S.m_nrows);
+        L.all().copy(S);
+        lcholesky(L.all(), 0);
+        // L * L' * X = B
+        MatrixKernels.trsm(L.all(), true, B);
+        MatrixKernels.trsm(L.all().transpose(), false, B);
+    }
+
+    /**
+     * Computes the inverse of a symmetric positive definite matrix
+     *
+     * @param S
+     * @return A new matrix
+     * @throws MatrixException if the matrix is not positive definite
+     */
+    public static Matrix inverse(final SubMatrix S) {
+        Matrix I = Matrix.identity(S.m_nrows);
+        solve(S, I.all());
+        reinforceSymmetry(I.all());
+        return I;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import ec.demetra.data.DataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.MatrixException;
+
+/**
+ * Operations on upper triangular matrices. The lower part of the matrices
+ * is never used. The solvers rely on MatrixKernels.trsm.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class UpperTriangularMatrix {
+
+    private UpperTriangularMatrix() {
+    }
+
+    /**
+     * Solves U * X = B. B is replaced by the solution
+     *
+     * @param U
+     * @param B
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void rsolve(final SubMatrix U, final SubMatrix B) {
+        MatrixKernels.trsm(U, false, B);
+    }
+
+    /**
+     * Solves X * U = B (or U' * X' = B'). B is replaced by the solution
+     *
+     * @param U
+     * @param B
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void lsolve(final SubMatrix U, final SubMatrix B) {
+        MatrixKernels.trsm(U.transpose(), true, B.transpose());
+    }
+
+    /**
+     * Solves U * x = b. b is replaced by the solution
+     *
+     * @param U
+     * @param b
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void rsolve(final SubMatrix U, final DataBlock b) {
+        MatrixKernels.trsm(U, false, SubMatrix.columnOf(b));
+    }
+
+    /**
+     * Solves x * U = b (or U' * x = b). b is replaced by the solution
+     *
+     * @param U
+     * @param b
+     * @throws MatrixException if the matrix is singular
+     */
+    public static void lsolve(final SubMatrix U, final DataBlock b) {
+        MatrixKernels.trsm(U.transpose(), true, SubMatrix.columnOf(b));
+    }
+
+    /**
+     * Computes the inverse of a upper triangular matrix
+     *
+     * @param U
+     * @return A new upper triangular matrix
+     * @throws MatrixException if the matrix is singular
+     */
+    public static Matrix inverse(final SubMatrix U) {
+        Matrix I = Matrix.identity(U.getRowsCount());
+        rsolve(U, I.all());
+        return I;
+    }
+}
@@ -639,6 +639,28 @@ public class EigenSystem {
         }
     }
 
+    /**
+     * Eigen system limited to the k largest eigenvalues of a symmetric matrix
+     *
+     * @param m A symmetric matrix
+     * @param k The number of eigenvalues
+     * @return The eigenvalues are in decreasing order
+     */
+    public static IEigenSystem largest(Matrix m, int k) {
+        return new TridiagonalEigenSystem(m, k, true);
+    }
+
+    /**
+     * Eigen system limited to the k smallest eigenvalues of a symmetric matrix
+     *
+     * @param m A symmetric matrix
+     * @param k The number of eigenvalues
+     * @return The eigenvalues are in increasing order
+     */
+    public static IEigenSystem smallest(Matrix m, int k) {
+        return new TridiagonalEigenSystem(m, k, false);
+    }
+
     public static boolean isSymmetric(Matrix m) {
         if (m.getRowsCount() != m.getColumnsCount()) {
             return false;
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices.implementation;
+
+import ec.demetra.data.DataBlock;
+import ec.demetra.maths.matrices.Matrix;
+import ec.demetra.maths.matrices.SubMatrix;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.MatrixException;
+
+/**
+ * QR decomposition of a matrix (n x m, n >= m) by means of Householder
+ * reflections, on the matrices of ec.demetra.maths.matrices: X = Q * R.
+ * The reflections are stored in the lower part of a column-major copy of X,
+ * so that all the updates work on contiguous columns.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class HouseholderQr {
+
+    private double[] qr, rdiag;
+    private int n, m;
+    private double eps = 1e-13;
+
+    public double getPrecision() {
+        return eps;
+    }
+
+    /**
+     * Sets the precision used to detect the rank deficiency
+     *
+     * @param eps
+     */
+    public void setPrecision(double eps) {
+        this.eps = eps;
+    }
+
+    /**
+     * Decomposes a matrix
+     *
+     * @param X The matrix (n x m, with n >= m). It is not modified
+     * @throws MatrixException if X has more columns than rows
+     */
+    public void decompose(SubMatrix X) {
+        n = X.getRowsCount();
+        m = X.getColumnsCount();
+        if (m > n) {
+            throw new MatrixException("QR decomposition: more columns than rows");
+        }
+        qr = new double[n * m];
+        Matrix.of(qr, n).all().copy(X);
+        rdiag = new double[m];
+        for (int k = 0, kk = 0; k < m; ++k, kk += n + 1) {
+            int kend = (k + 1) * n;
+            double nrm = 0;
+            for (int i = kk; i < kend; ++i) {
+                nrm = Math.hypot(nrm, qr[i]);
+            }
+            if (nrm != 0) {
+                if (qr[kk] < 0) {
+                    nrm = -nrm;
+                }
+                for (int i = kk; i < kend; ++i) {
+                    qr[i] /= nrm;
+                }
+                qr[kk] += 1;
+                // apply the reflection to the remaining columns
+                for (int j = k + 1; j < m; ++j) {
+                    int jk = j * n + k;
+                    double s = 0;
+                    for (int i = kk, l = jk; i < kend; ++i, ++l) {
+                        s += qr[i] * qr[l];
+                    }
+                    s = -s / qr[kk];
+                    for (int i = kk, l = jk; i < kend; ++i, ++l) {
+                        qr[l] += s * qr[i];
+                    }
+                }
+            }
+            rdiag[k] = -nrm;
+        }
+    }
+
+    /**
+     *
+     * @return True if all the elements of the diagonal of R are (in absolute
+     * value) larger than eps times the largest one
+     */
+    public boolean isFullRank() {
+        double max = 0;
+        for (int i = 0; i < m; ++i) {
+            max = Math.max(max, Math.abs(rdiag[i]));
+        }
+        for (int i = 0; i < m; ++i) {
+            if (Math.abs(rdiag[i]) <= eps * max) {
+                return false;
+            }
+        }
+        return max > 0;
+    }
+
+    /**
+     *
+     * @return A new upper triangular matrix (m x m)
+     */
+    public Matrix r() {
+        Matrix R = Matrix.square(m);
+        for (int j = 0; j < m; ++j) {
+            for (int i = 0; i < j; ++i) {
+                R.set(i, j, qr[j * n + i]);
+            }
+            R.set(j, j, rdiag[j]);
+        }
+        return R;
+    }
+
+    public DataBlock getRDiagonal() {
+        return DataBlock.of(rdiag.clone());
+    }
+
+    /**
+     * Computes Q' * y
+     *
+     * @param y The vector (length n). Replaced by Q'y
+     */
+    public void applyQt(double[] y) {
+        for (int k = 0, kk = 0; k < m; ++k, kk += n + 1) {
+            if (rdiag[k] == 0) {
+                continue;
+            }
+            double s = 0;
+            for (int i = kk, l = k; l < n; ++i, ++l) {
+                s += qr[i] * y[l];
+            }
+            s = -s / qr[kk];
+            for (int i = kk, l = k; l < n; ++i, ++l) {
+                y[l] += s * qr[i];
+            }
+        }
+    }
+
+    /**
+     * Solves the least squares problem min ||y - X * b||
+     *
+     * @param y The observations (length n)
+     * @param b The coefficients (length m)
+     * @param res The last n-m elements of Q'y, whose sum of squares is the sum
+     * of the squared residuals. May be null
+     * @throws MatrixException if X is not of full rank
+     */
+    public void leastSquares(DataBlock y, DataBlock b, DataBlock res) {
+        if (!isFullRank()) {
+            throw new MatrixException("QR decomposition: rank deficient matrix");
+        }
+        double[] z = new double[n];
+        y.copyTo(z, 0);
+        applyQt(z);
+        // R b = z(0:m)
+        for (int k = m - 1; k >= 0; --k) {
+            double s = z[k];
+            for (int j = k + 1; j < m; ++j) {
+                s -= qr[j * n + k] * z[j];
+            }
+            z[k] = s / rdiag[k];
+        }
+        b.copyFrom(z, 0);
+        if (res != null) {
+            res.copyFrom(z, m);
+        }
+    }
+}
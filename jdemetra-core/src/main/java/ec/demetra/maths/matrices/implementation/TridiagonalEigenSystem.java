@@ -0,0 +1,497 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices.implementation;
+
+import ec.demetra.maths.matrices.IEigenSystem;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.Complex;
+import ec.tstoolkit.maths.matrices.Matrix;
+import ec.tstoolkit.maths.matrices.MatrixException;
+
+/**
+ * Eigen system of a symmetric matrix, limited to the k largest or the k
+ * smallest eigenvalues. The matrix is reduced to a tridiagonal form by
+ * Householder reflections (the reflectors are kept, not accumulated). The
+ * eigenvalues of the tridiagonal matrix are obtained by bisection on the
+ * Sturm sequences and the corresponding eigenvectors by inverse iteration;
+ * they are finally transformed back by the reflectors. The cost is O(n^3) for
+ * the reduction and O(k*n) for each eigenpair, instead of O(n^3) for the
+ * accumulation of the full set of eigenvectors.
+ *
+ * The eigenvalues (and the eigenvectors) are ordered from the extreme of the
+ * spectrum inward: decreasing order for the largest eigenvalues, increasing
+ * order for the smallest ones.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class TridiagonalEigenSystem implements IEigenSystem {
+
+    private static final double EPS = Math.ulp(1.0);
+    private static final int MAXITER = 5;
+
+    private final Matrix m_sm;
+    private final int m_k;
+    private final boolean m_largest;
+    private double m_zero = 1.0e-6;
+    private boolean m_bVec, m_bCalc;
+    // tridiagonal reduction
+    private double[] m_a, m_tau, m_d, m_e;
+    private double m_pivmin, m_tnorm;
+    // results
+    private double[] m_ev, m_eivec;
+
+    /**
+     *
+     * @param m The symmetric matrix. Only its lower triangle is used
+     * @param k The number of eigenvalues
+     * @param largest True for the largest eigenvalues, false for the smallest
+     * ones
+     */
+    public TridiagonalEigenSystem(Matrix m, int k, boolean largest) {
+        if (m.getRowsCount() != m.getColumnsCount()) {
+            throw new MatrixException(MatrixException.SquareOnly);
+        }
+        if (k < 0 || k > m.getRowsCount()) {
+            throw new IllegalArgumentException();
+        }
+        m_sm = m.clone();
+        m_k = k;
+        m_largest = largest;
+    }
+
+    public int getCount() {
+        return m_k;
+    }
+
+    public boolean isLargest() {
+        return m_largest;
+    }
+
+    @Override
+    public void compute() {
+        m_bCalc = false;
+        calc();
+    }
+
+    private void calc() {
+        if (m_bCalc) {
+            return;
+        }
+        int n = m_sm.getRowsCount();
+        m_a = EigenSystem.convertToArray(m_sm);
+        tridiagonalize(n);
+        m_ev = new double[m_k];
+        for (int i = 0; i < m_k; ++i) {
+            m_ev[i] = bisection(m_largest ? n - 1 - i : i, n, i == 0 ? Double.NaN : m_ev[i - 1]);
+        }
+        if (m_bVec) {
+            m_eivec = new double[n * m_k];
+            inverseIteration(n);
+        } else {
+            m_eivec = null;
+        }
+        m_a = null;
+        m_bCalc = true;
+    }
+
+    /**
+     * Householder reduction of the lower triangle of m_a (column-major) to the
+     * tridiagonal matrix (m_d, m_e). The reflector H(j) = I - tau(j) v v' is
+     * stored below the sub-diagonal of the column j of m_a, with v(j+1) = 1
+     *
+     * @param n
+     */
+    private void tridiagonalize(int n) {
+        double[] a = m_a;
+        m_d = new double[n];
+        m_e = new double[Math.max(n - 1, 0)];
+        m_tau = new double[Math.max(n - 1, 0)];
+        double[] p = new double[n];
+        for (int k = 0; k < n - 2; ++k) {
+            int c = k * n;
+            m_d[k] = a[c + k];
+            double alpha = a[c + k + 1];
+            double xnorm = 0;
+            for (int i = k + 2; i < n; ++i) {
+                xnorm = Support.pythagoras(xnorm, a[c + i]);
+            }
+            if (xnorm == 0) {
+                m_e[k] = alpha;
+                continue;
+            }
+            double beta = -Math.copySign(Support.pythagoras(alpha, xnorm), alpha);
+            double tau = (beta - alpha) / beta;
+            double scale = 1 / (alpha - beta);
+            for (int i = k + 2; i < n; ++i) {
+                a[c + i] *= scale;
+            }
+            a[c + k + 1] = 1;
+            m_e[k] = beta;
+            m_tau[k] = tau;
+            // p = tau * A22 * v (lower triangle of A22 only)
+            for (int i = k + 1; i < n; ++i) {
+                p[i] = 0;
+            }
+            for (int j = k + 1; j < n; ++j) {
+                int cj = j * n;
+                double vj = a[c + j];
+                double s = a[cj + j] * vj;
+                for (int i = j + 1; i < n; ++i) {
+                    double aij = a[cj + i];
+                    p[i] += aij * vj;
+                    s += aij * a[c + i];
+                }
+                p[j] += s;
+            }
+            double pv = 0;
+            for (int i = k + 1; i < n; ++i) {
+                p[i] *= tau;
+                pv += p[i] * a[c + i];
+            }
+            // w = p - (tau/2 * p'v) v ; A22 = A22 - v w' - w v'
+            double f = tau * pv / 2;
+            for (int i = k + 1; i < n; ++i) {
+                p[i] -= f * a[c + i];
+            }
+            for (int j = k + 1; j < n; ++j) {
+                int cj = j * n;
+                double vj = a[c + j], wj = p[j];
+                for (int i = j; i < n; ++i) {
+                    a[cj + i] -= a[c + i] * wj + p[i] * vj;
+                }
+            }
+            a[c + k + 1] = beta;
+        }
+        if (n >= 2) {
+            int c = (n - 2) * n;
+            m_d[n - 2] = a[c + n - 2];
+            m_e[n - 2] = a[c + n - 1];
+        }
+        if (n >= 1) {
+            m_d[n - 1] = a[n * n - 1];
+        }
+        double emax = 0;
+        m_tnorm = 0;
+        for (int i = 0; i < n; ++i) {
+            double e = i < n - 1 ? Math.abs(m_e[i]) : 0;
+            double ep = i > 0 ? Math.abs(m_e[i - 1]) : 0;
+            m_tnorm = Math.max(m_tnorm, Math.abs(m_d[i]) + e + ep);
+            emax = Math.max(emax, e);
+        }
+        m_pivmin = Double.MIN_NORMAL * Math.max(1, emax * emax);
+    }
+
+    /**
+     * Number of eigenvalues of the tridiagonal matrix smaller than x
+     *
+     * @param x
+     * @param n
+     * @return
+     */
+    private int sturmCount(double x, int n) {
+        int count = 0;
+        double q = m_d[0] - x;
+        if (Math.abs(q) < m_pivmin) {
+            q = -m_pivmin;
+        }
+        if (q < 0) {
+            ++count;
+        }
+        for (int i = 1; i < n; ++i) {
+            double e = m_e[i - 1];
+            q = m_d[i] - x - e * e / q;
+            if (Math.abs(q) < m_pivmin) {
+                q = -m_pivmin;
+            }
+            if (q < 0) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Computes the eigenvalue in position idx (increasing order) by bisection
+     *
+     * @param idx
+     * @param n
+     * @param bound The previous eigenvalue (NaN if none)
+     * @return
+     */
+    private double bisection(int idx, int n, double bound) {
+        // Gershgorin bounds
+        double lo = m_d[0], hi = m_d[0];
+        for (int i = 0; i < n; ++i) {
+            double r = (i > 0 ? Math.abs(m_e[i - 1]) : 0) + (i < n - 1 ? Math.abs(m_e[i]) : 0);
+            lo = Math.min(lo, m_d[i] - r);
+            hi = Math.max(hi, m_d[i] + r);
+        }
+        double del = 2 * EPS * m_tnorm + m_pivmin;
+        lo -= del;
+        hi += del;
+        // the previous eigenvalue (computed in sequence) narrows the interval
+        if (!Double.isNaN(bound)) {
+            if (m_largest) {
+                hi = Math.min(hi, bound + del);
+            } else {
+                lo = Math.max(lo, bound - del);
+            }
+        }
+        for (int iter = 0; iter < 200; ++iter) {
+            double tol = 2 * EPS * Math.max(Math.abs(lo), Math.abs(hi)) + m_pivmin;
+            if (hi - lo <= tol) {
+                break;
+            }
+            double mid = (lo + hi) / 2;
+            if (sturmCount(mid, n) <= idx) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return (lo + hi) / 2;
+    }
+
+    /**
+     * Computes the eigenvectors of the tridiagonal matrix by inverse iteration
+     * and transforms them back. The vectors of close eigenvalues are
+     * orthogonalized against each other
+     *
+     * @param n
+     */
+    private void inverseIteration(int n) {
+        double[] dd = new double[n], du = new double[n], du2 = new double[n], dl = new double[n];
+        boolean[] piv = new boolean[n];
+        double[] x = new double[n];
+        double ortol = 1e-3 * m_tnorm;
+        int cstart = 0;
+        for (int j = 0; j < m_k; ++j) {
+            double lambda = m_ev[j];
+            if (j > 0 && Math.abs(lambda - m_ev[j - 1]) > ortol) {
+                cstart = j;
+            }
+            // perturbation of close eigenvalues
+            if (j > cstart) {
+                double sep = 10 * EPS * Math.max(m_tnorm, Math.abs(lambda));
+                if (Math.abs(lambda - m_ev[j - 1]) < sep) {
+                    lambda = m_ev[j - 1] + (m_largest ? -sep : sep);
+                }
+            }
+            factorize(lambda, n, dd, du, du2, dl, piv);
+            for (int i = 0; i < n; ++i) {
+                x[i] = 1 + ((i * 7 + j * 13) % 17) / 17.0;
+            }
+            for (int iter = 0; iter < MAXITER; ++iter) {
+                solve(n, dd, du, du2, dl, piv, x);
+                for (int l = cstart; l < j; ++l) {
+                    orthogonalize(x, l, n);
+                }
+                double nrm = 0;
+                for (int i = 0; i < n; ++i) {
+                    nrm = Support.pythagoras(nrm, x[i]);
+                }
+                if (nrm == 0) {
+                    throw new MatrixException(MatrixException.EigenFailed);
+                }
+                for (int i = 0; i < n; ++i) {
+                    x[i] /= nrm;
+                }
+                // the growth of the solution measures the convergence
+                if (iter > 0 && nrm * EPS * m_tnorm > 1) {
+                    break;
+                }
+            }
+            System.arraycopy(x, 0, m_eivec, j * n, n);
+        }
+        // back-transformation (the vectors of the tridiagonal form are
+        // orthogonalized before, so that the result is orthogonal too)
+        for (int j = 0; j < m_k; ++j) {
+            backTransform(j * n, n);
+        }
+    }
+
+    private void orthogonalize(double[] x, int l, int n) {
+        int c = l * n;
+        double s = 0;
+        for (int i = 0; i < n; ++i) {
+            s += x[i] * m_eivec[c + i];
+        }
+        for (int i = 0; i < n; ++i) {
+            x[i] -= s * m_eivec[c + i];
+        }
+    }
+
+    /**
+     * LU factorization with partial pivoting of T - lambda I
+     */
+    private void factorize(double lambda, int n, double[] dd, double[] du, double[] du2, double[] dl, boolean[] piv) {
+        for (int i = 0; i < n; ++i) {
+            dd[i] = m_d[i] - lambda;
+            du2[i] = 0;
+        }
+        if (n > 1) {
+            System.arraycopy(m_e, 0, du, 0, n - 1);
+            System.arraycopy(m_e, 0, dl, 0, n - 1);
+        }
+        double tiny = EPS * m_tnorm + m_pivmin;
+        for (int i = 0; i < n - 1; ++i) {
+            if (Math.abs(dd[i]) >= Math.abs(dl[i])) {
+                piv[i] = false;
+                if (dd[i] == 0) {
+                    dd[i] = tiny;
+                }
+                double fact = dl[i] / dd[i];
+                dl[i] = fact;
+                dd[i + 1] -= fact * du[i];
+            } else {
+                piv[i] = true;
+                double fact = dd[i] / dl[i];
+                dd[i] = dl[i];
+                dl[i] = fact;
+                double tmp = du[i];
+                du[i] = dd[i + 1];
+                dd[i + 1] = tmp - fact * dd[i + 1];
+                if (i < n - 2) {
+                    du2[i] = du[i + 1];
+                    du[i + 1] = -fact * du[i + 1];
+                }
+            }
+        }
+        if (n > 0 && Math.abs(dd[n - 1]) < tiny) {
+            dd[n - 1] = dd[n - 1] < 0 ? -tiny : tiny;
+        }
+    }
+
+    private void solve(int n, double[] dd, double[] du, double[] du2, double[] dl, boolean[] piv, double[] x) {
+        for (int i = 0; i < n - 1; ++i) {
+            if (piv[i]) {
+                double tmp = x[i];
+                x[i] = x[i + 1];
+                x[i + 1] = tmp - dl[i] * x[i];
+            } else {
+                x[i + 1] -= dl[i] * x[i];
+            }
+        }
+        x[n - 1] /= dd[n - 1];
+        if (n > 1) {
+            x[n - 2] = (x[n - 2] - du[n - 2] * x[n - 1]) / dd[n - 2];
+        }
+        for (int i = n - 3; i >= 0; --i) {
+            x[i] = (x[i] - du[i] * x[i + 1] - du2[i] * x[i + 2]) / dd[i];
+        }
+    }
+
+    /**
+     * z = H(0) * H(1) * ... * H(n-3) * z
+     */
+    private void backTransform(int start, int n) {
+        double[] z = m_eivec, a = m_a;
+        for (int k = n - 3; k >= 0; --k) {
+            double tau = m_tau[k];
+            if (tau == 0) {
+                continue;
+            }
+            int c = k * n;
+            double s = z[start + k + 1];
+            for (int i = k + 2; i < n; ++i) {
+                s += a[c + i] * z[start + i];
+            }
+            s *= tau;
+            z[start + k + 1] -= s;
+            for (int i = k + 2; i < n; ++i) {
+                z[start + i] -= s * a[c + i];
+            }
+        }
+    }
+
+    @Override
+    public Complex[] getEigenValues() {
+        return getEigenValues(m_k);
+    }
+
+    @Override
+    public Complex[] getEigenValues(int m) {
+        calc();
+        int mel = Math.min(m_k, m);
+        Complex[] rout = new Complex[mel];
+        for (int i = 0; i < mel; i++) {
+            rout[i] = Complex.cart(m_ev[i], 0);
+        }
+        return rout;
+    }
+
+    /**
+     *
+     * @return The computed eigenvalues, as real numbers
+     */
+    public double[] getRealEigenValues() {
+        calc();
+        return m_ev.clone();
+    }
+
+    @Override
+    public double[] getEigenVector(int idx) {
+        if (!m_bVec) {
+            throw new MatrixException(MatrixException.EigenInit);
+        }
+        calc();
+        int n = m_sm.getRowsCount();
+        double[] dout = new double[n];
+        System.arraycopy(m_eivec, idx * n, dout, 0, n);
+        return dout;
+    }
+
+    @Override
+    public Matrix getEigenVectors() {
+        return getEigenVectors(m_k);
+    }
+
+    @Override
+    public Matrix getEigenVectors(int m) {
+        if (!m_bVec) {
+            throw new MatrixException(MatrixException.EigenInit);
+        }
+        calc();
+        int n = m_sm.getRowsCount();
+        int mel = Math.min(m, m_k);
+        double[] data = new double[n * mel];
+        System.arraycopy(m_eivec, 0, data, 0, data.length);
+        return new Matrix(data, n, mel);
+    }
+
+    @Override
+    public double getZero() {
+        return m_zero;
+    }
+
+    @Override
+    public void setZero(double value) {
+        m_zero = value;
+    }
+
+    @Override
+    public boolean isComputingEigenVectors() {
+        return m_bVec;
+    }
+
+    @Override
+    public void setComputingEigenVectors(boolean value) {
+        m_bVec = value;
+        m_bCalc = false;
+    }
+}
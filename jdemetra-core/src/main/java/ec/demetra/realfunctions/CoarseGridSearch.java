@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.design.Development;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Search of initial values for small models (typically 2 to 4 parameters) on
+ * a coarse multi-dimensional grid. Each parameter takes n regularly spaced
+ * values strictly inside its bounds (the bounds themselves are often
+ * degenerate). The bounds are the ones of the domain of the function, unless
+ * they are explicitly provided. The best point of the grid can then be used
+ * as the starting point of a local minimizer (LM, BFGS...).
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class CoarseGridSearch {
+
+    private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
+    public static final int MAX_POINTS = 100000;
+
+    private int nsteps = 5;
+    private double[] lbounds, ubounds;
+    private boolean parallel;
+    private int nevals;
+
+    /**
+     * Number of values for each parameter. Default is 5
+     *
+     * @return
+     */
+    public int getGridCount() {
+        return nsteps;
+    }
+
+    public void setGridCount(int n) {
+        if (n < 1) {
+            throw new FunctionException("Invalid grid");
+        }
+        nsteps = n;
+    }
+
+    /**
+     * Sets the bounds of the grid. Null to use the bounds of the domain
+     *
+     * @param lb Lower bounds
+     * @param ub Upper bounds
+     */
+    public void setBounds(double[] lb, double[] ub) {
+        if (lb == null || ub == null) {
+            lbounds = null;
+            ubounds = null;
+            return;
+        }
+        if (lb.length != ub.length) {
+            throw new FunctionException("Invalid bounds");
+        }
+        for (int i = 0; i < lb.length; ++i) {
+            if (!(lb[i] < ub[i])) {
+                throw new FunctionException("Invalid bounds");
+            }
+        }
+        lbounds = lb.clone();
+        ubounds = ub.clone();
+    }
+
+    /**
+     * The points of the grid are evaluated in parallel. The function must
+     * support concurrent evaluations
+     *
+     * @return
+     */
+    public boolean isUsingParallelEvaluations() {
+        return parallel;
+    }
+
+    public void useParallelEvaluations(boolean value) {
+        parallel = value;
+    }
+
+    /**
+     *
+     * @return The number of evaluations of the last search (the points of the
+     * grid that are outside the domain are not evaluated)
+     */
+    public int getEvaluationsCount() {
+        return nevals;
+    }
+
+    /**
+     *
+     * @param fn
+     * @return The best point of the grid. Null if no point could be evaluated
+     */
+    public IFunctionPoint search(IFunction fn) {
+        return search(fn.getDomain(), fn::evaluate, IFunctionPoint::getValue);
+    }
+
+    /**
+     *
+     * @param fn
+     * @return The best point of the grid. Null if no point could be evaluated
+     */
+    public ISsqFunctionPoint search(ISsqFunction fn) {
+        return search(fn.getDomain(), fn::ssqEvaluate, ISsqFunctionPoint::getSsqE);
+    }
+
+    /**
+     * Minimizes the function, starting from the best point of the grid
+     *
+     * @param minimizer
+     * @param fn
+     * @return
+     */
+    public boolean minimize(IFunctionMinimizer minimizer, IFunction fn) {
+        IFunctionPoint start = search(fn);
+        return start != null && minimizer.minimize(start);
+    }
+
+    /**
+     * Minimizes the function, starting from the best point of the grid
+     *
+     * @param minimizer
+     * @param fn
+     * @return
+     */
+    public boolean minimize(ISsqFunctionMinimizer minimizer, ISsqFunction fn) {
+        ISsqFunctionPoint start = search(fn);
+        return start != null && minimizer.minimize(start);
+    }
+
+    private <T> T search(IParametersDomain domain, Function<DataBlock, T> fn, ToDoubleFunction<T> value) {
+        int dim = domain.getDim();
+        double[] lb = new double[dim], ub = new double[dim];
+        for (int i = 0; i < dim; ++i) {
+            if (lbounds != null) {
+                if (lbounds.length != dim) {
+                    throw new FunctionException("Invalid bounds");
+                }
+                lb[i] = lbounds[i];
+                ub[i] = ubounds[i];
+            } else {
+                lb[i] = domain.lbound(i);
+                ub[i] = domain.ubound(i);
+                if (!Double.isFinite(lb[i]) || !Double.isFinite(ub[i])) {
+                    throw new FunctionException("Unbounded " + domain.getDescription(i));
+                }
+            }
+        }
+        long npoints = 1;
+        for (int i = 0; i < dim; ++i) {
+            npoints *= nsteps;
+            if (npoints > MAX_POINTS) {
+                throw new FunctionException("Too many grid points");
+            }
+        }
+        int n = (int) npoints;
+        nevals = 0;
+        Grid<T> grid = new Grid<>(domain, lb, ub, fn, value);
+        int nt = parallel ? Math.min(NTHREADS, n) : 1;
+        if (nt == 1) {
+            Best<T> best = grid.search(0, n);
+            nevals = best.nevals;
+            return best.point;
+        }
+        List<Callable<Best<T>>> tasks = new ArrayList<>(nt);
+        for (int i = 0; i < nt; ++i) {
+            int i0 = (int) ((long) n * i / nt), i1 = (int) ((long) n * (i + 1) / nt);
+            tasks.add(() -> grid.search(i0, i1));
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(nt);
+        Best<T> best = null;
+        try {
+            for (Future<Best<T>> future : executorService.invokeAll(tasks)) {
+                Best<T> cur = future.get();
+                nevals += cur.nevals;
+                if (best == null || cur.value < best.value) {
+                    best = cur;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new FunctionException(ex.getCause().getMessage());
+        } finally {
+            executorService.shutdown();
+        }
+        return best == null ? null : best.point;
+    }
+
+    private static class Best<T> {
+
+        T point;
+        double value = Double.MAX_VALUE;
+        // number of points of the block that have been evaluated
+        int nevals;
+    }
+
+    private class Grid<T> {
+
+        private final IParametersDomain domain;
+        private final double[] lb, ub;
+        private final Function<DataBlock, T> fn;
+        private final ToDoubleFunction<T> value;
+
+        Grid(IParametersDomain domain, double[] lb, double[] ub, Function<DataBlock, T> fn, ToDoubleFunction<T> value) {
+            this.domain = domain;
+            this.lb = lb;
+            this.ub = ub;
+            this.fn = fn;
+            this.value = value;
+        }
+
+        /**
+         * Best point among the points i0 (included) to i1 (excluded) of the
+         * grid
+         */
+        Best<T> search(int i0, int i1) {
+            Best<T> best = new Best<>();
+            int dim = lb.length;
+            for (int i = i0; i < i1; ++i) {
+                DataBlock p = new DataBlock(dim);
+                for (int j = 0, k = i; j < dim; ++j, k /= nsteps) {
+                    p.set(j, lb[j] + (1 + k % nsteps) * (ub[j] - lb[j]) / (nsteps + 1));
+                }
+                try {
+                    if (!domain.checkBoundaries(p)) {
+                        continue;
+                    }
+                    ++best.nevals;
+                    T cur = fn.apply(p);
+                    double v = value.applyAsDouble(cur);
+                    if (Double.isFinite(v) && v < best.value) {
+                        best.value = v;
+                        best.point = cur;
+                    }
+                } catch (RuntimeException err) {
+                    if (FunctionException.isStop(err)) {
+                        throw err;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+}
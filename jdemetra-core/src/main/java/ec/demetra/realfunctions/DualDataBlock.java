@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.design.Development;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Block of dual numbers, used in the forward-mode (automatic) differentiation
+ * of functions. Each element contains its value and its derivatives (tangents)
+ * with respect to a given set of independent variables.
+ *
+ * The values are exposed through the usual IReadDataBlock interface, so that a
+ * DualDataBlock can be provided to any code that only uses the values
+ * (mappings, domains...).
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class DualDataBlock implements IReadDataBlock {
+
+    private final double[] values;
+    // derivative of the element i with respect to the variable k in i*nvars+k
+    private final double[] tangents;
+    private final int nvars;
+
+    /**
+     * Creates a block of zeroes
+     *
+     * @param n The number of elements
+     * @param nvars The number of independent variables
+     */
+    public DualDataBlock(int n, int nvars) {
+        values = new double[n];
+        tangents = new double[n * nvars];
+        this.nvars = nvars;
+    }
+
+    /**
+     * Creates the independent variables of a differentiation (the derivative
+     * of the element i with respect to the variable k is 1 if i=k, 0
+     * otherwise)
+     *
+     * @param x The values of the variables
+     * @return
+     */
+    public static DualDataBlock variables(IReadDataBlock x) {
+        int n = x.getLength();
+        DualDataBlock rslt = new DualDataBlock(n, n);
+        x.copyTo(rslt.values, 0);
+        for (int i = 0; i < n; ++i) {
+            rslt.tangents[i * n + i] = 1;
+        }
+        return rslt;
+    }
+
+    /**
+     * Creates a block of constants (all the derivatives are 0)
+     *
+     * @param x The values
+     * @param nvars The number of independent variables
+     * @return
+     */
+    public static DualDataBlock constants(IReadDataBlock x, int nvars) {
+        DualDataBlock rslt = new DualDataBlock(x.getLength(), nvars);
+        x.copyTo(rslt.values, 0);
+        return rslt;
+    }
+
+    /**
+     * Creates a dual scalar from its derivatives with respect to some dual
+     * parameters (chain rule)
+     *
+     * @param value The value of the scalar
+     * @param dx The derivatives of the scalar with respect to the (values of)
+     * the parameters
+     * @param x The parameters
+     * @return A block of length 1, with the derivatives of the scalar with
+     * respect to the variables of x
+     */
+    public static DualDataBlock scalar(double value, IReadDataBlock dx, DualDataBlock x) {
+        if (dx.getLength() != x.getLength()) {
+            throw new FunctionException("Invalid derivatives");
+        }
+        DualDataBlock rslt = new DualDataBlock(1, x.nvars);
+        rslt.values[0] = value;
+        for (int i = 0; i < dx.getLength(); ++i) {
+            double di = dx.get(i);
+            if (di != 0) {
+                for (int k = 0, j = i * x.nvars; k < x.nvars; ++k, ++j) {
+                    rslt.tangents[k] += di * x.tangents[j];
+                }
+            }
+        }
+        return rslt;
+    }
+
+    /**
+     *
+     * @return The number of independent variables
+     */
+    public int getVariablesCount() {
+        return nvars;
+    }
+
+    /**
+     *
+     * @param i The element
+     * @param k The variable
+     * @return The derivative of the element i with respect to the variable k
+     */
+    public double getDerivative(int i, int k) {
+        return tangents[i * nvars + k];
+    }
+
+    public void setDerivative(int i, int k, double d) {
+        tangents[i * nvars + k] = d;
+    }
+
+    /**
+     *
+     * @param i The element
+     * @return The derivatives of the element i with respect to all the
+     * variables
+     */
+    public IReadDataBlock getGradient(int i) {
+        return new ReadDataBlock(tangents, i * nvars, nvars);
+    }
+
+    /**
+     * Sets the value of an element. The derivatives are unchanged
+     *
+     * @param i
+     * @param value
+     */
+    public void set(int i, double value) {
+        values[i] = value;
+    }
+
+    /**
+     * Applies a differentiable function on each element
+     *
+     * @param fn The function
+     * @param dfn The derivative of the function
+     * @return A new block, with values fn(x) and derivatives dfn(x)*dx
+     */
+    public DualDataBlock apply(DoubleUnaryOperator fn, DoubleUnaryOperator dfn) {
+        DualDataBlock rslt = new DualDataBlock(values.length, nvars);
+        for (int i = 0, j = 0; i < values.length; ++i) {
+            double x = values[i];
+            rslt.values[i] = fn.applyAsDouble(x);
+            double dx = dfn.applyAsDouble(x);
+            for (int k = 0; k < nvars; ++k, ++j) {
+                rslt.tangents[j] = dx * tangents[j];
+            }
+        }
+        return rslt;
+    }
+
+    @Override
+    public double get(int i) {
+        return values[i];
+    }
+
+    @Override
+    public int getLength() {
+        return values.length;
+    }
+
+    @Override
+    public void copyTo(double[] buffer, int start) {
+        System.arraycopy(values, 0, buffer, start, values.length);
+    }
+
+    /**
+     * Extracts the values of a part of the block (without the derivatives)
+     *
+     * @param start
+     * @param length
+     * @return
+     */
+    @Override
+    public IReadDataBlock rextract(int start, int length) {
+        return new ReadDataBlock(values, start, length);
+    }
+
+    @Override
+    public String toString() {
+        return ReadDataBlock.toString(this);
+    }
+}
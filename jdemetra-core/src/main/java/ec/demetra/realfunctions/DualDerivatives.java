@@ -0,0 +1,157 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.Matrix;
+import ec.tstoolkit.maths.matrices.SubMatrix;
+
+/**
+ * Derivatives of a function computed by forward-mode differentiation (see
+ * IDualFunction). The gradient is exact. The Hessian is computed by
+ * differencing the exact gradients (one additional gradient for each
+ * parameter).
+ *
+ * When the function can't be differentiated at the given point, numerical
+ * derivatives are used instead.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class DualDerivatives implements IFunctionDerivatives {
+
+    private final IFunctionPoint point;
+    private final IDualFunction fn;
+    private double[] grad;
+    private Matrix hessian;
+    private NumericalDerivatives numerical;
+
+    /**
+     *
+     * @param point The point where the derivatives are computed
+     * @param fn The dual function. It should correspond to the function of the
+     * point
+     */
+    public DualDerivatives(IFunctionPoint point, IDualFunction fn) {
+        this.point = point;
+        this.fn = fn;
+    }
+
+    @Override
+    public IFunction getFunction() {
+        return point.getFunction();
+    }
+
+    /**
+     *
+     * @return True if the gradient is computed numerically (the function
+     * couldn't be differentiated at the given point)
+     */
+    public boolean isNumerical() {
+        if (grad == null && numerical == null) {
+            calcgrad();
+        }
+        return grad == null;
+    }
+
+    @Override
+    public IReadDataBlock getGradient() {
+        if (grad == null && numerical == null) {
+            calcgrad();
+        }
+        return grad != null ? new ReadDataBlock(grad) : numerical.getGradient();
+    }
+
+    @Override
+    public void getHessian(SubMatrix h) {
+        if (hessian == null) {
+            calch();
+        }
+        if (hessian == null) {
+            numerical.getHessian(h);
+        } else {
+            h.copy(hessian.all());
+        }
+    }
+
+    private void calcgrad() {
+        grad = gradient(point.getParameters());
+        if (grad == null) {
+            numerical = new NumericalDerivatives(point, false);
+        }
+    }
+
+    private double[] gradient(IReadDataBlock p) {
+        try {
+            DualDataBlock rslt = fn.dualEvaluate(DualDataBlock.variables(p));
+            if (rslt == null) {
+                return null;
+            }
+            double[] g = new double[p.getLength()];
+            rslt.getGradient(0).copyTo(g, 0);
+            return g;
+        } catch (RuntimeException err) {
+            return null;
+        }
+    }
+
+    private void calch() {
+        if (grad == null && numerical == null) {
+            calcgrad();
+        }
+        if (grad == null) {
+            return;
+        }
+        IParametersDomain domain = fn.getDomain();
+        IReadDataBlock x = point.getParameters();
+        int n = x.getLength();
+        Matrix h = new Matrix(n, n);
+        // d2f/didj(x) = (df/dj(x+ei)-df/dj(x))/ei
+        for (int i = 0; i < n; ++i) {
+            double eps = domain.epsilon(x, i);
+            DataBlock cur = new DataBlock(x);
+            cur.add(i, eps);
+            if (!domain.checkBoundaries(cur)) {
+                eps = -eps;
+                cur.set(i, x.get(i) + eps);
+                if (!domain.checkBoundaries(cur)) {
+                    continue;
+                }
+            }
+            double[] gi = gradient(cur);
+            if (gi == null) {
+                numerical = new NumericalDerivatives(point, false);
+                return;
+            }
+            for (int j = 0; j < n; ++j) {
+                h.set(i, j, (gi[j] - grad[j]) / eps);
+            }
+        }
+        // symmetrization
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < i; ++j) {
+                double hij = .5 * (h.get(i, j) + h.get(j, i));
+                h.set(i, j, hij);
+                h.set(j, i, hij);
+            }
+        }
+        hessian = h;
+    }
+}
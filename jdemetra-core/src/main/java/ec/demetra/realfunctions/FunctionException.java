@@ -45,7 +45,9 @@ public class FunctionException extends BaseException {
     public static final String D_ERR = "Error in computing derivatives",
 	    STEP_ERR = "Error in computing optimization step",
 	    BOUND_ERR = "Boundaries error",
-	    MAXITER_ERR = "Maximal number of evaluations exceeded";
+	    MAXITER_ERR = "Maximal number of evaluations exceeded",
+	    CANCEL_ERR = "Cancelled optimization",
+	    BUDGET_ERR = "Optimization budget exceeded";
 
     /**
      *
@@ -73,6 +75,22 @@ public class FunctionException extends BaseException {
 	return 0;
     }
 
+    /**
+     * Checks that an exception is a request to stop the optimization
+     * (cancellation or exhausted budget). Such exceptions must not be
+     * swallowed by the code that handles failed evaluations.
+     *
+     * @param err
+     * @return
+     */
+    public static boolean isStop(Throwable err) {
+        if (!(err instanceof FunctionException)) {
+            return false;
+        }
+        String msg = err.getMessage();
+        return CANCEL_ERR.equals(msg) || BUDGET_ERR.equals(msg);
+    }
+
     /**
      *
      */
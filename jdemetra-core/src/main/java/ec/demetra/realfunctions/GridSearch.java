@@ -19,19 +19,40 @@ package ec.demetra.realfunctions;
 import ec.tstoolkit.data.IReadDataBlock;
 import ec.tstoolkit.design.Development;
 import ec.tstoolkit.maths.matrices.Matrix;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
+ * Minimization of a function of one parameter on a bounded interval. The
+ * function is evaluated on a regular grid, which is then refined around the
+ * current minimum. The points of a grid can be evaluated in parallel (the
+ * function must then support concurrent evaluations), by a pool of threads
+ * shared by all the searches; small grids are always evaluated sequentially.
+ * Once the minimum is
+ * bracketed, the search can be finished by Brent's method (golden section and
+ * parabolic interpolation), which needs far fewer evaluations than the
+ * successive grids.
  *
  * @author Jean Palate
  */
 @Development(status = Development.Status.Alpha)
 public class GridSearch implements IFunctionMinimizer {
 
+    private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
+    // minimal number of points of a grid for a parallel evaluation
+    private static final int MIN_PARALLEL_POINTS = 8;
+    private static final double GOLDEN = .5 * (3 - Math.sqrt(5)), SQRTEPS = 1.4901161193847656e-8;
+
     private double epsilon = 1e-7, precision = 1e-6;
 
     private double lbound = -1, ubound = 1;
 
-    private double a, b, dfn, va, vb, m_x;
+    private double a, b, dfn, va, vb, m_x, m_fx;
 
     private int m_nsteps0 = 30, m_nsteps1 = 4;
 
@@ -41,6 +62,29 @@ public class GridSearch implements IFunctionMinimizer {
 
     private int maxIter = 100, niter;
 
+    private IMinimizerTelemetry telemetry;
+    private MinimizerBudget budget;
+
+    private boolean parallel, brent;
+
+    private boolean bracketed;
+
+    private static final class Pool {
+
+        // true in the threads of the pool: the nested searches are sequential,
+        // because a task of the pool can't wait for other tasks of the pool
+        private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+        // daemon threads, so that the shared pool doesn't need to be shut down
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(NTHREADS, r -> {
+            Thread thread = new Thread(() -> {
+                WORKER.set(true);
+                r.run();
+            }, "GridSearch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     /**
      *
      */
@@ -54,6 +98,8 @@ public class GridSearch implements IFunctionMinimizer {
         va = Double.NaN;
         vb = Double.NaN;
         m_x = Double.NaN;
+        m_fx = Double.NaN;
+        bracketed = false;
     }
 
     @Override
@@ -64,6 +110,12 @@ public class GridSearch implements IFunctionMinimizer {
         search.m_nsteps1 = m_nsteps1;
         search.lbound = lbound;
         search.ubound = ubound;
+        search.precision = precision;
+        search.maxIter = maxIter;
+        search.parallel = parallel;
+        search.brent = brent;
+        search.telemetry = telemetry;
+        search.budget = budget;
         return search;
     }
 
@@ -124,7 +176,7 @@ public class GridSearch implements IFunctionMinimizer {
 
     @Override
     public IFunctionPoint getResult() {
-        return m_ftry;
+        return MinimizerTracker.unwrap(m_ftry);
     }
 
     @Override
@@ -146,8 +198,29 @@ public class GridSearch implements IFunctionMinimizer {
         double[] vals = new double[nsteps + 1];
         vals[0] = va;
         vals[nsteps] = vb;
-        for (int i = 1; i < nsteps; ++i) {
-            vals[i] = evaluate(a + i * step);
+        if (parallel && NTHREADS > 1 && nsteps - 1 >= MIN_PARALLEL_POINTS && !Pool.WORKER.get()) {
+            List<Callable<Void>> tasks = new ArrayList<>(nsteps - 1);
+            for (int i = 1; i < nsteps; ++i) {
+                final int pos = i;
+                tasks.add(() -> {
+                    vals[pos] = evaluate(a + pos * step);
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> future : Pool.EXECUTOR.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (ExecutionException ex) {
+                throw new FunctionException(ex.getCause().getMessage());
+            }
+        } else {
+            for (int i = 1; i < nsteps; ++i) {
+                vals[i] = evaluate(a + i * step);
+            }
         }
         double min = Double.MAX_VALUE;
         int imin = -1;
@@ -162,6 +235,8 @@ public class GridSearch implements IFunctionMinimizer {
             return false;
         }
         m_x = a + step * imin;
+        m_fx = min;
+        bracketed = imin > 0 && imin < nsteps;
         if (imin == 0) {
             b = a + step;
             vb = vals[1];
@@ -187,12 +262,12 @@ public class GridSearch implements IFunctionMinimizer {
     @Override
     public boolean minimize(IFunctionPoint start) {
         clear();
-        IFunction function = start.getFunction();
-        if (function.getDomain().getDim() != 1 || lbound >= ubound
+        if (start.getFunction().getDomain().getDim() != 1 || lbound >= ubound
                 || m_nsteps0 < 3 || m_nsteps1 < 3) {
             return false;
         }
-        fn = function;
+        MinimizerTracker tracker = MinimizerTracker.of(telemetry, budget, "GridSearch");
+        fn = tracker.track(start).getFunction();
         a = lbound;
         b = ubound;
         va = evaluate(a);
@@ -200,18 +275,117 @@ public class GridSearch implements IFunctionMinimizer {
         niter = 0;
         while (niter++ < maxIter && b - a > precision && (Double.isNaN(dfn) || dfn > epsilon)) {
             if (!iterate(niter == 1 ? m_nsteps0 : m_nsteps1)) {
+                tracker.end(false);
                 return false;
             }
+            if (tracker.isActive()) {
+                tracker.iteration(niter, new SingleParameter(m_x), m_fx, Double.NaN);
+            }
+            if (brent && bracketed) {
+                refine(tracker);
+                break;
+            }
         }
         m_ftry = fn.evaluate(new SingleParameter(m_x));
+        tracker.end(true);
         return true;
     }
 
+    /**
+     * Brent's method on the current bracket [a, b], which contains the current
+     * minimum m_x
+     *
+     * @param tracker
+     */
+    private void refine(MinimizerTracker tracker) {
+        double lo = a, hi = b;
+        double x = m_x, w = m_x, v = m_x;
+        double fx = m_fx, fw = m_fx, fv = m_fx;
+        double d = 0, e = 0;
+        while (niter++ < maxIter) {
+            double xm = .5 * (lo + hi);
+            double tol1 = SQRTEPS * Math.abs(x) + precision / 3, tol2 = 2 * tol1;
+            if (Math.abs(x - xm) <= tol2 - .5 * (hi - lo)) {
+                break;
+            }
+            boolean golden = true;
+            if (Math.abs(e) > tol1) {
+                // parabolic interpolation
+                double r = (x - w) * (fx - fv);
+                double q = (x - v) * (fx - fw);
+                double p = (x - v) * q - (x - w) * r;
+                q = 2 * (q - r);
+                if (q > 0) {
+                    p = -p;
+                } else {
+                    q = -q;
+                }
+                double etmp = e;
+                e = d;
+                if (Math.abs(p) < Math.abs(.5 * q * etmp) && p > q * (lo - x) && p < q * (hi - x)) {
+                    d = p / q;
+                    double u = x + d;
+                    if (u - lo < tol2 || hi - u < tol2) {
+                        d = x < xm ? tol1 : -tol1;
+                    }
+                    golden = false;
+                }
+            }
+            if (golden) {
+                e = (x < xm ? hi : lo) - x;
+                d = GOLDEN * e;
+            }
+            double u = Math.abs(d) >= tol1 ? x + d : x + (d > 0 ? tol1 : -tol1);
+            double fu = evaluate(u);
+            if (Double.isNaN(fu)) {
+                fu = Double.MAX_VALUE;
+            }
+            if (fu <= fx) {
+                if (u < x) {
+                    hi = x;
+                } else {
+                    lo = x;
+                }
+                v = w;
+                fv = fw;
+                w = x;
+                fw = fx;
+                x = u;
+                fx = fu;
+                if (tracker.isActive()) {
+                    tracker.iteration(niter, new SingleParameter(x), fx, Double.NaN);
+                }
+            } else {
+                if (u < x) {
+                    lo = u;
+                } else {
+                    hi = u;
+                }
+                if (fu <= fw || w == x) {
+                    v = w;
+                    fv = fw;
+                    w = u;
+                    fw = fu;
+                } else if (fu <= fv || v == x || v == w) {
+                    v = u;
+                    fv = fu;
+                }
+            }
+        }
+        a = lo;
+        b = hi;
+        m_x = x;
+        m_fx = fx;
+    }
+
     private double evaluate(double x) {
         try {
             IFunctionPoint fx = this.fn.evaluate(new SingleParameter(x));
             return fx.getValue();
-        } catch (Exception err) {
+        } catch (RuntimeException err) {
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
             return Double.NaN;
         }
     }
@@ -272,4 +446,52 @@ public class GridSearch implements IFunctionMinimizer {
     public void setPrecsion(double value) {
         precision = value;
     }
+
+    /**
+     * The points of each grid are evaluated in parallel. The function must
+     * support concurrent evaluations
+     *
+     * @return
+     */
+    public boolean isUsingParallelEvaluations() {
+        return parallel;
+    }
+
+    public void useParallelEvaluations(boolean value) {
+        parallel = value;
+    }
+
+    /**
+     * Once the minimum is bracketed by a grid, the search is finished by
+     * Brent's method instead of successive grids
+     *
+     * @return
+     */
+    public boolean isUsingBrentRefinement() {
+        return brent;
+    }
+
+    public void useBrentRefinement(boolean value) {
+        brent = value;
+    }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return budget;
+    }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.design.Development;
+
+/**
+ * Function that can be differentiated in forward mode (dual numbers)
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public interface IDualFunction extends IFunction {
+
+    /**
+     * Evaluates the function and its derivatives
+     *
+     * @param parameters The parameters, with their derivatives with respect to
+     * the independent variables (usually DualDataBlock.variables(p))
+     * @return The value of the function (block of length 1) and its
+     * derivatives with respect to the variables of the parameters. Null if the
+     * function can't be differentiated at that point. The caller should then
+     * use numerical derivatives
+     */
+    DualDataBlock dualEvaluate(DualDataBlock parameters);
+}
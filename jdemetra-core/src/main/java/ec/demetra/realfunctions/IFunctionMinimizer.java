@@ -107,4 +107,59 @@ public interface IFunctionMinimizer {
      * @param n
      */
     void setMaxIter(int n);
+
+    /**
+     * Sets the telemetry that will be fed by the next calls to minimize.
+     * The telemetry is copied by exemplar()
+     *
+     * @param telemetry The telemetry. Null to disable the instrumentation
+     */
+    void setTelemetry(IMinimizerTelemetry telemetry);
+
+    /**
+     *
+     * @return The current telemetry. May be null
+     */
+    IMinimizerTelemetry getTelemetry();
+
+    /**
+     * State of the minimizer at the end of the last run, which can be saved
+     * and used later as a warm start (see setWarmStart)
+     *
+     * @return The state. Null if the minimizer doesn't support warm starts or
+     * if it has not been used
+     */
+    default MinimizerState getState() {
+        return null;
+    }
+
+    /**
+     * Sets the state used to initialize the next calls to minimize. A state
+     * that doesn't correspond to the problem (other dimension or other kind of
+     * curvature) is ignored. The warm start is copied by exemplar()
+     *
+     * @param state The state. Null to disable the warm start
+     */
+    default void setWarmStart(MinimizerState state) {
+    }
+
+    default MinimizerState getWarmStart() {
+        return null;
+    }
+
+    /**
+     * Sets the budget (cancellation token, maximum time and evaluations) that
+     * will be checked by the next calls to minimize. When the budget is
+     * exhausted, minimize throws a FunctionException (see
+     * MinimizerBudget.minimize for retrieving the best point so far). The
+     * budget is shared by exemplar()
+     *
+     * @param budget The budget. Null to remove any limit
+     */
+    default void setBudget(MinimizerBudget budget) {
+    }
+
+    default MinimizerBudget getBudget() {
+        return null;
+    }
 }
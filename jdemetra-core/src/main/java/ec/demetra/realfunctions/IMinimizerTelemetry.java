@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.design.Development;
+
+/**
+ * Instrumentation of a minimizer. The minimizer calls start once, iteration
+ * after each accepted step and end once, in the thread that called minimize.
+ * An implementation shared by several minimizers must be thread-safe.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+@FunctionalInterface
+public interface IMinimizerTelemetry {
+
+    /**
+     *
+     * @param method Name of the minimizer
+     * @param parameters Starting parameters
+     */
+    default void start(String method, IReadDataBlock parameters) {
+    }
+
+    /**
+     *
+     * @param iteration
+     */
+    void iteration(MinimizerIteration iteration);
+
+    /**
+     *
+     * @param last Final statistics of the run (never null)
+     * @param converged
+     */
+    default void end(MinimizerIteration last, boolean converged) {
+    }
+}
@@ -39,6 +39,39 @@ public interface ISsqFunction {
      * @return
      */
     ISsqFunctionPoint ssqEvaluate(IReadDataBlock parameters);
+
+    /**
+     * Evaluates the residuals at several points and stores them contiguously
+     * in a buffer: the residuals of the k-th point are put in
+     * buffer[start + k * dim, start + (k + 1) * dim[. When the buffer is the
+     * storage of a (column-major) matrix with dim rows, each point fills one
+     * column.
+     *
+     * Points that can't be evaluated or that don't have dim residuals are
+     * flagged in the result and their block is left unchanged. Cancellations
+     * (see MinimizerBudget) are propagated.
+     *
+     * @param parameters The points
+     * @param dim The number of residuals of each point
+     * @param buffer The buffer
+     * @param start The position of the first residual in the buffer
+     * @return For each point, true if its residuals have been stored
+     */
+    default boolean[] ssqEvaluate(IReadDataBlock[] parameters, int dim, double[] buffer, int start) {
+        boolean[] ok = new boolean[parameters.length];
+        for (int k = 0; k < parameters.length; ++k) {
+            try {
+                ISsqFunctionPoint pt = ssqEvaluate(parameters[k]);
+                ok[k] = pt.getDim() == dim && pt.getE(buffer, start + k * dim);
+            } catch (FunctionException err) {
+                if (FunctionException.isStop(err)) {
+                    throw err;
+                }
+            } catch (RuntimeException err) {
+            }
+        }
+        return ok;
+    }
     
     default IFunction asFunction(){
         return new SsqProxyFunction(this);
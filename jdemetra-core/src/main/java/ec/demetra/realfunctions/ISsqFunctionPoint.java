@@ -50,6 +50,25 @@ public interface ISsqFunctionPoint {
      */
     IReadDataBlock getE();
 
+    /**
+     * Copies e(t,p) in a buffer. Implementations should avoid the creation
+     * of temporary objects.
+     *
+     * @param buffer The buffer. It must contain at least offset + getDim()
+     * elements
+     * @param offset The position of the first residual in the buffer
+     * @return False if the residuals are not available (the buffer is then
+     * unchanged)
+     */
+    default boolean getE(double[] buffer, int offset) {
+        IReadDataBlock e = getE();
+        if (e == null) {
+            return false;
+        }
+        e.copyTo(buffer, offset);
+        return true;
+    }
+
     /**
      * 
      * @return Returns p
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.design.Development;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cancellation token with an optional wall-clock and evaluations budget,
+ * shared by the minimizers (see IFunctionMinimizer.setBudget), the functions
+ * and the estimation procedures that use them. The cancellation is
+ * cooperative: the budget is checked at each function evaluation and at each
+ * iteration of the minimizers, which then throw a FunctionException
+ * (CANCEL_ERR or BUDGET_ERR).
+ *
+ * The budget keeps track of the best point evaluated since the last call to
+ * clearBest(), so that an interrupted minimization can still provide a usable
+ * result (see minimize).
+ *
+ * The budget is thread-safe. It can be cancelled from any thread.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class MinimizerBudget {
+
+    public static enum Status {
+        /**
+         * The budget is not exhausted
+         */
+        Running,
+        /**
+         * The budget has been cancelled by the user
+         */
+        Cancelled,
+        /**
+         * The maximum time is exceeded
+         */
+        TimeOut,
+        /**
+         * The maximum number of evaluations is exceeded
+         */
+        EvaluationsExhausted
+    }
+
+    private final long maxNanos;
+    private final int maxEvaluations;
+    private final AtomicInteger nevals = new AtomicInteger();
+    private volatile long t0 = System.nanoTime();
+    private volatile Status status = Status.Running;
+    private Object best;
+    private double bestObjective = Double.MAX_VALUE;
+
+    /**
+     * Creates a budget without limits, which can only be cancelled
+     */
+    public MinimizerBudget() {
+        this(0, 0);
+    }
+
+    /**
+     *
+     * @param maxMillis The maximum wall-clock time (in milliseconds). 0 for no
+     * limit
+     * @param maxEvaluations The maximum number of function evaluations. 0 for
+     * no limit
+     */
+    public MinimizerBudget(long maxMillis, int maxEvaluations) {
+        if (maxMillis < 0 || maxEvaluations < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.maxNanos = maxMillis * 1000000L;
+        this.maxEvaluations = maxEvaluations;
+    }
+
+    /**
+     * Restarts the clock and the count of the evaluations. A cancelled budget
+     * stays cancelled.
+     */
+    public void start() {
+        t0 = System.nanoTime();
+        nevals.set(0);
+        synchronized (this) {
+            if (status != Status.Cancelled) {
+                status = Status.Running;
+            }
+            best = null;
+            bestObjective = Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Cancels the current and the next minimizations that use this budget
+     */
+    public void cancel() {
+        status = Status.Cancelled;
+    }
+
+    public Status getStatus() {
+        if (status == Status.Running && maxNanos > 0 && System.nanoTime() - t0 > maxNanos) {
+            exhaust(Status.TimeOut);
+        }
+        return status;
+    }
+
+    /**
+     *
+     * @return True if the budget is cancelled or exceeded
+     */
+    public boolean isExhausted() {
+        return getStatus() != Status.Running;
+    }
+
+    public int getEvaluationsCount() {
+        return nevals.get();
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - t0;
+    }
+
+    /**
+     * Checks that the budget is not exhausted
+     *
+     * @throws FunctionException if the budget is exhausted
+     */
+    public void check() {
+        Status s = getStatus();
+        if (s != Status.Running) {
+            throw new FunctionException(s == Status.Cancelled
+                    ? FunctionException.CANCEL_ERR : FunctionException.BUDGET_ERR);
+        }
+    }
+
+    /**
+     * Records a new function evaluation and checks the budget
+     *
+     * @throws FunctionException if the budget is exhausted
+     */
+    public void evaluation() {
+        if (maxEvaluations > 0 && nevals.incrementAndGet() > maxEvaluations) {
+            exhaust(Status.EvaluationsExhausted);
+        }
+        check();
+    }
+
+    private synchronized void exhaust(Status s) {
+        if (status == Status.Running) {
+            status = s;
+        }
+    }
+
+    /**
+     * Forgets the best point
+     */
+    public synchronized void clearBest() {
+        best = null;
+        bestObjective = Double.MAX_VALUE;
+    }
+
+    /**
+     * Proposes a new evaluated point, which is kept if it is better than the
+     * current best point
+     *
+     * @param point The point (IFunctionPoint or ISsqFunctionPoint)
+     * @param objective The value of the objective function at that point
+     */
+    public synchronized void offer(Object point, double objective) {
+        if (Double.isFinite(objective) && objective < bestObjective) {
+            best = point;
+            bestObjective = objective;
+        }
+    }
+
+    /**
+     *
+     * @return The best evaluated point, if it is a IFunctionPoint. Null
+     * otherwise
+     */
+    public synchronized IFunctionPoint getBestPoint() {
+        return best instanceof IFunctionPoint ? (IFunctionPoint) best : null;
+    }
+
+    /**
+     *
+     * @return The best evaluated point, if it is a ISsqFunctionPoint. Null
+     * otherwise
+     */
+    public synchronized ISsqFunctionPoint getBestSsqPoint() {
+        return best instanceof ISsqFunctionPoint ? (ISsqFunctionPoint) best : null;
+    }
+
+    public synchronized double getBestObjective() {
+        return bestObjective;
+    }
+
+    /**
+     * Minimizes a function under this budget. If the budget is exhausted
+     * during the minimization, the best point evaluated so far (or the
+     * starting point) is returned instead of the result of the minimizer. The
+     * caller should check isExhausted() to know if the result corresponds to
+     * a complete minimization.
+     *
+     * @param min The minimizer. Its budget is set to this object
+     * @param start The starting point
+     * @return The result of the minimization. Null if the minimizer failed
+     */
+    public IFunctionPoint minimize(IFunctionMinimizer min, IFunctionPoint start) {
+        clearBest();
+        min.setBudget(this);
+        IFunctionPoint rslt;
+        try {
+            min.minimize(start);
+            rslt = min.getResult();
+        } catch (FunctionException err) {
+            if (!isExhausted()) {
+                throw err;
+            }
+            rslt = null;
+        }
+        if (!isExhausted()) {
+            return rslt;
+        }
+        IFunctionPoint pt = getBestPoint();
+        if (pt == null) {
+            return rslt == null ? start : rslt;
+        }
+        if (rslt != null && rslt.getValue() <= pt.getValue()) {
+            return rslt;
+        } else {
+            return pt;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.design.Development;
+
+/**
+ * Statistics of a minimizer after a given iteration. The counters and the
+ * times are cumulated since the start of the run.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class MinimizerIteration {
+
+    private final String method;
+    private final int iteration, evaluations;
+    private final double objective, stepNorm, gradientNorm;
+    private final long evaluationNanos, elapsedNanos;
+
+    public MinimizerIteration(String method, int iteration, double objective,
+            double stepNorm, double gradientNorm, int evaluations,
+            long evaluationNanos, long elapsedNanos) {
+        this.method = method;
+        this.iteration = iteration;
+        this.objective = objective;
+        this.stepNorm = stepNorm;
+        this.gradientNorm = gradientNorm;
+        this.evaluations = evaluations;
+        this.evaluationNanos = evaluationNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     *
+     * @return The current value of the objective function
+     */
+    public double getObjective() {
+        return objective;
+    }
+
+    /**
+     *
+     * @return The Euclidean norm of the last step in the parameters space
+     */
+    public double getStepNorm() {
+        return stepNorm;
+    }
+
+    /**
+     *
+     * @return The Euclidean norm of the last computed gradient. NaN if the
+     * method doesn't use the gradient
+     */
+    public double getGradientNorm() {
+        return gradientNorm;
+    }
+
+    /**
+     *
+     * @return The number of function evaluations (including the evaluations
+     * used in numerical derivatives)
+     */
+    public int getEvaluationsCount() {
+        return evaluations;
+    }
+
+    public long getEvaluationNanos() {
+        return evaluationNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     *
+     * @return The time spent outside the function evaluations (mainly linear
+     * algebra in the minimizer itself)
+     */
+    public long getLinearAlgebraNanos() {
+        return Math.max(0, elapsedNanos - evaluationNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(method).append('[').append(iteration).append("] f=").append(objective)
+                .append(", |dx|=").append(stepNorm)
+                .append(", |g|=").append(gradientNorm)
+                .append(", nevals=").append(evaluations)
+                .append(", eval(ms)=").append(evaluationNanos / 1000000)
+                .append(", algebra(ms)=").append(getLinearAlgebraNanos() / 1000000);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.design.Development;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of counters fed by minimizer telemetries, in the spirit
+ * of the meter registries of the usual metrics libraries. Each meter is
+ * identified by its name, the minimizer ("method" tag) and a user tag (for
+ * instance the name of the series or of the model). The registry is
+ * thread-safe and can be shared by concurrent estimations.
+ *
+ * The times are expressed in nanoseconds.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class MinimizerMeterRegistry {
+
+    public static final String RUNS = "minimizer.runs", FAILURES = "minimizer.failures",
+            ITERATIONS = "minimizer.iterations", EVALUATIONS = "minimizer.evaluations",
+            EVALUATION_TIME = "minimizer.time.evaluation", ALGEBRA_TIME = "minimizer.time.algebra";
+
+    private final ConcurrentHashMap<String, LongAdder> meters = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a telemetry that feeds this registry
+     *
+     * @param tag User tag. May be null
+     * @return
+     */
+    public IMinimizerTelemetry telemetry(final String tag) {
+        return new IMinimizerTelemetry() {
+            @Override
+            public void iteration(MinimizerIteration iteration) {
+                meter(ITERATIONS, iteration.getMethod(), tag).increment();
+            }
+
+            @Override
+            public void end(MinimizerIteration last, boolean converged) {
+                String method = last.getMethod();
+                meter(RUNS, method, tag).increment();
+                if (!converged) {
+                    meter(FAILURES, method, tag).increment();
+                }
+                meter(EVALUATIONS, method, tag).add(last.getEvaluationsCount());
+                meter(EVALUATION_TIME, method, tag).add(last.getEvaluationNanos());
+                meter(ALGEBRA_TIME, method, tag).add(last.getLinearAlgebraNanos());
+            }
+        };
+    }
+
+    /**
+     *
+     * @param name
+     * @param method
+     * @param tag
+     * @return The current value of the given meter (0 if it doesn't exist)
+     */
+    public long get(String name, String method, String tag) {
+        LongAdder m = meters.get(key(name, method, tag));
+        return m == null ? 0 : m.sum();
+    }
+
+    /**
+     * Sum of a given meter for all the methods and tags
+     *
+     * @param name
+     * @return
+     */
+    public long total(String name) {
+        String prefix = name + '{';
+        long s = 0;
+        for (Map.Entry<String, LongAdder> entry : meters.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                s += entry.getValue().sum();
+            }
+        }
+        return s;
+    }
+
+    /**
+     *
+     * @return A copy of the current values of all the meters, identified by
+     * name{method=...,tag=...}
+     */
+    public SortedMap<String, Long> snapshot() {
+        TreeMap<String, Long> rslt = new TreeMap<>();
+        meters.forEach((k, v) -> rslt.put(k, v.sum()));
+        return rslt;
+    }
+
+    public void clear() {
+        meters.clear();
+    }
+
+    private LongAdder meter(String name, String method, String tag) {
+        return meters.computeIfAbsent(key(name, method, tag), k -> new LongAdder());
+    }
+
+    private static String key(String name, String method, String tag) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append("{method=").append(method);
+        if (tag != null) {
+            builder.append(",tag=").append(tag);
+        }
+        return builder.append('}').toString();
+    }
+}
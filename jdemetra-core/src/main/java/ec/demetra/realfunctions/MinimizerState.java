@@ -0,0 +1,170 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.Matrix;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * State of a minimizer at the end of a run, which can be saved with the
+ * results and used as a warm start for a later estimation of a similar problem
+ * (typically the same series with some new observations). The state contains
+ * the final parameters, an approximation of the curvature and the final
+ * trust radius / damping of the method. The items that don't make sense for a
+ * given method are missing (null or NaN).
+ *
+ * The parameters of the state are not used by the minimizers: the starting
+ * point is still provided by the caller, usually by evaluating the new function
+ * at getParameters().
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class MinimizerState implements Serializable {
+
+    private static final long serialVersionUID = -2736159427281744025L;
+
+    public static enum Curvature {
+        /**
+         * No curvature information
+         */
+        None,
+        /**
+         * Approximation of the inverse of the Hessian (quasi-Newton methods)
+         */
+        InverseHessian,
+        /**
+         * Approximation of the Hessian (J'J for sums of squares)
+         */
+        Hessian
+    }
+
+    private final String method;
+    private final double[] parameters;
+    private final Curvature type;
+    private final double[] curvature;
+    private final double radius, damping;
+
+    /**
+     *
+     * @param method The name of the minimizer that generated the state
+     * @param parameters The final parameters
+     * @param type The type of the curvature
+     * @param curvature The curvature (square matrix of the size of the
+     * parameters). May be null if the type is None
+     * @param radius The final trust radius (NaN if unused)
+     * @param damping The final damping factor (NaN if unused)
+     */
+    public MinimizerState(String method, IReadDataBlock parameters, Curvature type, Matrix curvature,
+            double radius, double damping) {
+        this.method = method;
+        int n = parameters.getLength();
+        this.parameters = new double[n];
+        parameters.copyTo(this.parameters, 0);
+        if (type == Curvature.None || curvature == null) {
+            this.type = Curvature.None;
+            this.curvature = null;
+        } else {
+            if (curvature.getRowsCount() != n || curvature.getColumnsCount() != n) {
+                throw new FunctionException("Invalid curvature");
+            }
+            this.type = type;
+            this.curvature = new double[n * n];
+            for (int c = 0, k = 0; c < n; ++c) {
+                for (int r = 0; r < n; ++r, ++k) {
+                    this.curvature[k] = curvature.get(r, c);
+                }
+            }
+        }
+        this.radius = radius;
+        this.damping = damping;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public int getDim() {
+        return parameters.length;
+    }
+
+    public double[] getParameters() {
+        return parameters.clone();
+    }
+
+    public Curvature getCurvatureType() {
+        return type;
+    }
+
+    /**
+     *
+     * @return A copy of the curvature. Null if it is not available
+     */
+    public Matrix getCurvature() {
+        if (curvature == null) {
+            return null;
+        }
+        int n = parameters.length;
+        Matrix m = new Matrix(n, n);
+        for (int c = 0, k = 0; c < n; ++c) {
+            for (int r = 0; r < n; ++r, ++k) {
+                m.set(r, c, curvature[k]);
+            }
+        }
+        return m;
+    }
+
+    public double getTrustRadius() {
+        return radius;
+    }
+
+    public double getDamping() {
+        return damping;
+    }
+
+    /**
+     * Checks that the state can be used to warm start a given problem
+     *
+     * @param dim The number of parameters of the problem
+     * @param type The requested type of curvature
+     * @return
+     */
+    public boolean isCompatible(int dim, Curvature type) {
+        return parameters.length == dim && this.type == type;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || (obj instanceof MinimizerState && equals((MinimizerState) obj));
+    }
+
+    private boolean equals(MinimizerState other) {
+        return method.equals(other.method) && type == other.type
+                && Arrays.equals(parameters, other.parameters)
+                && Arrays.equals(curvature, other.curvature)
+                && Double.compare(radius, other.radius) == 0
+                && Double.compare(damping, other.damping) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * method.hashCode() + Arrays.hashCode(parameters);
+    }
+}
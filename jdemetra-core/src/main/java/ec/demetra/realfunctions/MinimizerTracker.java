@@ -0,0 +1,410 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.design.Development;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Helper used by the minimizers to feed a telemetry. A tracker is created for
+ * each call to minimize. The starting point is wrapped so that the function
+ * evaluations (including the evaluations done by numerical derivatives) are
+ * counted and timed. When a budget is defined, it is checked at each evaluation
+ * and at each iteration, and the evaluated points are proposed to the budget
+ * (see MinimizerBudget.offer). When no telemetry and no budget are defined,
+ * the tracker doesn't do anything and the points are not wrapped.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class MinimizerTracker {
+
+    private static final MinimizerTracker NONE = new MinimizerTracker(null, null, null);
+
+    /**
+     *
+     * @param telemetry The telemetry. May be null
+     * @param method The name of the minimizer
+     * @return
+     */
+    public static MinimizerTracker of(IMinimizerTelemetry telemetry, String method) {
+        return of(telemetry, null, method);
+    }
+
+    /**
+     *
+     * @param telemetry The telemetry. May be null
+     * @param budget The budget. May be null
+     * @param method The name of the minimizer
+     * @return
+     */
+    public static MinimizerTracker of(IMinimizerTelemetry telemetry, MinimizerBudget budget, String method) {
+        return telemetry == null && budget == null ? NONE : new MinimizerTracker(telemetry, budget, method);
+    }
+
+    /**
+     * Retrieves the point of the underlying function
+     *
+     * @param point
+     * @return
+     */
+    public static IFunctionPoint unwrap(IFunctionPoint point) {
+        return point instanceof TrackedPoint ? ((TrackedPoint) point).core : point;
+    }
+
+    /**
+     * Retrieves the point of the underlying function
+     *
+     * @param point
+     * @return
+     */
+    public static ISsqFunctionPoint unwrap(ISsqFunctionPoint point) {
+        return point instanceof TrackedSsqPoint ? ((TrackedSsqPoint) point).core : point;
+    }
+
+    private final IMinimizerTelemetry telemetry;
+    private final MinimizerBudget budget;
+    private final String method;
+    private final AtomicInteger nevals = new AtomicInteger();
+    private final AtomicLong evalNanos = new AtomicLong();
+    private long t0;
+    private int iter;
+    private double objective = Double.NaN, step = Double.NaN, gnorm = Double.NaN;
+    private double[] prev;
+
+    private MinimizerTracker(IMinimizerTelemetry telemetry, MinimizerBudget budget, String method) {
+        this.telemetry = telemetry;
+        this.budget = budget;
+        this.method = method;
+    }
+
+    public boolean isActive() {
+        return telemetry != null || budget != null;
+    }
+
+    /**
+     * Starts the tracking
+     *
+     * @param start The starting point
+     * @return The point that should be used by the minimizer
+     */
+    public IFunctionPoint track(IFunctionPoint start) {
+        if (!isActive() || start instanceof TrackedPoint) {
+            return start;
+        }
+        begin(start.getParameters());
+        offer(start);
+        return new TrackedPoint(start, new TrackedFunction(start.getFunction()));
+    }
+
+    /**
+     * Starts the tracking
+     *
+     * @param start The starting point
+     * @return The point that should be used by the minimizer
+     */
+    public ISsqFunctionPoint track(ISsqFunctionPoint start) {
+        if (!isActive() || start instanceof TrackedSsqPoint) {
+            return start;
+        }
+        begin(start.getParameters());
+        offer(start);
+        return new TrackedSsqPoint(start, new TrackedSsqFunction(start.getSsqFunction()));
+    }
+
+    private void begin(IReadDataBlock p) {
+        t0 = System.nanoTime();
+        prev = new double[p.getLength()];
+        p.copyTo(prev, 0);
+        if (telemetry != null) {
+            telemetry.start(method, p);
+        }
+    }
+
+    /**
+     * Reports an iteration
+     *
+     * @param iteration The current iteration
+     * @param parameters The current parameters
+     * @param objective The current objective
+     * @param gradientNorm The norm of the gradient (NaN if unknown)
+     */
+    public void iteration(int iteration, IReadDataBlock parameters, double objective, double gradientNorm) {
+        if (!isActive()) {
+            return;
+        }
+        this.iter = iteration;
+        this.objective = objective;
+        this.gnorm = gradientNorm;
+        if (parameters != null) {
+            double s = 0;
+            for (int i = 0; i < prev.length; ++i) {
+                double cur = parameters.get(i), d = cur - prev[i];
+                s += d * d;
+                prev[i] = cur;
+            }
+            step = Math.sqrt(s);
+        }
+        if (telemetry != null) {
+            telemetry.iteration(current());
+        }
+        if (budget != null) {
+            budget.check();
+        }
+    }
+
+    /**
+     * Ends the tracking
+     *
+     * @param converged
+     */
+    public void end(boolean converged) {
+        if (telemetry == null) {
+            return;
+        }
+        telemetry.end(current(), converged);
+    }
+
+    private MinimizerIteration current() {
+        return new MinimizerIteration(method, iter, objective, step, gnorm,
+                nevals.get(), evalNanos.get(), System.nanoTime() - t0);
+    }
+
+    private void addTime(long t) {
+        evalNanos.addAndGet(System.nanoTime() - t);
+    }
+
+    private void offer(IFunctionPoint pt) {
+        if (budget != null) {
+            try {
+                budget.offer(unwrap(pt), pt.getValue());
+            } catch (RuntimeException err) {
+                // invalid point
+            }
+        }
+    }
+
+    private void offer(ISsqFunctionPoint pt) {
+        if (budget != null) {
+            try {
+                budget.offer(unwrap(pt), pt.getSsqE());
+            } catch (RuntimeException err) {
+                // invalid point
+            }
+        }
+    }
+
+    private static final ClassValue<Boolean> DEFDERIVATIVES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getDerivatives").getDeclaringClass() == IFunctionPoint.class;
+            } catch (NoSuchMethodException ex) {
+                return false;
+            }
+        }
+    };
+
+    private static final ClassValue<Boolean> DEFSSQDERIVATIVES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getSsqDerivatives").getDeclaringClass() == ISsqFunctionPoint.class;
+            } catch (NoSuchMethodException ex) {
+                return false;
+            }
+        }
+    };
+
+    private class TrackedFunction implements IFunction {
+
+        private final IFunction core;
+
+        TrackedFunction(IFunction core) {
+            this.core = core;
+        }
+
+        @Override
+        public IFunctionPoint evaluate(IReadDataBlock parameters) {
+            if (budget != null) {
+                budget.evaluation();
+            }
+            nevals.incrementAndGet();
+            long t = System.nanoTime();
+            TrackedPoint pt;
+            try {
+                pt = new TrackedPoint(core.evaluate(parameters), this);
+            } finally {
+                addTime(t);
+            }
+            offer(pt);
+            return pt;
+        }
+
+        @Override
+        public IParametersDomain getDomain() {
+            return core.getDomain();
+        }
+    }
+
+    private class TrackedPoint implements IFunctionPoint {
+
+        private final IFunctionPoint core;
+        private final TrackedFunction fn;
+
+        TrackedPoint(IFunctionPoint core, TrackedFunction fn) {
+            this.core = core;
+            this.fn = fn;
+        }
+
+        @Override
+        public IFunction getFunction() {
+            return fn;
+        }
+
+        @Override
+        public IFunctionDerivatives getDerivatives() {
+            if (DEFDERIVATIVES.get(core.getClass())) {
+                // the evaluations are done through the tracked function
+                return new NumericalDerivatives(this, false);
+            }
+            long t = System.nanoTime();
+            try {
+                return core.getDerivatives();
+            } finally {
+                addTime(t);
+            }
+        }
+
+        @Override
+        public IReadDataBlock getParameters() {
+            return core.getParameters();
+        }
+
+        @Override
+        public double getValue() {
+            long t = System.nanoTime();
+            try {
+                return core.getValue();
+            } finally {
+                addTime(t);
+            }
+        }
+    }
+
+    private class TrackedSsqFunction implements ISsqFunction {
+
+        private final ISsqFunction core;
+
+        TrackedSsqFunction(ISsqFunction core) {
+            this.core = core;
+        }
+
+        @Override
+        public IParametersDomain getDomain() {
+            return core.getDomain();
+        }
+
+        @Override
+        public ISsqFunctionPoint ssqEvaluate(IReadDataBlock parameters) {
+            if (budget != null) {
+                budget.evaluation();
+            }
+            nevals.incrementAndGet();
+            long t = System.nanoTime();
+            TrackedSsqPoint pt;
+            try {
+                pt = new TrackedSsqPoint(core.ssqEvaluate(parameters), this);
+            } finally {
+                addTime(t);
+            }
+            offer(pt);
+            return pt;
+        }
+    }
+
+    private class TrackedSsqPoint implements ISsqFunctionPoint {
+
+        private final ISsqFunctionPoint core;
+        private final TrackedSsqFunction fn;
+
+        TrackedSsqPoint(ISsqFunctionPoint core, TrackedSsqFunction fn) {
+            this.core = core;
+            this.fn = fn;
+        }
+
+        @Override
+        public ISsqFunction getSsqFunction() {
+            return fn;
+        }
+
+        @Override
+        public ISsqFunctionDerivatives getSsqDerivatives() {
+            if (DEFSSQDERIVATIVES.get(core.getClass())) {
+                return new SsqNumericalDerivatives(this, false);
+            }
+            long t = System.nanoTime();
+            try {
+                return core.getSsqDerivatives();
+            } finally {
+                addTime(t);
+            }
+        }
+
+        @Override
+        public int getDim() {
+            return core.getDim();
+        }
+
+        @Override
+        public IReadDataBlock getE() {
+            long t = System.nanoTime();
+            try {
+                return core.getE();
+            } finally {
+                addTime(t);
+            }
+        }
+
+        @Override
+        public boolean getE(double[] buffer, int offset) {
+            long t = System.nanoTime();
+            try {
+                return core.getE(buffer, offset);
+            } finally {
+                addTime(t);
+            }
+        }
+
+        @Override
+        public IReadDataBlock getParameters() {
+            return core.getParameters();
+        }
+
+        @Override
+        public double getSsqE() {
+            long t = System.nanoTime();
+            try {
+                return core.getSsqE();
+            } finally {
+                addTime(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.design.Development;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a minimizer from several starting points concurrently. Each start uses
+ * its own copy of the minimizer (see IFunctionMinimizer.exemplar). As soon as
+ * a given number of runs have converged to the same (best) objective, the
+ * laggards (the runs that are not already below that objective) are
+ * cancelled. The cancellation happens at the next iteration of the runs.
+ * A run has converged when its minimizer reports the convergence (through
+ * the end of its telemetry) before its maximum number of iterations.
+ *
+ * The starting points may belong to different functions (different
+ * parameterizations of the same model, for instance). The functions must
+ * support concurrent evaluations.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class MultiStartMinimizer {
+
+    private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Result of the minimization from a given starting point
+     */
+    @Development(status = Development.Status.Alpha)
+    public static final class Run {
+
+        private final int start;
+        private IFunctionPoint result;
+        private boolean converged;
+        private volatile boolean cancelled, done;
+        private volatile double current = Double.NaN;
+        private int niter;
+
+        private Run(int start) {
+            this.start = start;
+        }
+
+        /**
+         *
+         * @return The position of the starting point
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         *
+         * @return The result of the minimization. Null if the run failed or
+         * has been cancelled
+         */
+        public IFunctionPoint getResult() {
+            return result;
+        }
+
+        public double getObjective() {
+            return result == null ? Double.NaN : result.getValue();
+        }
+
+        public boolean hasConverged() {
+            return converged;
+        }
+
+        /**
+         *
+         * @return True if the run has been stopped before its end
+         */
+        public boolean isCancelled() {
+            return cancelled && result == null;
+        }
+
+        public int getIterCount() {
+            return niter;
+        }
+    }
+
+    private final IFunctionMinimizer minimizer;
+    private double tolerance = 1e-6;
+    private int confirmations = 2;
+    private int nthreads = NTHREADS;
+
+    private Run[] runs;
+    private Run best;
+    private int nconfirmed;
+
+    /**
+     *
+     * @param minimizer The prototype of the minimizers. Each run uses a copy
+     * of it
+     */
+    public MultiStartMinimizer(IFunctionMinimizer minimizer) {
+        this.minimizer = minimizer;
+    }
+
+    /**
+     * Relative tolerance on the objective used to decide that two runs reached
+     * the same minimum
+     *
+     * @return
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Number of converged runs that must reach the best objective before the
+     * remaining runs are cancelled (1 to stop at the first converged run).
+     * Default is 2
+     *
+     * @return
+     */
+    public int getConfirmations() {
+        return confirmations;
+    }
+
+    public void setConfirmations(int confirmations) {
+        if (confirmations < 1) {
+            throw new FunctionException("Invalid number of confirmations");
+        }
+        this.confirmations = confirmations;
+    }
+
+    public int getThreadsCount() {
+        return nthreads;
+    }
+
+    public void setThreadsCount(int nthreads) {
+        this.nthreads = Math.max(1, nthreads);
+    }
+
+    /**
+     *
+     * @param starts The starting points
+     * @return The best point found (preferably from a converged run). Null if
+     * all the runs failed
+     */
+    public IFunctionPoint minimize(List<? extends IFunctionPoint> starts) {
+        int n = starts.size();
+        runs = new Run[n];
+        best = null;
+        nconfirmed = 0;
+        if (n == 0) {
+            return null;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i) {
+            Run run = new Run(i);
+            runs[i] = run;
+            IFunctionPoint start = starts.get(i);
+            tasks.add(() -> {
+                execute(run, start);
+                return null;
+            });
+        }
+        int nt = Math.min(nthreads, n);
+        if (nt == 1) {
+            for (int i = 0; i < n; ++i) {
+                execute(runs[i], starts.get(i));
+            }
+        } else {
+            ExecutorService executorService = Executors.newFixedThreadPool(nt);
+            try {
+                executorService.invokeAll(tasks);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                cancelAll();
+            }
+            executorService.shutdown();
+        }
+        if (best != null) {
+            return best.result;
+        }
+        // no converged run: best available result
+        Run cur = null;
+        for (Run run : runs) {
+            if (run.result != null && Double.isFinite(run.getObjective())
+                    && (cur == null || run.getObjective() < cur.getObjective())) {
+                cur = run;
+            }
+        }
+        best = cur;
+        return cur == null ? null : cur.result;
+    }
+
+    /**
+     *
+     * @param function
+     * @param starts Starting parameters
+     * @return
+     */
+    public IFunctionPoint minimize(IFunction function, List<? extends IReadDataBlock> starts) {
+        List<IFunctionPoint> points = new ArrayList<>(starts.size());
+        for (IReadDataBlock start : starts) {
+            points.add(function.evaluate(start));
+        }
+        return minimize(points);
+    }
+
+    /**
+     *
+     * @return The position of the starting point that gave the result. -1 if
+     * all the runs failed
+     */
+    public int getBestStart() {
+        return best == null ? -1 : best.start;
+    }
+
+    /**
+     *
+     * @return The runs of the last minimization, in the order of the starting
+     * points
+     */
+    public Run[] getRuns() {
+        return runs == null ? new Run[0] : runs.clone();
+    }
+
+    private void execute(Run run, IFunctionPoint start) {
+        if (run.cancelled) {
+            return;
+        }
+        IFunctionMinimizer min = minimizer.exemplar();
+        Canceller canceller = new Canceller(run, min.getTelemetry());
+        min.setTelemetry(canceller);
+        try {
+            boolean ok = min.minimize(start);
+            run.niter = min.getIterCount();
+            run.result = min.getResult();
+            // the result of minimize is not a convergence test for all the
+            // minimizers (see Bfgs): the convergence reported by the minimizer
+            // itself is used
+            run.converged = ok && canceller.converged && run.niter < min.getMaxIter();
+        } catch (RuntimeException err) {
+            // failed or cancelled run
+        } finally {
+            canceller.close();
+        }
+        run.done = true;
+        completed(run);
+    }
+
+    private synchronized void completed(Run run) {
+        if (!run.converged || !Double.isFinite(run.getObjective())) {
+            return;
+        }
+        double obj = run.getObjective();
+        if (best == null || obj < best.getObjective()) {
+            if (best == null || !same(obj, best.getObjective())) {
+                // new minimum
+                nconfirmed = 0;
+            }
+            best = run;
+        } else if (!same(obj, best.getObjective())) {
+            return;
+        }
+        if (++nconfirmed >= confirmations) {
+            cancelLaggards(best.getObjective());
+        }
+    }
+
+    private void cancelLaggards(double fmin) {
+        double bound = fmin - eps(fmin);
+        for (Run run : runs) {
+            // runs that didn't start yet have a NaN objective
+            if (!run.done && !(run.current < bound)) {
+                run.cancelled = true;
+            }
+        }
+    }
+
+    private void cancelAll() {
+        for (Run run : runs) {
+            if (!run.done) {
+                run.cancelled = true;
+            }
+        }
+    }
+
+    private boolean same(double a, double b) {
+        return Math.abs(a - b) <= eps(b);
+    }
+
+    private double eps(double f) {
+        return tolerance * (1 + Math.abs(f));
+    }
+
+    /**
+     * Stops a run (at the next iteration) when it has been cancelled. The
+     * minimizer stopped by an exception (cancelled or failed run) doesn't end
+     * its telemetry: the canceller ends it on close
+     */
+    private static class Canceller implements IMinimizerTelemetry {
+
+        private final Run run;
+        private final IMinimizerTelemetry telemetry;
+        private String method;
+        private MinimizerIteration last;
+        private long t0;
+        private boolean started, ended, converged;
+
+        Canceller(Run run, IMinimizerTelemetry telemetry) {
+            this.run = run;
+            this.telemetry = telemetry;
+        }
+
+        @Override
+        public void start(String method, IReadDataBlock parameters) {
+            this.method = method;
+            t0 = System.nanoTime();
+            started = true;
+            if (telemetry != null) {
+                telemetry.start(method, parameters);
+            }
+        }
+
+        @Override
+        public void iteration(MinimizerIteration iteration) {
+            run.current = iteration.getObjective();
+            last = iteration;
+            if (telemetry != null) {
+                telemetry.iteration(iteration);
+            }
+            if (run.cancelled) {
+                throw new FunctionException(FunctionException.CANCEL_ERR);
+            }
+        }
+
+        @Override
+        public void end(MinimizerIteration last, boolean converged) {
+            ended = true;
+            this.converged = converged;
+            if (telemetry != null) {
+                telemetry.end(last, converged);
+            }
+        }
+
+        /**
+         * Ends the telemetry of a run that has been started but not ended
+         */
+        void close() {
+            if (!started || ended) {
+                return;
+            }
+            ended = true;
+            if (telemetry != null) {
+                telemetry.end(last != null ? last : new MinimizerIteration(method, 0, Double.NaN,
+                        Double.NaN, Double.NaN, 0, 0, System.nanoTime() - t0), false);
+            }
+        }
+    }
+}
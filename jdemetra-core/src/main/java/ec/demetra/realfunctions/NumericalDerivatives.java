@@ -26,8 +26,10 @@ import ec.tstoolkit.maths.matrices.SymmetricMatrix;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -97,11 +99,21 @@ public class NumericalDerivatives implements IFunctionDerivatives {
             List<Callable<Void>> tasks = createTasks(n, sym);
             ExecutorService executorService = Executors.newFixedThreadPool(NTHREADS);
             try {
-                executorService.invokeAll(tasks);
+                for (Future<Void> future : executorService.invokeAll(tasks)) {
+                    future.get();
+                }
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
+                throw new FunctionException(FunctionException.CANCEL_ERR);
+            } catch (ExecutionException ex) {
+                // the tasks only throw the stop exceptions
+                if (ex.getCause() instanceof FunctionException) {
+                    throw (FunctionException) ex.getCause();
+                }
+                throw new FunctionException(FunctionException.D_ERR);
+            } finally {
+                executorService.shutdown();
             }
-            executorService.shutdown();
         }
     }
 
@@ -222,6 +234,11 @@ public class NumericalDerivatives implements IFunctionDerivatives {
             cur.add(i, dx);
             IFunctionPoint fn = this.fn.evaluate(cur);
             return fn.getValue();
+        } catch (FunctionException err) {
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
+            return fx;
         } catch (Exception err) {
             return fx;
         }
@@ -234,6 +251,11 @@ public class NumericalDerivatives implements IFunctionDerivatives {
             cur.add(j, dxj);
             IFunctionPoint fn = this.fn.evaluate(cur);
             return fn.getValue();
+        } catch (FunctionException err) {
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
+            return fx;
         } catch (Exception err) {
             return fx;
         }
@@ -272,6 +294,11 @@ public class NumericalDerivatives implements IFunctionDerivatives {
                 cur.add(pos, eps);
                 IFunctionPoint fn = NumericalDerivatives.this.fn.evaluate(cur);
                 rslt[pos] = fn.getValue();
+            } catch (FunctionException err) {
+                if (FunctionException.isStop(err)) {
+                    throw err;
+                }
+                rslt[pos] = fx;
             } catch (Exception err) {
                 rslt[pos] = fx;
             }
@@ -144,4 +144,39 @@ public class ProxyMinimizer implements IFunctionMinimizer {
     public void setPrecsion(double value) {
         minimizer.setPrecision(value);
     }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        minimizer.setTelemetry(telemetry);
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return minimizer.getTelemetry();
+    }
+
+    @Override
+    public MinimizerState getState() {
+        return minimizer.getState();
+    }
+
+    @Override
+    public void setWarmStart(MinimizerState state) {
+        minimizer.setWarmStart(state);
+    }
+
+    @Override
+    public MinimizerState getWarmStart() {
+        return minimizer.getWarmStart();
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        minimizer.setBudget(budget);
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return minimizer.getBudget();
+    }
 }
@@ -22,30 +22,38 @@ import ec.tstoolkit.data.ReadDataBlock;
 import ec.tstoolkit.design.Development;
 import ec.tstoolkit.maths.matrices.Matrix;
 import ec.tstoolkit.maths.matrices.SubMatrix;
-import ec.tstoolkit.maths.matrices.SymmetricMatrix;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
+ * Numerical derivatives of a sum of squares. The residuals of the shifted
+ * points are written directly in the storage of the Jacobian (see
+ * ISsqFunction.ssqEvaluate(IReadDataBlock[], int, double[], int)), which is
+ * then transformed in place into finite differences.
  *
  * @author Jean Palate
  */
 @Development(status = Development.Status.Alpha)
 public class SsqNumericalDerivatives implements ISsqFunctionDerivatives {
-    
+
     private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
-    
-    private IReadDataBlock[] m_ep, m_em, m_de;
+
     private double[] m_epsp;
     private double[] m_epsm;
     private double[] m_grad;
+    // n x m, column-major
+    private Matrix m_jac;
     private Matrix m_h;
     private final ISsqFunction fn;
-    private IReadDataBlock m_pt;
-    private IReadDataBlock m_ecur;
+    private final ISsqFunctionPoint m_point;
+    private final IReadDataBlock m_pt;
+    private double[] m_ecur;
     private final boolean m_sym, m_mt;
     private static int g_nsteps = 2;
 
@@ -56,12 +64,12 @@ public class SsqNumericalDerivatives implements ISsqFunctionDerivatives {
     public SsqNumericalDerivatives(ISsqFunctionPoint point) {
         this(point, false, false);
     }
-    
+
     public SsqNumericalDerivatives(ISsqFunctionPoint point, boolean sym, boolean mt) {
         m_sym = sym;
         m_mt = mt;
         fn = point.getSsqFunction();
-        m_ecur = point.getE();
+        m_point = point;
         m_pt = point.getParameters();
     }
 
@@ -74,83 +82,146 @@ public class SsqNumericalDerivatives implements ISsqFunctionDerivatives {
             boolean sym) {
         this(point, sym, false);
     }
-    
+
     private void calcgrad() {
+        int ne = m_point.getDim();
+        m_ecur = new double[ne];
+        if (!m_point.getE(m_ecur, 0)) {
+            throw new FunctionException(FunctionException.D_ERR);
+        }
         int n = m_pt.getLength();
         m_grad = new double[n];
         m_epsp = new double[n];
-        m_ep = new IReadDataBlock[n];
         if (m_sym) {
             m_epsm = new double[n];
-            m_em = new IReadDataBlock[n];
         }
-        m_de = new IReadDataBlock[n];
-        if (!m_mt || n < 2) {
-            for (int i = 0; i < n; ++i) {
-                m_epsp[i] = fn.getDomain().epsilon(m_pt, i);
-                checkepsilon(i);
-                if (m_sym) {
-                    checkmepsilon(i);
+        for (int i = 0; i < n; ++i) {
+            m_epsp[i] = fn.getDomain().epsilon(m_pt, i);
+            checkepsilon(i);
+            if (m_sym) {
+                checkmepsilon(i);
+            }
+        }
+        m_jac = new Matrix(ne, n);
+        double[] jac = m_jac.internalStorage();
+        boolean[] okp = evaluate(m_epsp, ne, jac);
+        double[] em = null;
+        boolean[] okm = null;
+        if (m_sym) {
+            em = new double[jac.length];
+            okm = evaluate(m_epsm, ne, em);
+        }
+        for (int i = 0, start = 0; i < n; ++i, start += ne) {
+            double epsp = m_epsp[i];
+            if (!okp[i]) {
+                // the derivative is set to 0
+                Arrays.fill(jac, start, start + ne, 0);
+                continue;
+            }
+            if (m_sym && okm[i]) {
+                double eps = epsp - m_epsm[i];
+                for (int j = start; j < start + ne; ++j) {
+                    jac[j] = (jac[j] - em[j]) / eps;
                 }
-                m_ep[i] = err(i, m_epsp[i]);
-                if (m_sym) {
-                    m_em[i] = err(i, m_epsm[i]);
+            } else {
+                for (int j = start, k = 0; k < ne; ++j, ++k) {
+                    jac[j] = (jac[j] - m_ecur[k]) / epsp;
                 }
             }
-        } else {
-            for (int i = 0; i < n; ++i) {
-                m_epsp[i] = fn.getDomain().epsilon(m_pt, i);
-                checkepsilon(i);
-                if (m_sym) {
-                    checkmepsilon(i);
-                }
+            double g = 0;
+            for (int j = start, k = 0; k < ne; ++j, ++k) {
+                g += m_ecur[k] * jac[j];
             }
-            List<Callable<Void>> tasks = createTasks(n, m_sym);
+            m_grad[i] = 2 * g;
+        }
+    }
+
+    /**
+     * Evaluates the residuals at the shifted points (p + eps(i) for each
+     * parameter i) and stores them in the i-th block of length ne of the
+     * buffer. Parameters with a 0 epsilon are not evaluated and flagged as
+     * missing
+     *
+     * @param eps
+     * @param ne
+     * @param buffer
+     * @return
+     */
+    private boolean[] evaluate(double[] eps, int ne, double[] buffer) {
+        int n = eps.length;
+        int[] idx = new int[n];
+        int nz = 0;
+        for (int i = 0; i < n; ++i) {
+            if (eps[i] != 0) {
+                idx[nz++] = i;
+            }
+        }
+        IReadDataBlock[] points = new IReadDataBlock[nz];
+        for (int k = 0; k < nz; ++k) {
+            DataBlock pcur = new DataBlock(m_pt);
+            pcur.add(idx[k], eps[idx[k]]);
+            points[k] = pcur;
+        }
+        boolean[] cok;
+        if (!m_mt || nz < 2) {
+            cok = fn.ssqEvaluate(points, ne, buffer, 0);
+        } else {
+            cok = new boolean[nz];
+            List<Callable<Void>> tasks = createTasks(points, ne, buffer, cok);
             ExecutorService executorService = Executors.newFixedThreadPool(NTHREADS);
             try {
-                executorService.invokeAll(tasks);
-                executorService.shutdown();
+                for (Future<Void> f : executorService.invokeAll(tasks)) {
+                    f.get();
+                }
             } catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
+                throw new FunctionException(FunctionException.CANCEL_ERR);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new FunctionException(FunctionException.D_ERR);
+            } finally {
+                executorService.shutdown();
             }
         }
-        int ne = m_ecur.getLength();
-        for (int i = 0; i < n; ++i) {
-            IReadDataBlock ep = m_ep[i], em = m_ep[i];
-            DataBlock de = new DataBlock(ne);
-            if (m_sym) {
-                final double eps = m_epsp[i] - m_epsm[i];
-                de.set(ep, em, (x, y) -> (x - y) / eps);
-            } else {
-                final double eps = m_epsp[i];
-                de.set(ep, m_ecur, (x, y) -> (x - y) / eps);
+        // the blocks are evaluated contiguously. They are moved to their
+        // final positions (from the last one, which can't overlap the others)
+        boolean[] ok = new boolean[n];
+        for (int k = nz - 1; k >= 0; --k) {
+            int i = idx[k];
+            if (i != k && cok[k]) {
+                System.arraycopy(buffer, k * ne, buffer, i * ne, ne);
             }
-            m_grad[i] = 2 * m_ecur.dot(de);
-            m_de[i] = de;
+            ok[i] = cok[k];
         }
+        return ok;
     }
-    
+
     private void calch() {
         if (m_grad == null) {
             calcgrad();
         }
-        int n = m_grad.length;
+        int n = m_grad.length, ne = m_ecur.length;
+        double[] jac = m_jac.internalStorage();
         m_h = new Matrix(n, n);
-        // compute first the diagonal
-        for (int i = 0; i < n; ++i) {
-            IReadDataBlock de = m_de[i];
-            m_h.set(i, i, 2 * de.ssq());
-        }
-        // other elements
+        // h(i,j) = 2 * de/dp(i) * de/dp(j)
         for (int i = 0; i < n; ++i) {
-            for (int j = 0; j < i; ++j) {
-                IReadDataBlock dei = m_de[i], dej = m_de[j];
-                m_h.set(i, j, 2 * dei.dot(dej));
+            for (int j = 0; j <= i; ++j) {
+                double s = 0;
+                for (int ki = i * ne, kj = j * ne, k = 0; k < ne; ++ki, ++kj, ++k) {
+                    s += jac[ki] * jac[kj];
+                }
+                m_h.set(i, j, 2 * s);
+                m_h.set(j, i, 2 * s);
             }
         }
-        SymmetricMatrix.fromLower(m_h);
     }
-    
+
     private void checkepsilon(int i) {
         double eps = m_epsp[i];
         if (eps == 0) {
@@ -203,7 +274,7 @@ public class SsqNumericalDerivatives implements ISsqFunctionDerivatives {
     public IFunction getFunction(){
         return fn.asFunction();
     }
-    
+
     /**
      * Computes d e(t,p)/dp(i)
      *
@@ -212,24 +283,10 @@ public class SsqNumericalDerivatives implements ISsqFunctionDerivatives {
      */
     @Override
     public IReadDataBlock dEdX(int idx) {
-        if (m_de == null) {
+        if (m_jac == null) {
             calcgrad();
         }
-        return m_de[idx];
-    }
-    
-    private IReadDataBlock err(int i, double dx) {
-        try {
-            if (dx == 0) {
-                return m_ecur;
-            }
-            DataBlock pcur = new DataBlock(m_pt);
-            pcur.add(i, dx);
-            ISsqFunctionPoint fn = this.fn.ssqEvaluate(pcur);
-            return fn.getE();
-        } catch (Exception err) {
-            return m_ecur;
-        }
+        return m_jac.column(idx);
     }
 
     /**
@@ -252,12 +309,10 @@ public class SsqNumericalDerivatives implements ISsqFunctionDerivatives {
      */
     @Override
     public void getJacobian(SubMatrix m) {
-        if (m_de == null) {
+        if (m_jac == null) {
             calcgrad();
         }
-        for (int i = 0; i < m_de.length; ++i) {
-            m.column(i).copy(m_de[i]);
-        }
+        m.copy(m_jac.all());
     }
 
     /**
@@ -274,46 +329,37 @@ public class SsqNumericalDerivatives implements ISsqFunctionDerivatives {
         }
         h.copy(m_h.all());
     }
-    
-    private List<Callable<Void>> createTasks(int n, boolean sym) {
+
+    private List<Callable<Void>> createTasks(IReadDataBlock[] points, int ne, double[] buffer, boolean[] ok) {
         List<Callable<Void>> result = new ArrayList<>();
-        for (int i = 0; i < n; ++i) {
-            result.add(new Err(m_ep, i, m_epsp[i]));
-        }
-        if (sym) {
-            for (int i = 0; i < n; ++i) {
-                result.add(new Err(m_em, i, m_epsm[i]));
-            }
+        for (int k = 0; k < points.length; ++k) {
+            result.add(new Err(points[k], ne, buffer, k, ok));
         }
         return result;
     }
-    
+
     private class Err implements Callable<Void> {
-        
-        IReadDataBlock[] rslt;
-        int pos;
-        double eps;
-        
-        private Err(IReadDataBlock[] rslt, int pos, double eps) {
-            this.rslt = rslt;
+
+        private final IReadDataBlock[] point;
+        private final int ne, pos;
+        private final double[] buffer;
+        private final boolean[] ok;
+
+        private Err(IReadDataBlock point, int ne, double[] buffer, int pos, boolean[] ok) {
+            this.point = new IReadDataBlock[]{point};
+            this.ne = ne;
+            this.buffer = buffer;
             this.pos = pos;
-            this.eps = eps;
-            
+            this.ok = ok;
         }
-        
+
         @Override
         public Void call() throws Exception {
-            try {
-                DataBlock cur = new DataBlock(m_pt);
-                cur.add(pos, eps);
-                ISsqFunctionPoint fn = SsqNumericalDerivatives.this.fn.ssqEvaluate(cur);
-                rslt[pos] = fn.getE();
-            } catch (Exception err) {
-                rslt[pos] = m_ecur;
-            }
+            // each task writes in its own block
+            ok[pos] = fn.ssqEvaluate(point, ne, buffer, pos * ne)[0];
             return null;
         }
-        
+
     }
-    
+
 }
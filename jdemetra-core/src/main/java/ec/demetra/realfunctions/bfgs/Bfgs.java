@@ -27,6 +27,10 @@ import ec.tstoolkit.maths.matrices.SymmetricMatrix;
 import ec.demetra.realfunctions.FunctionException;
 import ec.demetra.realfunctions.IFunction;
 import ec.demetra.realfunctions.IFunctionMinimizer;
+import ec.demetra.realfunctions.IMinimizerTelemetry;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.MinimizerState;
+import ec.demetra.realfunctions.MinimizerTracker;
 import ec.demetra.realfunctions.NumericalDerivatives;
 import ec.demetra.realfunctions.ParamValidation;
 import ec.demetra.realfunctions.IFunctionPoint;
@@ -48,6 +52,9 @@ public class Bfgs implements IFunctionMinimizer {
     private int m_iter, m_maxiter = 100, m_bdirty;
     private boolean m_bUpdated, m_gUpdated, m_bStrong=true, m_bConverged;
     private static final int m_bminiter = 5;
+    private IMinimizerTelemetry m_telemetry;
+    private MinimizerBudget m_budget;
+    private MinimizerState m_warm;
 
     /** Creates a new instance of L_BFGS_B */
     public Bfgs() {
@@ -90,6 +97,9 @@ public class Bfgs implements IFunctionMinimizer {
         bfgs.m_falpha = m_falpha;
         bfgs.m_maxiter = m_maxiter;
         bfgs.m_bStrong=m_bStrong;
+        bfgs.m_telemetry = m_telemetry;
+        bfgs.m_budget = m_budget;
+        bfgs.m_warm = m_warm;
         return bfgs;
     }
 
@@ -175,7 +185,7 @@ public class Bfgs implements IFunctionMinimizer {
 
     @Override
     public IFunctionPoint getResult() {
-        return m_ftry;
+        return MinimizerTracker.unwrap(m_ftry);
     }
 
     @Override
@@ -196,6 +206,12 @@ public class Bfgs implements IFunctionMinimizer {
         m_y = new double[n];
         m_B = new Matrix(n, n);
         start(pstart);
+        if (m_warm != null && m_warm.isCompatible(n, MinimizerState.Curvature.InverseHessian)) {
+            // the previous approximation replaces the identity. It will be
+            // reset as usual if it doesn't provide a descent direction
+            m_B = m_warm.getCurvature();
+            m_bdirty = 1;
+        }
     }
 
     /**
@@ -285,17 +301,24 @@ public class Bfgs implements IFunctionMinimizer {
                     return true;
             }
         } catch (RuntimeException err) {
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
             return false;
         }
     }
 
     @Override
     public boolean minimize( IFunctionPoint start) {
-        initialize(start);
+        MinimizerTracker tracker = MinimizerTracker.of(m_telemetry, m_budget, "Bfgs");
+        initialize(tracker.track(start));
         while (iterate() && m_iter < m_maxiter) {
             ++m_iter;
+            if (tracker.isActive()) {
+                tracker.iteration(m_iter, new ReadDataBlock(m_x), m_f, new DataBlock(m_g).nrm2());
+            }
         }
-
+        tracker.end(m_bConverged);
         return true;
     }
     
@@ -402,4 +425,51 @@ return m_xeps;    }
     @Override
     public void setPrecsion(double value) {
 m_xeps=value;    }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        m_telemetry = telemetry;
+    }
+
+    /**
+     * The state contains the current approximation of the inverse of the
+     * Hessian
+     *
+     * @return
+     */
+    @Override
+    public MinimizerState getState() {
+        if (m_ftry == null) {
+            return null;
+        }
+        boolean b = m_bdirty > 0;
+        return new MinimizerState("Bfgs", new ReadDataBlock(m_x),
+                b ? MinimizerState.Curvature.InverseHessian : MinimizerState.Curvature.None,
+                b ? m_B : null, Double.NaN, Double.NaN);
+    }
+
+    @Override
+    public void setWarmStart(MinimizerState state) {
+        m_warm = state;
+    }
+
+    @Override
+    public MinimizerState getWarmStart() {
+        return m_warm;
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return m_telemetry;
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        m_budget = budget;
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return m_budget;
+    }
 }
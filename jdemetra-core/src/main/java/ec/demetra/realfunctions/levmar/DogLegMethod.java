@@ -16,33 +16,48 @@
  */
 package ec.demetra.realfunctions.levmar;
 
+import ec.demetra.realfunctions.FunctionException;
 import ec.demetra.realfunctions.ISsqFunction;
 import ec.demetra.realfunctions.ISsqFunctionMinimizer;
+import ec.demetra.realfunctions.IMinimizerTelemetry;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.MinimizerState;
+import ec.demetra.realfunctions.MinimizerTracker;
 import ec.tstoolkit.data.DataBlock;
 import ec.tstoolkit.data.IReadDataBlock;
-import ec.tstoolkit.maths.matrices.LowerTriangularMatrix;
+import ec.tstoolkit.design.Development;
 import ec.tstoolkit.maths.matrices.Matrix;
-import ec.tstoolkit.maths.matrices.MatrixException;
 import ec.tstoolkit.maths.matrices.SymmetricMatrix;
 import ec.demetra.realfunctions.ISsqFunctionPoint;
 
 /**
+ * Trust-region dogleg method (Powell) for sums of squares.
+ *
+ * The Jacobian of each iteration is decomposed once (Householder QR with
+ * column pivoting, J.P = Q.R). The Gauss-Newton step, the Cauchy point and the
+ * reductions predicted by the linear model are then computed from R and Q'e,
+ * so that the reductions of the trust radius inside an iteration don't need
+ * any new factorization. The Gauss-Newton step of a rank-deficient Jacobian is
+ * the basic solution on its numerical rank.
+ *
+ * The convergence criterion has the same meaning as in the Levenberg-Marquardt
+ * minimizer (relative decrease of the sum of squares).
  *
  * @author Jean Palate
  */
+@Development(status = Development.Status.Alpha)
 public class DogLegMethod implements ISsqFunctionMinimizer {
 
-    static final int DEF_MAX_ITER = 20;
-    static final double EPSILON = 1e-17;
-    static final double DEF_STOP_THRESH = 1e-12;
+    static final int DEF_MAX_ITER = 200;
+    static final double DEF_STOP_THRESH = 1e-15, DEF_STOP_THRESH_3 = 1e-12;
     static final double DEF_LTRUSTED = .1;
+    // relative threshold for the numerical rank of R
+    static final double RANK_EPS = 1e-13;
     private int itmax = DEF_MAX_ITER, iter = 0;
     private double eps1 = DEF_STOP_THRESH,
             eps2 = DEF_STOP_THRESH,
-            eps2_sq = DEF_STOP_THRESH * DEF_STOP_THRESH,
-            eps3 = DEF_STOP_THRESH,
+            eps3 = DEF_STOP_THRESH_3,
             ltrusted_ = DEF_LTRUSTED;
-    private double eps = 1e-5;
     private DataBlock g_;
     ///////////////////////////////////////////
     private ISsqFunction fn_;
@@ -50,28 +65,38 @@ public class DogLegMethod implements ISsqFunctionMinimizer {
     private DataBlock ecur_;
     private double Fcur_, Ftry_;
     private Matrix J, JtJ;
+    private Qr qr;
     private double scale_, scale2_;
     ///////////////////////////////////////////
     private int stop;
+    private IMinimizerTelemetry telemetry;
+    private MinimizerBudget budget;
+    private MinimizerState warm;
 
     public boolean minimize(ISsqFunction fn, IReadDataBlock pstart) {
         return minimize(fn.ssqEvaluate(pstart));
     }
 
+    public boolean hasConverged() {
+        return stop == 2 || stop == 1 || stop == 6;
+    }
+
     @Override
     public ISsqFunctionMinimizer exemplar() {
         DogLegMethod ex = new DogLegMethod();
-        ex.eps = eps;
+        ex.itmax = itmax;
         ex.eps1 = eps1;
         ex.eps2 = eps2;
         ex.eps3 = eps3;
-        ex.eps2_sq = eps2_sq;
+        ex.telemetry = telemetry;
+        ex.budget = budget;
+        ex.warm = warm;
         return ex;
     }
 
     @Override
     public double getConvergenceCriterion() {
-        return eps;
+        return eps3;
     }
 
     @Override
@@ -100,7 +125,7 @@ public class DogLegMethod implements ISsqFunctionMinimizer {
 
     @Override
     public ISsqFunctionPoint getResult() {
-        return fcur_;
+        return MinimizerTracker.unwrap(fcur_);
     }
 
     @Override
@@ -110,14 +135,17 @@ public class DogLegMethod implements ISsqFunctionMinimizer {
 
     @Override
     public boolean minimize(ISsqFunctionPoint start) {
-        fn_ = start.getSsqFunction();
-        fcur_ = start;
-        return calc();
+        MinimizerTracker tracker = MinimizerTracker.of(telemetry, budget, "DogLeg");
+        fcur_ = tracker.track(start);
+        fn_ = fcur_.getSsqFunction();
+        boolean ok = calc(tracker);
+        tracker.end(ok);
+        return ok;
     }
 
     @Override
     public void setConvergenceCriterion(double value) {
-        eps = value;
+        eps3 = value;
     }
 
     @Override
@@ -125,6 +153,12 @@ public class DogLegMethod implements ISsqFunctionMinimizer {
         itmax = n;
     }
 
+    /**
+     * One iteration of the method
+     *
+     * @return True if a new point has been accepted. The field stop is set
+     * when the iterations must be stopped
+     */
     private boolean iterate() {
         if (!Double.isFinite(Fcur_)) {
             stop = 7;
@@ -136,165 +170,161 @@ public class DogLegMethod implements ISsqFunctionMinimizer {
             return false;
         }
 
-        // gets the Jacobian
+        // gets the Jacobian and decomposes it
         fcur_.getSsqDerivatives().getJacobian(J.all());
-        JtJ = SymmetricMatrix.XtX(J);
-        double jdiag_ninf = JtJ.diagonal().nrmInf();
-
-        // Computes g= J'e
-        g_.product(J.columns(), ecur_); // g
+        JtJ = null;
+        qr = new Qr(J);
+        double[] qte = qr.qte(ecur_);
 
+        // g = J'e = P.R'.Q'e
+        double[] g = qr.rtx(qte);
+        g_ = new DataBlock(g);
         double ngInf = g_.nrmInf();
-        if (ngInf <= eps * scale_) {
+        if (ngInf <= eps1 * scale_) {
             stop = 1;
             return false;
         }
-
         double ng2 = g_.ssq();
         double ng = Math.sqrt(ng2);
 
-        DataBlock hgn = null, hdl;
-        DataBlock hsd = g_.deepClone();
-        hsd.chs();
-        double dL;
-
-        // hsd (h steepest descent) alpha= |g|/(|Jg|)
-        DataBlock Jg = new DataBlock(J.getRowsCount());
-        Jg.product(J.rows(), g_);
-        double alpha = ng2 / Jg.ssq();
-        DataBlock a = hsd.deepClone();
-        a.mul(alpha);
-        double na = a.nrm2();
-
-        double k = 0;
-        do {
-            Matrix A = JtJ.clone();
-            if (k == 0) {
-                k = 1e-6 * jdiag_ninf;
-            } else {
-                A.diagonal().add(k);
-                k *= 10;
-            }
-            try {
-                SymmetricMatrix.lcholesky(A);
-                hgn = g_.deepClone();
-                LowerTriangularMatrix.rsolve(A, hgn);
-                LowerTriangularMatrix.lsolve(A, hgn);
-                hgn.chs();
-            } catch (MatrixException err) {
-                hgn = null;
-            }
-        } while (hgn == null && k < jdiag_ninf);
-        if (hgn == null) {
+        // Gauss-Newton step
+        double[] hgn = qr.solve(qte);
+        for (int i = 0; i < hgn.length; ++i) {
+            hgn[i] = -hgn[i];
+        }
+        double nhgn = norm(hgn);
+
+        // steepest descent: alpha = |g|^2/|Jg|^2
+        double ng2jg = ssq(qr.rx(g));
+        if (ng2jg <= 0) {
+            stop = 4;
             return false;
         }
+        double alpha = ng2 / ng2jg;
+        double na = alpha * ng;
 
+        DataBlock pcur = new DataBlock(fcur_.getParameters());
+        int m = g.length;
+        double[] hdl = new double[m];
         while (true) {
-            double ro = 0;
-            // compute hdl h dog leg
-            if (hgn.nrm2() <= ltrusted_) {
-                hdl = hgn;
-                dL = -g_.dot(hdl);
+            // dogleg step for the current trust radius
+            if (nhgn <= ltrusted_) {
+                System.arraycopy(hgn, 0, hdl, 0, m);
             } else if (na >= ltrusted_) {
-                hdl = hsd.deepClone();
-                hdl.mul(ltrusted_ / ng);
-                dL = ltrusted_ * (2 * Math.abs(alpha) * ng - ltrusted_) / alpha;
+                double c = -ltrusted_ / ng;
+                for (int i = 0; i < m; ++i) {
+                    hdl[i] = c * g[i];
+                }
             } else {
-                DataBlock bma = hgn.deepClone();
-                bma.sub(a);
-                double c = a.dot(bma);
-                double nbma = bma.ssq();
-                double z0 = ltrusted_ * ltrusted_ - a.ssq();
+                // a = -alpha*g; hdl = a + beta*(hgn-a), with |hdl| = radius
+                double c = 0, nbma = 0;
+                for (int i = 0; i < m; ++i) {
+                    double ai = -alpha * g[i], bi = hgn[i] - ai;
+                    c += ai * bi;
+                    nbma += bi * bi;
+                }
+                double z0 = ltrusted_ * ltrusted_ - na * na;
                 double z1 = Math.sqrt(c * c + nbma * z0);
-
-                double beta;
-                if (c <= 0) {
-                    beta = (-c + z1) / nbma;
-                } else {
-                    beta = z0 / (c + z1);
+                double beta = c <= 0 ? (-c + z1) / nbma : z0 / (c + z1);
+                for (int i = 0; i < m; ++i) {
+                    double ai = -alpha * g[i];
+                    hdl[i] = ai + beta * (hgn[i] - ai);
                 }
-                dL = alpha * (1 - beta) * (1 - beta) * ng + beta * (2 - beta) * Fcur_;
-                hdl = a.deepClone();
-                hdl.addAY(beta, bma);
             }
-
-            if (!Double.isFinite(hdl.ssq())) {
+            double nh2 = ssq(hdl);
+            if (!Double.isFinite(nh2)) {
                 stop = 7;
                 return false;
             }
-            DataBlock np = new DataBlock(fcur_.getParameters());
-            if (hdl.ssq() <= eps2 * (np.ssq() + eps2)) {
-                /*
-                 * relative change in p is small, stop
-                 */
+            double np2 = pcur.ssq();
+            if (nh2 <= eps2 * eps2 * (np2 + eps2)) {
+                // relative change in p is small, stop
                 stop = 2;
                 return false;
             }
-            np.add(hdl);
-
-//                if (ndp2 >= (np2 + eps2) / EPSILON * EPSILON) { /*
-//                     * almost singular
-//                     */
-//                    stop = 4;
-//                    break;
-//                }
-            boolean solved = fn_.getDomain().checkBoundaries(np);
+            // reduction predicted by the linear model:
+            // |e|^2-|e+Jh|^2 = -2(Q'e)'(RP'h) - |RP'h|^2
+            double[] rh = qr.rx(hdl);
+            double dL = 0;
+            for (int i = 0; i < rh.length; ++i) {
+                dL -= rh[i] * (2 * qte[i] + rh[i]);
+            }
 
+            DataBlock np = pcur.deepClone();
+            np.add(new DataBlock(hdl));
             boolean accepted = false;
-            if (solved) {
-                ftry_ = fn_.ssqEvaluate(np);
-                Ftry_ = ftry_.getSsqE();
-                double dF = Fcur_ - Ftry_;
-                ro = dF / dL;
-
-                if (dF > 0.0) {
-                    // accept the solution
-                    accepted = true;
-//                    boolean end = (dF / scale2_) <= eps;
-//                    if (end) {
-//                        stop = 2;
-//                    }
-                    fcur_ = ftry_;
-                    Fcur_ = Ftry_;
-                    ecur_ = new DataBlock(fcur_.getE());
-//                    if (end) {
-//                        return false;
-//                    }
+            double ro = 0;
+            if (dL > 0 && fn_.getDomain().checkBoundaries(np)) {
+                try {
+                    ftry_ = fn_.ssqEvaluate(np);
+                    Ftry_ = ftry_.getSsqE();
+                    double dF = Fcur_ - Ftry_;
+                    ro = dF / dL;
+                    if (dF > 0) {
+                        DataBlock enew = new DataBlock(ftry_.getE());
+                        accepted = true;
+                        fcur_ = ftry_;
+                        Fcur_ = Ftry_;
+                        ecur_ = enew;
+                        if (dF <= eps3 * scale2_) {
+                            stop = 2;
+                        }
+                    }
+                } catch (RuntimeException err) {
+                    if (FunctionException.isStop(err)) {
+                        throw err;
+                    }
+                    // the model can't be built at the trial point: the step
+                    // is rejected and the trust region is reduced
                 }
             }
 
+            double nh = Math.sqrt(nh2);
             if (accepted && ro > .75) {
-                ltrusted_ = Math.max(ltrusted_, 3 * hdl.nrm2());
+                ltrusted_ = Math.max(ltrusted_, 3 * nh);
             } else if (!accepted || ro < .25) {
-                ltrusted_ *= .5;
+                ltrusted_ = .5 * Math.min(ltrusted_, nh);
             }
 
             if (accepted) {
                 return true;
             }
-            if (ltrusted_ <= eps * (np.nrm2() + eps2)) {
-                JtJ = null;
+            if (ltrusted_ <= eps2 * (Math.sqrt(np2) + eps2)) {
+                stop = 3;
                 return false;
             }
         }
-
     }
 
-    private boolean calc() {
+    private boolean calc(MinimizerTracker tracker) {
         iter = 0;
+        stop = 0;
         ecur_ = new DataBlock(fcur_.getE());
         Fcur_ = fcur_.getSsqE();
         scale2_ = Fcur_;
         scale_ = Math.sqrt(Fcur_);
-        ltrusted_ = DEF_LTRUSTED;
-
         int n = ecur_.getLength(), m = fn_.getDomain().getDim();
+        ltrusted_ = DEF_LTRUSTED;
+        if (warm != null && warm.getDim() == m && warm.getTrustRadius() > 0) {
+            // starts with the trust radius of the previous estimation
+            ltrusted_ = warm.getTrustRadius();
+        }
 
         // Jacobian
         J = new Matrix(n, m);
         g_ = new DataBlock(m);
-        while (iterate() && iter < itmax) {
-            ++iter;
+        while (iter < itmax) {
+            boolean accepted = iterate();
+            if (accepted) {
+                ++iter;
+                if (tracker.isActive()) {
+                    // gradient of the sum of squares: 2*J'e
+                    tracker.iteration(iter, fcur_.getParameters(), Fcur_, 2 * g_.nrm2());
+                }
+            }
+            if (!accepted || stop != 0) {
+                break;
+            }
         }
         return (stop != 7 && stop != 4);
     }
@@ -308,4 +338,236 @@ public class DogLegMethod implements ISsqFunctionMinimizer {
     public void setPrecision(double value) {
         eps2 = value;
     }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    @Override
+    public MinimizerState getState() {
+        if (fcur_ == null || J == null) {
+            return null;
+        }
+        return new MinimizerState("DogLeg", fcur_.getParameters(), MinimizerState.Curvature.Hessian,
+                SymmetricMatrix.XtX(J), ltrusted_, Double.NaN);
+    }
+
+    @Override
+    public void setWarmStart(MinimizerState state) {
+        warm = state;
+    }
+
+    @Override
+    public MinimizerState getWarmStart() {
+        return warm;
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return budget;
+    }
+
+    private static double ssq(double[] x) {
+        double s = 0;
+        for (int i = 0; i < x.length; ++i) {
+            s += x[i] * x[i];
+        }
+        return s;
+    }
+
+    private static double norm(double[] x) {
+        return Math.sqrt(ssq(x));
+    }
+
+    /**
+     * Householder QR decomposition with column pivoting of a n x m matrix:
+     * J.P = Q.R. The Householder vectors are stored below the diagonal of the
+     * (column-major) working array, R above it.
+     */
+    private static class Qr {
+
+        private final int n, m, k;
+        private final double[] a, beta, rdiag;
+        private final int[] perm;
+        private int rank;
+
+        Qr(Matrix J) {
+            n = J.getRowsCount();
+            m = J.getColumnsCount();
+            k = Math.min(n, m);
+            a = J.internalStorage().clone();
+            beta = new double[k];
+            rdiag = new double[k];
+            perm = new int[m];
+            double[] cnorm = new double[m];
+            for (int j = 0; j < m; ++j) {
+                perm[j] = j;
+                double s = 0;
+                for (int i = 0, ij = j * n; i < n; ++i, ++ij) {
+                    s += a[ij] * a[ij];
+                }
+                cnorm[j] = s;
+            }
+            double rmax = 0;
+            rank = k;
+            for (int l = 0; l < k; ++l) {
+                // pivot: remaining column with the largest norm
+                int jmax = l;
+                for (int j = l + 1; j < m; ++j) {
+                    if (cnorm[j] > cnorm[jmax]) {
+                        jmax = j;
+                    }
+                }
+                if (jmax != l) {
+                    for (int i = 0, il = l * n, ij = jmax * n; i < n; ++i, ++il, ++ij) {
+                        double tmp = a[il];
+                        a[il] = a[ij];
+                        a[ij] = tmp;
+                    }
+                    double tmp = cnorm[l];
+                    cnorm[l] = cnorm[jmax];
+                    cnorm[jmax] = tmp;
+                    int itmp = perm[l];
+                    perm[l] = perm[jmax];
+                    perm[jmax] = itmp;
+                }
+                // Householder reflection of column l (rows l..n)
+                int ll = l * n + l;
+                double s = 0;
+                for (int i = l, il = ll; i < n; ++i, ++il) {
+                    s += a[il] * a[il];
+                }
+                double nrm = Math.sqrt(s);
+                if (nrm == 0) {
+                    rdiag[l] = 0;
+                    beta[l] = 0;
+                } else {
+                    double alpha = a[ll] > 0 ? -nrm : nrm;
+                    double v0 = a[ll] - alpha;
+                    a[ll] = v0;
+                    // H = I - beta.v.v'
+                    beta[l] = 1 / (-alpha * v0);
+                    rdiag[l] = alpha;
+                    for (int j = l + 1; j < m; ++j) {
+                        int lj = j * n + l;
+                        double d = 0;
+                        for (int i = l, il = ll, ij = lj; i < n; ++i, ++il, ++ij) {
+                            d += a[il] * a[ij];
+                        }
+                        d *= beta[l];
+                        for (int i = l, il = ll, ij = lj; i < n; ++i, ++il, ++ij) {
+                            a[ij] -= d * a[il];
+                        }
+                        // downdate of the norms of the remaining columns
+                        cnorm[j] -= a[lj] * a[lj];
+                        if (cnorm[j] < 0) {
+                            cnorm[j] = 0;
+                        }
+                    }
+                }
+                double ad = Math.abs(rdiag[l]);
+                if (l == 0) {
+                    rmax = ad;
+                }
+                if (rank == k && ad <= RANK_EPS * rmax) {
+                    rank = l;
+                }
+            }
+            if (rmax == 0) {
+                rank = 0;
+            }
+        }
+
+        /**
+         * Element (i, j) of R (i <= j)
+         */
+        private double r(int i, int j) {
+            return i == j ? rdiag[i] : a[j * n + i];
+        }
+
+        /**
+         * Q'x (only the first k elements are returned)
+         */
+        double[] qte(IReadDataBlock x) {
+            double[] y = new double[n];
+            x.copyTo(y, 0);
+            for (int l = 0; l < k; ++l) {
+                if (beta[l] == 0) {
+                    continue;
+                }
+                double d = 0;
+                for (int i = l, il = l * n + l; i < n; ++i, ++il) {
+                    d += a[il] * y[i];
+                }
+                d *= beta[l];
+                for (int i = l, il = l * n + l; i < n; ++i, ++il) {
+                    y[i] -= d * a[il];
+                }
+            }
+            double[] z = new double[k];
+            System.arraycopy(y, 0, z, 0, k);
+            return z;
+        }
+
+        /**
+         * J'y = P.R'.y, where y = Q'x (k elements)
+         */
+        double[] rtx(double[] y) {
+            double[] g = new double[m];
+            for (int j = 0; j < m; ++j) {
+                double s = 0;
+                for (int i = 0, imax = Math.min(j, k - 1); i <= imax; ++i) {
+                    s += r(i, j) * y[i];
+                }
+                g[perm[j]] = s;
+            }
+            return g;
+        }
+
+        /**
+         * R.P'.x (k elements), so that |Jx| = |RP'x|
+         */
+        double[] rx(double[] x) {
+            double[] y = new double[k];
+            for (int i = 0; i < k; ++i) {
+                double s = 0;
+                for (int j = i; j < m; ++j) {
+                    s += r(i, j) * x[perm[j]];
+                }
+                y[i] = s;
+            }
+            return y;
+        }
+
+        /**
+         * Basic least squares solution of J.x = Q.y, computed on the numerical
+         * rank of R
+         */
+        double[] solve(double[] y) {
+            double[] z = new double[m];
+            for (int i = rank - 1; i >= 0; --i) {
+                double s = y[i];
+                for (int j = i + 1; j < rank; ++j) {
+                    s -= r(i, j) * z[j];
+                }
+                z[i] = s / rdiag[i];
+            }
+            double[] x = new double[m];
+            for (int j = 0; j < m; ++j) {
+                x[perm[j]] = z[j];
+            }
+            return x;
+        }
+    }
 }
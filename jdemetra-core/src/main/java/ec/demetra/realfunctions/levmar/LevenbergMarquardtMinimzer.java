@@ -19,6 +19,11 @@ package ec.demetra.realfunctions.levmar;
 import ec.demetra.realfunctions.ISsqFunction;
 import ec.demetra.realfunctions.ISsqFunctionDerivatives;
 import ec.demetra.realfunctions.ISsqFunctionMinimizer;
+import ec.demetra.realfunctions.FunctionException;
+import ec.demetra.realfunctions.IMinimizerTelemetry;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.MinimizerState;
+import ec.demetra.realfunctions.MinimizerTracker;
 import ec.demetra.realfunctions.ParamValidation;
 import ec.tstoolkit.data.DataBlock;
 import ec.tstoolkit.data.IReadDataBlock;
@@ -26,6 +31,12 @@ import ec.tstoolkit.maths.matrices.*;
 import ec.demetra.realfunctions.ISsqFunctionPoint;
 
 /**
+ * Levenberg-Marquardt method.
+ *
+ * Optionally, the Jacobian is not recomputed at each iteration but updated by
+ * means of Broyden's rank-one formula, which only uses the new residuals. The
+ * full (numerical) Jacobian is recomputed every "broydenRefresh" iterations,
+ * when a step is rejected and before any stopping decision.
  *
  * @author Jean Palate
  */
@@ -35,6 +46,7 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
     static final double EPSILON = 1e-17;
     static final double DEF_INIT_MU = 1e-03;
     static final double DEF_STOP_THRESH = 1e-15, DEF_STOP_THRESH_3 = 1e-12;
+    static final int DEF_BROYDEN_REFRESH = 10;
     private int itmax = DEF_MAX_ITER, iter = 0;
     private final double tau = DEF_INIT_MU;
     private double eps1 = DEF_STOP_THRESH,
@@ -56,6 +68,14 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
     private long nu;
     private int stop;
     private static final double ONE_THIRD = 1.0 / 3;
+    private IMinimizerTelemetry telemetry;
+    private MinimizerBudget budget;
+    private boolean broyden;
+    private int broydenRefresh = DEF_BROYDEN_REFRESH;
+    // number of Broyden updates since the last full Jacobian (-1 if the
+    // Jacobian must be recomputed)
+    private int nbroyden;
+    private MinimizerState warm;
 
     public boolean minimize(ISsqFunction fn, IReadDataBlock pstart) {
         return minimize(fn.ssqEvaluate(pstart));
@@ -73,6 +93,11 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
         ex.eps3 = eps3;
         ex.eps2_sq = eps2_sq;
         ex.itmax = itmax;
+        ex.telemetry = telemetry;
+        ex.budget = budget;
+        ex.broyden = broyden;
+        ex.broydenRefresh = broydenRefresh;
+        ex.warm = warm;
         return ex;
     }
 
@@ -117,7 +142,7 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
 
     @Override
     public ISsqFunctionPoint getResult() {
-        return fcur_;
+        return MinimizerTracker.unwrap(fcur_);
     }
 
     @Override
@@ -127,9 +152,12 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
 
     @Override
     public boolean minimize(ISsqFunctionPoint start) {
-        fn_ = start.getSsqFunction();
-        fcur_ = start;
-        return calc();
+        MinimizerTracker tracker = MinimizerTracker.of(telemetry, budget, "LevenbergMarquardt");
+        fcur_ = tracker.track(start);
+        fn_ = fcur_.getSsqFunction();
+        boolean ok = calc(tracker);
+        tracker.end(ok);
+        return ok;
     }
 
     @Override
@@ -154,7 +182,10 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
             return false;
         }
 
-        fcur_.getSsqDerivatives().getJacobian(J.all());
+        if (!broyden || nbroyden < 0 || nbroyden >= broydenRefresh) {
+            fcur_.getSsqDerivatives().getJacobian(J.all());
+            nbroyden = 0;
+        }
 
         // Computes J'J, J'e
         Jte.product(J.columns(), ecur);
@@ -163,6 +194,9 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
 
         double nJte = Jte.nrmInf();
         if (nJte <= eps1 * scale_) {
+            if (refresh()) {
+                return true;
+            }
             stop = 1;
             return false;
         }
@@ -207,7 +241,9 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
                     /*
                      * relative change in p is small, stop
                      */
-
+                    if (refresh()) {
+                        return true;
+                    }
                     stop = 2;
                     return false;
                 }
@@ -215,7 +251,9 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
                     /*
                      * almost singular
                      */
-
+                    if (refresh()) {
+                        return true;
+                    }
                     stop = 4;
                     return false;
                 }
@@ -234,6 +272,7 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
                                 fcur_ = ftry_;
                                 Fcur_ = Ftry_;
                                 ecur = new DataBlock(fcur_.getE());
+                                nbroyden = -1;
 //                        mu = 0;
 //                        nu = 4;
                                 return true;
@@ -255,9 +294,16 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
                                 nu = 4;
                                 // accept the solution
                                 boolean end = dF <= eps3 * scale2_;
+                                DataBlock enew = new DataBlock(ftry_.getE());
+                                if (broyden) {
+                                    broydenUpdate(dp, enew);
+                                }
                                 fcur_ = ftry_;
                                 Fcur_ = Ftry_;
-                                ecur = new DataBlock(fcur_.getE());
+                                ecur = enew;
+                                if (end && refresh()) {
+                                    return true;
+                                }
                                 if (end) {
                                     // clear the variance
                                     V = null;
@@ -269,6 +315,10 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
 
                             }
                         }
+                    } catch (FunctionException err) {
+                        if (FunctionException.isStop(err)) {
+                            throw err;
+                        }
                     } catch (Exception err) {
                     }
                 } else {
@@ -280,6 +330,10 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
              * solved or the error did not reduce; in any case, the increment
              * must be rejected
              */
+            if (refresh()) {
+                // the approximate Jacobian might be responsible
+                return true;
+            }
             if (mu == 0) {
                 mu = tau * V.diagonal().max();
             } else {
@@ -296,17 +350,63 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
         return false;
     }
 
-    private boolean calc() {
+    /**
+     * Forces the computation of the full Jacobian at the next iteration, if
+     * the current one has been updated by Broyden's formula
+     *
+     * @return True if the Jacobian will be refreshed
+     */
+    private boolean refresh() {
+        if (nbroyden > 0) {
+            nbroyden = -1;
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * J = J + (de - J*dp)*dp'/(dp'dp)
+     *
+     * @param dp The step
+     * @param enew The new residuals
+     */
+    private void broydenUpdate(DataBlock dp, DataBlock enew) {
+        double dpl2 = dp.ssq();
+        if (dpl2 == 0) {
+            return;
+        }
+        DataBlock r = enew.deepClone();
+        r.sub(ecur);
+        DataBlock jdp = new DataBlock(r.getLength());
+        jdp.product(J.rows(), dp);
+        r.sub(jdp);
+        for (int j = 0; j < dp.getLength(); ++j) {
+            double c = dp.get(j) / dpl2;
+            if (c != 0) {
+                J.column(j).addAY(c, r);
+            }
+        }
+        ++nbroyden;
+    }
+
+    private boolean calc(MinimizerTracker tracker) {
         G = null;
         V = null;
         iter = 0;
+        nbroyden = -1;
         nu = 4;
         mu = 0;
         ecur = new DataBlock(fcur_.getE());
+        int m = fn_.getDomain().getDim();
+        if (warm != null && warm.getDim() == m && warm.getDamping() > 0) {
+            // starts with the damping of the previous estimation
+            mu = warm.getDamping();
+        }
         Fcur_ = fcur_.getSsqE();
         scale2_ = Fcur_;
         scale_ = Math.sqrt(Fcur_);
-        int n = ecur.getLength(), m = fn_.getDomain().getDim();
+        int n = ecur.getLength();
         J = new Matrix(n, m);
         Jte = new DataBlock(m);
         while (iter++ < itmax) {
@@ -314,6 +414,10 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
             if (!rslt) {
                 break;
             }
+            if (tracker.isActive()) {
+                // gradient of the sum of squares: 2*J'e
+                tracker.iteration(iter, fcur_.getParameters(), Fcur_, 2 * Jte.nrm2());
+            }
         }
         //validate();
         return (stop != 7 && stop != 4);
@@ -329,6 +433,36 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
 //        }
 //    }
 
+    /**
+     *
+     * @return
+     */
+    public boolean isUsingBroydenUpdates() {
+        return broyden;
+    }
+
+    /**
+     * Updates the Jacobian by means of Broyden's formula instead of
+     * recomputing it at each iteration
+     *
+     * @param value
+     */
+    public void useBroydenUpdates(boolean value) {
+        broyden = value;
+    }
+
+    /**
+     *
+     * @return The maximum number of successive Broyden updates
+     */
+    public int getBroydenRefresh() {
+        return broydenRefresh;
+    }
+
+    public void setBroydenRefresh(int n) {
+        broydenRefresh = n;
+    }
+
     @Override
     public double getPrecision() {
         return eps2;
@@ -338,4 +472,49 @@ public class LevenbergMarquardtMinimzer implements ISsqFunctionMinimizer {
     public void setPrecision(double value) {
         eps2 = value;
     }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        this.telemetry = telemetry;
+    }
+
+    /**
+     * The state contains J'J (with the last computed Jacobian) and the final
+     * damping factor
+     *
+     * @return
+     */
+    @Override
+    public MinimizerState getState() {
+        if (fcur_ == null || J == null) {
+            return null;
+        }
+        return new MinimizerState("LevenbergMarquardt", fcur_.getParameters(), MinimizerState.Curvature.Hessian,
+                SymmetricMatrix.XtX(J), Double.NaN, mu);
+    }
+
+    @Override
+    public void setWarmStart(MinimizerState state) {
+        warm = state;
+    }
+
+    @Override
+    public MinimizerState getWarmStart() {
+        return warm;
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return telemetry;
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        this.budget = budget;
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return budget;
+    }
 }
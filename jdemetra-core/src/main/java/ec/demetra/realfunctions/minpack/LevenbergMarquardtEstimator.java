@@ -20,6 +20,12 @@ import ec.tstoolkit.design.Development;
 import ec.demetra.realfunctions.FunctionException;
 
 /**
+ * MINPACK Levenberg-Marquardt estimator.
+ *
+ * Optionally, the Jacobian is not recomputed at each iteration but updated by
+ * means of Broyden's rank-one formula. The full Jacobian is recomputed every
+ * "broydenRefresh" iterations, after a failed step and before any stopping
+ * decision.
  *
  * @author Jean Palate
  */
@@ -93,6 +99,30 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
 
     private ILmHook hook_;
 
+    public static final int DEF_BROYDEN_REFRESH = 10;
+
+    private boolean broyden;
+
+    private int broydenRefresh = DEF_BROYDEN_REFRESH;
+
+    /**
+     * Jacobian updated by Broyden's formula (canonical form)
+     */
+    private double[] bjacobian;
+
+    /**
+     * Number of Broyden updates since the last full Jacobian (-1 if the
+     * Jacobian must be recomputed)
+     */
+    private int nbroyden;
+
+    /**
+     * Scaling of the variables and step bound (current values and values used
+     * for a warm start)
+     */
+    private double[] m_diag, m_warmDiag;
+    private double m_delta, m_warmDelta = Double.NaN, m_warmLmPar = Double.NaN;
+
     /**
      * Build an estimator for least squares problems.
      * <p>
@@ -481,25 +511,48 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
         lmDir = new double[m_cols];
 
         // local variables
-        double delta = 0, xNorm = 0;
-        double[] diag = new double[m_cols];
+        double xNorm = 0;
+        m_delta = 0;
+        m_diag = new double[m_cols];
+        double[] diag = m_diag;
+        boolean warm = m_warmDiag != null && m_warmDiag.length == m_cols;
         double[] oldX = new double[m_cols];
         double[] oldRes = new double[m_rows];
         double[] work1 = new double[m_cols];
         double[] work2 = new double[m_cols];
         double[] work3 = new double[m_cols];
+        // point and residuals at the start of the current iteration
+        double[] x0 = new double[m_cols];
+        double[] r0 = new double[m_rows];
+        nbroyden = -1;
 
         // evaluate the function at the starting point and calculate its norm
         updateResidualsAndCost(problem);
 
         // outer loop
-        lmPar = 0;
+        lmPar = warm && m_warmLmPar > 0 ? m_warmLmPar : 0;
         boolean firstIteration = true;
         iterCount = 0;
+        outer:
         while (iterCount++ < maxIter) {
 
+            if (broyden && nbroyden >= 0 && nbroyden < broydenRefresh) {
+                System.arraycopy(bjacobian, 0, m_jacobian, 0, m_jacobian.length);
+            } else {
+                updateJacobian(problem);
+                if (broyden) {
+                    bjacobian = m_jacobian.clone();
+                    nbroyden = 0;
+                }
+            }
+            if (broyden) {
+                System.arraycopy(m_residuals, 0, r0, 0, m_rows);
+                for (int k = 0; k < m_cols; ++k) {
+                    x0[k] = problem.getUnboundParameterEstimate(k);
+                }
+            }
+
             // compute the Q.R. decomposition of the jacobian matrix
-            updateJacobian(problem);
             qrDecomposition();
 
             // compute Qt.res
@@ -518,7 +571,7 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
                 // of the initial jacobian
                 xNorm = 0;
                 for (int k = 0; k < m_cols; ++k) {
-                    double dk = jacNorm[k];
+                    double dk = warm ? m_warmDiag[k] : jacNorm[k];
                     if (dk == 0) {
                         dk = 1.0;
                     }
@@ -529,8 +582,12 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
                 xNorm = Math.sqrt(xNorm);
 
                 // initialize the step bound delta
-                delta = (xNorm == 0) ? m_initialStepBoundFactor
-                        : (m_initialStepBoundFactor * xNorm);
+                if (warm && m_warmDelta > 0) {
+                    m_delta = m_warmDelta;
+                } else {
+                    m_delta = (xNorm == 0) ? m_initialStepBoundFactor
+                            : (m_initialStepBoundFactor * xNorm);
+                }
 
             }
 
@@ -551,6 +608,9 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
                 }
             }
             if (maxCosine <= m_orthoTolerance) {
+                if (refresh(r0, true)) {
+                    continue;
+                }
                 return;
             }
 
@@ -573,7 +633,7 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
                 oldRes = tmpVec;
 
                 // determine the Levenberg-Marquardt parameter
-                determineLMParameter(oldRes, delta, diag, work1, work2, work3);
+                determineLMParameter(oldRes, m_delta, diag, work1, work2, work3);
 
                 // compute the new point and the norm of the evolution direction
                 double lmNorm = 0;
@@ -590,7 +650,7 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
 
                 // on the first iteration, adjust the initial step bound.
                 if (firstIteration) {
-                    delta = Math.min(delta, lmNorm);
+                    m_delta = Math.min(m_delta, lmNorm);
                 }
 
                 // evaluate the function at x + p and calculate its norm
@@ -633,10 +693,10 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
                     if ((0.1 * m_cost >= previousCost) || (tmp < 0.1)) {
                         tmp = 0.1;
                     }
-                    delta = tmp * Math.min(delta, 10.0 * lmNorm);
+                    m_delta = tmp * Math.min(m_delta, 10.0 * lmNorm);
                     lmPar /= tmp;
                 } else if ((lmPar == 0) || (ratio >= 0.75)) {
-                    delta = 2 * lmNorm;
+                    m_delta = 2 * lmNorm;
                     lmPar *= 0.5;
                 }
 
@@ -652,6 +712,9 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
                         xNorm += xK * xK;
                     }
                     xNorm = Math.sqrt(xNorm);
+                    if (broyden) {
+                        broydenUpdate(problem, x0, r0);
+                    }
                     if (hook_ != null) {
                         hook_.hook(problem, true);
                     }
@@ -669,22 +732,35 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
                     if (hook_ != null) {
                         hook_.hook(problem, false);
                     }
+                    // the approximate Jacobian might be responsible
+                    if (refresh(r0, true)) {
+                        continue outer;
+                    }
                 }
 
                 // tests for convergence.
                 if (((Math.abs(actRed) <= m_costRelativeTolerance)
                         && (preRed <= m_costRelativeTolerance) && (ratio <= 2.0))
-                        || (delta <= m_parRelativeTolerance * xNorm)) {
+                        || (m_delta <= m_parRelativeTolerance * xNorm)) {
+                    if (refresh(r0, false)) {
+                        continue outer;
+                    }
                     return;
                 }
 
 		// tests for termination and stringent tolerances
                 // (2.2204e-16 is the machine epsilon for IEEE754)
+                if (nbroyden > 0 && (((Math.abs(actRed) <= 2.2204e-16) && (preRed <= 2.2204e-16)
+                        && (ratio <= 2.0)) || (m_delta <= 2.2204e-16 * xNorm)
+                        || (maxCosine <= 2.2204e-16))) {
+                    refresh(r0, false);
+                    continue outer;
+                }
                 if ((Math.abs(actRed) <= 2.2204e-16) && (preRed <= 2.2204e-16)
                         && (ratio <= 2.0)) {
                     throw new FunctionException(
                             "cost relative tolerance is too small", "MinPack");
-                } else if (delta <= 2.2204e-16 * xNorm) {
+                } else if (m_delta <= 2.2204e-16 * xNorm) {
                     throw new FunctionException(
                             "parameters relative tolerance is too small",
                             "MinPack");
@@ -699,6 +775,134 @@ public class LevenbergMarquardtEstimator extends AbstractEstimator {
 
     }
 
+    /**
+     * Forces the computation of the full Jacobian at the next iteration, if
+     * the current one has been updated by Broyden's formula
+     *
+     * @param r0 The residuals at the start of the iteration
+     * @param restore True if the residuals must be restored (they have been
+     * transformed by the QR decomposition)
+     * @return True if the Jacobian will be refreshed
+     */
+    private boolean refresh(double[] r0, boolean restore) {
+        if (nbroyden <= 0) {
+            return false;
+        }
+        nbroyden = -1;
+        if (restore) {
+            System.arraycopy(r0, 0, m_residuals, 0, m_rows);
+        }
+        return true;
+    }
+
+    /**
+     * J = J + (dr - J*dx)*dx'/(dx'dx)
+     *
+     * @param problem
+     * @param x0 The previous parameters
+     * @param r0 The previous residuals
+     */
+    private void broydenUpdate(IEstimationProblem problem, double[] x0, double[] r0) {
+        double[] dx = new double[m_cols];
+        double dxl2 = 0;
+        for (int k = 0; k < m_cols; ++k) {
+            double d = problem.getUnboundParameterEstimate(k) - x0[k];
+            dx[k] = d;
+            dxl2 += d * d;
+        }
+        if (dxl2 == 0) {
+            return;
+        }
+        for (int i = 0, index = 0; i < m_rows; ++i, index += m_cols) {
+            double t = m_residuals[i] - r0[i];
+            for (int j = 0; j < m_cols; ++j) {
+                t -= bjacobian[index + j] * dx[j];
+            }
+            if (t != 0) {
+                t /= dxl2;
+                for (int j = 0; j < m_cols; ++j) {
+                    bjacobian[index + j] += t * dx[j];
+                }
+            }
+        }
+        ++nbroyden;
+    }
+
+    /**
+     * Initializes the next estimations with the results of a previous one.
+     * The scaling replaces the norms of the columns of the initial Jacobian
+     * and the step bound replaces initialStepBoundFactor * ||diag*x||
+     *
+     * @param diag The scaling of the variables. Null to remove the warm start
+     * @param delta The initial step bound (ignored if not positive)
+     * @param lmPar The initial Levenberg-Marquardt parameter (ignored if not
+     * positive)
+     */
+    public void setWarmStart(double[] diag, double delta, double lmPar) {
+        m_warmDiag = diag == null ? null : diag.clone();
+        m_warmDelta = delta;
+        m_warmLmPar = lmPar;
+    }
+
+    /**
+     *
+     * @return The scaling of the variables at the end of the last estimation
+     */
+    public double[] getScaling() {
+        return m_diag == null ? null : m_diag.clone();
+    }
+
+    /**
+     *
+     * @return The step bound at the end of the last estimation
+     */
+    public double getStepBound() {
+        return m_delta;
+    }
+
+    /**
+     *
+     * @return The Levenberg-Marquardt parameter at the end of the last
+     * estimation
+     */
+    public double getLMParameter() {
+        return lmPar;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isUsingBroydenUpdates() {
+        return broyden;
+    }
+
+    /**
+     * Updates the Jacobian by means of Broyden's formula instead of
+     * recomputing it at each iteration
+     *
+     * @param value
+     */
+    public void useBroydenUpdates(boolean value) {
+        broyden = value;
+    }
+
+    /**
+     *
+     * @return The maximum number of successive Broyden updates
+     */
+    public int getBroydenRefresh() {
+        return broydenRefresh;
+    }
+
+    /**
+     *
+     * @param n
+     */
+    public void setBroydenRefresh(int n) {
+        broydenRefresh = n;
+    }
+
     /**
      * Set the desired relative error in the sum of squares.
      *
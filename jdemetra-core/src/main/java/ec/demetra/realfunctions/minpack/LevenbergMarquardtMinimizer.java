@@ -20,9 +20,14 @@ package ec.demetra.realfunctions.minpack;
 import ec.tstoolkit.data.IReadDataBlock;
 import ec.tstoolkit.design.Development;
 import ec.tstoolkit.maths.matrices.Matrix;
+import ec.demetra.realfunctions.FunctionException;
 import ec.demetra.realfunctions.ISsqFunction;
 import ec.demetra.realfunctions.ISsqFunctionMinimizer;
 import ec.demetra.realfunctions.ISsqFunctionPoint;
+import ec.demetra.realfunctions.IMinimizerTelemetry;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.MinimizerState;
+import ec.demetra.realfunctions.MinimizerTracker;
 
 /**
  *
@@ -34,14 +39,24 @@ public class LevenbergMarquardtMinimizer implements ISsqFunctionMinimizer {
     private final LevenbergMarquardtEstimator m_estimator = new LevenbergMarquardtEstimator();
 
     private SsqEstimationProblem m_problem;
+    private ILmHook m_hook;
+    private IMinimizerTelemetry m_telemetry;
+    private MinimizerBudget m_budget;
+    private MinimizerState m_warm;
     
     public void setHook(ILmHook hook){
-        m_estimator.setHook(hook);
+        m_hook = hook;
     }
 
     @Override
     public ISsqFunctionMinimizer exemplar() {
-	return new LevenbergMarquardtMinimizer();
+	LevenbergMarquardtMinimizer min = new LevenbergMarquardtMinimizer();
+        min.m_telemetry = m_telemetry;
+        min.m_budget = m_budget;
+        min.m_warm = m_warm;
+        min.m_estimator.useBroydenUpdates(m_estimator.isUsingBroydenUpdates());
+        min.m_estimator.setBroydenRefresh(m_estimator.getBroydenRefresh());
+        return min;
     }
 
     /**
@@ -63,6 +78,9 @@ public class LevenbergMarquardtMinimizer implements ISsqFunctionMinimizer {
 	return m_estimator.curvature(m_problem);
         }
         catch(Exception err){
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
             return null;
         }
     }
@@ -93,7 +111,7 @@ public class LevenbergMarquardtMinimizer implements ISsqFunctionMinimizer {
 
     @Override
     public ISsqFunctionPoint getResult() {
-	return m_problem.getResult();
+	return MinimizerTracker.unwrap(m_problem.getResult());
     }
 
      @Override
@@ -103,13 +121,52 @@ public class LevenbergMarquardtMinimizer implements ISsqFunctionMinimizer {
     
     @Override
     public boolean minimize(ISsqFunctionPoint start) {
-	m_problem = new SsqEstimationProblem(start);
+        MinimizerTracker tracker = MinimizerTracker.of(m_telemetry, m_budget, "MinPack");
+	SsqEstimationProblem problem = new SsqEstimationProblem(tracker.track(start));
+        m_problem = problem;
+        if (tracker.isActive()) {
+            m_estimator.setHook((p, success) -> {
+                if (success) {
+                    ISsqFunctionPoint cur = problem.getResult();
+                    if (cur != null) {
+                        tracker.iteration(m_estimator.getIterCount(), cur.getParameters(), cur.getSsqE(), Double.NaN);
+                    }
+                }
+                if (m_hook != null) {
+                    m_hook.hook(p, success);
+                }
+            });
+        } else {
+            m_estimator.setHook(m_hook);
+        }
+        warmStart(start.getParameters().getLength());
+        boolean ok;
 	try {
-	    m_estimator.estimate(m_problem);
-	    return m_estimator.getIterCount() < m_estimator.getMaxIter();
+	    m_estimator.estimate(problem);
+	    ok = m_estimator.getIterCount() < m_estimator.getMaxIter();
 	} catch (RuntimeException err) {
-	    return false;
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
+	    ok = false;
 	}
+        tracker.end(ok);
+        return ok;
+    }
+
+    private void warmStart(int n) {
+        if (m_warm != null && m_warm.isCompatible(n, MinimizerState.Curvature.Hessian)) {
+            // the scaling of minpack is the norm of the columns of J,
+            // i.e. the square roots of the diagonal of J'J
+            double[] diag = new double[n];
+            m_warm.getCurvature().diagonal().copyTo(diag, 0);
+            for (int i = 0; i < n; ++i) {
+                diag[i] = Math.sqrt(Math.max(0, diag[i]));
+            }
+            m_estimator.setWarmStart(diag, m_warm.getTrustRadius(), m_warm.getDamping());
+        } else {
+            m_estimator.setWarmStart(null, Double.NaN, Double.NaN);
+        }
     }
 
     @Override
@@ -126,6 +183,24 @@ public class LevenbergMarquardtMinimizer implements ISsqFunctionMinimizer {
 	m_estimator.setMaxIter(n);
     }
 
+    /**
+     *
+     * @return
+     */
+    public boolean isUsingBroydenUpdates() {
+        return m_estimator.isUsingBroydenUpdates();
+    }
+
+    /**
+     * Updates the Jacobian by means of Broyden's formula instead of
+     * recomputing it at each iteration
+     *
+     * @param value
+     */
+    public void useBroydenUpdates(boolean value) {
+        m_estimator.useBroydenUpdates(value);
+    }
+
     @Override
     public double getPrecision() {
         return m_estimator.getParametersRelativeTolerance();
@@ -135,4 +210,50 @@ public class LevenbergMarquardtMinimizer implements ISsqFunctionMinimizer {
     public void setPrecision(double value) {
         m_estimator.setParametersRelativeTolerance(value);
     }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        m_telemetry = telemetry;
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return m_telemetry;
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        m_budget = budget;
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return m_budget;
+    }
+
+    /**
+     * The state contains J'J (computed at the final point), the final step
+     * bound and the final Levenberg-Marquardt parameter
+     *
+     * @return
+     */
+    @Override
+    public MinimizerState getState() {
+        ISsqFunctionPoint rslt = m_problem == null ? null : m_problem.getResult();
+        if (rslt == null) {
+            return null;
+        }
+        return new MinimizerState("MinPack", rslt.getParameters(), MinimizerState.Curvature.Hessian,
+                getCurvature(), m_estimator.getStepBound(), m_estimator.getLMParameter());
+    }
+
+    @Override
+    public void setWarmStart(MinimizerState state) {
+        m_warm = state;
+    }
+
+    @Override
+    public MinimizerState getWarmStart() {
+        return m_warm;
+    }
 }
@@ -70,6 +70,9 @@ public class SsqEstimationProblem implements IEstimationProblem {
 	m_ftry = m_fn.ssqEvaluate(m_p);
         }
         catch (Exception err){
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
             m_ftry=null;
         }
     }
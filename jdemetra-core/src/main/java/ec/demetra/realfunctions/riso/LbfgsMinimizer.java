@@ -21,10 +21,14 @@ package ec.demetra.realfunctions.riso;
 import ec.tstoolkit.data.DataBlock;
 import ec.tstoolkit.data.IReadDataBlock;
 import ec.tstoolkit.maths.matrices.Matrix;
+import ec.demetra.realfunctions.FunctionException;
 import ec.demetra.realfunctions.IFunction;
 import ec.demetra.realfunctions.IFunctionDerivatives;
 import ec.demetra.realfunctions.IFunctionMinimizer;
 import ec.demetra.realfunctions.IFunctionPoint;
+import ec.demetra.realfunctions.IMinimizerTelemetry;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.MinimizerTracker;
 
 /**
  *
@@ -46,6 +50,8 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
     private IFunction m_fn;
     private IFunctionPoint m_fcur;
     private boolean m_converged;
+    private IMinimizerTelemetry m_telemetry;
+    private MinimizerBudget m_budget;
 
     @Override
     public IFunctionMinimizer exemplar() {
@@ -55,6 +61,8 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
         min.m_maxiter = m_maxiter;
         min.m_xtol = m_xtol;
         min.m_gtol = m_gtol;
+        min.m_telemetry = m_telemetry;
+        min.m_budget = m_budget;
         return min;
     }
 
@@ -119,7 +127,7 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
      */
     @Override
     public IFunctionPoint getResult() {
-        return m_fcur;
+        return MinimizerTracker.unwrap(m_fcur);
     }
 
     @Override
@@ -146,22 +154,24 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
      */
     @Override
     public boolean minimize(IFunctionPoint start) {
-        m_fn = start.getFunction();
-        m_fcur = start;
         m_converged = false;
-
-        IReadDataBlock px = m_fcur.getParameters();
+        IReadDataBlock px = start.getParameters();
         int n = px.getLength();
         if (n == 0) {
+            m_fn = start.getFunction();
+            m_fcur = start;
             return true;
         }
+        MinimizerTracker tracker = MinimizerTracker.of(m_telemetry, m_budget, "Lbfgs");
+        m_fcur = tracker.track(start);
+        m_fn = m_fcur.getFunction();
         double[] x = new double[n];
         px.copyTo(x, 0);
         int[] iflag = new int[]{0};
         int[] iprint = new int[]{-1};
         double[] diag = new double[n];
         m_nfailed = 0;
-        double fmin = m_fcur.getValue(), fprev = 0, fcur = fmin;
+        double fmin = m_fcur.getValue(), fprev = 0, fcur = fmin, gnorm = Double.NaN;
         boolean failed = false;
         boolean success = false;
         IFunctionDerivatives df = null;
@@ -172,7 +182,10 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
                     df = m_fcur.getDerivatives();
                 }
                 double[] grad = new double[n];
-                df.getGradient().copyTo(grad, n);
+                df.getGradient().copyTo(grad, 0);
+                if (tracker.isActive()) {
+                    gnorm = new DataBlock(grad).nrm2();
+                }
                 m_lbfgs.lbfgs(n, m_m, x, failed ? 2 * Math.abs(fcur) : fcur, grad, false, diag,
                         iprint, m_gtol, m_xtol, iflag);
                 DataBlock rx = new DataBlock(x);
@@ -181,6 +194,7 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
                     break;
                 }
                 if (iflag[0] != 1) {
+                    tracker.end(false);
                     return false;
                 }
                 if (!m_fn.getDomain().checkBoundaries(rx)) {
@@ -194,13 +208,22 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
                         m_fcur = efn;
                         m_converged = Math.abs(fprev - fmin) < (1 + Math.abs(fmin)) * m_eps;
                         success = true;
+                        if (tracker.isActive()) {
+                            tracker.iteration(m_lbfgs.getNIter(), rx, fmin, gnorm);
+                        }
                     }
                     failed = false;
                 }
             } catch (RuntimeException ex) {
+                if (FunctionException.isStop(ex)) {
+                    // cancelled run or exhausted budget: not a failed step
+                    m_converged = false;
+                    throw ex;
+                }
                 failed = true;
             }
         } while (next(failed, success));
+        tracker.end(m_converged);
         return m_converged;
     }
 
@@ -270,4 +293,24 @@ public class LbfgsMinimizer implements IFunctionMinimizer {
     public void setPrecsion(double value) {
         m_xtol = value;
     }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        m_telemetry = telemetry;
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return m_telemetry;
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        m_budget = budget;
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return m_budget;
+    }
 }
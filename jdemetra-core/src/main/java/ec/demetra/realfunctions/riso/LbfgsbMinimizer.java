@@ -0,0 +1,604 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions.riso;
+
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.Matrix;
+import ec.demetra.realfunctions.FunctionException;
+import ec.demetra.realfunctions.IFunction;
+import ec.demetra.realfunctions.IFunctionMinimizer;
+import ec.demetra.realfunctions.IFunctionPoint;
+import ec.demetra.realfunctions.IMinimizerTelemetry;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.IParametersDomain;
+import ec.demetra.realfunctions.MinimizerState;
+import ec.demetra.realfunctions.MinimizerTracker;
+
+/**
+ * Limited-memory BFGS with box constraints (projected L-BFGS). The bounds are
+ * given by the lbound/ubound of the domain of the function. At each iteration,
+ * the variables that are on a bound and that the gradient pushes outside are
+ * fixed; the direction of the other variables is computed by the usual
+ * two-loop recursion and the step is searched along the projection of that
+ * direction on the box (Armijo backtracking).
+ *
+ * Contrary to Lbfgs, the minimizer is re-entrant: all its state is owned by
+ * the instance and the workspace (ring buffers of the corrections, gradients,
+ * direction...) is allocated once and reused by the next runs with the same
+ * dimension. The only allocations are the parameters handed to the function,
+ * which belong to the resulting points. An instance should not be shared by
+ * concurrent runs; use exemplar() to get an independent copy for each series.
+ *
+ * The number of function evaluations can be limited. A gradient is charged as
+ * n evaluations (n = number of parameters), which corresponds to forward
+ * numerical derivatives.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class LbfgsbMinimizer implements IFunctionMinimizer {
+
+    private static final int MAX_LS = 20;
+    private static final double ARMIJO = 1e-4, CURV_EPS = 1e-12;
+
+    private double m_eps = 1e-9, m_gtol = 1e-5;
+    private int m_maxiter = 100, m_maxevals = 0, m_m = 7;
+    private IMinimizerTelemetry m_telemetry;
+    private MinimizerBudget m_budget;
+    private MinimizerState m_warm;
+
+    // results
+    private IFunction m_fn;
+    private IFunctionPoint m_fcur;
+    private int m_iter, m_nevals;
+    private boolean m_converged, m_exhausted;
+
+    // workspace
+    private int m_n = -1;
+    private double[] m_lb, m_ub, m_x, m_xt, m_g, m_gt, m_d, m_tmp, m_rho, m_alpha;
+    // initial inverse Hessian (warm start). Null if unused
+    private double[] m_h0, m_hbuffer;
+    private double[][] m_s, m_y;
+    private int m_head, m_count;
+
+    @Override
+    public IFunctionMinimizer exemplar() {
+        LbfgsbMinimizer min = new LbfgsbMinimizer();
+        min.m_eps = m_eps;
+        min.m_gtol = m_gtol;
+        min.m_m = m_m;
+        min.m_maxiter = m_maxiter;
+        min.m_maxevals = m_maxevals;
+        min.m_telemetry = m_telemetry;
+        min.m_budget = m_budget;
+        min.m_warm = m_warm;
+        return min;
+    }
+
+    @Override
+    public boolean minimize(IFunctionPoint start) {
+        m_converged = false;
+        m_exhausted = false;
+        m_iter = 0;
+        m_nevals = 0;
+        IReadDataBlock px = start.getParameters();
+        int n = px.getLength();
+        if (n == 0) {
+            m_n = 0;
+            m_fn = start.getFunction();
+            m_fcur = start;
+            return true;
+        }
+        MinimizerTracker tracker = MinimizerTracker.of(m_telemetry, m_budget, "Lbfgsb");
+        m_fcur = tracker.track(start);
+        m_fn = m_fcur.getFunction();
+        prepare(n);
+        warmStart();
+        IParametersDomain domain = m_fn.getDomain();
+        boolean inside = true;
+        for (int i = 0; i < n; ++i) {
+            m_lb[i] = domain.lbound(i);
+            m_ub[i] = domain.ubound(i);
+            double xi = px.get(i);
+            m_x[i] = project(i, xi);
+            if (m_x[i] != xi) {
+                inside = false;
+            }
+        }
+        if (!inside) {
+            m_fcur = evaluate(m_x);
+            if (m_fcur == null) {
+                tracker.end(false);
+                return false;
+            }
+        }
+        double f = m_fcur.getValue();
+        if (!Double.isFinite(f) || !gradient(m_fcur, m_g)) {
+            tracker.end(false);
+            return false;
+        }
+        while (true) {
+            double pgnorm = projectedGradientNorm();
+            if (pgnorm <= m_gtol * Math.max(1, nrm2(m_x))) {
+                m_converged = true;
+                break;
+            }
+            if (m_iter >= m_maxiter) {
+                break;
+            }
+            direction();
+            IFunctionPoint pt = search(f);
+            if (pt == null) {
+                if (m_exhausted || (m_count == 0 && m_h0 == null)) {
+                    break;
+                }
+                // restarts with the steepest descent
+                m_count = 0;
+                m_h0 = null;
+                continue;
+            }
+            ++m_iter;
+            double fprev = f;
+            f = pt.getValue();
+            m_fcur = pt;
+            if (m_maxevals > 0 && m_nevals + n > m_maxevals) {
+                m_exhausted = true;
+                break;
+            }
+            if (!gradient(pt, m_gt)) {
+                break;
+            }
+            update();
+            if (tracker.isActive()) {
+                tracker.iteration(m_iter, new DataBlock(m_x), f, projectedGradientNorm());
+            }
+            if (Math.abs(fprev - f) < (1 + Math.abs(f)) * m_eps) {
+                m_converged = true;
+                break;
+            }
+        }
+        tracker.end(m_converged);
+        return m_converged;
+    }
+
+    private void prepare(int n) {
+        if (n != m_n || m_s.length != m_m) {
+            m_n = n;
+            m_lb = new double[n];
+            m_ub = new double[n];
+            m_x = new double[n];
+            m_xt = new double[n];
+            m_g = new double[n];
+            m_gt = new double[n];
+            m_d = new double[n];
+            m_tmp = new double[n];
+            m_hbuffer = new double[n * n];
+            m_rho = new double[m_m];
+            m_alpha = new double[m_m];
+            m_s = new double[m_m][n];
+            m_y = new double[m_m][n];
+        }
+        m_head = 0;
+        m_count = 0;
+        m_h0 = null;
+    }
+
+    private void warmStart() {
+        if (m_warm == null || !m_warm.isCompatible(m_n, MinimizerState.Curvature.InverseHessian)) {
+            return;
+        }
+        Matrix h = m_warm.getCurvature();
+        for (int c = 0, k = 0; c < m_n; ++c) {
+            for (int r = 0; r < m_n; ++r, ++k) {
+                m_hbuffer[k] = h.get(r, c);
+            }
+        }
+        m_h0 = m_hbuffer;
+    }
+
+    private double project(int i, double xi) {
+        if (xi < m_lb[i]) {
+            return m_lb[i];
+        } else if (xi > m_ub[i]) {
+            return m_ub[i];
+        } else {
+            return xi;
+        }
+    }
+
+    private boolean isActive(int i) {
+        return (m_x[i] <= m_lb[i] && m_g[i] > 0) || (m_x[i] >= m_ub[i] && m_g[i] < 0);
+    }
+
+    private double projectedGradientNorm() {
+        double s = 0;
+        for (int i = 0; i < m_n; ++i) {
+            double pg = project(i, m_x[i] - m_g[i]) - m_x[i];
+            s += pg * pg;
+        }
+        return Math.sqrt(s);
+    }
+
+    /**
+     * d = -H*g on the free variables (two-loop recursion)
+     */
+    private void direction() {
+        double[] q = m_d;
+        for (int i = 0; i < m_n; ++i) {
+            q[i] = isActive(i) ? 0 : m_g[i];
+        }
+        applyH(q);
+        double gd = 0;
+        for (int i = 0; i < m_n; ++i) {
+            if (isActive(i)) {
+                q[i] = 0;
+            } else {
+                q[i] = -q[i];
+                gd += q[i] * m_g[i];
+            }
+        }
+        if (!(gd < 0)) {
+            // not a descent direction: steepest descent and reset of the memory
+            m_count = 0;
+            m_h0 = null;
+            for (int i = 0; i < m_n; ++i) {
+                q[i] = isActive(i) ? 0 : -m_g[i];
+            }
+        }
+    }
+
+    /**
+     * q = H*q, where H is the current approximation of the inverse of the
+     * Hessian
+     *
+     * @param q
+     */
+    private void applyH(double[] q) {
+        int k = m_head;
+        for (int j = 0; j < m_count; ++j) {
+            k = k == 0 ? m_m - 1 : k - 1;
+            double a = m_rho[k] * dot(m_s[k], q);
+            m_alpha[k] = a;
+            axpy(-a, m_y[k], q);
+        }
+        if (m_h0 != null) {
+            for (int r = 0; r < m_n; ++r) {
+                double s = 0;
+                for (int c = 0, l = r; c < m_n; ++c, l += m_n) {
+                    s += m_h0[l] * q[c];
+                }
+                m_tmp[r] = s;
+            }
+            System.arraycopy(m_tmp, 0, q, 0, m_n);
+        } else if (m_count > 0) {
+            int last = m_head == 0 ? m_m - 1 : m_head - 1;
+            double[] y = m_y[last];
+            double gamma = 1 / (m_rho[last] * dot(y, y));
+            for (int i = 0; i < m_n; ++i) {
+                q[i] *= gamma;
+            }
+        }
+        for (int j = 0; j < m_count; ++j) {
+            double b = m_rho[k] * dot(m_y[k], q);
+            axpy(m_alpha[k] - b, m_s[k], q);
+            k = k == m_m - 1 ? 0 : k + 1;
+        }
+    }
+
+    /**
+     * Backtracking along the projected path x(a)=P(x+a*d)
+     *
+     * @param f The current value of the function
+     * @return The new point or null if no sufficient decrease was found
+     */
+    private IFunctionPoint search(double f) {
+        double step = 1;
+        if (m_count == 0 && m_h0 == null) {
+            double dnorm = nrm2(m_d);
+            if (dnorm > 1) {
+                step = 1 / dnorm;
+            }
+        }
+        for (int ls = 0; ls < MAX_LS; ++ls) {
+            double gs = 0;
+            boolean moved = false;
+            for (int i = 0; i < m_n; ++i) {
+                double xi = project(i, m_x[i] + step * m_d[i]);
+                m_xt[i] = xi;
+                double dx = xi - m_x[i];
+                if (dx != 0) {
+                    moved = true;
+                    gs += m_g[i] * dx;
+                }
+            }
+            if (!moved) {
+                return null;
+            }
+            if (m_maxevals > 0 && m_nevals >= m_maxevals) {
+                m_exhausted = true;
+                return null;
+            }
+            IFunctionPoint pt = evaluate(m_xt);
+            double ft = pt == null ? Double.NaN : pt.getValue();
+            if (Double.isFinite(ft)) {
+                if (ft <= f + ARMIJO * gs) {
+                    return pt;
+                }
+                // safeguarded quadratic interpolation
+                double a = (ft - f - gs) / (step * step);
+                double gd = gs / step;
+                double snew = a > 0 ? -gd / (2 * a) : .5 * step;
+                step = Math.max(.1 * step, Math.min(.5 * step, snew));
+            } else {
+                step *= .1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores the last correction pair (s, y) in the ring buffers and moves the
+     * trial point to the current point
+     */
+    private void update() {
+        double[] s = m_s[m_head], y = m_y[m_head];
+        double sy = 0, yy = 0;
+        for (int i = 0; i < m_n; ++i) {
+            double si = m_xt[i] - m_x[i], yi = m_gt[i] - m_g[i];
+            s[i] = si;
+            y[i] = yi;
+            sy += si * yi;
+            yy += yi * yi;
+        }
+        // the pair is skipped when the curvature condition doesn't hold
+        if (sy > CURV_EPS * yy) {
+            m_rho[m_head] = 1 / sy;
+            m_head = m_head == m_m - 1 ? 0 : m_head + 1;
+            if (m_count < m_m) {
+                ++m_count;
+            }
+        }
+        double[] tmp = m_x;
+        m_x = m_xt;
+        m_xt = tmp;
+        tmp = m_g;
+        m_g = m_gt;
+        m_gt = tmp;
+    }
+
+    private IFunctionPoint evaluate(double[] x) {
+        ++m_nevals;
+        try {
+            // the parameters are owned by the new point
+            DataBlock p = new DataBlock(x.clone());
+            if (!m_fn.getDomain().checkBoundaries(p)) {
+                return null;
+            }
+            return m_fn.evaluate(p);
+        } catch (RuntimeException err) {
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
+            return null;
+        }
+    }
+
+    private boolean gradient(IFunctionPoint pt, double[] g) {
+        m_nevals += m_n;
+        try {
+            IReadDataBlock grad = pt.getDerivatives().getGradient();
+            for (int i = 0; i < m_n; ++i) {
+                double gi = grad.get(i);
+                if (!Double.isFinite(gi)) {
+                    return false;
+                }
+                g[i] = gi;
+            }
+            return true;
+        } catch (RuntimeException err) {
+            if (FunctionException.isStop(err)) {
+                throw err;
+            }
+            return false;
+        }
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double s = 0;
+        for (int i = 0; i < a.length; ++i) {
+            s += a[i] * b[i];
+        }
+        return s;
+    }
+
+    private static void axpy(double a, double[] x, double[] y) {
+        for (int i = 0; i < x.length; ++i) {
+            y[i] += a * x[i];
+        }
+    }
+
+    private static double nrm2(double[] x) {
+        return Math.sqrt(dot(x, x));
+    }
+
+    @Override
+    public double getConvergenceCriterion() {
+        return m_eps;
+    }
+
+    @Override
+    public void setConvergenceCriterion(double value) {
+        m_eps = value;
+    }
+
+    @Override
+    public double getPrecision() {
+        return m_gtol;
+    }
+
+    /**
+     * Tolerance on the norm of the projected gradient, relative to
+     * max(1, ||x||)
+     *
+     * @param value
+     */
+    @Override
+    public void setPrecsion(double value) {
+        m_gtol = value;
+    }
+
+    @Override
+    public Matrix getCurvature() {
+        Matrix H = Matrix.square(m_fn.getDomain().getDim());
+        m_fcur.getDerivatives().getHessian(H.all());
+        return H;
+    }
+
+    @Override
+    public IReadDataBlock getGradient() {
+        return m_fcur.getDerivatives().getGradient();
+    }
+
+    @Override
+    public int getIterCount() {
+        return m_iter;
+    }
+
+    @Override
+    public int getMaxIter() {
+        return m_maxiter;
+    }
+
+    @Override
+    public void setMaxIter(int n) {
+        m_maxiter = n;
+    }
+
+    @Override
+    public IFunctionPoint getResult() {
+        return MinimizerTracker.unwrap(m_fcur);
+    }
+
+    @Override
+    public double getObjective() {
+        return m_fcur == null ? Double.NaN : m_fcur.getValue();
+    }
+
+    /**
+     *
+     * @return The number of corrections kept in memory
+     */
+    public int getMemoryLength() {
+        return m_m;
+    }
+
+    public void setMemoryLength(int m) {
+        m_m = Math.max(1, m);
+    }
+
+    /**
+     * Maximum number of function evaluations by run. 0 (default) means no
+     * limit
+     *
+     * @return
+     */
+    public int getMaxEvaluations() {
+        return m_maxevals;
+    }
+
+    public void setMaxEvaluations(int n) {
+        m_maxevals = Math.max(0, n);
+    }
+
+    /**
+     *
+     * @return The number of function evaluations of the last run
+     */
+    public int getEvaluationsCount() {
+        return m_nevals;
+    }
+
+    /**
+     *
+     * @return True if the last run has been stopped because its evaluation
+     * budget was exhausted
+     */
+    public boolean isBudgetExhausted() {
+        return m_exhausted;
+    }
+
+    @Override
+    public void setTelemetry(IMinimizerTelemetry telemetry) {
+        m_telemetry = telemetry;
+    }
+
+    @Override
+    public IMinimizerTelemetry getTelemetry() {
+        return m_telemetry;
+    }
+
+    @Override
+    public void setBudget(MinimizerBudget budget) {
+        m_budget = budget;
+    }
+
+    @Override
+    public MinimizerBudget getBudget() {
+        return m_budget;
+    }
+
+    /**
+     * The state contains the (dense) approximation of the inverse of the
+     * Hessian defined by the corrections kept in memory
+     *
+     * @return
+     */
+    @Override
+    public MinimizerState getState() {
+        if (m_fcur == null || m_n <= 0) {
+            return null;
+        }
+        if (m_count == 0 && m_h0 == null) {
+            return new MinimizerState("Lbfgsb", m_fcur.getParameters(), MinimizerState.Curvature.None,
+                    null, Double.NaN, Double.NaN);
+        }
+        Matrix h = new Matrix(m_n, m_n);
+        double[] e = new double[m_n];
+        for (int c = 0; c < m_n; ++c) {
+            e[c] = 1;
+            applyH(e);
+            for (int r = 0; r < m_n; ++r) {
+                h.set(r, c, e[r]);
+                e[r] = 0;
+            }
+        }
+        return new MinimizerState("Lbfgsb", m_fcur.getParameters(), MinimizerState.Curvature.InverseHessian,
+                h, Double.NaN, Double.NaN);
+    }
+
+    @Override
+    public void setWarmStart(MinimizerState state) {
+        m_warm = state;
+    }
+
+    @Override
+    public MinimizerState getWarmStart() {
+        return m_warm;
+    }
+}
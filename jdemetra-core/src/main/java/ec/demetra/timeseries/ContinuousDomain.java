@@ -21,35 +21,182 @@ import java.time.LocalDateTime;
 import java.time.Period;
 
 /**
+ * Domain made of contiguous (not necessarily regular) time periods. The
+ * periods are defined by their boundaries: the idx-th period is
+ * [bound(idx), bound(idx+1)[. The boundaries are stored as primitive epoch
+ * seconds, so that the searches and the selections are binary searches on a
+ * long array (O(log n)). The selections are views that share the storage of
+ * the domain.
  *
  * @author Jean Palate
  */
-@ Immutable
-public class ContinuousDomain implements ITimeDomain{
+@Immutable
+public class ContinuousDomain implements ITimeDomain {
+
+    private final TimeIndex bounds;
+
+    /**
+     * Creates a domain from the boundaries of its periods
+     *
+     * @param bounds The n+1 boundaries of the n periods. They must be
+     * strictly increasing
+     * @return
+     */
+    public static ContinuousDomain create(LocalDateTime[] bounds) {
+        for (int i = 1; i < bounds.length; ++i) {
+            if (!bounds[i].isAfter(bounds[i - 1])) {
+                throw new IllegalArgumentException("ContinuousDomain: bounds must be increasing");
+            }
+        }
+        return new ContinuousDomain(TimeIndex.of(bounds));
+    }
+
+    /**
+     * Creates a domain from the boundaries of its periods, as epoch seconds
+     * (UTC)
+     *
+     * @param bounds The n+1 boundaries of the n periods. They must be
+     * strictly increasing. The array is copied
+     * @return
+     */
+    public static ContinuousDomain ofEpochSeconds(long[] bounds) {
+        for (int i = 1; i < bounds.length; ++i) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("ContinuousDomain: bounds must be increasing");
+            }
+        }
+        return new ContinuousDomain(TimeIndex.ofEpochSeconds(bounds.clone()));
+    }
+
+    private ContinuousDomain(TimeIndex bounds) {
+        this.bounds = bounds;
+    }
 
     @Override
     public ITimePeriod get(int idx) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return TimePeriod.of(bounds.get(idx), bounds.get(idx + 1));
     }
 
     @Override
     public LocalDateTime getTime(int idx) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return bounds.get(idx);
+    }
+
+    /**
+     * @param idx
+     * @return The start of the idx-th period, as epoch seconds (UTC)
+     */
+    public long getEpochSecond(int idx) {
+        return bounds.epochSecond(idx);
     }
 
     @Override
     public int getLength() {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        return Math.max(0, bounds.length() - 1);
     }
 
+    /**
+     * Searches the period that contains a given time
+     *
+     * @param time
+     * @return The position of the period, -1 if the time is outside the domain
+     */
     @Override
     public int search(LocalDateTime time) {
-        throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
+        int pos = bounds.upperBound(time) - 1;
+        return pos >= 0 && pos < getLength() ? pos : -1;
     }
 
     @Override
     public Period getPeriod() {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
-    
+
+    /**
+     * Gets the periods [beg, end[
+     *
+     * @param beg The position of the first period (included)
+     * @param end The position of the last period (excluded)
+     * @return A view on this domain
+     */
+    public ContinuousDomain slice(int beg, int end) {
+        if (beg < 0 || end > getLength() || beg > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new ContinuousDomain(beg == end ? bounds.slice(beg, beg) : bounds.slice(beg, end + 1));
+    }
+
+    /**
+     * Gets the periods selected by a period selector. Only the periods that
+     * are completely inside the selected time span are taken: From (d0)
+     * selects the periods that start at or after d0 (00:00); To (d1) selects
+     * the periods that end before the end of d1 (d1 included). Negative
+     * numbers of periods in Excluding are numbers of years.
+     *
+     * @param selector The selector
+     * @return A view on this domain
+     */
+    public ContinuousDomain select(PeriodSelector selector) {
+        int[] r = search(selector);
+        return slice(r[0], r[1]);
+    }
+
+    /**
+     * Positions of the periods selected by a period selector (see select)
+     *
+     * @param selector The selector
+     * @return The positions [beg, end[ of the selected periods in this domain
+     */
+    public int[] search(PeriodSelector selector) {
+        int n = getLength();
+        int beg = 0, end = n;
+        switch (selector.getType()) {
+            case None:
+                end = 0;
+                break;
+            case From:
+                beg = first(selector.getD0().atStartOfDay());
+                break;
+            case To:
+                end = last(selector.getD1().plusDays(1).atStartOfDay());
+                break;
+            case Between:
+                beg = first(selector.getD0().atStartOfDay());
+                end = last(selector.getD1().plusDays(1).atStartOfDay());
+                break;
+            case First:
+                end = Math.min(n, selector.getN0());
+                break;
+            case Last:
+                beg = Math.max(0, n - selector.getN1());
+                break;
+            case Excluding:
+                if (n == 0) {
+                    break;
+                }
+                int n0 = selector.getN0(), n1 = selector.getN1();
+                if (n0 >= 0) {
+                    beg = Math.min(n, n0);
+                } else {
+                    beg = first(bounds.get(0).plusYears(-n0));
+                }
+                if (n1 >= 0) {
+                    end = Math.max(0, n - n1);
+                } else {
+                    end = last(bounds.get(n).minusYears(-n1));
+                }
+                break;
+        }
+        return new int[]{beg, Math.max(beg, end)};
+    }
+
+    // position of the first period that starts at or after t
+    private int first(LocalDateTime t) {
+        return Math.min(getLength(), bounds.lowerBound(t));
+    }
+
+    // number of periods that end at or before t
+    private int last(LocalDateTime t) {
+        return Math.max(0, bounds.upperBound(t) - 1);
+    }
 }
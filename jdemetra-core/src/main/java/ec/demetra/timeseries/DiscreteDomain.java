@@ -21,41 +21,150 @@ import java.time.Period;
 import java.util.Arrays;
 
 /**
+ * Domain made of a sorted sequence of (not necessarily regularly spaced)
+ * times. The times are stored as primitive epoch seconds, so that the
+ * searches and the selections are binary searches on a long array (O(log n)).
+ * The selections are views that share the storage of the domain.
  *
  * @author Jean Palate
  */
-public class DiscreteDomain implements IDomain{
-    
-    private final LocalDateTime[] dates;
+public class DiscreteDomain implements IDomain {
 
-    public static DiscreteDomain create(LocalDateTime[] dates){
-        LocalDateTime[] ndates=dates.clone();
+    private final TimeIndex times;
+
+    public static DiscreteDomain create(LocalDateTime[] dates) {
+        LocalDateTime[] ndates = dates.clone();
         Arrays.parallelSort(ndates);
-        return new DiscreteDomain(ndates);
+        return new DiscreteDomain(TimeIndex.of(ndates));
+    }
+
+    /**
+     * Creates a domain from epoch seconds (UTC)
+     *
+     * @param seconds The epoch seconds. They are copied and sorted
+     * @return
+     */
+    public static DiscreteDomain ofEpochSeconds(long[] seconds) {
+        long[] nseconds = seconds.clone();
+        Arrays.parallelSort(nseconds);
+        return new DiscreteDomain(TimeIndex.ofEpochSeconds(nseconds));
     }
-    
-    private DiscreteDomain(LocalDateTime[] dates){
-        this.dates=dates;
+
+    private DiscreteDomain(TimeIndex times) {
+        this.times = times;
     }
 
     @Override
     public LocalDateTime getTime(int idx) {
-        return dates[idx];
+        return times.get(idx);
+    }
+
+    /**
+     * @param idx
+     * @return The idx-th time, as epoch seconds (UTC)
+     */
+    public long getEpochSecond(int idx) {
+        return times.epochSecond(idx);
     }
 
     @Override
     public int getLength() {
-        return dates.length;
+        return times.length();
     }
 
     @Override
     public int search(LocalDateTime time) {
-        return Arrays.binarySearch(dates, time);
+        return times.search(time);
     }
 
     @Override
     public Period getPeriod() {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
-    
+
+    /**
+     * Gets the times in [from, to[
+     *
+     * @param from The first time (included)
+     * @param to The last time (excluded)
+     * @return A view on this domain
+     */
+    public DiscreteDomain range(LocalDateTime from, LocalDateTime to) {
+        int beg = times.lowerBound(from), end = times.lowerBound(to);
+        return slice(beg, Math.max(beg, end));
+    }
+
+    /**
+     * Gets the times [beg, end[
+     *
+     * @param beg The position of the first time (included)
+     * @param end The position of the last time (excluded)
+     * @return A view on this domain
+     */
+    public DiscreteDomain slice(int beg, int end) {
+        return new DiscreteDomain(times.slice(beg, end));
+    }
+
+    /**
+     * Gets the times selected by a period selector. From (d0) selects the
+     * times at or after d0 (00:00); To (d1) selects the times before the end
+     * of d1 (d1 included). Negative numbers of periods in Excluding are
+     * numbers of years.
+     *
+     * @param selector The selector
+     * @return A view on this domain
+     */
+    public DiscreteDomain select(PeriodSelector selector) {
+        int[] r = search(selector);
+        return slice(r[0], r[1]);
+    }
+
+    /**
+     * Positions of the times selected by a period selector (see select)
+     *
+     * @param selector The selector
+     * @return The positions [beg, end[ of the selected times in this domain
+     */
+    public int[] search(PeriodSelector selector) {
+        int n = times.length();
+        int beg = 0, end = n;
+        switch (selector.getType()) {
+            case None:
+                end = 0;
+                break;
+            case From:
+                beg = times.lowerBound(selector.getD0().atStartOfDay());
+                break;
+            case To:
+                end = times.lowerBound(selector.getD1().plusDays(1).atStartOfDay());
+                break;
+            case Between:
+                beg = times.lowerBound(selector.getD0().atStartOfDay());
+                end = times.lowerBound(selector.getD1().plusDays(1).atStartOfDay());
+                break;
+            case First:
+                end = Math.min(n, selector.getN0());
+                break;
+            case Last:
+                beg = Math.max(0, n - selector.getN1());
+                break;
+            case Excluding:
+                if (n == 0) {
+                    break;
+                }
+                int n0 = selector.getN0(), n1 = selector.getN1();
+                if (n0 >= 0) {
+                    beg = Math.min(n, n0);
+                } else {
+                    beg = times.lowerBound(times.get(0).plusYears(-n0));
+                }
+                if (n1 >= 0) {
+                    end = Math.max(0, n - n1);
+                } else {
+                    end = times.upperBound(times.get(n - 1).minusYears(-n1));
+                }
+                break;
+        }
+        return new int[]{beg, Math.max(beg, end)};
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries;
+
+import ec.tstoolkit.design.Immutable;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Sorted sequence of times, stored as primitive epoch seconds (UTC) and
+ * nano-seconds (only when some times are not whole seconds). The searches are
+ * binary searches on the primitive arrays; the slices share the storage of
+ * the index.
+ *
+ * @author Jean Palate
+ */
+@Immutable
+final class TimeIndex {
+
+    private final long[] seconds;
+    private final int[] nanos; // null if all the nanos are 0
+    private final int beg, end;
+
+    /**
+     * @param times Sorted times
+     * @return
+     */
+    static TimeIndex of(LocalDateTime[] times) {
+        int n = times.length;
+        long[] s = new long[n];
+        int[] ns = null;
+        for (int i = 0; i < n; ++i) {
+            s[i] = times[i].toEpochSecond(ZoneOffset.UTC);
+            int cur = times[i].getNano();
+            if (cur != 0) {
+                if (ns == null) {
+                    ns = new int[n];
+                }
+                ns[i] = cur;
+            }
+        }
+        return new TimeIndex(s, ns, 0, n);
+    }
+
+    /**
+     * @param seconds Sorted epoch seconds. The array is not copied
+     * @return
+     */
+    static TimeIndex ofEpochSeconds(long[] seconds) {
+        return new TimeIndex(seconds, null, 0, seconds.length);
+    }
+
+    private TimeIndex(long[] seconds, int[] nanos, int beg, int end) {
+        this.seconds = seconds;
+        this.nanos = nanos;
+        this.beg = beg;
+        this.end = end;
+    }
+
+    int length() {
+        return end - beg;
+    }
+
+    long epochSecond(int idx) {
+        return seconds[beg + idx];
+    }
+
+    LocalDateTime get(int idx) {
+        int pos = beg + idx;
+        return LocalDateTime.ofEpochSecond(seconds[pos], nanos == null ? 0 : nanos[pos], ZoneOffset.UTC);
+    }
+
+    private int compare(int pos, long s, int ns) {
+        int cmp = Long.compare(seconds[pos], s);
+        if (cmp != 0 || (nanos == null && ns == 0)) {
+            return cmp;
+        }
+        return Integer.compare(nanos == null ? 0 : nanos[pos], ns);
+    }
+
+    /**
+     * @param time
+     * @return The position of the first time greater or equal to the given
+     * time (length() if there is no such time)
+     */
+    int lowerBound(LocalDateTime time) {
+        return bound(time.toEpochSecond(ZoneOffset.UTC), time.getNano(), false);
+    }
+
+    /**
+     * @param time
+     * @return The position of the first time strictly greater than the given
+     * time (length() if there is no such time)
+     */
+    int upperBound(LocalDateTime time) {
+        return bound(time.toEpochSecond(ZoneOffset.UTC), time.getNano(), true);
+    }
+
+    private int bound(long s, int ns, boolean strict) {
+        int lo = beg, hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compare(mid, s, ns);
+            if (cmp < 0 || (strict && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - beg;
+    }
+
+    /**
+     * @param time
+     * @return The position of the given time, -1 if not found
+     */
+    int search(LocalDateTime time) {
+        int pos = lowerBound(time);
+        if (pos < length() && compare(beg + pos, time.toEpochSecond(ZoneOffset.UTC), time.getNano()) == 0) {
+            return pos;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Zero-copy view on the times [from, to[
+     */
+    TimeIndex slice(int from, int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new TimeIndex(seconds, nanos, beg + from, beg + to);
+    }
+}
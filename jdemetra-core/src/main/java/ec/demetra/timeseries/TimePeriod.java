@@ -29,7 +29,7 @@ public class TimePeriod implements ITimePeriod{
     
     private final LocalDateTime start, end;
     
-    public TimePeriod of(LocalDateTime start, LocalDateTime end){
+    public static TimePeriod of(LocalDateTime start, LocalDateTime end){
         if (end.isAfter(start))
             return new TimePeriod(start, end);
         else
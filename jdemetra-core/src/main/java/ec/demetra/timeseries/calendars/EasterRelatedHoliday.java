@@ -8,8 +8,6 @@ package ec.demetra.timeseries.calendars;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.util.AbstractList;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  *
@@ -57,8 +55,10 @@ public class EasterRelatedHoliday implements IHoliday {
      * 24/4 (2/7)*1/LUNARY + (1/7) * DEC_LUNARY/LUNARY
      * 25/4 (1/7)*1/LUNARY + (1/7) *DEC_LUNARY/LUNARY
      */
-    private static final Map<Integer, LocalDate> DIC = new HashMap<>();
-    private static final Map<Integer, LocalDate> JDIC = new HashMap<>();
+    // Easter days of the years [Y0, Y1[, computed once (immutable tables,
+    // which don't need any synchronization). Other years are computed on the fly
+    private static final int Y0 = 1900, Y1 = 2200;
+    private static final LocalDate[] DIC = table(false), JDIC = table(true);
     private final int offset;
     private final boolean julian;
 
@@ -88,25 +88,23 @@ public class EasterRelatedHoliday implements IHoliday {
     }
 
     private static LocalDate easter(int year, boolean jul) {
-        if (jul) {
-            synchronized (JDIC) {
-                LocalDate e = JDIC.get(year);
-                if (e == null) {
-                    e = EasterComputer.julianEaster(year, true);
-                    JDIC.put(year, e);
-                }
-                return e;
-            }
+        if (year >= Y0 && year < Y1) {
+            return jul ? JDIC[year - Y0] : DIC[year - Y0];
         } else {
-            synchronized (DIC) {
-                LocalDate e = DIC.get(year);
-                if (e == null) {
-                    e = EasterComputer.easter(year);
-                    DIC.put(year, e);
-                }
-                return e;
-            }
+            return compute(year, jul);
+        }
+    }
+
+    private static LocalDate compute(int year, boolean jul) {
+        return jul ? EasterComputer.julianEaster(year, true) : EasterComputer.easter(year);
+    }
+
+    private static LocalDate[] table(boolean jul) {
+        LocalDate[] t = new LocalDate[Y1 - Y0];
+        for (int i = 0; i < t.length; ++i) {
+            t[i] = compute(Y0 + i, jul);
         }
+        return t;
     }
 
     @Override
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries.calendars;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the days of a set of holidays in a given time span [start, end[.
+ * The days of each holiday are computed once and stored as sorted offsets (in
+ * days) from the start of the index; the union of all the holidays is also
+ * stored as a bit set.
+ *
+ * The index is immutable: it can be shared between threads without
+ * synchronization.
+ *
+ * @author Jean Palate
+ */
+public final class HolidayIndex {
+
+    private final LocalDate start;
+    private final long start0; // epoch day of start
+    private final int length;
+    private final IHoliday[] holidays;
+    private final int[][] days;
+    private final long[] all;
+
+    /**
+     * Creates the index of a set of holidays
+     *
+     * @param start The first day of the index (included)
+     * @param end The last day of the index (excluded)
+     * @param holidays The holidays
+     * @return
+     */
+    public static HolidayIndex of(LocalDate start, LocalDate end, List<? extends IHoliday> holidays) {
+        long s0 = start.toEpochDay();
+        int n = (int) Math.max(0, end.toEpochDay() - s0);
+        IHoliday[] hol = holidays.toArray(new IHoliday[holidays.size()]);
+        int[][] days = new int[hol.length][];
+        long[] all = new long[(n + 63) >>> 6];
+        for (int i = 0; i < hol.length; ++i) {
+            int[] d = new int[16];
+            int m = 0;
+            for (IHolidayInfo info : hol[i].getIterable(start, end)) {
+                long lpos = info.getDate().toEpochDay() - s0;
+                if (lpos < 0 || lpos >= n) {
+                    continue;
+                }
+                int pos = (int) lpos;
+                if (m == d.length) {
+                    d = Arrays.copyOf(d, 2 * m);
+                }
+                d[m++] = pos;
+                all[pos >>> 6] |= 1L << pos;
+            }
+            d = Arrays.copyOf(d, m);
+            Arrays.sort(d);
+            days[i] = d;
+        }
+        return new HolidayIndex(start, n, hol, days, all);
+    }
+
+    private HolidayIndex(LocalDate start, int length, IHoliday[] holidays, int[][] days, long[] all) {
+        this.start = start;
+        this.start0 = start.toEpochDay();
+        this.length = length;
+        this.holidays = holidays;
+        this.days = days;
+        this.all = all;
+    }
+
+    public LocalDate getStart() {
+        return start;
+    }
+
+    public LocalDate getEnd() {
+        return start.plusDays(length);
+    }
+
+    /**
+     *
+     * @return The number of days covered by the index
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public int getHolidaysCount() {
+        return holidays.length;
+    }
+
+    public IHoliday getHoliday(int idx) {
+        return holidays[idx];
+    }
+
+    /**
+     * Checks that the index covers a given time span
+     *
+     * @param from The first day (included)
+     * @param to The last day (excluded)
+     * @return
+     */
+    public boolean covers(LocalDate from, LocalDate to) {
+        long s = from.toEpochDay(), e = to.toEpochDay();
+        return e <= s || (s >= start0 && e <= start0 + length);
+    }
+
+    /**
+     * Checks that a given day is a holiday
+     *
+     * @param date The day. Must be covered by the index
+     * @return
+     */
+    public boolean isHoliday(LocalDate date) {
+        int pos = position(date);
+        return (all[pos >>> 6] & (1L << pos)) != 0;
+    }
+
+    /**
+     * Checks that a given day corresponds to a given holiday
+     *
+     * @param idx The position of the holiday
+     * @param date The day. Must be covered by the index
+     * @return
+     */
+    public boolean isHoliday(int idx, LocalDate date) {
+        return Arrays.binarySearch(days[idx], position(date)) >= 0;
+    }
+
+    /**
+     * Gets the days of a holiday in a given time span
+     *
+     * @param idx The position of the holiday
+     * @param from The first day (included). The time span must be covered by
+     * the index
+     * @param to The last day (excluded)
+     * @return The sorted offsets (in days) from "from" of the days of the
+     * holiday in [from, to[
+     */
+    public int[] days(int idx, LocalDate from, LocalDate to) {
+        if (!covers(from, to)) {
+            throw new IllegalArgumentException("Time span not covered by the index");
+        }
+        int s = (int) (from.toEpochDay() - start0), e = (int) (to.toEpochDay() - start0);
+        if (e <= s) {
+            return new int[0];
+        }
+        int[] d = days[idx];
+        int i0 = lowerBound(d, s), i1 = lowerBound(d, e);
+        int[] rslt = new int[i1 - i0];
+        for (int i = i0; i < i1; ++i) {
+            rslt[i - i0] = d[i] - s;
+        }
+        return rslt;
+    }
+
+    private int position(LocalDate date) {
+        long pos = date.toEpochDay() - start0;
+        if (pos < 0 || pos >= length) {
+            throw new IllegalArgumentException("Date not covered by the index");
+        }
+        return (int) pos;
+    }
+
+    // first position i such that a[i] >= x
+    private static int lowerBound(int[] a, int x) {
+        int lo = 0, hi = a.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < x) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries.simplets;
+
+import ec.demetra.timeseries.TsAggregationType;
+import ec.demetra.timeseries.TsException;
+import ec.tstoolkit.design.Development;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plan of a frequency change (see TsData.changeFrequency). The target domain
+ * and the limits of the groups of observations that are aggregated in each
+ * period of the new frequency only depend on the source domain, on the new
+ * frequency and on the treatment of the incomplete periods. They are computed
+ * once, so that the plan can be applied to many series (or to a batch of
+ * series) defined on the same domain.
+ *
+ * A period of the new frequency is set to Missing if it doesn't contain any
+ * observation or, when complete is true, if some observations are missing.
+ *
+ * The plan is immutable and can be shared between threads.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class TsAggregationPlan {
+
+    private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
+    // minimal number of observations of a batch for a parallel processing
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final TsDomain source, target;
+    private final TsAggregationType type;
+    private final boolean complete;
+    private final int nconv;
+    // positions (in the source domain) of the groups of observations
+    // corresponding to each period of the target domain. The group i is
+    // [limits[i], limits[i+1][
+    private final int[] limits;
+
+    /**
+     * Creates the plan of a frequency change
+     *
+     * @param source The domain of the series that will be aggregated
+     * @param newfreq The new frequency. Must be a divisor of the frequency of
+     * the source domain.
+     * @param type Aggregation mode.
+     * @param complete If true, the observation for a given period in the new
+     * series is set to Missing if some data in the original series are Missing.
+     * @return The plan. Null if the frequencies are incompatible
+     */
+    public static TsAggregationPlan of(final TsDomain source, final TsFrequency newfreq,
+            final TsAggregationType type, final boolean complete) {
+        int freq = source.getFrequency().intValue(), nfreq = newfreq.intValue();
+        if (freq % nfreq != 0) {
+            return null;
+        }
+        int nconv = freq / nfreq;
+        int c = source.getLength();
+        int z0 = 0;
+        int beg = source.getStart().id();
+
+        // nbeg is the first period in the new frequency
+        // z0 is the number of periods in the old frequency being dropped
+        int nbeg = beg / nconv;
+        int n0 = nconv;
+        if (beg % nconv != 0) {
+            if (complete) {
+                // Attention! Different treatment if beg is negative
+                // We always have that x = x/q + x%q
+                // but the integer division is rounded towards 0
+                if (beg > 0) {
+                    ++nbeg;
+                    z0 = nconv - beg % nconv;
+                } else {
+                    z0 = -beg % nconv;
+                }
+            } else {
+                if (beg < 0) {
+                    --nbeg;
+                }
+                n0 = (nbeg + 1) * nconv - beg;
+            }
+        }
+
+        int end = beg + c; // excluded
+        int nend = end / nconv;
+        if (end % nconv != 0) {
+            if (complete) {
+                if (end < 0) {
+                    --nend;
+                }
+            } else if (end > 0) {
+                ++nend;
+            }
+        }
+        int n = Math.max(0, nend - nbeg);
+        int[] limits = new int[n + 1];
+        if (n > 0) {
+            limits[0] = z0;
+            limits[1] = Math.min(c, z0 + n0);
+            for (int i = 2; i <= n; ++i) {
+                limits[i] = Math.min(c, limits[i - 1] + nconv);
+            }
+        }
+        return new TsAggregationPlan(source, new TsDomain(newfreq, nbeg, n), type, complete, nconv, limits);
+    }
+
+    private TsAggregationPlan(TsDomain source, TsDomain target, TsAggregationType type,
+            boolean complete, int nconv, int[] limits) {
+        this.source = source;
+        this.target = target;
+        this.type = type;
+        this.complete = complete;
+        this.nconv = nconv;
+        this.limits = limits;
+    }
+
+    public TsDomain getSource() {
+        return source;
+    }
+
+    public TsDomain getTarget() {
+        return target;
+    }
+
+    public TsAggregationType getType() {
+        return type;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Aggregates a series
+     *
+     * @param s The series. Its domain must be the source domain of the plan
+     * @return A new series, defined on the target domain of the plan
+     */
+    public TsData apply(TsData s) {
+        if (!source.equals(s.domain())) {
+            throw new TsException("Incompatible domain");
+        }
+        double[] out = new double[target.getLength()];
+        apply(s.data(), 0, out, 0);
+        return new TsData(target.getStart(), out, false);
+    }
+
+    /**
+     * Aggregates all the series of a batch
+     *
+     * @param batch The batch. Its domain must be the source domain of the plan
+     * @param parallel If true, large batches are split in blocks of series
+     * that are aggregated in parallel
+     * @return A new batch, defined on the target domain of the plan
+     */
+    public TsDataBatch apply(TsDataBatch batch, boolean parallel) {
+        if (!source.equals(batch.getDomain())) {
+            throw new TsException("Incompatible domain");
+        }
+        int nseries = batch.getSeriesCount();
+        boolean large = source.getLength() * nseries >= PARALLEL_THRESHOLD;
+        return apply(batch, parallel && large ? NTHREADS : 1);
+    }
+
+    /**
+     * Aggregates all the series of a batch, split in a given number of blocks
+     * of series that are aggregated in parallel
+     *
+     * @param batch The batch. Its domain must be the source domain of the plan
+     * @param nblocks The number of blocks (1 for a sequential processing)
+     * @return A new batch, defined on the target domain of the plan
+     */
+    TsDataBatch apply(TsDataBatch batch, int nblocks) {
+        int nseries = batch.getSeriesCount();
+        TsDataBatch rslt = new TsDataBatch(target, nseries);
+        double[] in = batch.data(), out = rslt.data();
+        int c = source.getLength(), n = target.getLength();
+        nblocks = Math.min(nblocks, nseries);
+        if (nblocks < 2) {
+            for (int j = 0; j < nseries; ++j) {
+                apply(in, j * c, out, j * n);
+            }
+            return rslt;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(nblocks);
+        for (int b = 0; b < nblocks; ++b) {
+            int jbeg = b * nseries / nblocks, jend = (b + 1) * nseries / nblocks;
+            tasks.add(() -> {
+                for (int j = jbeg; j < jend; ++j) {
+                    apply(in, j * c, out, j * n);
+                }
+                return null;
+            });
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(nblocks);
+        try {
+            for (Future<Void> future : executorService.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            executorService.shutdown();
+        }
+        return rslt;
+    }
+
+    /**
+     * Aggregates the observations src[srcStart, srcStart+source.getLength()[
+     * into dst[dstStart, dstStart+target.getLength()[
+     *
+     * @param src The observations of the series
+     * @param srcStart The position of the first observation
+     * @param dst The buffer that will contain the results
+     * @param dstStart The position of the first result
+     */
+    public void apply(double[] src, int srcStart, double[] dst, int dstStart) {
+        int n = limits.length - 1;
+        for (int i = 0, o = dstStart; i < n; ++i, ++o) {
+            int beg = srcStart + limits[i], end = srcStart + limits[i + 1];
+            double d = 0;
+            int ncur = 0;
+            // one loop by aggregation type, to avoid the test in the inner loop
+            switch (type) {
+                case First:
+                    for (int k = beg; k < end; ++k) {
+                        double dcur = src[k];
+                        if (Double.isFinite(dcur)) {
+                            if (ncur++ == 0) {
+                                d = dcur;
+                            }
+                        }
+                    }
+                    break;
+                case Last:
+                    for (int k = beg; k < end; ++k) {
+                        double dcur = src[k];
+                        if (Double.isFinite(dcur)) {
+                            d = dcur;
+                            ++ncur;
+                        }
+                    }
+                    break;
+                case Min:
+                    d = Double.POSITIVE_INFINITY;
+                    for (int k = beg; k < end; ++k) {
+                        double dcur = src[k];
+                        if (Double.isFinite(dcur)) {
+                            if (dcur < d) {
+                                d = dcur;
+                            }
+                            ++ncur;
+                        }
+                    }
+                    break;
+                case Max:
+                    d = Double.NEGATIVE_INFINITY;
+                    for (int k = beg; k < end; ++k) {
+                        double dcur = src[k];
+                        if (Double.isFinite(dcur)) {
+                            if (dcur > d) {
+                                d = dcur;
+                            }
+                            ++ncur;
+                        }
+                    }
+                    break;
+                default:
+                    for (int k = beg; k < end; ++k) {
+                        double dcur = src[k];
+                        if (Double.isFinite(dcur)) {
+                            d += dcur;
+                            ++ncur;
+                        }
+                    }
+                    if (type == TsAggregationType.Average && ncur > 0) {
+                        d /= ncur;
+                    }
+                    break;
+            }
+            dst[o] = (ncur == nconv) || (!complete && (ncur != 0)) ? d : Double.NaN;
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package ec.demetra.timeseries.simplets;
 
+import ec.demetra.data.OrderStatistics;
 import ec.demetra.timeseries.ITimeSeries;
 import ec.demetra.timeseries.PeriodSelector;
 import ec.demetra.timeseries.TsAggregationType;
@@ -449,112 +450,14 @@ public class TsData implements ITimeSeries<TsDomain, double[]>, Cloneable, Itera
      * @param conversion Aggregation mode.
      * @param complete If true, the observation for a given period in the new
      * series is set to Missing if some data in the original series are Missing.
-     * @return A new time series is returned.
+     * @return A new time series is returned. Null if the frequencies are
+     * incompatible
+     * @see TsAggregationPlan
      */
     public TsData changeFrequency(final TsFrequency newfreq,
             final TsAggregationType conversion, final boolean complete) {
-        int freq = start.getFrequency().intValue(), nfreq = newfreq.intValue();
-        if (freq % nfreq != 0) {
-            return null;
-        }
-        if (freq == nfreq) {
-            return clone();
-        }
-        int nconv = freq / nfreq;
-        int c = getLength();
-        int z0 = 0;
-        int beg = start.id();
-
-        // d0 and d1
-        int nbeg = beg / nconv;
-        // nbeg is the first period in the new frequency
-        // z0 is the number of periods in the old frequency being dropped
-        int n0 = nconv, n1 = nconv;
-        if (beg % nconv != 0) {
-            if (complete) {
-                // Attention! Different treatment if beg is negative 
-                // We always have that x = x/q + x%q
-                // but the integer division is rounded towards 0
-                if (beg > 0) {
-                    ++nbeg;
-                    z0 = nconv - beg % nconv;
-                } else {
-                    z0 = -beg % nconv;
-                }
-            } else {
-                if (beg < 0) {
-                    --nbeg;
-                }
-                n0 = (nbeg + 1) * nconv - beg;
-            }
-        }
-
-        int end = beg + c; // excluded
-        int nend = end / nconv;
-
-        if (end % nconv != 0) {
-            if (complete) {
-                if (end < 0) {
-                    --nend;
-                }
-            } else {
-                if (end > 0) {
-                    ++nend;
-                }
-                n1 = end - (nend - 1) * nconv;
-            }
-        }
-        int n = nend - nbeg;
-        TsData tmp = new TsData(newfreq, nbeg, n);
-        if (n > 0) {
-            for (int i = 0, j = z0; i < n; ++i) {
-                int nmax = nconv;
-                if (i == 0) {
-                    nmax = n0;
-                } else if (i == n - 1) {
-                    nmax = n1;
-                }
-                double d = 0;
-                int ncur = 0;
-
-                for (int k = 0; k < nmax; ++k, ++j) {
-                    double dcur = vals[j];
-                    if (Double.isFinite(dcur)) {
-                        switch (conversion) {
-                            case Last:
-                                d = dcur;
-                                break;
-                            case First:
-                                if (ncur == 0) {
-                                    d = dcur;
-                                }
-                                break;
-                            case Min:
-                                if ((ncur == 0) || (dcur < d)) {
-                                    d = dcur;
-                                }
-                                break;
-                            case Max:
-                                if ((ncur == 0) || (dcur > d)) {
-                                    d = dcur;
-                                }
-                                break;
-                            default:
-                                d += dcur;
-                                break;
-                        }
-                        ++ncur;
-                    }
-                }
-                if ((ncur == nconv) || (!complete && (ncur != 0))) {
-                    if (conversion == TsAggregationType.Average) {
-                        d /= ncur;
-                    }
-                    tmp.vals[i] = d;
-                }
-            }
-        }
-        return tmp;
+        TsAggregationPlan plan = TsAggregationPlan.of(domain(), newfreq, conversion, complete);
+        return plan == null ? null : plan.apply(this);
     }
 
     /**
@@ -1175,28 +1078,8 @@ public class TsData implements ITimeSeries<TsDomain, double[]>, Cloneable, Itera
         if (n == 0) {
             return rslt;
         }
-        double[] tmp = new double[nperiods];
-        boolean bPair = (nperiods % 2) == 0;
-        for (int i = 0; i < n; ++i) {
-            boolean bmissing = false;
-            for (int j = 0; j < nperiods; ++j) {
-                double x = vals[i + j];
-                if (!Double.isFinite(x)) {
-                    bmissing = true;
-                    break;
-                }
-                tmp[j] = x;
-            }
-            if (!bmissing) {
-                Arrays.sort(tmp);
-                if (bPair) // moyenne des 2 valeurs centrales
-                {
-                    rslt.vals[i] = (tmp[np2] + tmp[np2 + 1]) / 2;
-                } else {
-                    rslt.vals[i] = tmp[np2];
-                }
-            }
-        }
+        double[] med = OrderStatistics.movingMedian(vals, nperiods);
+        System.arraycopy(med, 0, rslt.vals, 0, n);
         return rslt;
     }
 
@@ -1220,7 +1103,7 @@ public class TsData implements ITimeSeries<TsDomain, double[]>, Cloneable, Itera
      * @see #add(double,TsData)
      */
     public TsData plus(final double d) {
-        return transformFinite(x -> x - d);
+        return transformFinite(x -> x + d);
     }
 
     /**
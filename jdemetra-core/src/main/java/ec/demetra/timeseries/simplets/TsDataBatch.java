@@ -0,0 +1,430 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries.simplets;
+
+import ec.demetra.data.DataBlock;
+import ec.demetra.maths.matrices.Matrix;
+import ec.demetra.timeseries.TsAggregationType;
+import ec.demetra.timeseries.TsException;
+import ec.tstoolkit.design.Development;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A batch of time series defined on a common time domain. The observations
+ * are stored column by column (one column per series) in a single array, so
+ * that the usual transformations are done in one sweep on the whole batch,
+ * without intermediate TsData objects.
+ *
+ * The operations follow the corresponding methods of TsData (same results,
+ * same treatment of the missing values, which are represented by Double.NaN),
+ * but they modify the batch in place; they return the batch itself, so that
+ * they can be chained. Operations that change the time domain (delta,
+ * movingAverage...) compact the storage in place.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public final class TsDataBatch {
+
+    private TsDomain domain;
+    private final int nseries;
+    // column-major storage. Only the first domain.getLength() * nseries
+    // elements are used
+    private double[] data;
+
+    /**
+     * Creates a batch of series defined on a given domain. The series are
+     * extended with missing values or truncated if need be.
+     *
+     * @param domain The common domain
+     * @param series The series. They must have the frequency of the domain
+     * @return A new batch
+     */
+    public static TsDataBatch of(TsDomain domain, List<TsData> series) {
+        TsDataBatch batch = new TsDataBatch(domain, series.size());
+        int n = domain.getLength();
+        int dbeg = domain.getStart().id();
+        for (int j = 0; j < batch.nseries; ++j) {
+            TsData s = series.get(j);
+            if (s.getFrequency() != domain.getFrequency()) {
+                throw new TsException(TsException.INCOMPATIBLE_FREQ);
+            }
+            int sbeg = s.getStart().id();
+            // common part
+            int beg = Math.max(dbeg, sbeg), end = Math.min(dbeg + n, sbeg + s.getLength());
+            if (end > beg) {
+                System.arraycopy(s.data(), beg - sbeg, batch.data, j * n + beg - dbeg, end - beg);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Creates a batch of series defined on the union of their domains
+     *
+     * @param series The series. They must have the same frequency
+     * @return A new batch
+     */
+    public static TsDataBatch of(List<TsData> series) {
+        if (series.isEmpty()) {
+            throw new TsException(TsException.TS_EMPTY);
+        }
+        TsDomain dom = series.get(0).domain();
+        for (TsData s : series) {
+            dom = dom.union(s.domain());
+            if (dom == null) {
+                throw new TsException(TsException.INCOMPATIBLE_FREQ);
+            }
+        }
+        return of(dom, series);
+    }
+
+    /**
+     * Creates a batch of series. All the values are missing
+     *
+     * @param domain The common domain
+     * @param nseries The number of series
+     */
+    public TsDataBatch(TsDomain domain, int nseries) {
+        this.domain = domain;
+        this.nseries = nseries;
+        this.data = new double[domain.getLength() * nseries];
+        Arrays.fill(data, Double.NaN);
+    }
+
+    private TsDataBatch(TsDomain domain, int nseries, double[] data) {
+        this.domain = domain;
+        this.nseries = nseries;
+        this.data = data;
+    }
+
+    public TsDomain getDomain() {
+        return domain;
+    }
+
+    public int getSeriesCount() {
+        return nseries;
+    }
+
+    /**
+     *
+     * @return The length of the series
+     */
+    public int getLength() {
+        return domain.getLength();
+    }
+
+    /**
+     * Gets a copy of a series of the batch
+     *
+     * @param idx The position of the series
+     * @return A new TsData
+     */
+    public TsData series(int idx) {
+        int n = domain.getLength();
+        return new TsData(domain.getStart(), Arrays.copyOfRange(data, idx * n, (idx + 1) * n), false);
+    }
+
+    /**
+     * Gets the observations of a series of the batch
+     *
+     * @param idx The position of the series
+     * @return A data block that shares the storage of the batch. It is
+     * invalidated by the operations that change the domain of the batch
+     */
+    public DataBlock column(int idx) {
+        int n = domain.getLength();
+        return DataBlock.of(data, idx * n, (idx + 1) * n);
+    }
+
+    /**
+     * Gets all the observations of the batch
+     *
+     * @return A matrix (periods x series) that shares the storage of the
+     * batch. It is invalidated by the operations that change the domain of the
+     * batch
+     */
+    public Matrix matrix() {
+        int n = domain.getLength(), len = n * nseries;
+        if (n == 0) {
+            return Matrix.of(0, nseries);
+        }
+        if (data.length != len) {
+            data = Arrays.copyOf(data, len);
+        }
+        return Matrix.of(data, n);
+    }
+
+    @Override
+    public TsDataBatch clone() {
+        return new TsDataBatch(domain, nseries, Arrays.copyOf(data, domain.getLength() * nseries));
+    }
+
+    /**
+     * Applies a function on all the non missing observations. The missing
+     * observations stay missing (see TsData.transformFinite)
+     *
+     * @param fn The function
+     * @return This batch
+     */
+    public TsDataBatch applyOnFinite(DoubleUnaryOperator fn) {
+        int len = domain.getLength() * nseries;
+        for (int i = 0; i < len; ++i) {
+            double cur = data[i];
+            data[i] = Double.isFinite(cur) ? fn.applyAsDouble(cur) : Double.NaN;
+        }
+        return this;
+    }
+
+    public TsDataBatch plus(double d) {
+        if (d == 0) {
+            return this;
+        }
+        int len = domain.getLength() * nseries;
+        for (int i = 0; i < len; ++i) {
+            double cur = data[i];
+            data[i] = Double.isFinite(cur) ? cur + d : Double.NaN;
+        }
+        return this;
+    }
+
+    public TsDataBatch times(double d) {
+        if (d == 1) {
+            return this;
+        }
+        int len = domain.getLength() * nseries;
+        for (int i = 0; i < len; ++i) {
+            double cur = data[i];
+            data[i] = Double.isFinite(cur) ? cur * d : Double.NaN;
+        }
+        return this;
+    }
+
+    public TsDataBatch chs() {
+        return times(-1);
+    }
+
+    public TsDataBatch abs() {
+        return applyOnFinite(Math::abs);
+    }
+
+    public TsDataBatch log() {
+        return applyOnFinite(Math::log);
+    }
+
+    public TsDataBatch exp() {
+        return applyOnFinite(Math::exp);
+    }
+
+    public TsDataBatch sqrt() {
+        return applyOnFinite(Math::sqrt);
+    }
+
+    /**
+     * Combines this batch with another batch (same domain, same number of
+     * series), observation by observation. The result is missing when one of
+     * the operands is missing (see TsData.computeOnIntersection)
+     *
+     * @param other The right operand
+     * @param fn The operation
+     * @return This batch
+     */
+    public TsDataBatch apply(TsDataBatch other, DoubleBinaryOperator fn) {
+        if (!domain.equals(other.domain) || nseries != other.nseries) {
+            throw new TsException("Incompatible batches");
+        }
+        int len = domain.getLength() * nseries;
+        double[] odata = other.data;
+        for (int i = 0; i < len; ++i) {
+            double a = data[i], b = odata[i];
+            data[i] = Double.isFinite(a) && Double.isFinite(b) ? fn.applyAsDouble(a, b) : Double.NaN;
+        }
+        return this;
+    }
+
+    public TsDataBatch plus(TsDataBatch other) {
+        return apply(other, (a, b) -> a + b);
+    }
+
+    public TsDataBatch minus(TsDataBatch other) {
+        return apply(other, (a, b) -> a - b);
+    }
+
+    public TsDataBatch times(TsDataBatch other) {
+        return apply(other, (a, b) -> a * b);
+    }
+
+    public TsDataBatch div(TsDataBatch other) {
+        return apply(other, (a, b) -> a / b);
+    }
+
+    /**
+     * Drops periods at the extremities of the batch
+     *
+     * @param nfirst
+     * @param nlast
+     * @return This batch
+     */
+    public TsDataBatch drop(int nfirst, int nlast) {
+        int n = domain.getLength();
+        int m = Math.max(0, n - nfirst - nlast);
+        for (int j = 0; j < nseries; ++j) {
+            System.arraycopy(data, j * n + nfirst, data, j * m, m);
+        }
+        domain = new TsDomain(domain.getStart().plus(nfirst), m);
+        return this;
+    }
+
+    /**
+     * y(t) = fn(x(t), x(t-lag)), on the periods where both values are
+     * available (see TsData.autoTransform). The first lag periods are dropped.
+     *
+     * @param lag
+     * @param fn
+     * @return This batch
+     */
+    public TsDataBatch autoTransform(int lag, DoubleBinaryOperator fn) {
+        return autoTransform(null, lag, fn);
+    }
+
+    /**
+     * Fused transformation: y(t) = fn(pre(x(t)), pre(x(t-lag))). It gives the
+     * same result as applyOnFinite(pre) followed by autoTransform(lag, fn),
+     * but each series is processed in one pass. For instance, the growth rates
+     * in logs are obtained by autoTransform(Math::log, 1, (x1, x0) -> x1 -
+     * x0).
+     *
+     * @param pre The preliminary transformation of the data. May be null
+     * @param lag
+     * @param fn
+     * @return This batch
+     */
+    public TsDataBatch autoTransform(DoubleUnaryOperator pre, int lag, DoubleBinaryOperator fn) {
+        int n = domain.getLength();
+        int m = Math.max(0, n - lag);
+        for (int j = 0; j < nseries; ++j) {
+            int src = j * n, dst = j * m;
+            if (pre != null) {
+                for (int i = src; i < src + n; ++i) {
+                    double cur = data[i];
+                    data[i] = Double.isFinite(cur) ? pre.applyAsDouble(cur) : Double.NaN;
+                }
+            }
+            // dst <= src: the values are read before being overwritten
+            for (int i = 0; i < m; ++i) {
+                double d0 = data[src + i], d1 = data[src + i + lag];
+                data[dst + i] = Double.isFinite(d0) && Double.isFinite(d1) ? fn.applyAsDouble(d1, d0) : Double.NaN;
+            }
+        }
+        domain = new TsDomain(domain.getStart().plus(lag), m);
+        return this;
+    }
+
+    public TsDataBatch delta(int lag) {
+        return autoTransform(lag, (x1, x0) -> x1 - x0);
+    }
+
+    public TsDataBatch pctVariation(int lag) {
+        return autoTransform(lag, (x1, x0) -> (x1 / x0 - 1) * 100);
+    }
+
+    /**
+     * Differences of the logs of the series. Same as log().delta(lag), in one
+     * pass
+     *
+     * @param lag
+     * @return This batch
+     */
+    public TsDataBatch logDelta(int lag) {
+        return autoTransform(Math::log, lag, (x1, x0) -> x1 - x0);
+    }
+
+    /**
+     * Moving average of the series (see TsData.movingAverage)
+     *
+     * @param weights
+     * @param bcentred
+     * @param bnormalized
+     * @return This batch, or null if the weights are invalid (the batch is
+     * then unchanged)
+     */
+    public TsDataBatch movingAverage(final double[] weights, final boolean bcentred,
+            final boolean bnormalized) {
+        double[] w = weights.clone();
+        int nw = w.length;
+        if (nw < 2 || (bcentred && nw % 2 == 0)) {
+            return null;
+        }
+        if (bnormalized) {
+            double s = 0;
+            for (int i = 0; i < nw; ++i) {
+                s += w[i];
+            }
+            if (s == 0) {
+                return null;
+            }
+            for (int i = 0; i < nw; ++i) {
+                w[i] /= s;
+            }
+        }
+        int nlast = bcentred ? (nw - 1) / 2 : 0;
+        int nfirst = nw - 1 - nlast;
+        int n = domain.getLength();
+        int m = Math.max(0, n - nw + 1);
+        for (int j = 0; j < nseries; ++j) {
+            int src = j * n, dst = j * m;
+            for (int i = 0; i < m; ++i) {
+                double wval = 0;
+                for (int k = 0, pos = src + i; k < nw; ++k, ++pos) {
+                    double tmp = data[pos];
+                    if (Double.isFinite(tmp)) {
+                        wval += w[k] * tmp;
+                    }
+                }
+                data[dst + i] = wval;
+            }
+        }
+        domain = new TsDomain(domain.getStart().plus(nfirst), m);
+        return this;
+    }
+
+    /**
+     * Makes a frequency change of all the series (see TsData.changeFrequency).
+     * Periods of the new frequency without (enough) observations are missing.
+     *
+     * @param newfreq The new frequency. Must be a divisor of the present
+     * frequency.
+     * @param conversion Aggregation mode.
+     * @param complete If true, the observation for a given period in the new
+     * series is set to Missing if some data in the original series are Missing.
+     * @return A new batch. Null if the frequencies are incompatible
+     * @see TsAggregationPlan
+     */
+    public TsDataBatch changeFrequency(final TsFrequency newfreq,
+            final TsAggregationType conversion, final boolean complete) {
+        TsAggregationPlan plan = TsAggregationPlan.of(domain, newfreq, conversion, complete);
+        return plan == null ? null : plan.apply(this, false);
+    }
+
+    // column-major storage, used by TsAggregationPlan
+    double[] data() {
+        return data;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.arima;
+
+import ec.tstoolkit.arima.ArimaModel;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.maths.linearfilters.BackFilter;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class WhittleLikelihoodTest {
+
+    public WhittleLikelihoodTest() {
+    }
+
+    private static ArimaModel ma1(double th) {
+        return new ArimaModel(null, null, BackFilter.of(new double[]{1, th}), 1);
+    }
+
+    @Test
+    public void testMa1() {
+        // z(t) = e(t) - .5 e(t-1), (1-B)y(t) = z(t)
+        int n = 3001;
+        Random rnd = new Random(0);
+        double[] y = new double[n];
+        double eprev = rnd.nextGaussian();
+        for (int i = 1; i < n; ++i) {
+            double e = rnd.nextGaussian();
+            y[i] = y[i - 1] + e - .5 * eprev;
+            eprev = e;
+        }
+        WhittleLikelihood ll = WhittleLikelihood.of(new ReadDataBlock(y), BackFilter.D1);
+        assertEquals(n - 1, ll.getObsCount());
+        WhittleLikelihood.Result r2 = ll.compute(ma1(-.2)), r5 = ll.compute(ma1(-.5)), r8 = ll.compute(ma1(-.8));
+        assertTrue(r5.getObjective() < r2.getObjective());
+        assertTrue(r5.getObjective() < r8.getObjective());
+        assertTrue(r5.getLogLikelihood() > r2.getLogLikelihood());
+        assertEquals(1, r5.getSigma2(), .1);
+    }
+
+    @Test
+    public void testShortSeries() {
+        // n=5, m=2, w(j)=2*pi*j/5
+        // I(j)=|sum(z(t)*exp(-i*w(j)*t))|^2/5, g(j)=1+th^2+2*th*cos(w(j))
+        // sig2=(I(1)/g(1)+I(2)/g(2))/2, ldet=log(g(1))+log(g(2))
+        // ll=-2*(log(2*pi*sig2)+1)-ldet
+        double[] z = {1, -2, 3, .5, -1};
+        double th = .4;
+        WhittleLikelihood ll = new WhittleLikelihood(new ReadDataBlock(z));
+        assertEquals(2, ll.getFrequenciesCount());
+        WhittleLikelihood.Result r = ll.compute(ma1(th));
+        double sig2 = 0, ldet = 0;
+        for (int j = 1; j <= 2; ++j) {
+            double w = 2 * Math.PI * j / 5, re = 0, im = 0;
+            for (int t = 0; t < 5; ++t) {
+                re += z[t] * Math.cos(w * t);
+                im -= z[t] * Math.sin(w * t);
+            }
+            double g = 1 + th * th + 2 * th * Math.cos(w);
+            sig2 += (re * re + im * im) / 5 / g / 2;
+            ldet += Math.log(g);
+        }
+        assertEquals(sig2, r.getSigma2(), 1e-12);
+        assertEquals(ldet, r.getLogDeterminant(), 1e-12);
+        assertEquals(-2 * (Math.log(2 * Math.PI * sig2) + 1) - ldet, r.getLogLikelihood(), 1e-12);
+        // reference values
+        assertEquals(6.238913525498892, r.getSigma2(), 1e-9);
+        assertEquals(-0.3262843102337228, r.getLogDeterminant(), 1e-9);
+        assertEquals(-9.011081928021495, r.getLogLikelihood(), 1e-9);
+        assertEquals(2 * Math.log(sig2) + ldet, r.getObjective(), 1e-12);
+    }
+}
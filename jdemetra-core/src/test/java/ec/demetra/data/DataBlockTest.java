@@ -18,6 +18,100 @@ public class DataBlockTest {
     public DataBlockTest() {
     }
 
+    // generic implementations (default methods of the interfaces)
+    private static IArrayOfDoubles generic(DataBlock x) {
+        return new IArrayOfDoubles() {
+            @Override
+            public void set(int idx, double value) {
+                x.set(idx, value);
+            }
+
+            @Override
+            public double get(int idx) {
+                return x.get(idx);
+            }
+
+            @Override
+            public int getLength() {
+                return x.getLength();
+            }
+
+            @Override
+            public IArrayOfDoubles extract(int start, int length) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Test
+    public void testReductions() {
+        double[] data = new double[103];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = Math.sin(i * 1.7) * (i + 1);
+        }
+        DataBlock[] blocks = new DataBlock[]{DataBlock.of(data), DataBlock.of(data, 3, 100),
+            DataBlock.of(data, 1, 101, 4), DataBlock.of(data).reverse()};
+        for (DataBlock x : blocks) {
+            IArrayOfDoubles gx = generic(x);
+            assertEquals(gx.sum(), x.sum(), 1e-9);
+            assertEquals(gx.ssq(), x.ssq(), 1e-9);
+            DataBlock y = DataBlock.create(x.getLength());
+            y.set(i -> 1.0 / (i + 1));
+            assertEquals(gx.dot(y), x.dot(y), 1e-9);
+            assertEquals(gx.count(z -> z > 0), x.count(z -> z > 0));
+            assertEquals(gx.first(z -> z < -10), x.first(z -> z < -10));
+            assertEquals(gx.last(z -> z < -10), x.last(z -> z < -10));
+            assertArrayEquals(gx.search(z -> z > 5), x.search(z -> z > 5));
+            assertEquals(gx.check(z -> z > -200), x.check(z -> z > -200));
+        }
+        // missing values are skipped in sum and ssq
+        double[] m = new double[]{1, Double.NaN, 2, 3, 4, Double.POSITIVE_INFINITY};
+        assertEquals(10, DataBlock.of(m).sum(), 0);
+        assertEquals(30, DataBlock.of(m).ssq(), 0);
+    }
+
+    @Test
+    public void testUpdates() {
+        double[] X = new double[50], Y = new double[100];
+        DataBlock x = DataBlock.of(X), y = DataBlock.of(Y, 0, 100, 2);
+        x.set(i -> i);
+        y.set(i -> 2 * i + 1);
+        x.addAY(-.5, y);
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(-.5, X[i], 1e-15);
+        }
+        y.addAY(2, x);
+        y.mul(x);
+        y.mul(-2);
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(2 * i, Y[2 * i], 1e-15);
+            assertEquals(0, Y[2 * i + 1], 0);
+        }
+    }
+
+    @Test
+    @Ignore
+    public void stressTestReductions() {
+        int n = 300, m = 1000000;
+        DataBlock x = DataBlock.create(n), y = DataBlock.create(n);
+        x.set(i -> 1.0 / (i + 1));
+        y.set(i -> i);
+        IArrayOfDoubles gx = generic(x), gy = generic(y);
+        for (int k = 0; k < 5; ++k) {
+            double s = 0;
+            long t0 = System.currentTimeMillis();
+            for (int i = 0; i < m; ++i) {
+                s += gx.dot(gy) + gx.ssq();
+            }
+            long t1 = System.currentTimeMillis();
+            for (int i = 0; i < m; ++i) {
+                s += x.dot(y) + x.ssq();
+            }
+            long t2 = System.currentTimeMillis();
+            System.out.println("generic: " + (t1 - t0) + " ms, specialized: " + (t2 - t1) + " ms (" + s + ")");
+        }
+    }
+
     @Test
     @Ignore
     public void stressTest() {
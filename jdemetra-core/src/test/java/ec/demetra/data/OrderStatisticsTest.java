@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.data;
+
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class OrderStatisticsTest {
+
+    public OrderStatisticsTest() {
+    }
+
+    private static double sortedQuantile(double[] x, int start, int w, double p) {
+        double[] s = Arrays.copyOfRange(x, start, start + w);
+        for (double v : s) {
+            if (!Double.isFinite(v)) {
+                return Double.NaN;
+            }
+        }
+        Arrays.sort(s);
+        double h = p * (w - 1);
+        int k = (int) Math.floor(h);
+        return k == w - 1 ? s[k] : s[k] + (h - k) * (s[k + 1] - s[k]);
+    }
+
+    private static double sortedMad(double[] x, int start, int w) {
+        double m = sortedQuantile(x, start, w, .5);
+        double[] d = new double[w];
+        for (int i = 0; i < w; ++i) {
+            d[i] = Math.abs(x[start + i] - m);
+        }
+        return sortedQuantile(d, 0, w, .5);
+    }
+
+    private static double[] data(int n, Random rnd) {
+        double[] x = new double[n];
+        for (int i = 0; i < n; ++i) {
+            // rounded values, to get ties
+            x[i] = Math.round(rnd.nextGaussian() * 10) / 2.0;
+        }
+        return x;
+    }
+
+    @Test
+    public void testStatic() {
+        Random rnd = new Random(0);
+        for (int n = 1; n < 30; ++n) {
+            double[] x = data(n, rnd);
+            double[] c = x.clone();
+            assertEquals(sortedQuantile(x, 0, n, .5), OrderStatistics.median(x), 1e-15);
+            assertEquals(sortedQuantile(x, 0, n, .1), OrderStatistics.quantile(x, .1), 1e-12);
+            assertEquals(sortedQuantile(x, 0, n, .75), OrderStatistics.quantile(x, .75), 1e-12);
+            assertEquals(sortedMad(x, 0, n), OrderStatistics.mad(x), 1e-15);
+            assertArrayEquals(c, x, 0);
+        }
+    }
+
+    @Test
+    public void testMoving() {
+        Random rnd = new Random(1);
+        double[] x = data(200, rnd);
+        x[17] = Double.NaN;
+        x[150] = Double.POSITIVE_INFINITY;
+        for (int w : new int[]{1, 2, 5, 12, 13, 52}) {
+            double[] med = OrderStatistics.movingMedian(x, w);
+            double[] q = OrderStatistics.movingQuantile(x, w, .9);
+            double[] mad = OrderStatistics.movingMad(x, w);
+            assertEquals(x.length - w + 1, med.length);
+            for (int i = 0; i < med.length; ++i) {
+                double e = sortedQuantile(x, i, w, .5);
+                if (Double.isNaN(e)) {
+                    assertTrue(Double.isNaN(med[i]) && Double.isNaN(q[i]) && Double.isNaN(mad[i]));
+                } else {
+                    assertEquals(e, med[i], 1e-15);
+                    assertEquals(sortedQuantile(x, i, w, .9), q[i], 1e-12);
+                    assertEquals(sortedMad(x, i, w), mad[i], 1e-15);
+                }
+            }
+        }
+        assertEquals(0, OrderStatistics.movingMedian(x, 201).length);
+    }
+
+    @Test
+    @Ignore
+    public void stressTestMovingMedian() {
+        Random rnd = new Random(0);
+        double[] x = new double[5000];
+        for (int i = 0; i < x.length; ++i) {
+            x[i] = rnd.nextGaussian();
+        }
+        int w = 365;
+        for (int k = 0; k < 5; ++k) {
+            long t0 = System.currentTimeMillis();
+            double s = 0;
+            for (int i = 0; i + w <= x.length; ++i) {
+                s += sortedQuantile(x, i, w, .5);
+            }
+            long t1 = System.currentTimeMillis();
+            double[] med = OrderStatistics.movingMedian(x, w);
+            long t2 = System.currentTimeMillis();
+            System.out.println("sort: " + (t1 - t0) + " ms, moving: " + (t2 - t1) + " ms");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.fft;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class FastFourierTransformTest {
+
+    private static final int[] POW2 = {1, 2, 4, 8, 64, 1024};
+    private static final int[] OTHERS = {3, 5, 6, 7, 12, 100, 127, 365, 1000};
+
+    public FastFourierTransformTest() {
+    }
+
+    /**
+     * Direct O(n^2) transform
+     */
+    private static void dft(double[] re, double[] im, boolean inverse, double[] rre, double[] rim) {
+        int n = re.length;
+        double s = inverse ? 1 : -1;
+        for (int k = 0; k < n; ++k) {
+            double sr = 0, si = 0;
+            for (int t = 0; t < n; ++t) {
+                // k*t is reduced modulo n to keep the angle accurate
+                double a = s * 2 * Math.PI * (((long) k * t) % n) / n;
+                double c = Math.cos(a), d = Math.sin(a);
+                sr += re[t] * c - im[t] * d;
+                si += re[t] * d + im[t] * c;
+            }
+            rre[k] = sr;
+            rim[k] = si;
+        }
+    }
+
+    private static void check(int n, Random rnd) {
+        double[] re = new double[n], im = new double[n];
+        for (int i = 0; i < n; ++i) {
+            re[i] = rnd.nextGaussian();
+            im[i] = rnd.nextGaussian();
+        }
+        FastFourierTransform fft = new FastFourierTransform(n);
+        assertEquals(n, fft.getLength());
+        double eps = 1e-9 * Math.sqrt(n);
+        // forward
+        double[] dre = new double[n], dim = new double[n];
+        dft(re, im, false, dre, dim);
+        double[] fre = re.clone(), fim = im.clone();
+        fft.transform(fre, fim);
+        assertArrayEquals(dre, fre, eps);
+        assertArrayEquals(dim, fim, eps);
+        // backward
+        dft(re, im, true, dre, dim);
+        double[] bre = re.clone(), bim = im.clone();
+        fft.backTransform(bre, bim);
+        assertArrayEquals(dre, bre, eps);
+        assertArrayEquals(dim, bim, eps);
+        // round trip
+        fft.backTransform(fre, fim);
+        for (int i = 0; i < n; ++i) {
+            assertEquals(re[i], fre[i] / n, eps);
+            assertEquals(im[i], fim[i] / n, eps);
+        }
+    }
+
+    @Test
+    public void testPowerOf2() {
+        Random rnd = new Random(0);
+        for (int n : POW2) {
+            check(n, rnd);
+        }
+    }
+
+    @Test
+    public void testOtherLengths() {
+        Random rnd = new Random(1);
+        for (int n : OTHERS) {
+            check(n, rnd);
+        }
+    }
+
+    @Test
+    public void testSquaredModulus() {
+        Random rnd = new Random(2);
+        for (int n : new int[]{16, 17}) {
+            FastFourierTransform fft = new FastFourierTransform(n);
+            // 5 values of x (from position 2), padded with zeroes
+            double[] x = new double[8];
+            for (int i = 0; i < x.length; ++i) {
+                x[i] = rnd.nextGaussian();
+            }
+            double[] re = new double[n], im = new double[n], dre = new double[n], dim = new double[n];
+            System.arraycopy(x, 2, re, 0, 5);
+            dft(re, im, false, dre, dim);
+            double[] q = new double[n / 2 + 1];
+            fft.squaredModulus(x, 2, 5, q);
+            for (int k = 0; k < q.length; ++k) {
+                assertEquals(dre[k] * dre[k] + dim[k] * dim[k], q[k], 1e-9);
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLength() {
+        new FastFourierTransform(0);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class MatrixReaderTest {
+
+    public MatrixReaderTest() {
+    }
+
+    private static String format(double x, int k) {
+        switch (k % 4) {
+            case 0:
+                return Double.toString(x);
+            case 1:
+                return String.format(Locale.ROOT, "%.6f", x);
+            case 2:
+                return String.format(Locale.ROOT, "%.12e", x);
+            default:
+                return Long.toString(Math.round(x * 1000));
+        }
+    }
+
+    private static String text(double[][] x, String sep) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < x.length; ++i) {
+            for (int j = 0; j < x[i].length; ++j) {
+                if (j > 0) {
+                    builder.append(sep);
+                }
+                builder.append(format(x[i][j], i + j));
+            }
+            builder.append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        return builder.toString();
+    }
+
+    private static double[][] random(int nrows, int ncols) {
+        Random rnd = new Random(0);
+        double[][] x = new double[nrows][ncols];
+        for (int i = 0; i < nrows; ++i) {
+            for (int j = 0; j < ncols; ++j) {
+                x[i][j] = rnd.nextGaussian() * Math.pow(10, rnd.nextInt(20) - 10);
+            }
+        }
+        return x;
+    }
+
+    private static Matrix read(String text, boolean parallel) {
+        return MatrixReader.read(ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII)), parallel);
+    }
+
+    private static void check(double[][] x, Matrix m) {
+        assertEquals(x.length, m.getRowsCount());
+        assertEquals(x[0].length, m.getColumnsCount());
+        for (int i = 0; i < x.length; ++i) {
+            for (int j = 0; j < x[i].length; ++j) {
+                // same result as the standard conversion
+                assertEquals(Double.parseDouble(format(x[i][j], i + j)), m.get(i, j), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        double[][] x = random(200, 7);
+        for (String sep : new String[]{" ", "\t", ",", ", ", "  ,\t"}) {
+            check(x, read(text(x, sep), false));
+        }
+        Path tmp = Files.createTempFile("matrix", ".txt");
+        try {
+            Files.write(tmp, ("\n  " + text(x, " ") + "\n\n").getBytes(StandardCharsets.US_ASCII));
+            check(x, MatrixReader.read(tmp));
+        } finally {
+            Files.delete(tmp);
+        }
+        Matrix m = read("1 NaN -Infinity\n+2 .5 1e-3", false);
+        assertTrue(Double.isNaN(m.get(0, 1)));
+        assertEquals(Double.NEGATIVE_INFINITY, m.get(0, 2), 0);
+        assertEquals(.001, m.get(1, 2), 0);
+    }
+
+    @Test
+    public void testInvalid() {
+        assertNull(read("", false));
+        assertNull(read("1 2\n3\n", false));
+        assertNull(read("1 2\n3 4 5\n", false));
+        assertNull(read("1 2\n3 x\n", false));
+        assertNull(read("1,,2\n", false));
+        assertNull(read("1 2e\n", false));
+    }
+
+    @Test
+    public void testParallel() {
+        // large enough to be split in blocks
+        double[][] x = random(60000, 5);
+        String text = text(x, ",");
+        Matrix m = read(text, true);
+        check(x, m);
+        assertArrayEquals(read(text, false).internalStorage(), m.internalStorage(), 0);
+    }
+
+    @Test
+    @Ignore
+    public void stressTestRead() throws ParseException {
+        String text = text(random(200000, 10), " ");
+        for (int k = 0; k < 5; ++k) {
+            long t0 = System.currentTimeMillis();
+            // previous implementation (split and NumberFormat)
+            List<double[]> rows = new ArrayList<>();
+            for (String line : text.split("\r?\n")) {
+                String[] items = line.split("\\s+|,");
+                double[] row = new double[items.length];
+                NumberFormat fmt = NumberFormat.getNumberInstance(Locale.ROOT);
+                for (int i = 0; i < row.length; ++i) {
+                    row[i] = fmt.parse(items[i]).doubleValue();
+                }
+                rows.add(row);
+            }
+            long t1 = System.currentTimeMillis();
+            read(text, false);
+            long t2 = System.currentTimeMillis();
+            read(text, true);
+            long t3 = System.currentTimeMillis();
+            System.out.println("split: " + (t1 - t0) + " ms, reader: " + (t2 - t1) + " ms, parallel reader: " + (t3 - t2) + " ms");
+        }
+    }
+}
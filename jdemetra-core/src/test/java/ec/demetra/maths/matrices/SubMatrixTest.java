@@ -103,4 +103,140 @@ public class SubMatrixTest {
         }
     }
 
+    private static Matrix random(int m, int n, Random rnd) {
+        Matrix M = Matrix.of(m, n);
+        M.all().set((r, c) -> rnd.nextDouble() - .5);
+        return M;
+    }
+
+    private static double naive(SubMatrix A, SubMatrix B, int i, int j) {
+        double s = 0;
+        for (int k = 0; k < A.getColumnsCount(); ++k) {
+            s += A.get(i, k) * B.get(k, j);
+        }
+        return s;
+    }
+
+    @Test
+    public void testGemm() {
+        Random rnd = new Random(0);
+        for (int[] dims : new int[][]{{3, 4, 5}, {17, 9, 13}, {150, 140, 131}}) {
+            int m = dims[0], n = dims[1], k = dims[2];
+            Matrix A = random(m, k, rnd), B = random(k, n, rnd);
+            // transposed copies, for the strided paths
+            Matrix At = random(k, m, rnd), Bt = random(n, k, rnd);
+            At.all().set((r, c) -> A.all().get(c, r));
+            Bt.all().set((r, c) -> B.all().get(c, r));
+            Matrix C1 = Matrix.of(m, n), C2 = Matrix.of(m, n), C3 = Matrix.of(n, m);
+            C1.all().product(A.all(), B.all());
+            C2.all().product(At.all().transpose(), Bt.all().transpose());
+            C3.all().transpose().product(A.all(), B.all());
+            for (int i = 0; i < m; ++i) {
+                for (int j = 0; j < n; ++j) {
+                    double c = naive(A.all(), B.all(), i, j);
+                    assertEquals(c, C1.all().get(i, j), 1e-12);
+                    assertEquals(c, C2.all().get(i, j), 1e-12);
+                    assertEquals(c, C3.all().get(j, i), 1e-12);
+                }
+            }
+            C1.all().addProduct(A.all(), B.all());
+            assertEquals(2 * C2.all().get(m - 1, n - 1), C1.all().get(m - 1, n - 1), 1e-12);
+        }
+    }
+
+    @Test
+    public void testSyrk() {
+        Random rnd = new Random(1);
+        int n = 140, k = 150;
+        Matrix A = random(n, k, rnd);
+        Matrix C1 = Matrix.square(n), C2 = Matrix.square(k);
+        MatrixKernels.syrk(C1.all(), A.all(), false);
+        MatrixKernels.syrk(C2.all(), A.all().transpose(), false);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                assertEquals(naive(A.all(), A.all().transpose(), i, j), C1.all().get(i, j), 1e-10);
+            }
+        }
+        for (int i = 0; i < k; ++i) {
+            for (int j = 0; j <= i; ++j) {
+                double c = naive(A.all().transpose(), A.all(), i, j);
+                assertEquals(c, C2.all().get(i, j), 1e-10);
+                assertEquals(C2.all().get(i, j), C2.all().get(j, i), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testTrsm() {
+        Random rnd = new Random(2);
+        int n = 150, m = 7;
+        Matrix L = random(n, n, rnd);
+        L.all().set((r, c) -> r < c ? 0 : (r == c ? 1 + rnd.nextDouble() : L.all().get(r, c) / n));
+        Matrix X = random(n, m, rnd);
+        Matrix B = Matrix.of(n, m), Bt = Matrix.of(n, m);
+        B.all().product(L.all(), X.all());
+        Bt.all().product(L.all().transpose(), X.all());
+        MatrixKernels.trsm(L.all(), true, B.all());
+        MatrixKernels.trsm(L.all().transpose(), false, Bt.all());
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < m; ++j) {
+                assertEquals(X.all().get(i, j), B.all().get(i, j), 1e-9);
+                assertEquals(X.all().get(i, j), Bt.all().get(i, j), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        Random rnd = new Random(3);
+        Matrix A = random(10, 10, rnd), B = random(10, 10, rnd);
+        Matrix C = Matrix.square(10);
+        C.all().add(A.all());
+        C.all().add(B.all().transpose());
+        C.all().transpose().add(A.all().transpose());
+        for (int i = 0; i < 10; ++i) {
+            for (int j = 0; j < 10; ++j) {
+                assertEquals(2 * A.all().get(i, j) + B.all().get(j, i), C.all().get(i, j), 1e-15);
+            }
+        }
+    }
+
+    @Test
+    @Ignore
+    public void stressTestKernels() {
+        Random rnd = new Random(0);
+        for (int n : new int[]{10, 20, 50, 100, 200, 500}) {
+            int K = Math.max(1, 20000000 / (n * n * n));
+            double[] a = new double[n * n], b = new double[n * n];
+            for (int i = 0; i < a.length; ++i) {
+                a[i] = rnd.nextDouble();
+                b[i] = rnd.nextDouble();
+            }
+            Matrix A = Matrix.of(a, n), B = Matrix.of(b, n), C = Matrix.square(n);
+            ec.tstoolkit.maths.matrices.Matrix OA = new ec.tstoolkit.maths.matrices.Matrix(a.clone(), n, n);
+            ec.tstoolkit.maths.matrices.Matrix OB = new ec.tstoolkit.maths.matrices.Matrix(b.clone(), n, n);
+            ec.tstoolkit.maths.matrices.Matrix OC = new ec.tstoolkit.maths.matrices.Matrix(n, n);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < K; ++i) {
+                OC.all().product(OA.all(), OB.all());
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < K; ++i) {
+                C.all().product(A.all(), B.all());
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < K; ++i) {
+                ec.tstoolkit.maths.matrices.SymmetricMatrix.XXt(OA);
+            }
+            long t3 = System.nanoTime();
+            for (int i = 0; i < K; ++i) {
+                MatrixKernels.syrk(C.all(), A.all(), false);
+            }
+            long t4 = System.nanoTime();
+            System.out.println("n=" + n + " (x" + K + ")");
+            System.out.println("gemm: old " + (t1 - t0) / 1000000 + " ms, new " + (t2 - t1) / 1000000 + " ms");
+            System.out.println("syrk: old " + (t3 - t2) / 1000000 + " ms, new " + (t4 - t3) / 1000000 + " ms");
+        }
+    }
+
 }
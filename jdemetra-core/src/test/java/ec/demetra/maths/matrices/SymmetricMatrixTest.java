@@ -0,0 +1,118 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices;
+
+import ec.demetra.data.DataBlock;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class SymmetricMatrixTest {
+
+    public SymmetricMatrixTest() {
+    }
+
+    private static Matrix randomPd(int n, Random rnd) {
+        Matrix X = Matrix.of(n, n + 5);
+        X.all().set((r, c) -> rnd.nextDouble() - .5);
+        return SymmetricMatrix.XXt(X.all());
+    }
+
+    @Test
+    public void testCholesky() {
+        Random rnd = new Random(0);
+        int n = 100;
+        Matrix S = randomPd(n, rnd);
+        Matrix L = S.deepClone();
+        SymmetricMatrix.lcholesky(L.all());
+        assertEquals(0, L.get(0, n - 1), 0);
+        Matrix LLt = SymmetricMatrix.XXt(L.all());
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                assertEquals(S.get(i, j), LLt.get(i, j), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testInverse() {
+        Random rnd = new Random(1);
+        int n = 80;
+        Matrix S = randomPd(n, rnd);
+        Matrix I = SymmetricMatrix.inverse(S.all());
+        Matrix P = Matrix.square(n);
+        P.all().product(S.all(), I.all());
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                assertEquals(i == j ? 1 : 0, P.get(i, j), 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void testQuadraticForms() {
+        Random rnd = new Random(2);
+        int n = 20;
+        Matrix S = randomPd(n, rnd);
+        double[] xa = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xa[i] = rnd.nextDouble();
+        }
+        DataBlock x = DataBlock.of(xa);
+        Matrix X = Matrix.of(xa.clone(), n);
+        Matrix q = Matrix.square(1);
+        SymmetricMatrix.quadraticFormT(S.all(), X.all().transpose(), q.all());
+        assertEquals(q.get(0, 0), SymmetricMatrix.quadraticForm(S.all(), x), 1e-12);
+
+        Matrix S2 = S.deepClone();
+        SymmetricMatrix.addXaXt(S2.all(), -2, x);
+        assertEquals(q.get(0, 0) - 2 * x.ssq() * x.ssq(), SymmetricMatrix.quadraticForm(S2.all(), x), 1e-9);
+        assertEquals(S2.get(3, 5), S2.get(5, 3), 0);
+    }
+
+    @Test
+    public void testTriangular() {
+        Random rnd = new Random(3);
+        int n = 30;
+        Matrix L = randomPd(n, rnd);
+        SymmetricMatrix.lcholesky(L.all());
+        Matrix Li = LowerTriangularMatrix.inverse(L.all());
+        Matrix Ui = UpperTriangularMatrix.inverse(L.all().transpose());
+        Matrix P = Matrix.square(n);
+        P.all().product(L.all(), Li.all());
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                assertEquals(i == j ? 1 : 0, P.get(i, j), 1e-9);
+                assertEquals(Li.get(i, j), Ui.get(j, i), 1e-12);
+            }
+        }
+        double[] xa = new double[n];
+        for (int i = 0; i < n; ++i) {
+            xa[i] = rnd.nextDouble();
+        }
+        DataBlock x = DataBlock.of(xa), y = DataBlock.of(xa.clone());
+        LowerTriangularMatrix.rsolve(L.all(), y);
+        LowerTriangularMatrix.lsolve(L.all(), y);
+        // y = (L L')^-1 x
+        Matrix S = SymmetricMatrix.XXt(L.all());
+        assertEquals(x.get(7), S.all().row(7).dot(y), 1e-9);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices.implementation;
+
+import ec.demetra.data.DataBlock;
+import ec.demetra.maths.matrices.Matrix;
+import ec.demetra.maths.matrices.SymmetricMatrix;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class HouseholderQrTest {
+
+    public HouseholderQrTest() {
+    }
+
+    @Test
+    public void testLeastSquares() {
+        Random rnd = new Random(0);
+        int n = 50, m = 6;
+        Matrix X = Matrix.of(n, m);
+        X.all().set((r, c) -> rnd.nextDouble());
+        DataBlock y = DataBlock.create(n);
+        y.set(() -> rnd.nextDouble());
+        HouseholderQr qr = new HouseholderQr();
+        qr.decompose(X.all());
+        assertTrue(qr.isFullRank());
+        DataBlock b = DataBlock.create(m), res = DataBlock.create(n - m);
+        qr.leastSquares(y, b, res);
+        // normal equations: X'(y - Xb) = 0
+        DataBlock e = DataBlock.create(n);
+        for (int i = 0; i < n; ++i) {
+            e.set(i, y.get(i) - X.all().row(i).dot(b));
+        }
+        for (int j = 0; j < m; ++j) {
+            assertEquals(0, X.all().column(j).dot(e), 1e-12);
+        }
+        assertEquals(e.ssq(), res.ssq(), 1e-12);
+        // R'R = X'X
+        Matrix R = qr.r();
+        Matrix RtR = SymmetricMatrix.XtX(R.all());
+        Matrix XtX = SymmetricMatrix.XtX(X.all());
+        assertEquals(XtX.get(2, 4), RtR.get(2, 4), 1e-12);
+    }
+
+    @Test
+    public void testRankDeficient() {
+        Matrix X = Matrix.of(10, 3);
+        X.all().set((r, c) -> c == 2 ? 2 * r : (c == 1 ? r : 1));
+        HouseholderQr qr = new HouseholderQr();
+        qr.decompose(X.all());
+        assertFalse(qr.isFullRank());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.maths.matrices.implementation;
+
+import ec.demetra.maths.matrices.IEigenSystem;
+import ec.tstoolkit.maths.Complex;
+import ec.tstoolkit.maths.matrices.Matrix;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class TridiagonalEigenSystemTest {
+
+    public TridiagonalEigenSystemTest() {
+    }
+
+    private static Matrix random(int n, Random rnd) {
+        Matrix m = new Matrix(n, n);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j <= i; ++j) {
+                double x = rnd.nextDouble() - .5;
+                m.set(i, j, x);
+                m.set(j, i, x);
+            }
+        }
+        return m;
+    }
+
+    private static double[] sortedValues(Matrix m) {
+        Complex[] ev = EigenSystem.create(m, true).getEigenValues();
+        double[] v = new double[ev.length];
+        for (int i = 0; i < v.length; ++i) {
+            v[i] = ev[i].getRe();
+        }
+        Arrays.sort(v);
+        return v;
+    }
+
+    // max |A v - lambda v| and max |v(i)'v(j) - delta(i,j)|
+    private static void checkPairs(Matrix m, IEigenSystem es, double eps) {
+        int n = m.getRowsCount();
+        Complex[] ev = es.getEigenValues();
+        for (int l = 0; l < ev.length; ++l) {
+            double[] v = es.getEigenVector(l);
+            for (int i = 0; i < n; ++i) {
+                double s = 0;
+                for (int j = 0; j < n; ++j) {
+                    s += m.get(i, j) * v[j];
+                }
+                assertEquals(ev[l].getRe() * v[i], s, eps);
+            }
+            for (int q = 0; q <= l; ++q) {
+                double[] w = es.getEigenVector(q);
+                double s = 0;
+                for (int i = 0; i < n; ++i) {
+                    s += v[i] * w[i];
+                }
+                assertEquals(q == l ? 1 : 0, s, eps);
+            }
+        }
+    }
+
+    @Test
+    public void testLargest() {
+        Random rnd = new Random(0);
+        int n = 60, k = 6;
+        Matrix m = random(n, rnd);
+        double[] all = sortedValues(m);
+        IEigenSystem es = EigenSystem.largest(m, k);
+        es.setComputingEigenVectors(true);
+        Complex[] ev = es.getEigenValues();
+        assertEquals(k, ev.length);
+        for (int i = 0; i < k; ++i) {
+            assertEquals(all[n - 1 - i], ev[i].getRe(), 1e-12);
+        }
+        checkPairs(m, es, 1e-10);
+    }
+
+    @Test
+    public void testSmallest() {
+        Random rnd = new Random(1);
+        int n = 40, k = 40;
+        Matrix m = random(n, rnd);
+        double[] all = sortedValues(m);
+        IEigenSystem es = EigenSystem.smallest(m, k);
+        es.setComputingEigenVectors(true);
+        Complex[] ev = es.getEigenValues();
+        for (int i = 0; i < k; ++i) {
+            assertEquals(all[i], ev[i].getRe(), 1e-12);
+        }
+        checkPairs(m, es, 1e-10);
+    }
+
+    @Test
+    public void testMultiple() {
+        // I + u u' : eigenvalue 1 with multiplicity n-1
+        int n = 20;
+        Matrix m = new Matrix(n, n);
+        for (int i = 0; i < n; ++i) {
+            for (int j = 0; j < n; ++j) {
+                m.set(i, j, (i == j ? 1 : 0) + (i + 1) * (j + 1) * .01);
+            }
+        }
+        IEigenSystem es = EigenSystem.smallest(m, 5);
+        es.setComputingEigenVectors(true);
+        for (Complex c : es.getEigenValues()) {
+            assertEquals(1, c.getRe(), 1e-12);
+        }
+        checkPairs(m, es, 1e-10);
+    }
+
+    @Test
+    @Ignore
+    public void stressTestPartial() {
+        Random rnd = new Random(0);
+        int n = 300, k = 5;
+        Matrix m = random(n, rnd);
+        for (int r = 0; r < 5; ++r) {
+            long t0 = System.currentTimeMillis();
+            for (int i = 0; i < 10; ++i) {
+                IEigenSystem es = EigenSystem.create(m, true);
+                es.setComputingEigenVectors(true);
+                es.compute();
+            }
+            long t1 = System.currentTimeMillis();
+            for (int i = 0; i < 10; ++i) {
+                IEigenSystem es = EigenSystem.largest(m, k);
+                es.setComputingEigenVectors(true);
+                es.compute();
+            }
+            long t2 = System.currentTimeMillis();
+            System.out.println("full: " + (t1 - t0) + " ms, partial: " + (t2 - t1) + " ms");
+        }
+    }
+}
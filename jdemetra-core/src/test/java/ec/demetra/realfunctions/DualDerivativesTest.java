@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.maths.matrices.Matrix;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class DualDerivativesTest {
+
+    public DualDerivativesTest() {
+    }
+
+    // Rosenbrock function of x=exp(p)
+    private static class Fn implements IDualFunction {
+
+        private final DefaultDomain domain = new DefaultDomain(2, 1e-6);
+        private final boolean dual;
+
+        Fn(boolean dual) {
+            this.dual = dual;
+        }
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public IFunctionPoint evaluate(IReadDataBlock p) {
+            double x = Math.exp(p.get(0)), y = Math.exp(p.get(1));
+            double f = (1 - x) * (1 - x) + 100 * (y - x * x) * (y - x * x);
+            return new IFunctionPoint() {
+                @Override
+                public IFunction getFunction() {
+                    return Fn.this;
+                }
+
+                @Override
+                public IFunctionDerivatives getDerivatives() {
+                    return new DualDerivatives(this, Fn.this);
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+
+                @Override
+                public double getValue() {
+                    return f;
+                }
+            };
+        }
+
+        @Override
+        public DualDataBlock dualEvaluate(DualDataBlock p) {
+            if (!dual) {
+                return null;
+            }
+            DualDataBlock z = p.apply(Math::exp, Math::exp);
+            double x = z.get(0), y = z.get(1);
+            double f = (1 - x) * (1 - x) + 100 * (y - x * x) * (y - x * x);
+            double dx = -2 * (1 - x) - 400 * x * (y - x * x), dy = 200 * (y - x * x);
+            return DualDataBlock.scalar(f, new ReadDataBlock(new double[]{dx, dy}), z);
+        }
+    }
+
+    @Test
+    public void testGradient() {
+        double p0 = -.3, p1 = .2;
+        IFunctionPoint pt = new Fn(true).evaluate(new ReadDataBlock(new double[]{p0, p1}));
+        DualDerivatives d = (DualDerivatives) pt.getDerivatives();
+        assertFalse(d.isNumerical());
+        double x = Math.exp(p0), y = Math.exp(p1);
+        double g0 = (-2 * (1 - x) - 400 * x * (y - x * x)) * x, g1 = 200 * (y - x * x) * y;
+        IReadDataBlock g = d.getGradient();
+        assertEquals(g0, g.get(0), 1e-12 * Math.abs(g0));
+        assertEquals(g1, g.get(1), 1e-12 * Math.abs(g1));
+
+        Matrix h = new Matrix(2, 2);
+        d.getHessian(h.all());
+        double h11 = 200 * y * y + 200 * (y - x * x) * y;
+        assertEquals(h11, h.get(1, 1), 1e-3 * h11);
+        assertEquals(h.get(0, 1), h.get(1, 0), 0);
+    }
+
+    @Test
+    public void testNumericalFallback() {
+        IReadDataBlock p = new ReadDataBlock(new double[]{-.3, .2});
+        DualDerivatives d = (DualDerivatives) new Fn(false).evaluate(p).getDerivatives();
+        assertTrue(d.isNumerical());
+        IReadDataBlock g = new Fn(true).evaluate(p).getDerivatives().getGradient();
+        assertEquals(g.get(0), d.getGradient().get(0), 1e-3 * Math.abs(g.get(0)));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class GridSearchTest {
+
+    public GridSearchTest() {
+    }
+
+    // f(x) = sum((x(i)-c(i))^2), x in [-1, 1]
+    private static class Fn implements IFunction {
+
+        private final DefaultDomain domain;
+        final AtomicInteger nevals = new AtomicInteger();
+
+        Fn(int n) {
+            domain = new DefaultDomain(n, 1e-7) {
+                @Override
+                public double lbound(int idx) {
+                    return -1;
+                }
+
+                @Override
+                public double ubound(int idx) {
+                    return 1;
+                }
+            };
+        }
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public IFunctionPoint evaluate(IReadDataBlock p) {
+            nevals.incrementAndGet();
+            double s = 0;
+            for (int i = 0; i < p.getLength(); ++i) {
+                double z = p.get(i) - .4 + .2 * i;
+                s += z * z;
+            }
+            final double f = s;
+            return new IFunctionPoint() {
+                @Override
+                public IFunction getFunction() {
+                    return Fn.this;
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+
+                @Override
+                public double getValue() {
+                    return f;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testBrent() {
+        Fn gfn = new Fn(1), bfn = new Fn(1);
+        GridSearch grid = new GridSearch();
+        assertTrue(grid.minimize(gfn.evaluate(new SingleParameter(0))));
+        GridSearch brent = new GridSearch();
+        brent.useBrentRefinement(true);
+        brent.useParallelEvaluations(true);
+        assertTrue(brent.minimize(bfn.evaluate(new SingleParameter(0))));
+        assertEquals(.4, grid.getResult().getParameters().get(0), 1e-5);
+        assertEquals(.4, brent.getResult().getParameters().get(0), 1e-5);
+        assertTrue(bfn.nevals.get() < gfn.nevals.get());
+    }
+
+    @Test
+    public void testParallelGrid() {
+        // the searches re-use the same pool
+        for (int i = 0; i < 5; ++i) {
+            GridSearch grid = new GridSearch();
+            grid.setInitialGridCount(50);
+            grid.setGridCount(20);
+            grid.useParallelEvaluations(true);
+            assertTrue(grid.minimize(new Fn(1).evaluate(new SingleParameter(0))));
+            assertEquals(.4, grid.getResult().getParameters().get(0), 1e-5);
+        }
+    }
+
+    @Test
+    public void testCoarseGrid() {
+        CoarseGridSearch search = new CoarseGridSearch();
+        search.setGridCount(9);
+        search.useParallelEvaluations(true);
+        IFunctionPoint pt = search.search(new Fn(3));
+        assertEquals(729, search.getEvaluationsCount());
+        // grid values are -.8, -.6, ..., .8
+        IReadDataBlock p = pt.getParameters();
+        assertEquals(.4, p.get(0), 1e-9);
+        assertEquals(.2, p.get(1), 1e-9);
+        assertEquals(0, p.get(2), 1e-9);
+    }
+
+    @Test
+    public void testCoarseGridDomain() {
+        // the points with x(0) + x(1) > 0 are outside the domain
+        Fn fn = new Fn(2) {
+            final DefaultDomain domain = new DefaultDomain(2, 1e-7) {
+                @Override
+                public boolean checkBoundaries(IReadDataBlock p) {
+                    return p.get(0) + p.get(1) <= 1e-9;
+                }
+
+                @Override
+                public double lbound(int idx) {
+                    return -1;
+                }
+
+                @Override
+                public double ubound(int idx) {
+                    return 1;
+                }
+            };
+
+            @Override
+            public IParametersDomain getDomain() {
+                return domain;
+            }
+        };
+        for (boolean parallel : new boolean[]{false, true}) {
+            fn.nevals.set(0);
+            CoarseGridSearch search = new CoarseGridSearch();
+            search.setGridCount(9);
+            search.useParallelEvaluations(parallel);
+            IReadDataBlock p = search.search(fn).getParameters();
+            // 45 points of the 9 x 9 grid are in the domain
+            assertEquals(45, search.getEvaluationsCount());
+            assertEquals(45, fn.nevals.get());
+            assertEquals(0, p.get(0) + p.get(1), 1e-9);
+        }
+    }
+}
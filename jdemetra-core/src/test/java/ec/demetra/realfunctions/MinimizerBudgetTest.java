@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.demetra.realfunctions.riso.LbfgsMinimizer;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class MinimizerBudgetTest {
+
+    public MinimizerBudgetTest() {
+    }
+
+    // Rosenbrock function
+    private static class Fn implements IFunction {
+
+        private final DefaultDomain domain = new DefaultDomain(2, 1e-6);
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public IFunctionPoint evaluate(IReadDataBlock p) {
+            double x = p.get(0), y = p.get(1);
+            double f = (1 - x) * (1 - x) + 100 * (y - x * x) * (y - x * x);
+            return new IFunctionPoint() {
+                @Override
+                public IFunction getFunction() {
+                    return Fn.this;
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+
+                @Override
+                public double getValue() {
+                    return f;
+                }
+            };
+        }
+    }
+
+    private static IFunctionPoint start() {
+        return new Fn().evaluate(new ReadDataBlock(new double[]{-1.2, 1}));
+    }
+
+    @Test
+    public void testUnlimited() {
+        MinimizerBudget budget = new MinimizerBudget();
+        IFunctionPoint rslt = budget.minimize(new LbfgsMinimizer(), start());
+        assertFalse(budget.isExhausted());
+        assertEquals(1, rslt.getParameters().get(0), 1e-4);
+        assertTrue(budget.getEvaluationsCount() == 0);
+    }
+
+    @Test
+    public void testEvaluations() {
+        MinimizerBudget budget = new MinimizerBudget(0, 40);
+        IFunctionPoint start = start();
+        IFunctionPoint rslt = budget.minimize(new LbfgsMinimizer(), start);
+        assertEquals(MinimizerBudget.Status.EvaluationsExhausted, budget.getStatus());
+        assertTrue(rslt.getValue() < start.getValue());
+        assertEquals(budget.getBestObjective(), rslt.getValue(), 0);
+    }
+
+    @Test
+    public void testCancel() {
+        MinimizerBudget budget = new MinimizerBudget(60000, 0);
+        budget.cancel();
+        IFunctionPoint start = start();
+        IFunctionPoint rslt = budget.minimize(new LbfgsMinimizer(), start);
+        assertEquals(MinimizerBudget.Status.Cancelled, budget.getStatus());
+        assertSame(start, rslt);
+        // a cancelled budget stays cancelled
+        budget.start();
+        assertTrue(budget.isExhausted());
+    }
+
+    @Test
+    public void testDerivatives() {
+        // the stop exceptions raised during the computation of the numerical
+        // derivatives are not taken as invalid points
+        IFunctionPoint start = start();
+        IFunction cancelled = new IFunction() {
+            @Override
+            public IFunctionPoint evaluate(IReadDataBlock parameters) {
+                throw new FunctionException(FunctionException.CANCEL_ERR);
+            }
+
+            @Override
+            public IParametersDomain getDomain() {
+                return start.getFunction().getDomain();
+            }
+        };
+        IFunctionPoint pt = new IFunctionPoint() {
+            @Override
+            public IFunction getFunction() {
+                return cancelled;
+            }
+
+            @Override
+            public IReadDataBlock getParameters() {
+                return start.getParameters();
+            }
+
+            @Override
+            public double getValue() {
+                return start.getValue();
+            }
+        };
+        for (boolean mt : new boolean[]{false, true}) {
+            try {
+                new NumericalDerivatives(pt, true, mt);
+                fail();
+            } catch (FunctionException err) {
+                assertEquals(FunctionException.CANCEL_ERR, err.getMessage());
+            }
+        }
+    }
+}
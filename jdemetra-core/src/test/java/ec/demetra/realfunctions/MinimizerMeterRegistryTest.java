@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class MinimizerMeterRegistryTest {
+
+    public MinimizerMeterRegistryTest() {
+    }
+
+    // e(i) = x(i)^2 - i - 1
+    private static class Fn implements ISsqFunction {
+
+        private final DefaultDomain domain = new DefaultDomain(3, 1e-6);
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public ISsqFunctionPoint ssqEvaluate(IReadDataBlock parameters) {
+            final DataBlock p = new DataBlock(parameters);
+            final DataBlock e = new DataBlock(p.getLength());
+            for (int i = 0; i < e.getLength(); ++i) {
+                e.set(i, p.get(i) * p.get(i) - i - 1);
+            }
+            return new ISsqFunctionPoint() {
+                @Override
+                public ISsqFunction getSsqFunction() {
+                    return Fn.this;
+                }
+
+                @Override
+                public IReadDataBlock getE() {
+                    return e;
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testLevenbergMarquardt() {
+        MinimizerMeterRegistry registry = new MinimizerMeterRegistry();
+        List<MinimizerIteration> iterations = new ArrayList<>();
+        IMinimizerTelemetry meters = registry.telemetry("test");
+        LevenbergMarquardtMinimzer lm = new LevenbergMarquardtMinimzer();
+        lm.setTelemetry(new IMinimizerTelemetry() {
+            @Override
+            public void iteration(MinimizerIteration iteration) {
+                iterations.add(iteration);
+                meters.iteration(iteration);
+            }
+
+            @Override
+            public void end(MinimizerIteration last, boolean converged) {
+                meters.end(last, converged);
+            }
+        });
+        Fn fn = new Fn();
+        assertTrue(lm.minimize(fn.ssqEvaluate(new DataBlock(new double[]{2, 2, 2}))));
+        // the result is the point of the function, not the tracked point
+        assertFalse(lm.getResult().getClass().getName().startsWith(MinimizerTracker.class.getName()));
+        assertEquals(0, lm.getObjective(), 1e-9);
+        assertFalse(iterations.isEmpty());
+        MinimizerIteration last = iterations.get(iterations.size() - 1);
+        assertTrue(last.getEvaluationsCount() > iterations.size());
+        assertTrue(last.getStepNorm() >= 0);
+        assertEquals(iterations.size(), registry.get(MinimizerMeterRegistry.ITERATIONS, "LevenbergMarquardt", "test"));
+        assertEquals(1, registry.total(MinimizerMeterRegistry.RUNS));
+        assertEquals(0, registry.total(MinimizerMeterRegistry.FAILURES));
+        // exemplar keeps the telemetry
+        assertSame(lm.getTelemetry(), lm.exemplar().getTelemetry());
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.demetra.realfunctions.bfgs.Bfgs;
+import ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class MultiStartMinimizerTest {
+
+    public MultiStartMinimizerTest() {
+    }
+
+    // e = (x^2-1, .2*(x-1)): global minimum in 1, local minimum near -1
+    private static class Fn implements IFunction, ISsqFunction {
+
+        private final DefaultDomain domain = new DefaultDomain(1, 1e-6);
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public Point evaluate(IReadDataBlock parameters) {
+            return new Point(this, new DataBlock(parameters));
+        }
+
+        @Override
+        public Point ssqEvaluate(IReadDataBlock parameters) {
+            return evaluate(parameters);
+        }
+    }
+
+    private static class Point implements IFunctionPoint, ISsqFunctionPoint {
+
+        private final Fn fn;
+        private final DataBlock p, e;
+
+        Point(Fn fn, DataBlock p) {
+            this.fn = fn;
+            this.p = p;
+            double x = p.get(0);
+            e = new DataBlock(new double[]{x * x - 1, .2 * (x - 1)});
+        }
+
+        @Override
+        public IFunction getFunction() {
+            return fn;
+        }
+
+        @Override
+        public ISsqFunction getSsqFunction() {
+            return fn;
+        }
+
+        @Override
+        public IReadDataBlock getE() {
+            return e;
+        }
+
+        @Override
+        public IReadDataBlock getParameters() {
+            return p;
+        }
+
+        @Override
+        public double getValue() {
+            return e.ssq();
+        }
+    }
+
+    // same function, which can only be evaluated near a given point
+    private static class LocalFn extends Fn {
+
+        private final double x0;
+
+        LocalFn(double x0) {
+            this.x0 = x0;
+        }
+
+        @Override
+        public Point evaluate(IReadDataBlock parameters) {
+            if (Math.abs(parameters.get(0) - x0) > 1e-3) {
+                throw new FunctionException("Invalid parameters");
+            }
+            return super.evaluate(parameters);
+        }
+    }
+
+    private static List<IReadDataBlock> starts(double... x) {
+        DataBlock[] s = new DataBlock[x.length];
+        for (int i = 0; i < x.length; ++i) {
+            s[i] = new DataBlock(new double[]{x[i]});
+        }
+        return Arrays.asList(s);
+    }
+
+    @Test
+    public void testCancellation() {
+        MultiStartMinimizer ms = new MultiStartMinimizer(new ProxyMinimizer(new LevenbergMarquardtMinimzer()));
+        ms.setThreadsCount(1);
+        IFunctionPoint rslt = ms.minimize(new Fn(), starts(-2, 2, 1.5, -1.5));
+        assertTrue(rslt instanceof Point);
+        assertEquals(0, rslt.getValue(), 1e-9);
+        assertTrue(ms.getBestStart() == 1 || ms.getBestStart() == 2);
+        MultiStartMinimizer.Run[] runs = ms.getRuns();
+        // local minimum
+        assertTrue(runs[0].hasConverged());
+        assertTrue(runs[0].getObjective() > .1);
+        // two runs confirmed the best objective: the last one is cancelled
+        assertTrue(runs[3].isCancelled());
+    }
+
+    @Test
+    public void testParallel() {
+        MultiStartMinimizer ms = new MultiStartMinimizer(new ProxyMinimizer(new LevenbergMarquardtMinimzer()));
+        // no cancellation
+        ms.setConfirmations(8);
+        IFunctionPoint rslt = ms.minimize(new Fn(), starts(-2, -1.5, -.5, .5, 1.5, 2, 3, -3));
+        assertEquals(1, rslt.getParameters().get(0), 1e-6);
+    }
+
+    @Test
+    public void testEarlyFailure() {
+        // the first run fails at its first line search. Bfgs.minimize returns
+        // true anyway, but the run must not be considered as converged (it
+        // would cancel the second run before its start)
+        MultiStartMinimizer ms = new MultiStartMinimizer(new Bfgs());
+        ms.setThreadsCount(1);
+        ms.setConfirmations(1);
+        List<IFunctionPoint> starts = Arrays.asList(new LocalFn(-2).evaluate(new DataBlock(new double[]{-2})),
+                new Fn().evaluate(new DataBlock(new double[]{2})));
+        IFunctionPoint rslt = ms.minimize(starts);
+        MultiStartMinimizer.Run[] runs = ms.getRuns();
+        assertFalse(runs[0].hasConverged());
+        assertFalse(runs[1].isCancelled());
+        assertEquals(1, ms.getBestStart());
+        assertEquals(1, rslt.getParameters().get(0), 1e-4);
+    }
+
+    @Test
+    public void testTelemetry() {
+        // the runs starting from negative values fail at their first
+        // iteration; their telemetry must be ended anyway
+        AtomicInteger nstarts = new AtomicInteger(), nends = new AtomicInteger(), nfailed = new AtomicInteger();
+        IMinimizerTelemetry telemetry = new IMinimizerTelemetry() {
+            private final ThreadLocal<Boolean> fail = new ThreadLocal<>();
+
+            @Override
+            public void start(String method, IReadDataBlock parameters) {
+                nstarts.incrementAndGet();
+                fail.set(parameters.get(0) < 0);
+            }
+
+            @Override
+            public void iteration(MinimizerIteration iteration) {
+                if (fail.get()) {
+                    throw new FunctionException("Invalid iteration");
+                }
+            }
+
+            @Override
+            public void end(MinimizerIteration last, boolean converged) {
+                assertNotNull(last);
+                nends.incrementAndGet();
+                if (fail.get()) {
+                    assertFalse(converged);
+                    nfailed.incrementAndGet();
+                }
+            }
+        };
+        LevenbergMarquardtMinimzer lm = new LevenbergMarquardtMinimzer();
+        lm.setTelemetry(telemetry);
+        for (int nthreads : new int[]{1, 4}) {
+            nstarts.set(0);
+            nends.set(0);
+            nfailed.set(0);
+            MultiStartMinimizer ms = new MultiStartMinimizer(new ProxyMinimizer(lm));
+            ms.setThreadsCount(nthreads);
+            ms.setConfirmations(8);
+            IFunctionPoint rslt = ms.minimize(new Fn(), starts(-2, 2, 1.5, -1.5));
+            assertEquals(1, rslt.getParameters().get(0), 1e-6);
+            assertEquals(4, nstarts.get());
+            assertEquals(4, nends.get());
+            assertEquals(2, nfailed.get());
+            assertTrue(ms.getRuns()[0].getResult() == null);
+        }
+    }
+}
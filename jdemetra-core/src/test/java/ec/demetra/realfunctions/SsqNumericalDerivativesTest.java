@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions;
+
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.maths.matrices.Matrix;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class SsqNumericalDerivativesTest {
+
+    public SsqNumericalDerivativesTest() {
+    }
+
+    private static final int N = 50;
+
+    // e(t) = p0 * exp(p1 * t / N) + p2 * t / N. p2 is bounded by 1
+    private static class Fn implements ISsqFunction {
+
+        private final IParametersDomain domain = new DefaultDomain(3, 1e-6) {
+            @Override
+            public boolean checkBoundaries(IReadDataBlock p) {
+                return p.get(2) <= 1;
+            }
+        };
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public ISsqFunctionPoint ssqEvaluate(IReadDataBlock p) {
+            double[] e = new double[N];
+            for (int t = 0; t < N; ++t) {
+                double x = (double) t / N;
+                e[t] = p.get(0) * Math.exp(p.get(1) * x) + p.get(2) * x;
+            }
+            return new ISsqFunctionPoint() {
+                @Override
+                public ISsqFunction getSsqFunction() {
+                    return Fn.this;
+                }
+
+                @Override
+                public IReadDataBlock getE() {
+                    return new ReadDataBlock(e);
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+            };
+        }
+    }
+
+    private static void check(IReadDataBlock p, boolean sym, boolean mt, double eps) {
+        ISsqFunctionPoint pt = new Fn().ssqEvaluate(p);
+        SsqNumericalDerivatives d = new SsqNumericalDerivatives(pt, sym, mt);
+        Matrix J = new Matrix(N, 3);
+        d.getJacobian(J.all());
+        for (int t = 0; t < N; ++t) {
+            double x = (double) t / N, ex = Math.exp(p.get(1) * x);
+            assertEquals(ex, J.get(t, 0), eps);
+            assertEquals(p.get(0) * x * ex, J.get(t, 1), eps);
+            assertEquals(x, J.get(t, 2), eps);
+            assertEquals(J.get(t, 1), d.dEdX(1).get(t), 0);
+        }
+        IReadDataBlock g = d.getGradient();
+        for (int i = 0; i < 3; ++i) {
+            double gi = 0;
+            for (int t = 0; t < N; ++t) {
+                gi += 2 * pt.getE().get(t) * J.get(t, i);
+            }
+            assertEquals(gi, g.get(i), 1e-9 * (1 + Math.abs(gi)));
+        }
+    }
+
+    @Test
+    public void testJacobian() {
+        IReadDataBlock p = new ReadDataBlock(new double[]{2, -.5, .3});
+        check(p, false, false, 1e-4);
+        check(p, true, false, 1e-7);
+        check(p, true, true, 1e-7);
+    }
+
+    @Test
+    public void testBoundary() {
+        // p2 at its upper bound: the forward step of p2 is rejected
+        IReadDataBlock p = new ReadDataBlock(new double[]{2, -.5, 1});
+        check(p, false, false, 1e-4);
+        check(p, true, true, 1e-4);
+    }
+}
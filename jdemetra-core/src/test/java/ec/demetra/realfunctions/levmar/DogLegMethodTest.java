@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions.levmar;
+
+import ec.demetra.realfunctions.DefaultDomain;
+import ec.demetra.realfunctions.FunctionException;
+import ec.demetra.realfunctions.IParametersDomain;
+import ec.demetra.realfunctions.ISsqFunction;
+import ec.demetra.realfunctions.ISsqFunctionPoint;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class DogLegMethodTest {
+
+    public DogLegMethodTest() {
+    }
+
+    private static class Fn implements ISsqFunction {
+
+        private final DefaultDomain domain;
+        private final Function<DataBlock, DataBlock> e;
+
+        Fn(int n, Function<DataBlock, DataBlock> e) {
+            this.domain = new DefaultDomain(n, 1e-6);
+            this.e = e;
+        }
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public ISsqFunctionPoint ssqEvaluate(IReadDataBlock parameters) {
+            final DataBlock p = new DataBlock(parameters);
+            final DataBlock ep = e.apply(p);
+            return new ISsqFunctionPoint() {
+                @Override
+                public ISsqFunction getSsqFunction() {
+                    return Fn.this;
+                }
+
+                @Override
+                public IReadDataBlock getE() {
+                    return ep;
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+            };
+        }
+    }
+
+    // e(i) = x(i)^2 - i - 1, e(n+i) = x(i)*x(i+1) - sqrt((i+1)*(i+2))
+    private static DataBlock squares(DataBlock p) {
+        int n = p.getLength();
+        DataBlock e = new DataBlock(2 * n - 1);
+        for (int i = 0; i < n; ++i) {
+            e.set(i, p.get(i) * p.get(i) - i - 1);
+        }
+        for (int i = 0; i < n - 1; ++i) {
+            e.set(n + i, p.get(i) * p.get(i + 1) - Math.sqrt((i + 1) * (i + 2)));
+        }
+        return e;
+    }
+
+    @Test
+    public void testSolution() {
+        DogLegMethod dl = new DogLegMethod();
+        Fn fn = new Fn(4, DogLegMethodTest::squares);
+        assertTrue(dl.minimize(fn.ssqEvaluate(new DataBlock(new double[]{2, 2, 2, 2}))));
+        assertTrue(dl.hasConverged());
+        assertEquals(0, dl.getObjective(), 1e-9);
+        IReadDataBlock p = dl.getResult().getParameters();
+        for (int i = 0; i < p.getLength(); ++i) {
+            assertEquals(Math.sqrt(i + 1), p.get(i), 1e-4);
+        }
+        assertEquals(4, dl.getState().getDim());
+    }
+
+    @Test
+    public void testRankDeficient() {
+        // the Jacobian has rank 1 everywhere
+        DogLegMethod dl = new DogLegMethod();
+        Fn fn = new Fn(2, p -> {
+            double s = p.get(0) + p.get(1) - 2;
+            return new DataBlock(new double[]{s, 2 * s, s * s * s});
+        });
+        assertTrue(dl.minimize(fn.ssqEvaluate(new DataBlock(new double[]{3, 5}))));
+        assertEquals(0, dl.getObjective(), 1e-9);
+        IReadDataBlock p = dl.getResult().getParameters();
+        assertEquals(2, p.get(0) + p.get(1), 1e-4);
+    }
+
+    @Test
+    public void testInvalidTrialPoint() {
+        // e = x - 5, from x = .01. The trust radius grows from .1 (.11, .41)
+        // and the third step (1.31) falls in an interval where the model
+        // can't be built: the step is rejected and the radius is reduced
+        AtomicInteger nfailed = new AtomicInteger();
+        Fn fn = new Fn(1, p -> {
+            double x = p.get(0);
+            if (x > 1 && x < 1.5) {
+                nfailed.incrementAndGet();
+                throw new FunctionException("Invalid model");
+            }
+            return new DataBlock(new double[]{x - 5});
+        });
+        DogLegMethod dl = new DogLegMethod();
+        assertTrue(dl.minimize(fn.ssqEvaluate(new DataBlock(new double[]{.01}))));
+        assertTrue(nfailed.get() > 0);
+        assertEquals(0, dl.getObjective(), 1e-9);
+        assertEquals(5, dl.getResult().getParameters().get(0), 1e-6);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions.minpack;
+
+import ec.demetra.realfunctions.DefaultDomain;
+import ec.demetra.realfunctions.IParametersDomain;
+import ec.demetra.realfunctions.ISsqFunction;
+import ec.demetra.realfunctions.ISsqFunctionPoint;
+import ec.demetra.realfunctions.MinimizerIteration;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class LevenbergMarquardtMinimizerTest {
+
+    public LevenbergMarquardtMinimizerTest() {
+    }
+
+    // e(i) = x(i)^2 - i - 1, e(n+i) = x(i)*x(i+1) - sqrt((i+1)*(i+2))
+    private static class Fn implements ISsqFunction {
+
+        private final DefaultDomain domain = new DefaultDomain(4, 1e-6);
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public ISsqFunctionPoint ssqEvaluate(IReadDataBlock parameters) {
+            final DataBlock p = new DataBlock(parameters);
+            int n = p.getLength();
+            final DataBlock e = new DataBlock(2 * n - 1);
+            for (int i = 0; i < n; ++i) {
+                e.set(i, p.get(i) * p.get(i) - i - 1);
+            }
+            for (int i = 0; i < n - 1; ++i) {
+                e.set(n + i, p.get(i) * p.get(i + 1) - Math.sqrt((i + 1) * (i + 2)));
+            }
+            return new ISsqFunctionPoint() {
+                @Override
+                public ISsqFunction getSsqFunction() {
+                    return Fn.this;
+                }
+
+                @Override
+                public IReadDataBlock getE() {
+                    return e;
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+            };
+        }
+    }
+
+    private static MinimizerIteration run(boolean broyden, double... start) {
+        MinimizerIteration[] last = new MinimizerIteration[1];
+        LevenbergMarquardtMinimizer lm = new LevenbergMarquardtMinimizer();
+        lm.useBroydenUpdates(broyden);
+        lm.setTelemetry(it -> last[0] = it);
+        Fn fn = new Fn();
+        assertTrue(lm.minimize(fn.ssqEvaluate(new DataBlock(start))));
+        assertEquals(0, lm.getObjective(), 1e-9);
+        check(lm.getResult().getParameters());
+        return last[0];
+    }
+
+    private static void check(IReadDataBlock p) {
+        for (int i = 0; i < p.getLength(); ++i) {
+            assertEquals(Math.sqrt(i + 1), Math.abs(p.get(i)), 1e-4);
+        }
+    }
+
+    @Test
+    public void testBroyden() {
+        MinimizerIteration exact = run(false, 2, 2, 2, 2), broyden = run(true, 2, 2, 2, 2);
+        double e0 = exact.getEvaluationsCount() / (double) exact.getIteration();
+        double e1 = broyden.getEvaluationsCount() / (double) broyden.getIteration();
+        assertTrue(e1 < e0);
+    }
+
+    @Test
+    public void testBroydenRefresh() {
+        // far starting points and frequent refreshes of the Jacobian
+        double[][] starts = {{2, 2, 2, 2}, {5, .5, 5, .5}, {.3, 3, .3, 3}};
+        for (double[] start : starts) {
+            run(false, start);
+            run(true, start);
+            for (int refresh : new int[]{1, 3}) {
+                LevenbergMarquardtEstimator estimator = new LevenbergMarquardtEstimator();
+                estimator.useBroydenUpdates(true);
+                estimator.setBroydenRefresh(refresh);
+                SsqEstimationProblem problem = new SsqEstimationProblem(new Fn().ssqEvaluate(new DataBlock(start)));
+                estimator.estimate(problem);
+                assertTrue(estimator.getIterCount() < estimator.getMaxIter());
+                ISsqFunctionPoint rslt = problem.getResult();
+                assertEquals(0, rslt.getSsqE(), 1e-9);
+                check(rslt.getParameters());
+            }
+        }
+    }
+}
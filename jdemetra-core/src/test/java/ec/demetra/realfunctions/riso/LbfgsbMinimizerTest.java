@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ * 
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved 
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ * 
+ * http://ec.europa.eu/idabc/eupl
+ * 
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and 
+ * limitations under the Licence.
+ */
+package ec.demetra.realfunctions.riso;
+
+import ec.demetra.realfunctions.DefaultDomain;
+import ec.demetra.realfunctions.IFunction;
+import ec.demetra.realfunctions.IFunctionPoint;
+import ec.demetra.realfunctions.IParametersDomain;
+import ec.demetra.realfunctions.MinimizerState;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class LbfgsbMinimizerTest {
+
+    public LbfgsbMinimizerTest() {
+    }
+
+    private static class Domain extends DefaultDomain {
+
+        private final double lb, ub;
+
+        Domain(int n, double lb, double ub) {
+            super(n, 1e-7);
+            this.lb = lb;
+            this.ub = ub;
+        }
+
+        @Override
+        public double lbound(int idx) {
+            return lb;
+        }
+
+        @Override
+        public double ubound(int idx) {
+            return ub;
+        }
+    }
+
+    // Rosenbrock function
+    private static class Rosenbrock implements IFunction {
+
+        private final IParametersDomain domain;
+
+        Rosenbrock(IParametersDomain domain) {
+            this.domain = domain;
+        }
+
+        @Override
+        public IParametersDomain getDomain() {
+            return domain;
+        }
+
+        @Override
+        public IFunctionPoint evaluate(IReadDataBlock p) {
+            double s = 0;
+            for (int i = 0; i < p.getLength() - 1; ++i) {
+                double a = p.get(i + 1) - p.get(i) * p.get(i), b = 1 - p.get(i);
+                s += 100 * a * a + b * b;
+            }
+            final double f = s;
+            return new IFunctionPoint() {
+                @Override
+                public IFunction getFunction() {
+                    return Rosenbrock.this;
+                }
+
+                @Override
+                public IReadDataBlock getParameters() {
+                    return p;
+                }
+
+                @Override
+                public double getValue() {
+                    return f;
+                }
+            };
+        }
+    }
+
+    private static final double[] START = new double[]{-1.2, 1, -1.2, 1};
+
+    @Test
+    public void testUnbounded() {
+        LbfgsbMinimizer min = new LbfgsbMinimizer();
+        min.setMaxIter(1000);
+        Rosenbrock fn = new Rosenbrock(new Domain(4, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        assertTrue(min.minimize(fn.evaluate(new DataBlock(START.clone()))));
+        IReadDataBlock p = min.getResult().getParameters();
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(1, p.get(i), 1e-3);
+        }
+        // the workspace is reused by the next run
+        assertTrue(min.minimize(fn.evaluate(new DataBlock(START.clone()))));
+        assertEquals(0, min.getObjective(), 1e-6);
+    }
+
+    @Test
+    public void testBounded() {
+        LbfgsbMinimizer min = new LbfgsbMinimizer();
+        min.setMaxIter(1000);
+        Rosenbrock fn = new Rosenbrock(new Domain(4, -2, .5));
+        assertTrue(min.minimize(fn.evaluate(new DataBlock(START.clone()))));
+        IReadDataBlock p = min.getResult().getParameters();
+        assertEquals(.5, p.get(0), 1e-9);
+        for (int i = 1; i < 4; ++i) {
+            assertTrue(p.get(i) >= -2 && p.get(i) <= .5);
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        LbfgsbMinimizer min = new LbfgsbMinimizer();
+        min.setMaxEvaluations(50);
+        Rosenbrock fn = new Rosenbrock(new Domain(4, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        IFunctionPoint start = fn.evaluate(new DataBlock(START.clone()));
+        assertFalse(min.minimize(start));
+        assertTrue(min.isBudgetExhausted());
+        assertTrue(min.getEvaluationsCount() <= 50);
+        assertTrue(min.getObjective() < start.getValue());
+    }
+
+    @Test
+    public void testWarmStart() throws IOException, ClassNotFoundException {
+        LbfgsbMinimizer min = new LbfgsbMinimizer();
+        min.setMaxIter(1000);
+        Rosenbrock fn = new Rosenbrock(new Domain(4, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        assertTrue(min.minimize(fn.evaluate(new DataBlock(START.clone()))));
+        MinimizerState state = min.getState();
+        assertEquals(MinimizerState.Curvature.InverseHessian, state.getCurvatureType());
+
+        // the state is saved and restored
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        }
+        MinimizerState nstate;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            nstate = (MinimizerState) in.readObject();
+        }
+        assertEquals(state, nstate);
+
+        // slightly different starting point
+        double[] p = nstate.getParameters();
+        for (int i = 0; i < p.length; ++i) {
+            p[i] += .01 * (i + 1);
+        }
+        LbfgsbMinimizer cold = new LbfgsbMinimizer();
+        assertTrue(cold.minimize(fn.evaluate(new DataBlock(p.clone()))));
+        LbfgsbMinimizer warm = new LbfgsbMinimizer();
+        warm.setWarmStart(nstate);
+        assertTrue(warm.minimize(fn.evaluate(new DataBlock(p.clone()))));
+        assertTrue(warm.getIterCount() < cold.getIterCount());
+        assertEquals(cold.getObjective(), warm.getObjective(), 1e-6);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class ContinuousDomainTest {
+
+    public ContinuousDomainTest() {
+    }
+
+    @Test
+    public void testPeriods() {
+        // 8-hour shifts, with a gap-free partition of 2 years
+        int n = 3 * 731;
+        LocalDateTime[] bounds = new LocalDateTime[n + 1];
+        LocalDateTime start = LocalDateTime.of(2015, Month.JANUARY, 1, 6, 0);
+        for (int i = 0; i <= n; ++i) {
+            bounds[i] = start.plusHours(8 * i);
+        }
+        ContinuousDomain domain = ContinuousDomain.create(bounds);
+        assertEquals(n, domain.getLength());
+        ITimePeriod p = domain.get(10);
+        assertEquals(bounds[10], p.start());
+        assertEquals(bounds[11], p.end());
+        assertEquals(10, domain.search(bounds[10]));
+        assertEquals(10, domain.search(bounds[10].plusHours(3)));
+        assertEquals(-1, domain.search(bounds[0].minusSeconds(1)));
+        assertEquals(-1, domain.search(bounds[n]));
+
+        PeriodSelector sel = new PeriodSelector();
+        sel.between(LocalDate.of(2015, Month.MARCH, 1), LocalDate.of(2015, Month.MARCH, 31));
+        ContinuousDomain march = domain.select(sel);
+        // the first shift of March starts on the 1st at 6:00; the last one
+        // that ends before April starts on the 31st at 14:00
+        assertEquals(LocalDateTime.of(2015, Month.MARCH, 1, 6, 0), march.getTime(0));
+        assertEquals(3 * 31 - 1, march.getLength());
+        assertEquals(LocalDateTime.of(2015, Month.MARCH, 31, 22, 0), march.get(march.getLength() - 1).end());
+        int[] r = domain.search(sel);
+        assertEquals(domain.getTime(r[0]), march.getTime(0));
+        assertEquals(r[1] - r[0], march.getLength());
+        assertEquals(4, march.slice(2, 6).getLength());
+        sel.excluding(-1, 0);
+        assertEquals(LocalDateTime.of(2016, Month.JANUARY, 1, 6, 0), domain.select(sel).getTime(0));
+    }
+}
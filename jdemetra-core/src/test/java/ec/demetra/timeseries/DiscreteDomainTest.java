@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class DiscreteDomainTest {
+
+    public DiscreteDomainTest() {
+    }
+
+    private static LocalDateTime[] times(int n) {
+        Random rnd = new Random(0);
+        LocalDateTime[] t = new LocalDateTime[n];
+        LocalDateTime cur = LocalDateTime.of(2010, Month.JANUARY, 1, 0, 0);
+        for (int i = 0; i < n; ++i) {
+            // irregular steps, some of them with fractions of seconds
+            cur = cur.plusSeconds(1 + rnd.nextInt(7200)).plusNanos(i % 3 == 0 ? 0 : rnd.nextInt(1000000000));
+            t[i] = cur;
+        }
+        return t;
+    }
+
+    @Test
+    public void testSearch() {
+        LocalDateTime[] t = times(1000);
+        DiscreteDomain domain = DiscreteDomain.create(t);
+        assertEquals(1000, domain.getLength());
+        for (int i = 0; i < t.length; ++i) {
+            assertEquals(t[i], domain.getTime(i));
+            assertEquals(i, domain.search(t[i]));
+        }
+        assertEquals(-1, domain.search(t[10].plusNanos(1)));
+        assertEquals(-1, domain.search(t[0].minusDays(1)));
+        DiscreteDomain r = domain.range(t[100], t[200]);
+        assertEquals(100, r.getLength());
+        assertEquals(t[100], r.getTime(0));
+        assertEquals(5, r.search(t[105]));
+        assertEquals(-1, r.search(t[200]));
+        DiscreteDomain s = r.slice(10, 20);
+        assertEquals(t[110], s.getTime(0));
+        assertEquals(domain.getEpochSecond(119), s.getEpochSecond(9));
+    }
+
+    @Test
+    public void testSelect() {
+        LocalDateTime[] t = times(5000);
+        DiscreteDomain domain = DiscreteDomain.create(t);
+        LocalDate d0 = LocalDate.of(2010, Month.FEBRUARY, 15), d1 = LocalDate.of(2010, Month.MARCH, 3);
+        PeriodSelector sel = new PeriodSelector();
+        sel.between(d0, d1);
+        DiscreteDomain b = domain.select(sel);
+        long count = Arrays.stream(t).filter(x -> !x.toLocalDate().isBefore(d0) && !x.toLocalDate().isAfter(d1)).count();
+        assertEquals(count, b.getLength());
+        assertTrue(!b.getTime(0).toLocalDate().isBefore(d0));
+        assertTrue(!b.getTime(b.getLength() - 1).toLocalDate().isAfter(d1));
+        sel.from(d1);
+        assertEquals(Arrays.stream(t).filter(x -> !x.toLocalDate().isBefore(d1)).count(), domain.select(sel).getLength());
+        sel.to(d0);
+        assertEquals(Arrays.stream(t).filter(x -> !x.toLocalDate().isAfter(d0)).count(), domain.select(sel).getLength());
+        sel.excluding(10, 20);
+        assertEquals(t[10], domain.select(sel).getTime(0));
+        assertEquals(4970, domain.select(sel).getLength());
+        sel.last(7);
+        assertEquals(t[4993], domain.select(sel).getTime(0));
+        sel.excluding(0, -1);
+        LocalDateTime lim = t[4999].minusYears(1);
+        assertEquals(Arrays.stream(t).filter(x -> !x.isAfter(lim)).count(), domain.select(sel).getLength());
+        sel.none();
+        assertEquals(0, domain.select(sel).getLength());
+    }
+
+    @Test
+    @Ignore
+    public void stressTestSelect() {
+        LocalDateTime[] t = times(500000);
+        DiscreteDomain domain = DiscreteDomain.create(t);
+        PeriodSelector sel = new PeriodSelector();
+        for (int k = 0; k < 5; ++k) {
+            long t0 = System.currentTimeMillis();
+            int m = 0;
+            for (int i = 0; i < 100000; ++i) {
+                LocalDate d = LocalDate.of(2010, Month.JANUARY, 1).plusDays(i % 1000);
+                sel.between(d, d.plusDays(30));
+                m += domain.select(sel).getLength();
+            }
+            long t1 = System.currentTimeMillis();
+            int q = 0;
+            for (int i = 0; i < 100; ++i) {
+                LocalDate d = LocalDate.of(2010, Month.JANUARY, 1).plusDays(i % 1000);
+                LocalDateTime from = d.atStartOfDay(), to = d.plusDays(31).atStartOfDay();
+                for (LocalDateTime x : t) {
+                    if (!x.isBefore(from) && x.isBefore(to)) {
+                        ++q;
+                    }
+                }
+            }
+            long t2 = System.currentTimeMillis();
+            System.out.println("100000 selections: " + (t1 - t0) + " ms, 100 scans: " + (t2 - t1) + " ms");
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries.calendars;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static java.time.temporal.ChronoUnit.DAYS;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class HolidayIndexTest {
+
+    private static final List<IHoliday> HOLIDAYS = Arrays.asList(FixedDateHoliday.NEWYEAR,
+            FixedDateHoliday.CHRISTMAS, EasterRelatedHoliday.EASTERMONDAY,
+            EasterRelatedHoliday.WHITMONDAY, EasterRelatedHoliday.JULIANEASTER,
+            new FixedDateHoliday(Month.JULY, 21));
+
+    public HolidayIndexTest() {
+    }
+
+    @Test
+    public void testDays() {
+        LocalDate start = LocalDate.of(1995, Month.JANUARY, 1), end = LocalDate.of(2025, Month.JANUARY, 1);
+        HolidayIndex index = HolidayIndex.of(start, end, HOLIDAYS);
+        assertEquals(start.until(end, DAYS), index.getLength());
+        LocalDate d0 = LocalDate.of(2000, Month.JULY, 21), d1 = LocalDate.of(2020, Month.APRIL, 13);
+        for (int i = 0; i < HOLIDAYS.size(); ++i) {
+            List<Integer> expected = new ArrayList<>();
+            for (IHolidayInfo info : HOLIDAYS.get(i).getIterable(d0, d1)) {
+                expected.add((int) d0.until(info.getDate(), DAYS));
+            }
+            int[] days = index.days(i, d0, d1);
+            assertEquals(expected.size(), days.length);
+            for (int j = 0; j < days.length; ++j) {
+                assertEquals(expected.get(j).intValue(), days[j]);
+                LocalDate day = d0.plusDays(days[j]);
+                assertTrue(index.isHoliday(day));
+                assertTrue(index.isHoliday(i, day));
+                assertTrue(!index.isHoliday(i, day.plusDays(1)));
+            }
+        }
+        assertTrue(index.isHoliday(LocalDate.of(2016, Month.MAY, 16)));
+        assertTrue(!index.isHoliday(LocalDate.of(2016, Month.MAY, 17)));
+        assertTrue(index.covers(d0, d1));
+        assertTrue(!index.covers(d0, LocalDate.of(2026, Month.JANUARY, 1)));
+        assertEquals(0, index.days(0, d1, d0).length);
+    }
+
+    @Test
+    @Ignore
+    public void stressTestIndex() {
+        LocalDate start = LocalDate.of(2000, Month.JANUARY, 1), end = LocalDate.of(2020, Month.JANUARY, 1);
+        int n = (int) start.until(end, DAYS);
+        for (int k = 0; k < 5; ++k) {
+            long t0 = System.currentTimeMillis();
+            double[] x = new double[n];
+            for (int r = 0; r < 1000; ++r) {
+                for (IHoliday hol : HOLIDAYS) {
+                    for (IHolidayInfo info : hol.getIterable(start, end)) {
+                        x[(int) start.until(info.getDate(), DAYS)] = 1;
+                    }
+                }
+            }
+            long t1 = System.currentTimeMillis();
+            HolidayIndex index = HolidayIndex.of(start, end, HOLIDAYS);
+            for (int r = 0; r < 1000; ++r) {
+                for (int i = 0; i < index.getHolidaysCount(); ++i) {
+                    for (int pos : index.days(i, start, end)) {
+                        x[pos] = 1;
+                    }
+                }
+            }
+            long t2 = System.currentTimeMillis();
+            System.out.println("iterators: " + (t1 - t0) + " ms, index: " + (t2 - t1) + " ms");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries.simplets;
+
+import ec.demetra.data.DataBlock;
+import ec.demetra.timeseries.TsAggregationType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class TsAggregationPlanTest {
+
+    public TsAggregationPlanTest() {
+    }
+
+    // straightforward computation, period by period of the new frequency
+    private static double aggregate(TsData s, int nconv, int id, TsAggregationType type, boolean complete) {
+        int beg = s.getStart().id();
+        double d = Double.NaN;
+        double sum = 0;
+        int ncur = 0;
+        for (int k = id * nconv; k < (id + 1) * nconv; ++k) {
+            int pos = k - beg;
+            if (pos < 0 || pos >= s.getLength() || !Double.isFinite(s.get(pos))) {
+                continue;
+            }
+            double x = s.get(pos);
+            sum += x;
+            if (ncur == 0 || type == TsAggregationType.Last
+                    || (type == TsAggregationType.Min && x < d)
+                    || (type == TsAggregationType.Max && x > d)) {
+                d = x;
+            }
+            ++ncur;
+        }
+        if (ncur == 0 || (complete && ncur < nconv)) {
+            return Double.NaN;
+        }
+        switch (type) {
+            case Sum:
+            case None:
+                return sum;
+            case Average:
+                return sum / ncur;
+            default:
+                return d;
+        }
+    }
+
+    @Test
+    public void testPlan() {
+        Random rnd = new Random(0);
+        for (int start = -7; start < 7; ++start) {
+            for (int len = 0; len < 30; len += 3) {
+                double[] x = new double[len];
+                for (int i = 0; i < len; ++i) {
+                    x[i] = rnd.nextInt(5) == 0 ? Double.NaN : rnd.nextDouble();
+                }
+                TsData s = new TsData(new TsPeriod(TsFrequency.Monthly, 1970, 0).plus(start), x, false);
+                for (TsAggregationType type : TsAggregationType.values()) {
+                    for (boolean complete : new boolean[]{true, false}) {
+                        TsAggregationPlan plan = TsAggregationPlan.of(s.domain(), TsFrequency.Quarterly, type, complete);
+                        TsData q = plan.apply(s);
+                        assertEquals(plan.getTarget(), q.domain());
+                        int id0 = q.getStart().id();
+                        for (int i = 0; i < q.getLength(); ++i) {
+                            double e = aggregate(s, 3, id0 + i, type, complete);
+                            if (Double.isNaN(e)) {
+                                assertTrue(Double.isNaN(q.get(i)));
+                            } else {
+                                assertEquals(e, q.get(i), 1e-12);
+                            }
+                        }
+                        // the periods outside the target domain are not covered
+                        assertTrue(Double.isNaN(aggregate(s, 3, id0 - 1, type, true)));
+                        assertTrue(Double.isNaN(aggregate(s, 3, id0 + q.getLength(), type, true)));
+                    }
+                }
+            }
+        }
+        assertNull(TsAggregationPlan.of(new TsDomain(TsFrequency.Quarterly, 2000, 0, 24),
+                TsFrequency.BiMonthly, TsAggregationType.Sum, true));
+    }
+
+    @Test
+    public void testBatch() {
+        TsDataBatch batch = batch(50, 240);
+        TsAggregationPlan plan = TsAggregationPlan.of(batch.getDomain(), TsFrequency.Quarterly, TsAggregationType.Average, false);
+        TsDataBatch q = plan.apply(batch, false), pq = plan.apply(batch, true);
+        assertEquals(plan.getTarget(), q.getDomain());
+        assertArrayEquals(q.matrix().internalStorage(), pq.matrix().internalStorage(), 0);
+        for (int j = 0; j < batch.getSeriesCount(); ++j) {
+            TsData s = batch.series(j), sq = plan.apply(s);
+            assertArrayEquals(sq.data(), q.series(j).data(), 0);
+            assertArrayEquals(sq.data(), s.changeFrequency(TsFrequency.Quarterly, TsAggregationType.Average, false).data(), 0);
+        }
+    }
+
+    @Test
+    public void testParallelBatch() {
+        // the public entry point only uses the parallel path for large batches
+        // on multi-core machines; the blocks are forced here
+        TsDataBatch batch = batch(53, 241);
+        TsAggregationPlan plan = TsAggregationPlan.of(batch.getDomain(), TsFrequency.Yearly, TsAggregationType.Sum, true);
+        TsDataBatch y = plan.apply(batch, 1);
+        for (int nblocks = 2; nblocks <= 60; nblocks += 7) {
+            TsDataBatch py = plan.apply(batch, nblocks);
+            assertEquals(plan.getTarget(), py.getDomain());
+            assertArrayEquals(y.matrix().internalStorage(), py.matrix().internalStorage(), 0);
+        }
+        // large batch, through the public entry point
+        TsDataBatch large = batch(300, 240);
+        plan = TsAggregationPlan.of(large.getDomain(), TsFrequency.Quarterly, TsAggregationType.Max, false);
+        assertArrayEquals(plan.apply(large, false).matrix().internalStorage(),
+                plan.apply(large, true).matrix().internalStorage(), 0);
+    }
+
+    private static TsDataBatch batch(int m, int n) {
+        Random rnd = new Random(0);
+        TsDataBatch batch = new TsDataBatch(new TsDomain(TsFrequency.Monthly, 1990, 1, n), m);
+        for (int j = 0; j < m; ++j) {
+            DataBlock x = batch.column(j);
+            for (int i = 0; i < n; ++i) {
+                x.set(i, rnd.nextInt(20) == 0 ? Double.NaN : rnd.nextDouble());
+            }
+        }
+        return batch;
+    }
+
+    @Test
+    @Ignore
+    public void stressTestPlan() {
+        TsDataBatch batch = batch(5000, 360);
+        List<TsData> all = new ArrayList<>();
+        for (int j = 0; j < batch.getSeriesCount(); ++j) {
+            all.add(batch.series(j));
+        }
+        TsAggregationPlan plan = TsAggregationPlan.of(batch.getDomain(), TsFrequency.Quarterly, TsAggregationType.Sum, true);
+        for (int k = 0; k < 5; ++k) {
+            long t0 = System.currentTimeMillis();
+            for (TsData s : all) {
+                s.changeFrequency(TsFrequency.Quarterly, TsAggregationType.Sum, true);
+            }
+            long t1 = System.currentTimeMillis();
+            plan.apply(batch, false);
+            long t2 = System.currentTimeMillis();
+            plan.apply(batch, true);
+            long t3 = System.currentTimeMillis();
+            System.out.println("series: " + (t1 - t0) + " ms, batch: " + (t2 - t1) + " ms, parallel batch: " + (t3 - t2) + " ms");
+        }
+    }
+}
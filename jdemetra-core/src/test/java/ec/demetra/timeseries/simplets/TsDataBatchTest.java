@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.timeseries.simplets;
+
+import ec.demetra.timeseries.TsAggregationType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class TsDataBatchTest {
+
+    public TsDataBatchTest() {
+    }
+
+    private static List<TsData> series(int m, int n, boolean missing) {
+        Random rnd = new Random(0);
+        List<TsData> all = new ArrayList<>();
+        for (int j = 0; j < m; ++j) {
+            double[] x = new double[n - j % 12];
+            double cur = 100;
+            for (int i = 0; i < x.length; ++i) {
+                cur *= 1 + .02 * (rnd.nextDouble() - .4);
+                x[i] = cur;
+            }
+            if (missing) {
+                x[j % x.length] = Double.NaN;
+                x[(7 * j + 3) % x.length] = Double.NaN;
+            }
+            all.add(new TsData(TsFrequency.Monthly, 1990, j % 12, x, false));
+        }
+        return all;
+    }
+
+    private static void check(TsData expected, TsData actual) {
+        assertEquals(expected.getStart(), actual.getStart());
+        assertEquals(expected.getLength(), actual.getLength());
+        for (int i = 0; i < expected.getLength(); ++i) {
+            double e = expected.get(i), a = actual.get(i);
+            if (Double.isNaN(e)) {
+                assertTrue(Double.isNaN(a));
+            } else {
+                assertEquals(e, a, 1e-9 * Math.max(1, Math.abs(e)));
+            }
+        }
+    }
+
+    @Test
+    public void testTransformations() {
+        List<TsData> all = series(10, 120, true);
+        TsDataBatch batch = TsDataBatch.of(all);
+        TsDomain dom = batch.getDomain();
+        assertEquals(10, batch.getSeriesCount());
+        for (int j = 0; j < 10; ++j) {
+            check(all.get(j).fittoDomain(dom), batch.series(j));
+        }
+        TsDataBatch logdelta = batch.clone().logDelta(1);
+        TsDataBatch pct = batch.clone().pctVariation(12);
+        TsDataBatch ma = batch.clone().movingAverage(new double[]{1, 2, 3, 2, 1}, true, true);
+        TsDataBatch sum = batch.clone().plus(batch.clone().times(2)).plus(-1);
+        batch.log().delta(1);
+        for (int j = 0; j < 10; ++j) {
+            TsData s = all.get(j).fittoDomain(dom);
+            check(s.log().delta(1), batch.series(j));
+            check(s.log().delta(1), logdelta.series(j));
+            check(s.pctVariation(12), pct.series(j));
+            check(s.movingAverage(new double[]{1, 2, 3, 2, 1}, true, true), ma.series(j));
+            check(s.times(3).plus(-1), sum.series(j));
+        }
+        assertEquals(batch.getLength() * 10, batch.matrix().internalStorage().length);
+    }
+
+    @Test
+    public void testChangeFrequency() {
+        List<TsData> all = series(5, 100, false);
+        TsDataBatch batch = TsDataBatch.of(all);
+        for (TsAggregationType type : new TsAggregationType[]{TsAggregationType.Sum,
+            TsAggregationType.Average, TsAggregationType.Last, TsAggregationType.Max}) {
+            for (boolean complete : new boolean[]{true, false}) {
+                TsDataBatch q = batch.changeFrequency(TsFrequency.Quarterly, type, complete);
+                TsDataBatch y = TsDataBatch.of(all.subList(0, 1)).changeFrequency(TsFrequency.Yearly, type, complete);
+                for (int j = 0; j < 5; ++j) {
+                    TsData s = all.get(j).fittoDomain(batch.getDomain());
+                    check(s.changeFrequency(TsFrequency.Quarterly, type, complete), q.series(j));
+                }
+                check(all.get(0).changeFrequency(TsFrequency.Yearly, type, complete), y.series(0));
+            }
+        }
+    }
+
+    @Test
+    @Ignore
+    public void stressTestBatch() {
+        List<TsData> all = series(2000, 360, true);
+        TsDataBatch batch = TsDataBatch.of(all);
+        for (int k = 0; k < 5; ++k) {
+            long t0 = System.currentTimeMillis();
+            for (TsData s : all) {
+                s.log().delta(1).movingAverage(new double[]{1, 1, 1}, true, true);
+            }
+            long t1 = System.currentTimeMillis();
+            batch.clone().logDelta(1).movingAverage(new double[]{1, 1, 1}, true, true);
+            long t2 = System.currentTimeMillis();
+            System.out.println("series: " + (t1 - t0) + " ms, batch: " + (t2 - t1) + " ms");
+        }
+    }
+}
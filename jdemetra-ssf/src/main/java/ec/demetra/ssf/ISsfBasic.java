@@ -41,5 +41,16 @@ public interface ISsfBasic {
      */
     boolean isValid();
 
-    
+    /**
+     * Can this object be shared by several threads without synchronization.
+     * Thread-safe implementations don't modify their internal state after
+     * construction (no lazy initialization, no scratch buffers); temporary
+     * storage should be allocated by each call. Implementations that don't
+     * respect that contract must override this method.
+     *
+     * @return True by default
+     */
+    default boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.dk;
+
+import ec.demetra.ssf.State;
+import ec.demetra.ssf.univariate.ISsfData;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.design.Development;
+import java.util.Arrays;
+
+/**
+ * Diffuse likelihood (see DkLikelihood) and its exact derivatives with respect
+ * to the parameters of a dual state space form.
+ *
+ * The likelihood is computed by an ordinary Kalman filter with a Durbin-Koopman
+ * initialization (same recursions and same thresholds as
+ * DurbinKoopmanInitializer and OrdinaryFilter). The filter propagates the
+ * derivatives (tangents) of the state and of its covariance matrices along the
+ * primal recursions (forward-mode differentiation).
+ *
+ * The cost of the derivatives is roughly the cost of the propagation of the
+ * covariance matrix for each parameter. The recursions use dense matrices.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class DkDualLikelihood {
+
+    private final DkLikelihood ll = new DkLikelihood();
+    private final double[] dssq, dldet, dlddet;
+
+    private DkDualLikelihood(int nvars) {
+        dssq = new double[nvars];
+        dldet = new double[nvars];
+        dlddet = new double[nvars];
+    }
+
+    /**
+     *
+     * @param ssf The dual state space form
+     * @param data The data
+     * @return The likelihood and its derivatives. Null if the likelihood can't
+     * be computed
+     */
+    public static DkDualLikelihood compute(DualSsf ssf, ISsfData data) {
+        DkDualLikelihood rslt = new DkDualLikelihood(ssf.nvars);
+        if (!rslt.new Filter(ssf).process(data)) {
+            return null;
+        }
+        return rslt;
+    }
+
+    /**
+     *
+     * @return The likelihood (the residuals are not available)
+     */
+    public DkLikelihood getLikelihood() {
+        return ll;
+    }
+
+    public IReadDataBlock getSsqErrDerivatives() {
+        return new ReadDataBlock(dssq);
+    }
+
+    public IReadDataBlock getLogDeterminantDerivatives() {
+        return new ReadDataBlock(dldet);
+    }
+
+    public IReadDataBlock getDiffuseCorrectionDerivatives() {
+        return new ReadDataBlock(dlddet);
+    }
+
+    /**
+     *
+     * @return The derivatives of the scaling factor of the likelihood
+     * (exp((ldet+lddet)/m))
+     */
+    public IReadDataBlock getFactorDerivatives() {
+        int m = ll.getN() - ll.getD();
+        double f = ll.getFactor();
+        double[] d = new double[dssq.length];
+        for (int i = 0; i < d.length; ++i) {
+            d[i] = f * (dldet[i] + dlddet[i]) / m;
+        }
+        return new ReadDataBlock(d);
+    }
+
+    /**
+     *
+     * @return The derivatives of the log-likelihood
+     */
+    public IReadDataBlock getLogLikelihoodDerivatives() {
+        int m = ll.getN() - ll.getD();
+        double ssq = ll.getSsqErr();
+        double[] d = new double[dssq.length];
+        for (int i = 0; i < d.length; ++i) {
+            d[i] = -.5 * (m * dssq[i] / ssq + dldet[i] + dlddet[i]);
+        }
+        return new ReadDataBlock(d);
+    }
+
+    private class Filter {
+
+        private final DualSsf ssf;
+        private final int n, nvars;
+        // state (column-major matrices)
+        private final double[] a, P;
+        private double[] Pi;
+        private final double[][] da, dP, dPi;
+        // temporaries
+        private final double[] C, Ci, W, M;
+        private final double[][] dC, dCi;
+        private final double[] de, df, dfi;
+        private double norm;
+        private double ssq, ldet, lddet;
+        private int nobs, nd;
+
+        Filter(DualSsf ssf) {
+            this.ssf = ssf;
+            n = ssf.dim;
+            nvars = ssf.nvars;
+            a = ssf.a0.clone();
+            P = ssf.Pf0.clone();
+            da = new double[nvars][];
+            dP = new double[nvars][];
+            for (int j = 0; j < nvars; ++j) {
+                da[j] = ssf.da0[j] == null ? new double[n] : ssf.da0[j].clone();
+                dP[j] = ssf.dPf0[j] == null ? new double[n * n] : ssf.dPf0[j].clone();
+            }
+            if (ssf.Pi0 != null) {
+                Pi = ssf.Pi0.clone();
+                norm = nrm2(Pi);
+                dPi = new double[nvars][n * n];
+            } else {
+                dPi = null;
+            }
+            C = new double[n];
+            Ci = new double[n];
+            W = new double[n * n];
+            M = new double[n * n];
+            dC = new double[nvars][n];
+            dCi = new double[nvars][n];
+            de = new double[nvars];
+            df = new double[nvars];
+            dfi = new double[nvars];
+        }
+
+        boolean process(ISsfData data) {
+            int end = data.getLength();
+            for (int t = 0; t < end; ++t) {
+                if (Pi != null && isZero(Pi, 1e-9 * norm)) {
+                    // end of the diffuse part
+                    Pi = null;
+                }
+                if (!data.isMissing(t)) {
+                    update(data.get(t));
+                }
+                pred();
+            }
+            if (nobs == 0 || !Double.isFinite(ssq)) {
+                return false;
+            }
+            ll.set(ssq, ldet, lddet, nobs + nd, nd);
+            return true;
+        }
+
+        private void update(double y) {
+            // f = ZPZ'+h, C = PZ', e = y - Za
+            mul(P, ssf.Z, C);
+            double f = dot(ssf.Z, C) + ssf.h;
+            double e = y - dot(ssf.Z, a);
+            for (int j = 0; j < nvars; ++j) {
+                double[] dZ = ssf.dZ[j], dCj = dC[j];
+                // dC = dP Z' + P dZ'
+                // de = -dZ a - Z da, df = Z dC + dZ C + dh
+                mul(dP[j], ssf.Z, dCj);
+                double dej = -dot(ssf.Z, da[j]);
+                if (dZ != null) {
+                    addmul(P, dZ, dCj);
+                    dej -= dot(dZ, a);
+                }
+                double dfj = dot(ssf.Z, dCj) + ssf.dh[j];
+                if (dZ != null) {
+                    dfj += dot(dZ, C);
+                }
+                de[j] = dej;
+                df[j] = dfj;
+            }
+            if (Pi != null) {
+                mul(Pi, ssf.Z, Ci);
+                double fi = dot(ssf.Z, Ci);
+                if (Math.abs(fi) < State.ZERO) {
+                    fi = 0;
+                }
+                if (Math.abs(f) / norm < State.ZERO) {
+                    f = 0;
+                }
+                if (fi != 0) {
+                    for (int j = 0; j < nvars; ++j) {
+                        double[] dZ = ssf.dZ[j], dCij = dCi[j];
+                        mul(dPi[j], ssf.Z, dCij);
+                        if (dZ != null) {
+                            addmul(Pi, dZ, dCij);
+                        }
+                        double dfij = dot(ssf.Z, dCij);
+                        if (dZ != null) {
+                            dfij += dot(dZ, Ci);
+                        }
+                        dfi[j] = dfij;
+                    }
+                    update1(e, f, fi);
+                    return;
+                }
+            }
+            update0(e, f);
+        }
+
+        /**
+         * Update with a diffuse prediction error
+         */
+        private void update1(double e, double f, double fi) {
+            ++nd;
+            lddet += Math.log(fi);
+            double fi2 = fi * fi;
+            // Pi = Pi - Ci*Ci'/fi
+            // P = P - (C*Ci'+Ci*C')/fi + f/fi2*Ci*Ci'
+            // a = a + e/fi*Ci
+            for (int j = 0; j < nvars; ++j) {
+                double dfj = df[j], dfij = dfi[j], dej = de[j];
+                double[] dCj = dC[j], dCij = dCi[j];
+                dlddet[j] += dfij / fi;
+                double[] dPij = dPi[j];
+                addXXt(dPij, dfij / fi2, Ci);
+                addXYt(dPij, -1 / fi, dCij, Ci);
+                double[] dPj = dP[j];
+                addXYt(dPj, -1 / fi, dCj, Ci);
+                addXYt(dPj, -1 / fi, C, dCij);
+                addXYt(dPj, dfij / fi2, C, Ci);
+                addXXt(dPj, dfj / fi2 - 2 * f * dfij / (fi2 * fi), Ci);
+                addXYt(dPj, f / fi2, dCij, Ci);
+                addAY(da[j], dej / fi - e * dfij / fi2, Ci);
+                addAY(da[j], e / fi, dCij);
+            }
+            addXXt(Pi, -1 / fi, Ci);
+            addXYt(P, -1 / fi, C, Ci);
+            addXXt(P, f / fi2, Ci);
+            addAY(a, e / fi, Ci);
+        }
+
+        /**
+         * Update with a normal prediction error
+         */
+        private void update0(double e, double f) {
+            if (Math.abs(f) < State.ZERO && Math.abs(e) < State.ZERO) {
+                return;
+            }
+            ++nobs;
+            ldet += Math.log(f);
+            ssq += e * e / f;
+            double f2 = f * f;
+            // P = P - C*C'/f
+            // a = a + e/f*C
+            for (int j = 0; j < nvars; ++j) {
+                double dfj = df[j], dej = de[j];
+                double[] dCj = dC[j];
+                dldet[j] += dfj / f;
+                dssq[j] += 2 * e * dej / f - e * e * dfj / f2;
+                addXYt(dP[j], -1 / f, dCj, C);
+                addXXt(dP[j], dfj / f2, C);
+                addAY(da[j], dej / f - e * dfj / f2, C);
+                addAY(da[j], e / f, dCj);
+            }
+            addXXt(P, -1 / f, C);
+            addAY(a, e / f, C);
+        }
+
+        /**
+         * a = T*a, P = T*P*T'+V, Pi = T*Pi*T'
+         */
+        private void pred() {
+            double[] T = ssf.T;
+            // W = P*T'
+            mulT(P, T, W);
+            for (int j = 0; j < nvars; ++j) {
+                double[] dTj = ssf.dT[j], dVj = ssf.dV[j];
+                // da = T*da + dT*a
+                double[] daj = da[j];
+                mul(T, daj, C);
+                if (dTj != null) {
+                    addmul(dTj, a, C);
+                }
+                System.arraycopy(C, 0, daj, 0, n);
+                // dP = T*dP*T' + dT*W + (dT*W)' + dV
+                tvt(T, dP[j]);
+                if (dTj != null) {
+                    mulm(dTj, W, M);
+                    addSym(dP[j], M);
+                }
+                if (dVj != null) {
+                    add(dP[j], dVj);
+                }
+            }
+            mul(T, a, C);
+            System.arraycopy(C, 0, a, 0, n);
+            // P = T*W + V
+            mulm(T, W, P);
+            add(P, ssf.V);
+            symmetrize(P);
+            if (Pi != null) {
+                mulT(Pi, T, W);
+                for (int j = 0; j < nvars; ++j) {
+                    double[] dTj = ssf.dT[j];
+                    tvt(T, dPi[j]);
+                    if (dTj != null) {
+                        mulm(dTj, W, M);
+                        addSym(dPi[j], M);
+                    }
+                }
+                mulm(T, W, Pi);
+                symmetrize(Pi);
+            }
+        }
+
+        // dense column-major linear algebra
+        /**
+         * y = A*x
+         */
+        private void mul(double[] A, double[] x, double[] y) {
+            Arrays.fill(y, 0);
+            addmul(A, x, y);
+        }
+
+        /**
+         * y += A*x
+         */
+        private void addmul(double[] A, double[] x, double[] y) {
+            for (int c = 0, k = 0; c < n; ++c) {
+                double xc = x[c];
+                if (xc == 0) {
+                    k += n;
+                    continue;
+                }
+                for (int r = 0; r < n; ++r, ++k) {
+                    y[r] += A[k] * xc;
+                }
+            }
+        }
+
+        /**
+         * Y = A*B
+         */
+        private void mulm(double[] A, double[] B, double[] Y) {
+            Arrays.fill(Y, 0);
+            for (int c = 0; c < n; ++c) {
+                int yc = c * n;
+                for (int l = 0; l < n; ++l) {
+                    double b = B[l + yc];
+                    if (b != 0) {
+                        for (int r = 0, k = l * n; r < n; ++r, ++k) {
+                            Y[yc + r] += A[k] * b;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Y = A*B'
+         */
+        private void mulT(double[] A, double[] B, double[] Y) {
+            Arrays.fill(Y, 0);
+            for (int c = 0; c < n; ++c) {
+                int yc = c * n;
+                for (int l = 0; l < n; ++l) {
+                    double b = B[c + l * n];
+                    if (b != 0) {
+                        for (int r = 0, k = l * n; r < n; ++r, ++k) {
+                            Y[yc + r] += A[k] * b;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * X = T*X*T'
+         */
+        private void tvt(double[] T, double[] X) {
+            mulT(X, T, M);
+            mulm(T, M, X);
+        }
+
+        private void add(double[] X, double[] Y) {
+            for (int i = 0; i < X.length; ++i) {
+                X[i] += Y[i];
+            }
+        }
+
+        /**
+         * X += Y + Y'
+         */
+        private void addSym(double[] X, double[] Y) {
+            for (int c = 0; c < n; ++c) {
+                for (int r = 0; r < n; ++r) {
+                    X[r + c * n] += Y[r + c * n] + Y[c + r * n];
+                }
+            }
+        }
+
+        private void symmetrize(double[] X) {
+            for (int c = 0; c < n; ++c) {
+                for (int r = 0; r < c; ++r) {
+                    double x = .5 * (X[r + c * n] + X[c + r * n]);
+                    X[r + c * n] = x;
+                    X[c + r * n] = x;
+                }
+            }
+        }
+
+        /**
+         * X += a*x*x'
+         */
+        private void addXXt(double[] X, double a, double[] x) {
+            for (int c = 0, k = 0; c < n; ++c) {
+                double xc = a * x[c];
+                for (int r = 0; r < n; ++r, ++k) {
+                    X[k] += x[r] * xc;
+                }
+            }
+        }
+
+        /**
+         * X += a*(x*y' + y*x')
+         */
+        private void addXYt(double[] X, double a, double[] x, double[] y) {
+            for (int c = 0, k = 0; c < n; ++c) {
+                double xc = a * x[c], yc = a * y[c];
+                for (int r = 0; r < n; ++r, ++k) {
+                    X[k] += x[r] * yc + y[r] * xc;
+                }
+            }
+        }
+
+        private void addAY(double[] x, double a, double[] y) {
+            if (a == 0) {
+                return;
+            }
+            for (int i = 0; i < x.length; ++i) {
+                x[i] += a * y[i];
+            }
+        }
+
+        private double dot(double[] x, double[] y) {
+            double s = 0;
+            for (int i = 0; i < x.length; ++i) {
+                s += x[i] * y[i];
+            }
+            return s;
+        }
+
+        private double nrm2(double[] x) {
+            return Math.sqrt(dot(x, x));
+        }
+
+        private boolean isZero(double[] x, double eps) {
+            for (int i = 0; i < x.length; ++i) {
+                if (Math.abs(x[i]) > eps) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
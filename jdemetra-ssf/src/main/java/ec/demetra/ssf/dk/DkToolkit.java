@@ -28,6 +28,8 @@ import ec.demetra.ssf.ckms.CkmsInitializer;
 import ec.demetra.ssf.dk.sqrt.CompositeDiffuseSquareRootFilteringResults;
 import ec.demetra.ssf.dk.sqrt.DefaultDiffuseSquareRootFilteringResults;
 import ec.demetra.ssf.dk.sqrt.DiffuseSquareRootSmoother;
+import ec.demetra.ssf.implementations.arima.ArimaInnovations;
+import ec.demetra.ssf.implementations.arima.SsfArima;
 import ec.demetra.ssf.univariate.DefaultSmoothingResults;
 import ec.demetra.ssf.univariate.IConcentratedLikelihoodComputer;
 import ec.demetra.ssf.univariate.ILikelihoodComputer;
@@ -77,6 +79,20 @@ public class DkToolkit {
         return new CLLComputer(sqr, fast);
     }
 
+    /**
+     * Concentrated likelihood computer that uses the exact likelihood of the
+     * differenced series (innovations algorithm) for large pure arima models
+     * (SsfArima without regression variables and without missing values).
+     * The usual diffuse filter is used in the other cases.
+     *
+     * @param sqr
+     * @param fast
+     * @return
+     */
+    public static IConcentratedLikelihoodComputer<DkConcentratedLikelihood> arimaLikelihoodComputer(boolean sqr, boolean fast) {
+        return new ArimaCLLComputer(sqr, fast);
+    }
+
     public static <S, F extends ISsf> SsfFunction<S, F> likelihoodFunction(ISsfData data, IParametricMapping<S> mapping, ISsfBuilder<S, F> builder) {
         return new SsfFunction<>(data, mapping, builder);
     }
@@ -105,6 +121,25 @@ public class DkToolkit {
         return frslts;
     }
 
+    /**
+     * Runs the diffuse square root filter and pushes the prediction errors to
+     * the given results. Nothing is stored.
+     *
+     * @param ssf
+     * @param data
+     * @param rslts
+     * @return
+     */
+    public static boolean stream(ISsf ssf, ISsfData data, StreamingFilteringResults rslts) {
+        DiffuseSquareRootInitializer initializer = new DiffuseSquareRootInitializer(rslts);
+        OrdinaryFilter filter = new OrdinaryFilter(initializer);
+        try {
+            return filter.process(ssf, data, rslts);
+        } finally {
+            rslts.complete();
+        }
+    }
+
     public static DefaultSmoothingResults smooth(ISsf ssf, ISsfData data, boolean all) {
         DiffuseSmoother smoother = new DiffuseSmoother();
         smoother.setCalcVariances(all);
@@ -220,6 +255,41 @@ public class DkToolkit {
         }
     }
 
+    private static class ArimaCLLComputer implements IConcentratedLikelihoodComputer<DkConcentratedLikelihood> {
+
+        /**
+         * Minimal size of the state vector for using the innovations
+         * algorithm. Below that size, the Kalman filter is as fast.
+         */
+        private static final int MIN_DIM = 15;
+
+        private final CLLComputer computer;
+        private final boolean fast;
+
+        private ArimaCLLComputer(boolean sqr, boolean fast) {
+            this.computer = new CLLComputer(sqr, fast);
+            this.fast = fast;
+        }
+
+        @Override
+        public DkConcentratedLikelihood compute(SsfRegressionModel model) {
+            if (fast || model.hasX() || !(model.getSsf() instanceof SsfArima)
+                    || model.getSsf().getStateDim() < MIN_DIM || model.getY().hasMissingValues()) {
+                return computer.compute(model);
+            }
+            SsfArima ssf = (SsfArima) model.getSsf();
+            ArimaInnovations innovations = new ArimaInnovations(ssf.getModel());
+            if (!innovations.process(model.getY())) {
+                return computer.compute(model);
+            }
+            DkConcentratedLikelihood dcll = new DkConcentratedLikelihood();
+            dcll.set(innovations.getSsqErr(), innovations.getLogDeterminant(), 0,
+                    model.getY().getLength(), innovations.getDifferencingOrder());
+            dcll.setResiduals(innovations.getErrors());
+            return dcll;
+        }
+    }
+
     private static class CLLComputer implements IConcentratedLikelihoodComputer<DkConcentratedLikelihood> {
 
         private final boolean sqr, fast;
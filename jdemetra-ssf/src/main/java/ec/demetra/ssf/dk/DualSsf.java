@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.dk;
+
+import ec.demetra.realfunctions.IParametersDomain;
+import ec.demetra.ssf.ISsfDynamics;
+import ec.demetra.ssf.univariate.ISsf;
+import ec.demetra.ssf.univariate.ISsfMeasurement;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.Matrix;
+import java.util.function.Function;
+
+/**
+ * Time invariant univariate state space form, with the derivatives of its
+ * system matrices (T, V, Z, H, a0, Pf0) with respect to a set of parameters.
+ * It is used by the dual (tangent) Kalman filter, which computes the exact
+ * derivatives of the likelihood.
+ *
+ * The matrices are stored in dense column-major arrays, so that the class is
+ * intended for models with a moderate number of states. The diffuse part of
+ * the initialization (Pi0) can't depend on the parameters.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class DualSsf {
+
+    final int dim, nvars;
+    final double[] T, V, Pf0, Pi0, Z, a0;
+    final double h;
+    // derivatives with respect to each parameter. Null when they are 0
+    final double[][] dT, dV, dPf0, dZ, da0;
+    final double[] dh;
+
+    private DualSsf(Dense ssf, int nvars) {
+        this.dim = ssf.dim;
+        this.nvars = nvars;
+        T = ssf.T;
+        V = ssf.V;
+        Pf0 = ssf.Pf0;
+        Pi0 = ssf.Pi0;
+        Z = ssf.Z;
+        a0 = ssf.a0;
+        h = ssf.h;
+        dT = new double[nvars][];
+        dV = new double[nvars][];
+        dPf0 = new double[nvars][];
+        dZ = new double[nvars][];
+        da0 = new double[nvars][];
+        dh = new double[nvars];
+    }
+
+    /**
+     * Creates a dual state space form without parameters
+     *
+     * @param ssf A time invariant state space form
+     * @return Null if the state space form is not time invariant
+     */
+    public static DualSsf of(ISsf ssf) {
+        Dense dense = Dense.of(ssf);
+        return dense == null ? null : new DualSsf(dense, 0);
+    }
+
+    /**
+     * Creates a dual state space form from a model builder. The derivatives of
+     * the system matrices are obtained by finite differences on the builder
+     * (no filtering is involved): central differences or, near the bounds of
+     * the domain, one-sided differences on three points. Both are exact (up
+     * to rounding errors) for system matrices that are polynomials of degree
+     * 2 or less in the parameters, which covers the usual parameterizations
+     * (variances, squared standard deviations, MA/AR coefficients of simple
+     * models). When only one neighbour of p is in the domain, the derivatives
+     * are first-order approximations.
+     *
+     * @param model The builder of the state space form
+     * @param domain The domain of the parameters (used for the steps of the
+     * differences)
+     * @param p The parameters
+     * @return Null if the model is not time invariant, if it can't be built
+     * around p or if its diffuse part depends on the parameters
+     */
+    public static DualSsf of(Function<IReadDataBlock, ? extends ISsf> model, IParametersDomain domain, IReadDataBlock p) {
+        try {
+            Dense ssf = Dense.of(model.apply(p));
+            if (ssf == null) {
+                return null;
+            }
+            int n = p.getLength();
+            DualSsf dssf = new DualSsf(ssf, n);
+            for (int i = 0; i < n; ++i) {
+                double eps = domain.epsilon(p, i);
+                if (eps == 0) {
+                    continue;
+                }
+                DataBlock pp = new DataBlock(p), pm = new DataBlock(p);
+                pp.add(i, eps);
+                pm.add(i, -eps);
+                Dense sp = build(model, domain, pp), sm = build(model, domain, pm);
+                // derivative = (c1*(s1-s0)-(s2-s0))*w
+                Dense s0, s1, s2 = null;
+                double c1 = 1, w;
+                if (sp != null && sm != null) {
+                    // central differences
+                    s0 = sm;
+                    s1 = sp;
+                    w = 1 / (2 * eps);
+                } else if (sp != null || sm != null) {
+                    // one-sided differences: (-3*f(p)+4*f(p+e)-f(p+2e))/(2e),
+                    // or (f(p+e)-f(p))/e when p+2e is not valid
+                    double e = sp != null ? eps : -eps;
+                    DataBlock p2 = new DataBlock(p);
+                    p2.add(i, 2 * e);
+                    s0 = ssf;
+                    s1 = sp != null ? sp : sm;
+                    s2 = build(model, domain, p2);
+                    if (s2 != null) {
+                        c1 = 4;
+                        w = 1 / (2 * e);
+                    } else {
+                        w = 1 / e;
+                    }
+                } else {
+                    continue;
+                }
+                if (!s0.isCompatible(ssf) || !s1.isCompatible(ssf) || (s2 != null && !s2.isCompatible(ssf))) {
+                    return null;
+                }
+                dssf.dT[i] = diff(s0.T, s1.T, c1, s2 == null ? null : s2.T, w);
+                dssf.dV[i] = diff(s0.V, s1.V, c1, s2 == null ? null : s2.V, w);
+                dssf.dPf0[i] = diff(s0.Pf0, s1.Pf0, c1, s2 == null ? null : s2.Pf0, w);
+                dssf.dZ[i] = diff(s0.Z, s1.Z, c1, s2 == null ? null : s2.Z, w);
+                dssf.da0[i] = diff(s0.a0, s1.a0, c1, s2 == null ? null : s2.a0, w);
+                dssf.dh[i] = (c1 * (s1.h - s0.h) - (s2 == null ? 0 : s2.h - s0.h)) * w;
+            }
+            return dssf;
+        } catch (RuntimeException err) {
+            return null;
+        }
+    }
+
+    public int getStateDim() {
+        return dim;
+    }
+
+    public int getParametersCount() {
+        return nvars;
+    }
+
+    public boolean isDiffuse() {
+        return Pi0 != null;
+    }
+
+    private static Dense build(Function<IReadDataBlock, ? extends ISsf> model, IParametersDomain domain, DataBlock p) {
+        return domain.checkBoundaries(p) ? Dense.of(model.apply(p)) : null;
+    }
+
+    /**
+     * (c1*(s1-s0)-(s2-s0))*w (s2 is ignored when it is null)
+     *
+     * @return Null when all the differences are 0
+     */
+    private static double[] diff(double[] s0, double[] s1, double c1, double[] s2, double w) {
+        double[] d = null;
+        for (int i = 0; i < s0.length; ++i) {
+            double di = c1 * (s1[i] - s0[i]);
+            if (s2 != null) {
+                di -= s2[i] - s0[i];
+            }
+            if (di != 0) {
+                if (d == null) {
+                    d = new double[s0.length];
+                }
+                d[i] = di * w;
+            }
+        }
+        return d;
+    }
+
+    private static class Dense {
+
+        private static final double EPS = 1e-12;
+
+        final int dim;
+        final double[] T, V, Pf0, Pi0, Z, a0;
+        final double h;
+
+        private Dense(int dim, double[] T, double[] V, double[] Pf0, double[] Pi0, double[] Z, double[] a0, double h) {
+            this.dim = dim;
+            this.T = T;
+            this.V = V;
+            this.Pf0 = Pf0;
+            this.Pi0 = Pi0;
+            this.Z = Z;
+            this.a0 = a0;
+            this.h = h;
+        }
+
+        static Dense of(ISsf ssf) {
+            if (ssf == null || !ssf.isTimeInvariant()) {
+                return null;
+            }
+            ISsfDynamics dynamics = ssf.getDynamics();
+            ISsfMeasurement measurement = ssf.getMeasurement();
+            int n = dynamics.getStateDim();
+            Matrix T = Matrix.square(n);
+            dynamics.T(0, T.all());
+            Matrix V = Matrix.square(n);
+            if (dynamics.hasInnovations(0)) {
+                dynamics.V(0, V.all());
+            }
+            Matrix Pf0 = Matrix.square(n);
+            if (!dynamics.Pf0(Pf0.all())) {
+                return null;
+            }
+            Matrix Pi0 = null;
+            if (dynamics.isDiffuse()) {
+                Pi0 = Matrix.square(n);
+                dynamics.Pi0(Pi0.all());
+            }
+            DataBlock a0 = new DataBlock(n);
+            dynamics.a0(a0);
+            DataBlock Z = new DataBlock(n);
+            measurement.Z(0, Z);
+            double h = measurement.hasErrors() ? measurement.errorVariance(0) : 0;
+            return new Dense(n, T.internalStorage(), V.internalStorage(), Pf0.internalStorage(),
+                    Pi0 == null ? null : Pi0.internalStorage(), toArray(Z), toArray(a0), h);
+        }
+
+        private static double[] toArray(DataBlock x) {
+            double[] a = new double[x.getLength()];
+            x.copyTo(a, 0);
+            return a;
+        }
+
+        boolean isCompatible(Dense other) {
+            if (dim != other.dim) {
+                return false;
+            }
+            if (Pi0 == null || other.Pi0 == null) {
+                return Pi0 == other.Pi0;
+            }
+            for (int i = 0; i < Pi0.length; ++i) {
+                if (Math.abs(Pi0[i] - other.Pi0[i]) > EPS * (1 + Math.abs(Pi0[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
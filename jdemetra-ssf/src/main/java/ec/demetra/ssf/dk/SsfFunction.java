@@ -17,9 +17,13 @@
 package ec.demetra.ssf.dk;
 
 import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.demetra.realfunctions.DualDataBlock;
+import ec.demetra.realfunctions.IDualFunction;
 import ec.demetra.realfunctions.IFunction;
 import ec.demetra.realfunctions.IParametersDomain;
 import ec.demetra.realfunctions.IParametricMapping;
+import ec.demetra.realfunctions.MinimizerBudget;
 import ec.demetra.realfunctions.ISsqFunction;
 import ec.demetra.ssf.univariate.ISsf;
 import ec.demetra.ssf.univariate.ISsfBuilder;
@@ -34,7 +38,7 @@ import ec.demetra.realfunctions.ISsqFunctionPoint;
  * @param <S>
  * @param <F>
  */
-public class SsfFunction<S, F extends ISsf> implements IFunction, ISsqFunction {
+public class SsfFunction<S, F extends ISsf> implements IFunction, ISsqFunction, IDualFunction {
 
     private final IParametricMapping<S> mapping; // mapping from an array of double to an object S
     private final ISsfBuilder<S, F> builder; // mapping from an object S to a given ssf
@@ -42,7 +46,8 @@ public class SsfFunction<S, F extends ISsf> implements IFunction, ISsqFunction {
     private final boolean missing;
     private final SubMatrix X;
     private final int[] diffuseX;
-    private boolean ml = true, log = false, fast = false, mt, sym;
+    private boolean ml = true, log = false, fast = false, exactArima = true, dual = false, mt, sym;
+    private MinimizerBudget budget;
 
     /**
      *
@@ -94,8 +99,110 @@ public class SsfFunction<S, F extends ISsf> implements IFunction, ISsqFunction {
         this.fast = fast;
     }
 
+    /**
+     * Large pure arima models are evaluated by means of the innovations
+     * algorithm (exact likelihood of the differenced series) instead of the
+     * diffuse Kalman filter. True by default.
+     *
+     * @return
+     */
+    public boolean isExactArima() {
+        return exactArima;
+    }
+
+    public void setExactArima(boolean exactArima) {
+        this.exactArima = exactArima;
+    }
+
+    /**
+     * The gradient of the function is computed by a dual Kalman filter (exact
+     * derivatives) instead of numerical differences. Only used for time
+     * invariant models without regression variables; the other cases use
+     * numerical derivatives. False by default.
+     *
+     * @return
+     */
+    public boolean isDualDerivatives() {
+        return dual;
+    }
+
+    public void setDualDerivatives(boolean dual) {
+        this.dual = dual;
+    }
+
+    /**
+     * The budget is checked before each evaluation of the likelihood (and of
+     * its exact derivatives), so that long estimations can be cancelled even
+     * between the iterations of the minimizer. The evaluations are not counted
+     * here (they are counted by the minimizers that use the same budget).
+     *
+     * @return The budget. May be null
+     */
+    public MinimizerBudget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(MinimizerBudget budget) {
+        this.budget = budget;
+    }
+
+    private void check() {
+        if (budget != null) {
+            budget.check();
+        }
+    }
+
+    @Override
+    public DualDataBlock dualEvaluate(DualDataBlock parameters) {
+        if (X != null) {
+            return null;
+        }
+        check();
+        DualSsf ssf = DualSsf.of(p -> builder.buildSsf(mapping.map(p)), mapping, parameters);
+        if (ssf == null) {
+            return null;
+        }
+        DkDualLikelihood dll = DkDualLikelihood.compute(ssf, data);
+        if (dll == null) {
+            return null;
+        }
+        DkLikelihood ll = dll.getLikelihood();
+        int n = parameters.getLength();
+        double[] g = new double[n];
+        double val;
+        if (ml) {
+            if (log) {
+                val = -ll.getLogLikelihood();
+                IReadDataBlock dll0 = dll.getLogLikelihoodDerivatives();
+                for (int i = 0; i < n; ++i) {
+                    g[i] = -dll0.get(i);
+                }
+            } else {
+                double ssq = ll.getSsqErr(), factor = ll.getFactor();
+                val = ssq * factor;
+                IReadDataBlock dssq = dll.getSsqErrDerivatives(), dfactor = dll.getFactorDerivatives();
+                for (int i = 0; i < n; ++i) {
+                    g[i] = dssq.get(i) * factor + ssq * dfactor.get(i);
+                }
+            }
+        } else {
+            double ssq = ll.getSsqErr();
+            dll.getSsqErrDerivatives().copyTo(g, 0);
+            if (log) {
+                val = Math.log(ssq);
+                for (int i = 0; i < n; ++i) {
+                    g[i] /= ssq;
+                }
+            } else {
+                val = ssq;
+            }
+        }
+        return DualDataBlock.scalar(val, new ReadDataBlock(g), parameters);
+    }
+
     @Override
     public IFunctionPoint evaluate(IReadDataBlock parameters) {
+        check();
         return new SsfFunctionInstance<>(this, parameters);
     }
 
@@ -110,6 +217,7 @@ public class SsfFunction<S, F extends ISsf> implements IFunction, ISsqFunction {
 
     @Override
     public ISsqFunctionPoint ssqEvaluate(IReadDataBlock parameters) {
+        check();
         return new SsfFunctionInstance<>(this, parameters);
     }
 
@@ -25,6 +25,8 @@ import ec.demetra.realfunctions.ISsqFunction;
 import ec.demetra.ssf.univariate.IConcentratedLikelihoodComputer;
 import ec.demetra.ssf.univariate.SsfRegressionModel;
 import ec.demetra.realfunctions.IFunctionPoint;
+import ec.demetra.realfunctions.DualDerivatives;
+import ec.demetra.realfunctions.IFunctionDerivatives;
 import ec.demetra.realfunctions.ISsqFunctionPoint;
 
 /**
@@ -60,7 +62,9 @@ public class SsfFunctionInstance<S, F extends ISsf> implements
         current=fn.getMapping().map(p);
         currentSsf = fn.getBuilder().buildSsf(current);
         boolean fastcomputer=fn.isFast() && !fn.isMissing() && currentSsf.isTimeInvariant();
-        IConcentratedLikelihoodComputer<DkConcentratedLikelihood> computer= DkToolkit.concentratedLikelihoodComputer(true, fastcomputer);
+        IConcentratedLikelihoodComputer<DkConcentratedLikelihood> computer= fn.isExactArima()
+                ? DkToolkit.arimaLikelihoodComputer(true, fastcomputer)
+                : DkToolkit.concentratedLikelihoodComputer(true, fastcomputer);
         if (fn.getX() == null)
             ll=computer.compute(currentSsf, fn.getData());
         else
@@ -92,6 +96,44 @@ public class SsfFunctionInstance<S, F extends ISsf> implements
         return E;
     }
 
+    @Override
+    public boolean getE(double[] buffer, int offset) {
+        if (E != null) {
+            E.copyTo(buffer, offset);
+            return true;
+        }
+        IReadDataBlock res = ll.getResiduals();
+        if (res == null) {
+            return false;
+        }
+        double factor = fn.isMaximumLikelihood() ? Math.sqrt(ll.getFactor()) : 1;
+        for (int i = 0, n = res.getLength(); i < n; ++i) {
+            double e = res.get(i);
+            if (Double.isFinite(e)) {
+                buffer[offset++] = e * factor;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int getDim() {
+        if (E != null) {
+            return E.getLength();
+        }
+        IReadDataBlock res = ll.getResiduals();
+        if (res == null) {
+            return 0;
+        }
+        int n = 0;
+        for (int i = 0; i < res.getLength(); ++i) {
+            if (Double.isFinite(res.get(i))) {
+                ++n;
+            }
+        }
+        return n;
+    }
+
     /**
      *
      * @return
@@ -100,6 +142,11 @@ public class SsfFunctionInstance<S, F extends ISsf> implements
         return ll;
     }
 
+    @Override
+    public IFunctionDerivatives getDerivatives() {
+        return fn.isDualDerivatives() ? new DualDerivatives(this, fn) : IFunctionPoint.super.getDerivatives();
+    }
+
     @Override
     public IReadDataBlock getParameters() {
         return p;
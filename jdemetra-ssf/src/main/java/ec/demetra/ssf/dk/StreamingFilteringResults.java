@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.dk;
+
+import ec.demetra.ssf.SsfException;
+import ec.demetra.ssf.State;
+import ec.demetra.ssf.StateInfo;
+import ec.demetra.ssf.akf.AugmentedState;
+import ec.demetra.ssf.dk.sqrt.IDiffuseSquareRootFilteringResults;
+import ec.demetra.ssf.univariate.UpdateInformation;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.design.Development;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Filtering results that don't store anything but push the prediction errors
+ * (t, e(t), f(t), a(t|t-1)) to a listener, as the filter runs. Missing values
+ * and diffuse steps are not emitted, so that the emitted errors are the ones
+ * used in the (diffuse) likelihood.
+ *
+ * The filter is blocked by the listener (back-pressure): a listener that
+ * writes into a bounded blocking queue (see {@link #of(BlockingQueue, boolean)})
+ * suspends the filter as long as the consumer is late.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class StreamingFilteringResults implements IDiffuseFilteringResults, IDiffuseSquareRootFilteringResults {
+
+    @FunctionalInterface
+    public static interface IListener {
+
+        /**
+         *
+         * @param t The position of the observation
+         * @param e The prediction error
+         * @param f The variance of the prediction error
+         * @param a The predicted state a(t|t-1). Read-only view, only valid
+         * during the call. Null if the states are not streamed.
+         */
+        void onPredictionError(int t, double e, double f, DataBlock a);
+
+        /**
+         * Called when the filter has processed all the observations
+         */
+        default void onCompleted() {
+        }
+    }
+
+    /**
+     * Prediction error emitted through a blocking queue
+     */
+    @Development(status = Development.Status.Alpha)
+    public static final class PredictionError {
+
+        /**
+         * Marker put in the queue at the end of the series
+         */
+        public static final PredictionError END = new PredictionError(-1, Double.NaN, Double.NaN, null);
+
+        private final int t;
+        private final double e, f;
+        private final DataBlock a;
+
+        public PredictionError(int t, double e, double f, DataBlock a) {
+            this.t = t;
+            this.e = e;
+            this.f = f;
+            this.a = a;
+        }
+
+        public int getPosition() {
+            return t;
+        }
+
+        public double getError() {
+            return e;
+        }
+
+        public double getVariance() {
+            return f;
+        }
+
+        public double getStandardizedError() {
+            return e / Math.sqrt(f);
+        }
+
+        /**
+         * @return A copy of a(t|t-1). May be null
+         */
+        public DataBlock getState() {
+            return a;
+        }
+
+        public boolean isEnd() {
+            return this == END;
+        }
+    }
+
+    /**
+     * Creates streaming results that call the given listener
+     *
+     * @param listener
+     * @param states True if the predicted states must be passed to the
+     * listener
+     * @return
+     */
+    public static StreamingFilteringResults of(IListener listener, boolean states) {
+        return new StreamingFilteringResults(listener, states);
+    }
+
+    /**
+     * Creates streaming results that put the prediction errors in a (bounded)
+     * blocking queue. The filter waits when the queue is full. The end of the
+     * series is signalled by PredictionError.END.
+     *
+     * @param queue
+     * @param states True if copies of the predicted states must be put in the
+     * queue
+     * @return
+     */
+    public static StreamingFilteringResults of(BlockingQueue<PredictionError> queue, boolean states) {
+        return new StreamingFilteringResults(new IListener() {
+            @Override
+            public void onPredictionError(int t, double e, double f, DataBlock a) {
+                put(queue, new PredictionError(t, e, f, a == null ? null : a.deepClone()));
+            }
+
+            @Override
+            public void onCompleted() {
+                put(queue, PredictionError.END);
+            }
+        }, states);
+    }
+
+    private static void put(BlockingQueue<PredictionError> queue, PredictionError pe) {
+        try {
+            queue.put(pe);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SsfException(SsfException.INTERRUPTED, ex);
+        }
+    }
+
+    private final IListener listener;
+    private final boolean states;
+    private State current;
+    private int enddiffuse;
+
+    private StreamingFilteringResults(IListener listener, boolean states) {
+        this.listener = listener;
+        this.states = states;
+    }
+
+    /**
+     * Signals the end of the series to the listener. Should be called once the
+     * filter has finished.
+     */
+    public void complete() {
+        listener.onCompleted();
+    }
+
+    @Override
+    public void save(int t, UpdateInformation pe) {
+        if (pe == null || pe.isMissing()) {
+            return;
+        }
+        listener.onPredictionError(t, pe.get(), pe.getVariance(),
+                states && current != null ? current.a() : null);
+    }
+
+    @Override
+    public void save(int t, DiffuseUpdateInformation pe) {
+        if (pe == null || pe.isMissing() || pe.getDiffuseNorm2() != 0) {
+            return;
+        }
+        save(t, (UpdateInformation) pe);
+    }
+
+    @Override
+    public void save(int pos, State state, StateInfo info) {
+        if (info == StateInfo.Forecast) {
+            current = state;
+        }
+    }
+
+    @Override
+    public void save(int pos, DiffuseState state, StateInfo info) {
+        save(pos, (State) state, info);
+    }
+
+    @Override
+    public void save(int pos, AugmentedState state, StateInfo info) {
+        save(pos, (State) state, info);
+    }
+
+    @Override
+    public void close(int pos) {
+        enddiffuse = pos;
+    }
+
+    @Override
+    public int getEndDiffusePosition() {
+        return enddiffuse;
+    }
+
+    @Override
+    public void clear() {
+        current = null;
+        enddiffuse = 0;
+    }
+}
@@ -20,20 +20,39 @@ import ec.tstoolkit.data.DataBlock;
 import ec.tstoolkit.maths.matrices.SubMatrix;
 import ec.tstoolkit.utilities.Jdk6;
 import ec.demetra.ssf.ISsfDynamics;
+import ec.demetra.ssf.SsfException;
 import ec.demetra.ssf.univariate.ISsf;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Dynamics generated by a juxtaposition of several dynamics. The underlying
  * state is the concatenation of the original states.
  *
+ * The transition matrix is block-diagonal. The operations on the covariance
+ * matrices are done block by block: the cross-blocks which are null (for
+ * instance just after the initialization) are not modified by T and they are
+ * skipped. For large compositions, the blocks are processed in parallel.
+ *
  * @author Jean Palate
  */
 public class CompositeDynamics implements ISsfDynamics {
 
+    private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * Minimal dimension of the state vector for which the blocks are processed
+     * in parallel
+     */
+    private static final int MT_DIM = 150;
+
     private final ISsfDynamics[] dyn;
-    private final int[] dim;
+    private final int[] dim, start;
     private final int fdim;
+    private final boolean mt;
 
     public static CompositeDynamics of(ISsf... ssfs) {
         ISsfDynamics[] dyn = new ISsfDynamics[ssfs.length];
@@ -56,13 +75,34 @@ public class CompositeDynamics implements ISsfDynamics {
         dyn = ssfs;
         int n = ssfs.length;
         dim = new int[n];
+        start = new int[n];
         int tdim = ssfs[0].getStateDim();
         dim[0] = tdim;
         for (int i = 1; i < n; ++i) {
+            start[i] = tdim;
             dim[i] = ssfs[i].getStateDim();
             tdim += dim[i];
         }
         fdim = tdim;
+        mt = NTHREADS > 1 && n > 1 && fdim >= MT_DIM && (isThreadSafe() || distinct(ssfs));
+    }
+
+    /**
+     * The parallel processing of non thread-safe blocks is only possible when
+     * each block is handled by its own object
+     *
+     * @param ssfs
+     * @return
+     */
+    private static boolean distinct(ISsfDynamics[] ssfs) {
+        for (int i = 1; i < ssfs.length; ++i) {
+            for (int j = 0; j < i; ++j) {
+                if (ssfs[i] == ssfs[j]) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     public CompositeDynamics(List<ISsfDynamics> ssfs) {
@@ -82,6 +122,25 @@ public class CompositeDynamics implements ISsfDynamics {
         return dyn[pos];
     }
 
+    /**
+     * Position of the first state of a given component in the composite state
+     *
+     * @param pos
+     * @return
+     */
+    public int getComponentPosition(int pos) {
+        return start[pos];
+    }
+
+    /**
+     * Are the blocks of the covariance matrices processed in parallel
+     *
+     * @return
+     */
+    public boolean isMultiThreaded() {
+        return mt;
+    }
+
     @Override
     public boolean isTimeInvariant() {
         for (int i = 0; i < dyn.length; ++i) {
@@ -92,6 +151,16 @@ public class CompositeDynamics implements ISsfDynamics {
         return true;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        for (int i = 0; i < dyn.length; ++i) {
+            if (!dyn[i].isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean isValid() {
         for (int i = 0; i < dyn.length; ++i) {
@@ -271,8 +340,27 @@ public class CompositeDynamics implements ISsfDynamics {
     }
 
     @Override
-    public void TVT(int pos, SubMatrix v
-    ) {
+    public void TM(int pos, SubMatrix M) {
+        int ncols = M.getColumnsCount();
+        for (int i = 0; i < dyn.length; ++i) {
+            dyn[i].TM(pos, M.extract(start[i], start[i] + dim[i], 0, ncols));
+        }
+    }
+
+    @Override
+    public void MT(int pos, SubMatrix M) {
+        int nrows = M.getRowsCount();
+        for (int i = 0; i < dyn.length; ++i) {
+            dyn[i].MT(pos, M.extract(0, nrows, start[i], start[i] + dim[i]));
+        }
+    }
+
+    @Override
+    public void TVT(int pos, SubMatrix v) {
+        if (mt) {
+            mtTVT(pos, v);
+            return;
+        }
         SubMatrix D = v.topLeft();
         for (int i = 0; i < dyn.length; ++i) {
             int ni = dim[i];
@@ -283,6 +371,10 @@ public class CompositeDynamics implements ISsfDynamics {
                 int nj = dim[j];
                 C.vnext(nj);
                 R.hnext(nj);
+                // T(j) * 0 * T(i)' = 0
+                if (isZero(C)) {
+                    continue;
+                }
                 SubMatrix Ct = C.transpose();
                 dyn[j].TM(pos, C);
                 dyn[i].TM(pos, Ct);
@@ -291,6 +383,77 @@ public class CompositeDynamics implements ISsfDynamics {
         }
     }
 
+    /**
+     * Parallel version of TVT. Each task uses only one component, so that the
+     * components don't need to be thread-safe.
+     * Step 1: for each block i, the diagonal block (i,i) is transformed by
+     * T(i)*V(i,i)*T(i)' and the lower blocks of its rows (i, j<i) by T(i)*V(i,j).
+     * Step 2: for each block j, the lower blocks of its columns (i>j, j) are
+     * transformed by V(i,j)*T(j)' and copied in the upper part of the matrix.
+     *
+     * @param pos
+     * @param v
+     */
+    private void mtTVT(int pos, SubMatrix v) {
+        List<Callable<Void>> tasks = new ArrayList<>(dyn.length);
+        for (int i = 0; i < dyn.length; ++i) {
+            final ISsfDynamics cur = dyn[i];
+            final int i0 = start[i], i1 = i0 + dim[i];
+            tasks.add(() -> {
+                cur.TVT(pos, v.extract(i0, i1, i0, i1));
+                if (i0 > 0) {
+                    SubMatrix L = v.extract(i0, i1, 0, i0);
+                    if (!isZero(L)) {
+                        cur.TM(pos, L);
+                    }
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks);
+        tasks.clear();
+        for (int i = 0; i < dyn.length - 1; ++i) {
+            final ISsfDynamics cur = dyn[i];
+            final int i0 = start[i], i1 = i0 + dim[i];
+            tasks.add(() -> {
+                SubMatrix B = v.extract(i1, fdim, i0, i1);
+                if (!isZero(B)) {
+                    SubMatrix Bt = B.transpose();
+                    cur.TM(pos, Bt);
+                    v.extract(i0, i1, i1, fdim).copy(Bt);
+                }
+                return null;
+            });
+        }
+        invokeAll(tasks);
+    }
+
+    private static void invokeAll(List<Callable<Void>> tasks) {
+        try {
+            List<Future<Void>> rslts = ForkJoinPool.commonPool().invokeAll(tasks);
+            for (Future<Void> rslt : rslts) {
+                rslt.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SsfException(SsfException.COMPOSITE, ex);
+        } catch (ExecutionException ex) {
+            throw new SsfException(SsfException.COMPOSITE, ex);
+        }
+    }
+
+    private static boolean isZero(SubMatrix m) {
+        int nr = m.getRowsCount(), nc = m.getColumnsCount();
+        for (int c = 0; c < nc; ++c) {
+            for (int r = 0; r < nr; ++r) {
+                if (m.get(r, c) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     @Override
     public void addV(int pos, SubMatrix p
     ) {
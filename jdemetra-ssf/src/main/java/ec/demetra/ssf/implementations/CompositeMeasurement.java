@@ -81,7 +81,6 @@ public class CompositeMeasurement implements ISsfMeasurement {
     private final int[] dim;
     private final int fdim;
     private final double var;
-    private final DataBlock tmp;
 
     public CompositeMeasurement(final ISsfMeasurement[] ms, double var) {
         this.measurements = ms;
@@ -94,7 +93,6 @@ public class CompositeMeasurement implements ISsfMeasurement {
         }
         fdim = tdim;
         this.var = var;
-        tmp = new DataBlock(fdim);
     }
 
     public List<ISsfMeasurement> getMeasurements() {
@@ -123,6 +121,16 @@ public class CompositeMeasurement implements ISsfMeasurement {
         return true;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        for (int i = 0; i < measurements.length; ++i) {
+            if (!measurements[i].isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void Z(int pos, DataBlock z) {
         DataBlock cur = z.start();
@@ -164,14 +172,13 @@ public class CompositeMeasurement implements ISsfMeasurement {
         double x = 0;
         for (int i = 0; i < measurements.length; ++i) {
             int ni = dim[i];
-            tmp.set(0);
-            DataBlock buffer = tmp.start();
+            // buffer for Z(j)*V(j,i), which is a row of length ni
+            DataBlock buffer = new DataBlock(ni);
             D.next(ni, ni);
             x += measurements[i].ZVZ(pos, D);
             SubMatrix C = D.clone();
             for (int j = i + 1; j < measurements.length; ++j) {
                 int nj = dim[j];
-                buffer.next(nj);
                 C.vnext(nj);
                 measurements[j].ZM(pos, C, buffer);
                 x += 2 * measurements[i].ZX(pos, buffer);
@@ -182,14 +189,14 @@ public class CompositeMeasurement implements ISsfMeasurement {
 
     @Override
     public void VpZdZ(int pos, SubMatrix V, double d) {
-        tmp.set(0);
-        Z(pos, tmp);
+        DataBlock z = new DataBlock(fdim);
+        Z(pos, z);
         DataBlockIterator cols = V.columns();
         DataBlock col = cols.getData();
         do {
-            double cur = tmp.get(cols.getPosition());
+            double cur = z.get(cols.getPosition());
             if (cur != 0) {
-                col.addAY(d * cur, tmp);
+                col.addAY(d * cur, z);
             }
         } while (cols.next());
     }
@@ -95,7 +95,6 @@ public class CompositeMeasurements implements ISsfMeasurements {
 
     private final ISsfMeasurement[] measurements;
     private final int[] cdim;
-    private final DataBlock tmp;
     private final Matrix corr, lcorr;
 
     /**
@@ -112,9 +111,7 @@ public class CompositeMeasurements implements ISsfMeasurements {
         this.measurements = ms;
         this.corr = corr;
         this.lcorr = lcorr;
-        int n = ms.length;
         this.cdim = cdim;
-        tmp = new DataBlock(cdim[n]);
     }
 
     @Override
@@ -127,6 +124,16 @@ public class CompositeMeasurements implements ISsfMeasurements {
         return true;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        for (int i = 0; i < measurements.length; ++i) {
+            if (!measurements[i].isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void Z(int pos, int var, DataBlock z) {
         DataBlock cur = z.range(cdim[var], cdim[var + 1]);
@@ -263,8 +270,7 @@ public class CompositeMeasurements implements ISsfMeasurements {
         if (v == w) {
             return measurements[v].ZVZ(pos, Vvw);
         } else {
-            DataBlock zm = tmp.range(cdim[w], cdim[w + 1]);
-            zm.set(0);
+            DataBlock zm = new DataBlock(cdim[w + 1] - cdim[w]);
             measurements[v].ZM(pos, Vvw, zm);
             return measurements[w].ZX(pos, zm);
         }
@@ -276,8 +282,7 @@ public class CompositeMeasurements implements ISsfMeasurements {
         if (v == w) {
             measurements[v].VpZdZ(pos, Vvw, d);
         } else {
-            DataBlock zw = tmp.range(cdim[w], cdim[w + 1]);
-            zw.set(0);
+            DataBlock zw = new DataBlock(cdim[w + 1] - cdim[w]);
             measurements[w].Z(pos, zw);
             DataBlockIterator cols = V.columns();
             DataBlock col = cols.getData();
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.implementations;
+
+import ec.demetra.maths.matrices.MatrixKernels;
+import ec.demetra.maths.matrices.MatrixStorage;
+import ec.demetra.maths.matrices.SymmetricMatrix;
+import ec.demetra.ssf.ISsfDynamics;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.DataBlockIterator;
+import ec.tstoolkit.design.Development;
+import ec.tstoolkit.maths.matrices.Matrix;
+import ec.tstoolkit.maths.matrices.SubMatrix;
+
+/**
+ * Time invariant dynamics whose matrix operations (T*M, T*V*T') are computed
+ * by the kernels of ec.demetra.maths.matrices (see MatrixKernels) instead of
+ * the tstoolkit routines. The transition matrix is shared between both
+ * representations; the matrices provided by the filters are copied in a
+ * per-thread workspace, which is shared by all the models and reused from one
+ * period to the next.
+ *
+ * This path is intended for models with large state dimensions, where the
+ * O(n^2) copies are negligible compared to the O(n^3) products.
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class DenseTimeInvariantDynamics extends TimeInvariantDynamics {
+
+    private final ec.demetra.maths.matrices.Matrix T;
+    // shared by all the instances: the buffers are sized on use (they only grow)
+    private static final ThreadLocal<MatrixStorage> WORKSPACE = ThreadLocal.withInitial(MatrixStorage::new);
+
+    public DenseTimeInvariantDynamics(Matrix T, Innovations E, Initialization I) {
+        super(T, E, I);
+        this.T = ec.demetra.maths.matrices.Matrix.of(T);
+    }
+
+    public static DenseTimeInvariantDynamics of(ISsfDynamics sd) {
+        if (!sd.isTimeInvariant()) {
+            return null;
+        }
+        int n = sd.getStateDim();
+        Matrix t = Matrix.square(n);
+        sd.T(0, t.all());
+        Innovations e = Innovations.of(sd);
+        if (e == null) {
+            return null;
+        }
+        Initialization i = Initialization.of(sd);
+        if (i == null) {
+            return null;
+        }
+        return new DenseTimeInvariantDynamics(t, e, i);
+    }
+
+    @Override
+    public void TM(int pos, SubMatrix tm) {
+        MatrixStorage ws = WORKSPACE.get();
+        ec.demetra.maths.matrices.SubMatrix M = ws.matrix(0, tm.getRowsCount(), tm.getColumnsCount());
+        ec.demetra.maths.matrices.SubMatrix TM = ws.matrix(1, tm.getRowsCount(), tm.getColumnsCount());
+        copy(tm, M);
+        MatrixKernels.gemm(TM, T.all(), M, 1, false);
+        copy(TM, tm);
+    }
+
+    @Override
+    public void TVT(int pos, SubMatrix tvt) {
+        int n = tvt.getRowsCount();
+        MatrixStorage ws = WORKSPACE.get();
+        ec.demetra.maths.matrices.SubMatrix V = ws.matrix(0, n, n);
+        ec.demetra.maths.matrices.SubMatrix TV = ws.matrix(1, n, n);
+        copy(tvt, V);
+        MatrixKernels.gemm(TV, T.all(), V, 1, false);
+        MatrixKernels.gemm(V, TV, T.all().transpose(), 1, false);
+        SymmetricMatrix.reinforceSymmetry(V);
+        copy(V, tvt);
+    }
+
+    // the matrices of the workspace have contiguous columns
+
+    private static void copy(SubMatrix src, ec.demetra.maths.matrices.SubMatrix dst) {
+        DataBlockIterator cols = src.columns();
+        DataBlock col = cols.getData();
+        int j = 0;
+        do {
+            ec.demetra.data.DataBlock dcol = dst.column(j++);
+            col.copyTo(dcol.getData(), dcol.getStartPosition());
+        } while (cols.next());
+    }
+
+    private static void copy(ec.demetra.maths.matrices.SubMatrix src, SubMatrix dst) {
+        DataBlockIterator cols = dst.columns();
+        DataBlock col = cols.getData();
+        int j = 0;
+        do {
+            ec.demetra.data.DataBlock scol = src.column(j++);
+            col.copyFrom(scol.getData(), scol.getStartPosition());
+        } while (cols.next());
+    }
+}
@@ -35,14 +35,12 @@ public class ExternalEffects implements ISsfMeasurement {
     private final ISsfMeasurement m;
     private final SubMatrix data;
     private final int nm, nx;
-    private final DataBlock tmp;
 
     private ExternalEffects(final ISsfMeasurement m, final SubMatrix data) {
         this.data = data;
         this.m = m;
         nm = m.getStateDim();
         nx = data.getColumnsCount();
-        tmp = new DataBlock(nx);
     }
 
     @Override
@@ -50,6 +48,11 @@ public class ExternalEffects implements ISsfMeasurement {
         return false;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return m.isThreadSafe();
+    }
+
     @Override
     public void Z(int pos, DataBlock z) {
         DataBlock range = z.range(0, nm);
@@ -85,11 +88,11 @@ public class ExternalEffects implements ISsfMeasurement {
     public double ZVZ(int pos, SubMatrix V) {
         SubMatrix v = V.topLeft(nm, nm);
         double v00 = m.ZVZ(pos, v);
-        v.vnext(nx);
-        tmp.set(0);
-        double v01 = tmp.dot(data.row(pos));
-        m.ZM(pos, v, tmp);
         v.hnext(nx);
+        DataBlock zv = new DataBlock(nx);
+        m.ZM(pos, v, zv);
+        double v01 = zv.dot(data.row(pos));
+        v.vnext(nx);
         double v11 = SymmetricMatrix.quadraticForm(v, data.row(pos));
         return v00 + 2 * v01 + v11;
     }
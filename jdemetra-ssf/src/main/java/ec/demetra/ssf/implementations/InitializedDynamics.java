@@ -47,6 +47,11 @@ public final class InitializedDynamics implements ISsfDynamics {
         return dyn.isTimeInvariant();
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return dyn.isThreadSafe();
+    }
+
     @Override
     public boolean isValid() {
         return dyn.isValid();
@@ -90,15 +90,11 @@ public class Measurement {
     private static class Proxy implements ISsfMeasurement {
 
         private final ISsfMeasurements m_;
-        private final transient SubMatrix h_;
+        private final boolean err_;
 
         private Proxy(ISsfMeasurements m) {
             m_ = m;
-            if (m.hasErrors()) {
-                h_ = new Matrix(1, 1).all();
-            } else {
-                h_ = null;
-            }
+            err_ = m.hasErrors();
         }
 
         @Override
@@ -106,6 +102,11 @@ public class Measurement {
             return m_.isTimeInvariant();
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            return m_.isThreadSafe();
+        }
+
         @Override
         public void Z(int pos, DataBlock z) {
             m_.Z(pos, 0, z); //To change body of generated methods, choose Tools | Templates.
@@ -113,7 +114,7 @@ public class Measurement {
 
         @Override
         public boolean hasErrors() {
-            return h_ != null;
+            return err_;
         }
 
         @Override
@@ -123,11 +124,12 @@ public class Measurement {
 
         @Override
         public double errorVariance(int pos) {
-            if (h_ == null || !m_.hasError(pos)) {
+            if (!err_ || !m_.hasError(pos)) {
                 return 0;
             }
-            m_.H(pos, h_);
-            return h_.get(0, 0);
+            Matrix h = new Matrix(1, 1);
+            m_.H(pos, h.all());
+            return h.get(0, 0);
         }
 
         @Override
@@ -80,6 +80,11 @@ public class Measurements {
             return m_.isTimeInvariant();
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            return m_.isThreadSafe();
+        }
+
         @Override
         public int getCount(int pos) {
             return 1;
@@ -249,6 +254,11 @@ public class Measurements {
             return details.isTimeInvariant();
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            return details.isThreadSafe();
+        }
+
         @Override
         public int getCount(int pos) {
             return details.getCount(pos);
@@ -415,11 +425,9 @@ public class Measurements {
 
         private final int sdim;
         private final ISsfMeasurement[] ms;
-        private final DataBlock tmp;
 
         MeasurementsVector(ISsfMeasurement[] ms, int dim) {
             this.ms = ms;
-            tmp = new DataBlock(dim);
             sdim=dim;
         }
 
@@ -433,6 +441,16 @@ public class Measurements {
             return true;
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            for (int i = 0; i < ms.length; ++i) {
+                if (!ms[i].isThreadSafe()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         @Override
         public int getCount(int pos) {
             return ms.length;
@@ -507,9 +525,9 @@ public class Measurements {
             if (ivar == jvar) {
                 return ms[ivar].ZVZ(pos, V);
             } else {
-                tmp.set(0);
-                ms[ivar].ZM(pos, V, tmp);
-                return ms[jvar].ZX(pos, tmp);
+                DataBlock zv = new DataBlock(sdim);
+                ms[ivar].ZM(pos, V, zv);
+                return ms[jvar].ZX(pos, zv);
             }
         }
 
@@ -529,12 +547,12 @@ public class Measurements {
             if (ivar == jvar) {
                 ms[ivar].VpZdZ(pos, V, d);
             } else {
-                tmp.set(0);
-                Z(pos, jvar, tmp);
+                DataBlock z = new DataBlock(sdim);
+                Z(pos, jvar, z);
                 DataBlockIterator columns = V.columns();
                 DataBlock data = columns.getData();
                 do {
-                    double c = tmp.get(columns.getPosition());
+                    double c = z.get(columns.getPosition());
                     if (c != 0) {
                         ms[ivar].XpZd(pos, data, c * d);
                     }
@@ -102,6 +102,11 @@ public class NoisyMeasurement implements ISsfMeasurement {
         return false;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return measurement.isThreadSafe();
+    }
+
     @Override
     public boolean isValid() {
         return measurement.isValid();
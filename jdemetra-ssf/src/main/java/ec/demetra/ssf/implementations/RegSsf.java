@@ -168,6 +168,11 @@ public class RegSsf extends Ssf {
             return dyn.isTimeInvariant();
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            return dyn.isThreadSafe();
+        }
+
         @Override
         public boolean isValid() {
             return nx > 0;
@@ -180,14 +185,12 @@ public class RegSsf extends Ssf {
         private final ISsfMeasurement m;
         private final SubMatrix data;
         private final int n, nx;
-        private final DataBlock tmp;
 
         private Xmeasurement(final ISsfMeasurement m, final SubMatrix data) {
             this.data = data;
             this.m = m;
             n = m.getStateDim();
             nx = data.getColumnsCount();
-            tmp = new DataBlock(nx);
         }
 
         @Override
@@ -195,6 +198,11 @@ public class RegSsf extends Ssf {
             return false;
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            return m.isThreadSafe();
+        }
+
         @Override
         public void Z(int pos, DataBlock z) {
             DataBlock range = z.range(0, n);
@@ -231,9 +239,9 @@ public class RegSsf extends Ssf {
             SubMatrix v = V.topLeft(n, n);
             double v00 = m.ZVZ(pos, v);
             v.hnext(nx);
-            tmp.set(0);
-            m.ZM(pos, v, tmp);
-            double v01 = tmp.dot(data.row(pos));
+            DataBlock zv = new DataBlock(nx);
+            m.ZM(pos, v, zv);
+            double v01 = zv.dot(data.row(pos));
             v.vnext(nx);
             double v11 = SymmetricMatrix.quadraticForm(v, data.row(pos));
             return v00 + 2 * v01 + v11;
@@ -39,6 +39,11 @@ public class ShiftedMeasurement implements ISsfMeasurement {
     public boolean isTimeInvariant() {
         return m.isTimeInvariant();
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return m.isThreadSafe();
+    }
     
     @Override
     public void Z(int pos, DataBlock z) {
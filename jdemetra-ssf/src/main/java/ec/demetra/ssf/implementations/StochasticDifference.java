@@ -69,7 +69,6 @@ public class StochasticDifference extends Ssf {
         private final int[] dpos;
         private final double[] dw;
         private final int ddim, sdim, dim;
-        private final double[] tmp;
 
         Dynamics(final ISsfDynamics dyn, final ISsfMeasurement m,
                 final int[] dpos, final double[] dw, final int ddim) {
@@ -80,7 +79,6 @@ public class StochasticDifference extends Ssf {
             this.ddim = ddim;
             this.sdim = dyn.getStateDim();
             this.dim = ddim + sdim;
-            this.tmp = new double[dpos.length];
         }
 
         @Override
@@ -93,6 +91,11 @@ public class StochasticDifference extends Ssf {
             return dyn.isTimeInvariant();
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            return dyn.isThreadSafe() && m.isThreadSafe();
+        }
+
         @Override
         public boolean isValid() {
             return true;
@@ -220,6 +223,11 @@ public class StochasticDifference extends Ssf {
             return m.isTimeInvariant();
         }
 
+        @Override
+        public boolean isThreadSafe() {
+            return m.isThreadSafe();
+        }
+
         @Override
         public void Z(int pos, DataBlock z) {
             for (int i = 0; i < dpos.length; ++i) {
@@ -31,7 +31,7 @@ public class TimeInvariantDynamics implements ISsfDynamics {
 
     public static class Innovations {
 
-        private static Innovations of(ISsfDynamics sd) {
+        static Innovations of(ISsfDynamics sd) {
             int n = sd.getStateDim();
             int ne = sd.getInnovationsDim();
             Matrix V = Matrix.square(n);
@@ -126,7 +126,9 @@ public class TimeInvariantDynamics implements ISsfDynamics {
 
     private final Matrix T;
     private final Matrix V;
-    private transient Matrix S;
+    // lazily computed Cholesky factor of V. The computation is idempotent, so
+    // that concurrent initializations are harmless
+    private volatile Matrix S;
 
     private final Matrix Pf0, B0;
     private final DataBlock a0;
@@ -159,11 +161,14 @@ public class TimeInvariantDynamics implements ISsfDynamics {
         return new TimeInvariantDynamics(t, e, i);
     }
 
-    private synchronized void checkS() {
-        if (S == null) {
-            S = V.clone();
-            SymmetricMatrix.lcholesky(S);
+    private Matrix factor() {
+        Matrix s = S;
+        if (s == null) {
+            s = V.clone();
+            SymmetricMatrix.lcholesky(s);
+            S = s;
         }
+        return s;
     }
 
     @Override
@@ -183,7 +188,8 @@ public class TimeInvariantDynamics implements ISsfDynamics {
 
     @Override
     public int getInnovationsDim() {
-        return S == null ? getStateDim() : S.getColumnsCount();
+        Matrix s = S;
+        return s == null ? getStateDim() : s.getColumnsCount();
     }
 
     @Override
@@ -198,20 +204,17 @@ public class TimeInvariantDynamics implements ISsfDynamics {
 
     @Override
     public void S(int pos, SubMatrix sm) {
-        checkS();
-        sm.copy(S.all());
+        sm.copy(factor().all());
     }
 
     @Override
     public void addSU(int pos, DataBlock x, DataBlock u) {
-        checkS();
-        x.addProduct(S.rows(), u);
+        x.addProduct(factor().rows(), u);
     }
 
     @Override
     public void XS(int pos, DataBlock x, DataBlock xs) {
-        checkS();
-        xs.product(x, S.columns());
+        xs.product(x, factor().columns());
     }
 
     @Override
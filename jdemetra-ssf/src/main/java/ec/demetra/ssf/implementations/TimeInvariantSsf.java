@@ -35,6 +35,21 @@ public class TimeInvariantSsf extends Ssf{
         return new TimeInvariantSsf(td, tm);
     }
     
+    /**
+     * Creates a time invariant copy of a state space form whose dynamics
+     * use the matrix kernels of ec.demetra.maths.matrices
+     * (see DenseTimeInvariantDynamics)
+     * @param ssf
+     * @return 
+     */
+    public static ISsf ofDense(ISsf ssf){
+        DenseTimeInvariantDynamics td=DenseTimeInvariantDynamics.of(ssf.getDynamics());
+        if (td == null)
+            return null;
+        TimeInvariantMeasurement tm=TimeInvariantMeasurement.of(ssf.getStateDim(), ssf.getMeasurement());
+        return new TimeInvariantSsf(td, tm);
+    }
+    
     private TimeInvariantSsf(final ISsfDynamics dynamics, ISsfMeasurement measurement) {
         super(dynamics, measurement);
     }
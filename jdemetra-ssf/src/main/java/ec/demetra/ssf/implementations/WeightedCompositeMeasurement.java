@@ -66,7 +66,6 @@ public class WeightedCompositeMeasurement implements ISsfMeasurement {
     private final int[] dim;
     private final int fdim;
     private final double var;
-    private final DataBlock tmp;
 
     WeightedCompositeMeasurement(final ISsfMeasurement[] ms, final IWeights weights, double var) {
         this.measurements = ms;
@@ -80,7 +79,6 @@ public class WeightedCompositeMeasurement implements ISsfMeasurement {
         }
         fdim = tdim;
         this.var = var;
-        tmp = new DataBlock(fdim);
     }
 
     @Override
@@ -96,6 +94,16 @@ public class WeightedCompositeMeasurement implements ISsfMeasurement {
         return true;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        for (int i = 0; i < measurements.length; ++i) {
+            if (!measurements[i].isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void Z(int pos, DataBlock z) {
         DataBlock cur = z.start();
@@ -147,13 +155,12 @@ public class WeightedCompositeMeasurement implements ISsfMeasurement {
             D.next(ni, ni);
             double wi = weights.get(i, pos);
             if (wi != 0) {
-                tmp.set(0);
-                DataBlock buffer = tmp.start();
+                // buffer for Z(j)*V(j,i), which is a row of length ni
+                DataBlock buffer = new DataBlock(ni);
                 x += measurements[i].ZVZ(pos, D) * wi * wi;
                 SubMatrix C = D.clone();
                 for (int j = i + 1; j < measurements.length; ++j) {
                     int nj = dim[j];
-                    buffer.next(nj);
                     C.vnext(nj);
                     double wj = weights.get(j, pos);
                     if (wj != 0) {
@@ -168,14 +175,14 @@ public class WeightedCompositeMeasurement implements ISsfMeasurement {
 
     @Override
     public void VpZdZ(int pos, SubMatrix V, double d) {
-        tmp.set(0);
-        Z(pos, tmp);
+        DataBlock z = new DataBlock(fdim);
+        Z(pos, z);
         DataBlockIterator cols = V.columns();
         DataBlock col = cols.getData();
         do {
-            double cur = tmp.get(cols.getPosition());
+            double cur = z.get(cols.getPosition());
             if (cur != 0) {
-                col.addAY(d * cur, tmp);
+                col.addAY(d * cur, z);
             }
         } while (cols.next());
     }
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.implementations.arima;
+
+import ec.demetra.ssf.univariate.ISsfData;
+import ec.tstoolkit.arima.AutoCovarianceFunction;
+import ec.tstoolkit.arima.IArimaModel;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.design.Development;
+
+/**
+ * Exact likelihood of an arima model, computed by means of the innovations
+ * algorithm on the differenced series.
+ *
+ * Following Ansley (1979), the stationary series z(t) is transformed in
+ * w(t)=z(t) for t &lt; m and w(t)=phi(B)z(t) for t &ge; m, with m=max(p,q).
+ * The covariance matrix of w is banded (bandwidth q) after the first m rows,
+ * so that its Cholesky factor (the innovations) is obtained in O(n*q^2)
+ * operations, whatever the size of the autoregressive part. Once the
+ * recursion has converged to the steady state (invertible models), the
+ * innovations are computed with the moving average coefficients in O(n*q).
+ *
+ * The likelihood is the likelihood of the differenced series, which is also
+ * the diffuse likelihood of the arima model (no diffuse correction).
+ *
+ * @author Jean Palate
+ */
+@Development(status = Development.Status.Alpha)
+public class ArimaInnovations {
+
+    /**
+     * Tolerance used to detect the convergence of the recursion
+     */
+    public static final double EPS = 1e-9;
+
+    private final double[] dif, ar, ma, gamma, k2, k3;
+    private final double var;
+    private final int p, q, m;
+
+    private DataBlock e;
+    private double ssqerr, ldet;
+    private int steady;
+
+    public ArimaInnovations(IArimaModel arima) {
+        var = arima.getInnovationVariance();
+        dif = arima.getNonStationaryAR().getCoefficients();
+        ar = arima.getStationaryAR().getCoefficients();
+        ma = arima.getMA().getCoefficients();
+        p = ar.length - 1;
+        q = ma.length - 1;
+        m = Math.max(p, q);
+        gamma = new AutoCovarianceFunction(arima.getMA().getPolynomial(),
+                arima.getStationaryAR().getPolynomial(), var).values(m + 1);
+        // k2[h] = cov(z(i), w(i+h)), i < m <= i+h
+        // k3[h] = cov(w(i), w(i+h)), m <= i
+        k2 = new double[q + 1];
+        k3 = new double[q + 1];
+        for (int h = 0; h <= q; ++h) {
+            double s2 = 0, s3 = 0;
+            for (int r = 0; r <= p; ++r) {
+                s2 += ar[r] * gamma[Math.abs(h - r)];
+            }
+            for (int r = 0; r <= q - h; ++r) {
+                s3 += ma[r] * ma[r + h];
+            }
+            k2[h] = s2;
+            k3[h] = var * s3;
+        }
+    }
+
+    /**
+     * Number of differencing constraints (degree of the non stationary
+     * auto-regressive polynomial)
+     *
+     * @return
+     */
+    public int getDifferencingOrder() {
+        return dif.length - 1;
+    }
+
+    /**
+     * Computes the innovations of the given series. The series can't contain
+     * missing values.
+     *
+     * @param y
+     * @return False if the series is too short or if the covariance matrix is
+     * not positive definite.
+     */
+    public boolean process(ISsfData y) {
+        e = null;
+        ssqerr = 0;
+        ldet = 0;
+        steady = -1;
+        int d = dif.length - 1;
+        int n = y.getLength() - d;
+        if (n <= 0) {
+            return false;
+        }
+        double[] w = new double[n];
+        for (int t = 0; t < n; ++t) {
+            double s = 0;
+            for (int k = 0; k <= d; ++k) {
+                s += dif[k] * y.get(t + d - k);
+            }
+            w[t] = s;
+        }
+        // Ansley's transformation
+        for (int t = n - 1; t >= m; --t) {
+            double s = w[t];
+            for (int k = 1; k <= p; ++k) {
+                s += ar[k] * w[t - k];
+            }
+            w[t] = s;
+        }
+
+        int nr = q + 1, ni = Math.min(m, n);
+        double[][] itheta = new double[ni][], theta = new double[nr][nr];
+        double[] iv = new double[ni], v = new double[nr];
+        double[] u = new double[n], res = new double[n];
+        for (int t = 0; t < n; ++t) {
+            double vt, pred = 0;
+            if (steady >= 0) {
+                for (int l = 1; l <= q; ++l) {
+                    pred += ma[l] * u[t - l];
+                }
+                vt = var;
+            } else {
+                double[] row;
+                int k0;
+                if (t < m) {
+                    row = new double[t + 1];
+                    itheta[t] = row;
+                    k0 = 0;
+                } else {
+                    row = theta[t % nr];
+                    k0 = t - q;
+                }
+                // row[l] = theta(t, l)
+                for (int k = k0; k < t; ++k) {
+                    double[] rk = k < m ? itheta[k] : theta[k % nr];
+                    double s = kappa(k, t);
+                    for (int j = k0; j < k; ++j) {
+                        s -= rk[k - j] * row[t - j] * (j < m ? iv[j] : v[j % nr]);
+                    }
+                    row[t - k] = s / (k < m ? iv[k] : v[k % nr]);
+                }
+                vt = kappa(t, t);
+                for (int j = k0; j < t; ++j) {
+                    double c = row[t - j];
+                    vt -= c * c * (j < m ? iv[j] : v[j % nr]);
+                    pred += c * u[j];
+                }
+                if (t < m) {
+                    iv[t] = vt;
+                } else {
+                    v[t % nr] = vt;
+                    if (t >= m + q && isSteady(row, vt)) {
+                        steady = t;
+                    }
+                }
+            }
+            if (vt <= 0) {
+                return false;
+            }
+            double ut = w[t] - pred;
+            u[t] = ut;
+            ssqerr += ut * ut / vt;
+            ldet += Math.log(vt);
+            res[t] = ut / Math.sqrt(vt);
+        }
+        e = new DataBlock(res);
+        return true;
+    }
+
+    private double kappa(int i, int j) {
+        int h = j - i;
+        if (j < m) {
+            return gamma[h];
+        } else if (h > q) {
+            return 0;
+        } else {
+            return i < m ? k2[h] : k3[h];
+        }
+    }
+
+    private boolean isSteady(double[] row, double v) {
+        if (Math.abs(v - var) > EPS * var) {
+            return false;
+        }
+        for (int l = 1; l <= q; ++l) {
+            if (Math.abs(row[l] - ma[l]) > EPS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Standardized innovations of the differenced series
+     *
+     * @return
+     */
+    public DataBlock getErrors() {
+        return e;
+    }
+
+    /**
+     * Sum of the squared standardized innovations
+     *
+     * @return
+     */
+    public double getSsqErr() {
+        return ssqerr;
+    }
+
+    /**
+     * Log of the determinant of the covariance matrix of the differenced
+     * series
+     *
+     * @return
+     */
+    public double getLogDeterminant() {
+        return ldet;
+    }
+
+    /**
+     * Position (in the differenced series) from which the steady state has
+     * been used. -1 if the recursion didn't converge.
+     *
+     * @return
+     */
+    public int getSteadyStatePosition() {
+        return steady;
+    }
+}
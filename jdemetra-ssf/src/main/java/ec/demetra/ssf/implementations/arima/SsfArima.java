@@ -163,9 +163,9 @@ public class SsfArima extends Ssf {
 
         private final int dim_;
         private final double var_;
-        private final double[] phi_, acgf_, tmp_, psi_;
-        private transient Matrix V;
-        private transient Matrix P0;
+        private final double[] phi_, acgf_, psi_;
+        private final Matrix V;
+        private final Matrix P0;
 
         public StDynamics(IArimaModel arima) {
             var_ = arima.getInnovationVariance();
@@ -180,10 +180,6 @@ public class SsfArima extends Ssf {
             dim_ = Math.max(p, theta.getDegree() + 1);
             psi_ = new RationalFunction(theta, phi).coefficients(dim_);
             acgf_ = arima.getAutoCovarianceFunction().values(dim_);
-            tmp_ = new double[dim_];
-        }
-
-        private void init() {
             P0 = p0(var_, acgf_, psi_);
             V = v(var_, psi_);
         }
@@ -252,8 +248,7 @@ public class SsfArima extends Ssf {
          */
         @Override
         public void TVT(final int pos, final SubMatrix vm) {
-            DataBlock tmp = new DataBlock(tmp_);
-            tmp.set(0);
+            DataBlock tmp = new DataBlock(dim_);
             DataBlockIterator cols = vm.columns();
             DataBlock col = cols.getData();
             cols.end();
@@ -264,7 +259,7 @@ public class SsfArima extends Ssf {
             double tlast = -tmp.reverseDot(phi_);
             vm.shift(-1);
             tmp.bshift(DataBlock.ShiftOption.None);
-            tmp_[dim_ - 1] = tlast;
+            tmp.set(dim_ - 1, tlast);
             vm.column(dim_ - 1).copy(tmp);
             vm.row(dim_ - 1).copy(tmp);
         }
@@ -350,9 +345,6 @@ public class SsfArima extends Ssf {
 
         @Override
         public boolean Pf0(SubMatrix pf0) {
-            if (P0 == null) {
-                init();
-            }
             pf0.copy(P0.all());
             return true;
         }
@@ -378,9 +370,6 @@ public class SsfArima extends Ssf {
 
         @Override
         public void V(int pos, SubMatrix qm) {
-            if (V == null) {
-                init();
-            }
             qm.copy(V.all());
         }
 
@@ -391,9 +380,6 @@ public class SsfArima extends Ssf {
 
         @Override
         public void S(int pos, SubMatrix sm) {
-            if (psi_ == null) {
-                init();
-            }
             sm.column(0).copyFrom(psi_, 0);
             if (var_ != 1) {
                 sm.mul(Math.sqrt(var_));
@@ -402,9 +388,6 @@ public class SsfArima extends Ssf {
 
         @Override
         public void XS(int pos, DataBlock x, DataBlock xs) {
-            if (psi_ == null) {
-                init();
-            }
             double a = x.dot(psi_);
             if (var_ != 1) {
                 a *= Math.sqrt(var_);
@@ -414,9 +397,6 @@ public class SsfArima extends Ssf {
 
         @Override
         public void addSU(int pos, DataBlock x, DataBlock u) {
-            if (psi_ == null) {
-                init();
-            }
             double a = u.get(0);
             if (var_ != 1) {
                 a *= Math.sqrt(var_);
@@ -426,9 +406,6 @@ public class SsfArima extends Ssf {
 
         @Override
         public void addV(int pos, SubMatrix p) {
-            if (V == null) {
-                init();
-            }
             p.add(V.all());
         }
     }
@@ -437,7 +414,7 @@ public class SsfArima extends Ssf {
 
         private final int dim_;
         private final double var, se;
-        private final double[] phi_, tmp_, psi_;
+        private final double[] phi_, psi_;
         private final DataBlock Phi_;
         private final Matrix V;
         private final Matrix P0;
@@ -536,7 +513,6 @@ public class SsfArima extends Ssf {
             Polynomial stphi = arima.getStationaryAR().getPolynomial();
             stacgf_ = new AutoCovarianceFunction(theta, stphi, var).values(dim_);
             stpsi_ = new RationalFunction(theta, stphi).coefficients(dim_);
-            tmp_ = new double[dim_];
             Matrix stvar = StDynamics.p0(var, stacgf_, stpsi_);
             Matrix K = new Matrix(dim_, dim_);
             Ksi(K.all(), dif_);
@@ -576,8 +552,7 @@ public class SsfArima extends Ssf {
          */
         @Override
         public void TVT(final int pos, final SubMatrix vm) {
-            DataBlock tmp = new DataBlock(tmp_);
-            tmp.set(0);
+            DataBlock tmp = new DataBlock(dim_);
             DataBlockIterator cols = vm.columns();
             DataBlock col = cols.getData();
             cols.end();
@@ -590,7 +565,7 @@ public class SsfArima extends Ssf {
 
             vm.shift(-1);
             tmp.bshift(DataBlock.ShiftOption.None);
-            tmp_[dim_ - 1] = tlast;
+            tmp.set(dim_ - 1, tlast);
             vm.column(dim_ - 1).copy(tmp);
             vm.row(dim_ - 1).copy(tmp);
         }
@@ -34,8 +34,9 @@ public class VarDynamics implements ISsfDynamics {
     private final VarDescriptor desc;
     private final Matrix V0, T;
     private final int nvars, nl, nlx;
-    private final DataBlock ttmp, xtmp;
-    private Matrix L;
+    // lazily computed Cholesky factor of the innovations variance. The
+    // computation is idempotent, so that concurrent initializations are harmless
+    private volatile Matrix L;
     
     public static VarDynamics of(final VarDescriptor desc, final Matrix V0) {
         if (V0 != null && V0.getColumnsCount() != desc.getVarMatrix().getColumnsCount()) {
@@ -66,8 +67,6 @@ public class VarDynamics implements ISsfDynamics {
         this.nlx = nlx;
         nvars = desc.getVariablesCount();
         this.V0 = V0;
-        ttmp = new DataBlock(nvars);
-        xtmp = new DataBlock(nvars * nl);
         T = desc.getVarMatrix();
     }
 
@@ -80,12 +79,14 @@ public class VarDynamics implements ISsfDynamics {
     }
 
     private Matrix L() {
-        if (L == null) {
+        Matrix l = L;
+        if (l == null) {
             Matrix v = desc.getInnovationsVariance();
-            L = v.clone();
-            SymmetricMatrix.lcholesky(L, 1e-9);
+            l = v.clone();
+            SymmetricMatrix.lcholesky(l, 1e-9);
+            L = l;
         }
-        return L;
+        return l;
     }
 
     @Override
@@ -191,6 +192,7 @@ public class VarDynamics implements ISsfDynamics {
     }
 
     private void TX(DataBlock x) {
+        DataBlock ttmp = new DataBlock(nvars);
         for (int i = 0; i < nvars; ++i) {
             ttmp.set(i, T.row(i).dot(x));
         }
@@ -202,7 +204,7 @@ public class VarDynamics implements ISsfDynamics {
     @Override
     public void XT(int pos, DataBlock x) {
         Matrix v = desc.getVarMatrix();
-        xtmp.set(0);
+        DataBlock xtmp = new DataBlock(nvars * nl);
         xtmp.product(x.range(0, nvars), v.columns());
         x.bshift(nvars);
         x.range((nlx-1)*nvars, x.getLength()).set(0);
@@ -35,6 +35,10 @@ public interface IMultivariateSsf extends IMultivariateSsfFiltering {
 
     boolean isTimeInvariant();
 
+    default boolean isThreadSafe() {
+        return getDynamics().isThreadSafe() && getMeasurements().isThreadSafe();
+    }
+
     @Override
     default MultivariateUpdateInformation next(int t, State state, IReadDataBlock x) {
         return MultivariateSsfHelper.next(this, t, state, x);
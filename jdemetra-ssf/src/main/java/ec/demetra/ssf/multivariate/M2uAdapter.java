@@ -114,6 +114,16 @@ public class M2uAdapter {
             return false;
         }
 
+        /**
+         * The variance matrix of the current period is cached
+         *
+         * @return
+         */
+        @Override
+        public boolean isThreadSafe() {
+            return H == null || measurements.isTimeInvariant();
+        }
+
         @Override
         public void Z(int pos, DataBlock z) {
             measurements.Z(pos / nvars, pos % nvars, z);
@@ -36,6 +36,16 @@ public interface ISsf {
 
     boolean isTimeInvariant();
 
+    /**
+     * Can the model be used by several threads at the same time (for instance
+     * to filter different series)
+     *
+     * @return
+     */
+    default boolean isThreadSafe() {
+        return getDynamics().isThreadSafe() && getMeasurement().isThreadSafe();
+    }
+
 //<editor-fold defaultstate="collapsed" desc="auxiliary operations">
     /**
      * Computes X*L, where L = T(I - m/f * z)
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.dk;
+
+import data.Data;
+import ec.demetra.realfunctions.DefaultDomain;
+import ec.demetra.ssf.implementations.arima.SsfArima;
+import ec.demetra.ssf.univariate.ISsf;
+import ec.demetra.ssf.univariate.SsfData;
+import ec.tstoolkit.data.IReadDataBlock;
+import ec.tstoolkit.data.ReadDataBlock;
+import ec.tstoolkit.sarima.SarimaModelBuilder;
+import ec.tstoolkit.timeseries.simplets.TsData;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class DkDualLikelihoodTest {
+
+    static final double[] data;
+
+    static {
+        TsData s = Data.X;
+        data = new double[s.getLength()];
+        s.copyTo(data, 0);
+        data[2] = Double.NaN;
+        data[119] = Double.NaN;
+    }
+
+    public DkDualLikelihoodTest() {
+    }
+
+    private static ISsf airline(IReadDataBlock p) {
+        return SsfArima.create(new SarimaModelBuilder().createAirlineModel(12, p.get(0), p.get(1)));
+    }
+
+    private static double ll(double th, double bth, SsfData ssfData) {
+        ISsf ssf = airline(new ReadDataBlock(new double[]{th, bth}));
+        return DkToolkit.likelihoodComputer().compute(ssf, ssfData).getLogLikelihood();
+    }
+
+    @Test
+    public void testAirline() {
+        SsfData ssfData = new SsfData(data);
+        double th = -.6, bth = -.8;
+        DualSsf ssf = DualSsf.of(DkDualLikelihoodTest::airline, new DefaultDomain(2, 1e-6),
+                new ReadDataBlock(new double[]{th, bth}));
+        assertNotNull(ssf);
+        DkDualLikelihood dll = DkDualLikelihood.compute(ssf, ssfData);
+        assertNotNull(dll);
+        double ll = ll(th, bth, ssfData);
+        assertEquals(ll, dll.getLikelihood().getLogLikelihood(), 1e-9 * Math.abs(ll));
+
+        IReadDataBlock g = dll.getLogLikelihoodDerivatives();
+        double eps = 1e-5;
+        double g0 = (ll(th + eps, bth, ssfData) - ll(th - eps, bth, ssfData)) / (2 * eps);
+        double g1 = (ll(th, bth + eps, ssfData) - ll(th, bth - eps, ssfData)) / (2 * eps);
+        assertEquals(g0, g.get(0), 1e-4 * Math.abs(g0));
+        assertEquals(g1, g.get(1), 1e-4 * Math.abs(g1));
+    }
+
+    @Test
+    public void testOneSidedDifferences() {
+        // the system matrices of the airline model are polynomials of degree
+        // 2 in each parameter, so that the central and the one-sided
+        // differences give the same derivatives, even with large steps
+        SsfData ssfData = new SsfData(data);
+        double th = -.6, bth = -.8;
+        IReadDataBlock p = new ReadDataBlock(new double[]{th, bth});
+        DualSsf cssf = DualSsf.of(DkDualLikelihoodTest::airline, new DefaultDomain(2, 1e-3), p);
+        // only one neighbour is valid for each parameter: one-sided differences
+        DualSsf ossf = DualSsf.of(DkDualLikelihoodTest::airline, new DefaultDomain(2, 1e-3) {
+            @Override
+            public boolean checkBoundaries(IReadDataBlock q) {
+                return q.get(0) >= th && q.get(1) <= bth;
+            }
+        }, p);
+        IReadDataBlock cg = DkDualLikelihood.compute(cssf, ssfData).getLogLikelihoodDerivatives();
+        IReadDataBlock og = DkDualLikelihood.compute(ossf, ssfData).getLogLikelihoodDerivatives();
+        assertEquals(cg.get(0), og.get(0), 1e-6 * Math.abs(cg.get(0)));
+        assertEquals(cg.get(1), og.get(1), 1e-6 * Math.abs(cg.get(1)));
+    }
+}
@@ -27,6 +27,7 @@ import ec.demetra.ssf.implementations.arima.SsfArima;
 import ec.demetra.ssf.univariate.ISsf;
 import ec.demetra.ssf.univariate.SsfData;
 import java.util.Arrays;
+import java.util.stream.IntStream;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import org.junit.Ignore;
@@ -65,6 +66,17 @@ public class DkToolkitTest {
         DkLikelihood ll = DkToolkit.likelihoodComputer(false, true).compute(ssf, ssfData);
     }
 
+    @Test
+    public void testConcurrentLikelihood() {
+        SsfArima ssf = SsfArima.create(model);
+        assertTrue(ssf.isThreadSafe());
+        SsfData ssfData = new SsfData(data);
+        double ll = DkToolkit.likelihoodComputer().compute(ssf, ssfData).getLogLikelihood();
+        assertTrue(IntStream.range(0, 64).parallel()
+                .mapToDouble(i -> DkToolkit.likelihoodComputer().compute(ssf, ssfData).getLogLikelihood())
+                .allMatch(x -> x == ll));
+    }
+
    @Test
     public void testErrors() {
         SsfArima ssf = SsfArima.create(model);
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.dk;
+
+import data.Models;
+import ec.tstoolkit.data.DataBlock;
+import ec.tstoolkit.data.IReadDataBlock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class StreamingFilteringResultsTest {
+
+    public StreamingFilteringResultsTest() {
+    }
+
+    @Test
+    public void testListener() {
+        IReadDataBlock e = DkToolkit.sqrtFilter(Models.ssfUcarima, Models.ssfXRandom, false).errors(true, true);
+        DataBlock s = new DataBlock(e.getLength());
+        int[] pos = new int[1];
+        DkToolkit.stream(Models.ssfUcarima, Models.ssfXRandom,
+                StreamingFilteringResults.of((t, err, f, a) -> s.set(pos[0]++, err / Math.sqrt(f)), false));
+        assertEquals(e.getLength(), pos[0]);
+        assertTrue(s.distance(e) < 1e-9);
+    }
+
+    @Test
+    public void testQueue() throws InterruptedException, ExecutionException {
+        IReadDataBlock e = DkToolkit.sqrtFilter(Models.ssfArima, Models.ssfX, false).errors(true, true);
+        BlockingQueue<StreamingFilteringResults.PredictionError> queue = new ArrayBlockingQueue<>(8);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> filter = executor.submit(() -> DkToolkit.stream(Models.ssfArima, Models.ssfX,
+                    StreamingFilteringResults.of(queue, true)));
+            int n = 0;
+            double ssq = 0;
+            for (StreamingFilteringResults.PredictionError pe = queue.take(); !pe.isEnd(); pe = queue.take(), ++n) {
+                assertEquals(Models.ssfArima.getStateDim(), pe.getState().getLength());
+                ssq += pe.getStandardizedError() * pe.getStandardizedError();
+            }
+            assertTrue(filter.get());
+            assertEquals(e.getLength(), n);
+            assertEquals(e.ssq(), ssq, 1e-9 * ssq);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -18,6 +18,11 @@
  */
 package ec.demetra.ssf.implementations;
 
+import ec.demetra.ssf.implementations.structural.LocalLinearTrend;
+import ec.demetra.ssf.implementations.structural.SeasonalComponent;
+import ec.demetra.ssf.implementations.structural.SeasonalModel;
+import ec.tstoolkit.maths.matrices.Matrix;
+import ec.tstoolkit.maths.matrices.SymmetricMatrix;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -30,8 +35,38 @@ public class CompositeDynamicsTest {
     public CompositeDynamicsTest() {
     }
 
+    private static void testTVT(CompositeDynamics dyn) {
+        int n = dyn.getStateDim();
+        Matrix T = Matrix.square(n);
+        dyn.T(0, T.all());
+        Matrix X = Matrix.square(n);
+        X.randomize(0);
+        Matrix V = SymmetricMatrix.XXt(X);
+        Matrix ref = T.times(V).times(T.transpose());
+        dyn.TVT(0, V.all());
+        assertTrue(V.minus(ref).nrm2() < 1e-9 * ref.nrm2());
+        // block-diagonal covariance
+        V = Matrix.square(n);
+        dyn.Pi0(V.all());
+        ref = T.times(V).times(T.transpose());
+        dyn.TVT(0, V.all());
+        assertTrue(V.minus(ref).nrm2() < 1e-9 * ref.nrm2());
+    }
+
+    @Test
+    public void testTVT() {
+        CompositeDynamics dyn = new CompositeDynamics(new LocalLinearTrend.Dynamics(.1, .2),
+                new SeasonalComponent.Dynamics(SeasonalModel.Crude, 2.0, 12));
+        assertFalse(dyn.isMultiThreaded());
+        testTVT(dyn);
+    }
+
     @Test
-    public void testSomeMethod() {
+    public void testLargeTVT() {
+        CompositeDynamics dyn = new CompositeDynamics(new LocalLinearTrend.Dynamics(.1, .2),
+                new SeasonalComponent.Dynamics(SeasonalModel.Crude, 2.0, 7),
+                new SeasonalComponent.Dynamics(SeasonalModel.Dummy, 1.0, 365));
+        testTVT(dyn);
     }
     
 }
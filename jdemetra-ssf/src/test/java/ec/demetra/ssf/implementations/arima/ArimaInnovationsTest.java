@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 National Bank of Belgium
+ *
+ * Licensed under the EUPL, Version 1.1 or – as soon they will be approved
+ * by the European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy of the Licence at:
+ *
+ * http://ec.europa.eu/idabc/eupl
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the Licence is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the Licence for the specific language governing permissions and
+ * limitations under the Licence.
+ */
+package ec.demetra.ssf.implementations.arima;
+
+import data.Models;
+import ec.demetra.ssf.dk.DkLikelihood;
+import ec.demetra.ssf.dk.DkToolkit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ * @author Jean Palate
+ */
+public class ArimaInnovationsTest {
+
+    public ArimaInnovationsTest() {
+    }
+
+    @Test
+    public void testStationary() {
+        ArimaInnovations innovations = new ArimaInnovations(Models.ssfArma.getModel());
+        assertTrue(innovations.process(Models.ssfRandom));
+        DkLikelihood ll = DkToolkit.likelihoodComputer().compute(Models.ssfArma, Models.ssfRandom);
+        assertEquals(ll.getSsqErr(), innovations.getSsqErr(), 1e-6 * ll.getSsqErr());
+        assertEquals(ll.getLogDeterminant(), innovations.getLogDeterminant(), 1e-6);
+    }
+
+    @Test
+    public void testNonStationary() {
+        ArimaInnovations innovations = new ArimaInnovations(Models.ssfArima.getModel());
+        assertTrue(innovations.process(Models.ssfX));
+        assertEquals(13, innovations.getDifferencingOrder());
+        DkLikelihood ll = DkToolkit.likelihoodComputer().compute(Models.ssfArima, Models.ssfX);
+        assertEquals(ll.getSsqErr(), innovations.getSsqErr(), 1e-6 * ll.getSsqErr());
+        assertEquals(ll.getLogDeterminant(), innovations.getLogDeterminant(), 1e-6);
+    }
+}
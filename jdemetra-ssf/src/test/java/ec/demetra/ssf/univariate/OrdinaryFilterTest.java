@@ -34,6 +34,7 @@ import ec.demetra.ssf.multivariate.MultivariateSsf;
 import ec.tstoolkit.data.DataBlock;
 import ec.tstoolkit.data.Periodogram;
 import ec.tstoolkit.data.ReadDataBlock;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -114,6 +115,17 @@ public class OrdinaryFilterTest {
         ILikelihood ll = pe.likelihood();
     }
 
+    @Test
+    public void testDense() {
+        SsfArima ssf = SsfArima.create(model);
+        PredictionErrorDecomposition pe = new PredictionErrorDecomposition(false);
+        new OrdinaryFilter().process(TimeInvariantSsf.of(ssf), new SsfData(M.column(0)), pe);
+        PredictionErrorDecomposition dpe = new PredictionErrorDecomposition(false);
+        new OrdinaryFilter().process(TimeInvariantSsf.ofDense(ssf), new SsfData(M.column(0)), dpe);
+        double ll = pe.likelihood().getLogLikelihood();
+        assertEquals(ll, dpe.likelihood().getLogLikelihood(), 1e-9 * Math.abs(ll));
+    }
+
     @Ignore
     @Test
     public void stressTest1() {
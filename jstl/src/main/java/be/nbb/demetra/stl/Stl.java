@@ -16,6 +16,7 @@
  */
 package be.nbb.demetra.stl;
 
+import ec.demetra.data.OrderStatistics;
 import ec.demetra.realfunctions.RealFunction;
 import ec.tstoolkit.data.IReadDataBlock;
 import java.util.Arrays;
@@ -118,15 +119,7 @@ public class Stl {
     }
 
     private static double mad(double[] r) {
-        double[] sr = r.clone();
-        Arrays.sort(sr);
-        int n = r.length;
-        int n2 = n >> 1;
-        if (n % 2 != 0) {
-            return 6 * sr[n2];
-        } else {
-            return 3 * (sr[n2 - 1] + sr[n2]);
-        }
+        return 6 * OrderStatistics.median(r);
     }
 
     private void stlrwt(double[] fit, double[] w) {
@@ -56,6 +56,14 @@ public class BsmSpecUI implements IPropertyDescriptors {
         core.setDiffuseRegressors(dregs);
     }
 
+    public boolean isBroyden() {
+        return core.isBroydenUpdates();
+    }
+
+    public void setBroyden(boolean broyden) {
+        core.setBroydenUpdates(broyden);
+    }
+
 
     private EnhancedPropertyDescriptor mDesc() {
         try {
@@ -105,6 +113,22 @@ public class BsmSpecUI implements IPropertyDescriptors {
         }
     }
 
+    private EnhancedPropertyDescriptor bDesc() {
+        if (core.getOptimizer() == BsmSpecification.Optimizer.LBFGS
+                || core.getOptimizer() == BsmSpecification.Optimizer.DogLeg) {
+            return null;
+        }
+        try {
+            PropertyDescriptor desc = new PropertyDescriptor("broyden", this.getClass());
+            EnhancedPropertyDescriptor edesc = new EnhancedPropertyDescriptor(desc, B_ID);
+            desc.setDisplayName(B_NAME);
+            desc.setShortDescription(B_DESC);
+            return edesc;
+        } catch (IntrospectionException ex) {
+            return null;
+        }
+    }
+
     @Override
     public List<EnhancedPropertyDescriptor> getProperties() {
         ArrayList<EnhancedPropertyDescriptor> descs = new ArrayList<>();
@@ -124,18 +148,25 @@ public class BsmSpecUI implements IPropertyDescriptors {
         if (desc != null) {
             descs.add(desc);
         }
+        desc = bDesc();
+        if (desc != null) {
+            descs.add(desc);
+        }
         return descs;
     }
-    public static final int M_ID = 0, O_ID = 1, P_ID = 2, D_ID = 3;
+    public static final int M_ID = 0, O_ID = 1, P_ID = 2, D_ID = 3, B_ID = 4;
     public static final String M_NAME = "Model",
             O_NAME = "Optimizer",
             P_NAME = "Precision",
-            D_NAME = "Diffuse reg. coefficients";
+            D_NAME = "Diffuse reg. coefficients",
+            B_NAME = "Broyden updates";
     public static final String M_DESC = "Model",
             O_DESC = "Optimization method used in the computatuion of the structural model",
             P_DESC = "Precision used in the computatuion of the structural model",
             D_DESC = "Indicates if the regression coefficients are considered as diffuse (arbitrary large variance) "
-            + "or fixed (unkonwn)";
+            + "or fixed (unkonwn)",
+            B_DESC = "Updates the Jacobian of the optimizer by Broyden's formula instead of recomputing it at each iteration "
+            + "(fewer likelihood evaluations)";
 
 
     public String getDisplayName() {
@@ -22,6 +22,7 @@ import ec.demetra.ssf.implementations.structural.BasicStructuralModel;
 import be.nbb.demetra.sts.BsmMonitor;
 import ec.demetra.ssf.implementations.structural.ModelSpecification;
 import ec.demetra.ssf.implementations.structural.SsfBsm;
+import ec.demetra.realfunctions.MinimizerBudget;
 import ec.demetra.ssf.dk.DkToolkit;
 import ec.demetra.ssf.univariate.SsfData;
 import ec.satoolkit.diagnostics.CochranTest;
@@ -48,6 +49,40 @@ public class SSSTSMonitor {
     private int m_best = -1;
     private final HashSet<String> m_computed = new HashSet<>();
     private double eps = 1;
+    private MinimizerBudget m_budget;
+    private boolean m_bexhausted;
+
+    public MinimizerBudget getBudget() {
+        return m_budget;
+    }
+
+    /**
+     * Sets the budget shared by all the estimations of the next call to
+     * process (the budget is not restarted, see MinimizerBudget.start). When
+     * it is exhausted, the search of the noisy periods stops and the best
+     * model found so far is kept.
+     *
+     * @param budget The budget. Null for an unlimited processing
+     */
+    public void setBudget(MinimizerBudget budget) {
+        m_budget = budget;
+    }
+
+    /**
+     *
+     * @return True if the last processing was interrupted because its budget
+     * was exhausted (or cancelled)
+     */
+    public boolean isBudgetExceeded() {
+        return m_bexhausted;
+    }
+
+    private boolean exhausted() {
+        if (m_budget != null && m_budget.isExhausted()) {
+            m_bexhausted = true;
+        }
+        return m_bexhausted;
+    }
 
     public boolean process(final TsData series, final ModelSpecification mspec, final SeasonalSpecification sspec) {
         if (series == null) {
@@ -58,6 +93,7 @@ public class SSSTSMonitor {
         m_computed.clear();
         m_models.clear();
         m_best = -1;
+        m_bexhausted = false;
         int freq = series.getFrequency().intValue();
         SSSTSModel m = new SSSTSModel();
         m.setNoisyComponent(sspec.noisyComponent);
@@ -65,6 +101,7 @@ public class SSSTSMonitor {
         m.setFrequency(freq);
         BsmMonitor bsmMonitor = new BsmMonitor();
         bsmMonitor.setSpecification(mspec);
+        bsmMonitor.setBudget(m_budget);
         if (!bsmMonitor.process(series, freq)) {
             return false;
         }
@@ -73,9 +110,18 @@ public class SSSTSMonitor {
             bsm.setVariance(Component.Noise, 0);
         }
         initialize(m, bsm);
+        if (exhausted()) {
+            // the basic structural model is the best model found so far
+            m_models.add(evaluate(m));
+            m_best = 0;
+            return true;
+        }
         MixedEstimation rslt = estimate(m);
         m_models.add(rslt);
         m_best = 0;
+        if (exhausted()) {
+            return true;
+        }
         if (sspec.noisyPeriods != null) {
             m = rslt.model.clone();
             m.setNoisyPeriods(sspec.noisyPeriods);
@@ -125,7 +171,7 @@ public class SSSTSMonitor {
         boolean[] noisy = new boolean[freq];
         do {
             switched = false;
-            for (int i = 0; i < freq; ++i) {
+            for (int i = 0; i < freq && !exhausted(); ++i) {
                 noisy[i] = !noisy[i];
                 SSSTSModel m = model.clone();
                 int[] noisyPeriods = buildNoisyPeriods(noisy);
@@ -152,7 +198,7 @@ public class SSSTSMonitor {
                     noisy[i] = !noisy[i];
                 }
             }
-        } while (iter++ <= 5 && switched);
+        } while (iter++ <= 5 && switched && !exhausted());
     }
 
     private static final double DLL = 5;
@@ -162,7 +208,7 @@ public class SSSTSMonitor {
         int[] np = sortNoisyPeriods2(model);
         int[] usednp=new int[np.length];
         int nused=0;
-        for (int i = 0; i < np.length; ++i) {
+        for (int i = 0; i < np.length && !exhausted(); ++i) {
             usednp[nused]=np[i];
             SSSTSModel m = model.clone();
             int[] noisyPeriods = Arrays.copyOf(usednp, nused+1);
@@ -191,7 +237,7 @@ public class SSSTSMonitor {
         int[] np = sortNoisyPeriods(residuals);
         int[] usednp=new int[np.length];
         int nused=0;
-        for (int i = 0; i <np.length; ++i) {
+        for (int i = 0; i <np.length && !exhausted(); ++i) {
             usednp[nused]=np[i];
             SSSTSModel m = model.clone();
             int[] noisyPeriods = Arrays.copyOf(usednp, nused+1);
@@ -286,6 +332,7 @@ public class SSSTSMonitor {
             MixedEstimation me = new MixedEstimation();
             int pstart = m_series.getStart().getPosition();
             SSSTSEstimation estimation = new SSSTSEstimation();
+            estimation.setBudget(m_budget);
             me.model = estimation.compute2(model, m_series);
             me.ll = DkToolkit.likelihoodComputer(true, true).compute(SsfofSSSTS.of(me.model, pstart), new SsfData(m_series));
             return me;
@@ -294,6 +341,14 @@ public class SSSTSMonitor {
         }
     }
 
+    private MixedEstimation evaluate(SSSTSModel model) {
+        MixedEstimation me = new MixedEstimation();
+        int pstart = m_series.getStart().getPosition();
+        me.model = model;
+        me.ll = DkToolkit.likelihoodComputer(true, true).compute(SsfofSSSTS.of(model, pstart), new SsfData(m_series));
+        return me;
+    }
+
     private final ArrayList<MixedEstimation> m_models = new ArrayList<>();
 
     private int[] buildNoisyPeriods(boolean[] noisy) {
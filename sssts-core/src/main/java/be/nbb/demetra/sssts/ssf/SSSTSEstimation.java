@@ -18,6 +18,8 @@ package be.nbb.demetra.sssts.ssf;
 
 import be.nbb.demetra.sssts.SSSTSModel;
 import ec.demetra.realfunctions.IFunctionMinimizer;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.IFunctionPoint;
 import ec.demetra.realfunctions.ProxyMinimizer;
 import ec.demetra.ssf.dk.SsfFunction;
 import ec.demetra.ssf.dk.SsfFunctionInstance;
@@ -32,10 +34,34 @@ import ec.tstoolkit.timeseries.simplets.TsData;
 public class SSSTSEstimation {
 
     private IFunctionMinimizer minimizer = new ProxyMinimizer(new ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer());
+    private MinimizerBudget budget;
 
     public SSSTSEstimation() {
     }
 
+    public MinimizerBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the budget shared by all the minimizations of the next
+     * estimations. When it is exhausted, the searches stop and the best model
+     * found so far is returned. The budget is not restarted by this class.
+     *
+     * @param budget The budget. Null for unlimited estimations
+     */
+    public void setBudget(MinimizerBudget budget) {
+        this.budget = budget;
+    }
+
+    /**
+     *
+     * @return True if the budget is exhausted (or cancelled)
+     */
+    public boolean isBudgetExceeded() {
+        return budget != null && budget.isExhausted();
+    }
+
     public SSSTSModel compute(SSSTSModel model, TsData s) {
         try {
             if (model.getNoisyPeriods() == null) {
@@ -53,11 +79,11 @@ public class SSSTSEstimation {
             if (model.getNoisyPeriods().length == 0) {
                 return searchBsm(model, s, 1e-12);
             }
-            for (int i = 0; i < 5; ++i) {
+            for (int i = 0; i < 5 && !isBudgetExceeded(); ++i) {
                 model = searchNoise(model, s);
                 model = searchBsm(model, s, 1e-5);
             }
-            return searchAll(model, s, 1e-12);
+            return isBudgetExceeded() ? model : searchAll(model, s, 1e-12);
 
         } catch (RuntimeException e) {
             return null;
@@ -69,8 +95,7 @@ public class SSSTSEstimation {
         minimizer.setConvergenceCriterion(eps);
         SsfFunction<SSSTSModel, ISsf> fn = new SsfFunction<>(new SsfData(s), mapper,
                 (SSSTSModel m) -> SsfofSSSTS.of(m, s.getStart().getPosition()));
-        boolean converged = minimizer.minimize(fn);
-        SsfFunctionInstance<SSSTSModel, ISsf> rfn = (SsfFunctionInstance<SSSTSModel, ISsf>) minimizer.getResult();
+        SsfFunctionInstance<SSSTSModel, ISsf> rfn = minimize(fn);
         SSSTSModel core = rfn.getCore();
         core.rescaleVariances();
         return core;
@@ -81,8 +106,7 @@ public class SSSTSEstimation {
         minimizer.setConvergenceCriterion(eps);
         SsfFunction<SSSTSModel, ISsf> fn = new SsfFunction<>(new SsfData(s), mapper,
                 (SSSTSModel m) -> SsfofSSSTS.of(m, s.getStart().getPosition()));
-        boolean converged = minimizer.minimize(fn);
-        SsfFunctionInstance<SSSTSModel, ISsf> rfn = (SsfFunctionInstance<SSSTSModel, ISsf>) minimizer.getResult();
+        SsfFunctionInstance<SSSTSModel, ISsf> rfn = minimize(fn);
         SSSTSModel core = rfn.getCore();
         core.rescaleVariances();
         return core;
@@ -92,9 +116,19 @@ public class SSSTSEstimation {
         SSSTSMapping mapper = SSSTSMapping.noise(model);
         SsfFunction<SSSTSModel, ISsf> fn = new SsfFunction<>(new SsfData(s), mapper,
                 (SSSTSModel m) -> SsfofSSSTS.of(m, s.getStart().getPosition()));
-        minimizer.minimize(fn);
-        SsfFunctionInstance<SSSTSModel, ISsf> rfn = (SsfFunctionInstance<SSSTSModel, ISsf>) minimizer.getResult();
+        SsfFunctionInstance<SSSTSModel, ISsf> rfn = minimize(fn);
         return rfn.getCore();
     }
 
+    @SuppressWarnings("unchecked")
+    private SsfFunctionInstance<SSSTSModel, ISsf> minimize(SsfFunction<SSSTSModel, ISsf> fn) {
+        if (budget == null) {
+            minimizer.minimize(fn);
+            return (SsfFunctionInstance<SSSTSModel, ISsf>) minimizer.getResult();
+        }
+        IFunctionPoint start = fn.evaluate(fn.getDomain().getDefault());
+        fn.setBudget(budget);
+        return (SsfFunctionInstance<SSSTSModel, ISsf>) budget.minimize(minimizer, start);
+    }
+
 }
@@ -20,6 +20,9 @@ import ec.demetra.ssf.implementations.structural.SsfBsm;
 import be.nbb.demetra.sts.BsmMapping.Transformation;
 import ec.demetra.realfunctions.IFunction;
 import ec.demetra.realfunctions.IFunctionMinimizer;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.demetra.realfunctions.MinimizerState;
+import ec.demetra.realfunctions.MultiStartMinimizer;
 import ec.demetra.realfunctions.ProxyMinimizer;
 import ec.demetra.realfunctions.TransformedFunction;
 import ec.demetra.ssf.dk.DkConcentratedLikelihood;
@@ -36,6 +39,8 @@ import ec.tstoolkit.data.ReadDataBlock;
 import ec.tstoolkit.design.Development;
 import ec.tstoolkit.maths.matrices.SubMatrix;
 import ec.demetra.realfunctions.IFunctionPoint;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  *
@@ -59,9 +64,11 @@ public class BsmMonitor {
 
     private double m_eps = 1e-9;
 
-    private boolean m_bconverged = false, m_dregs;
+    private boolean m_bconverged = false, m_dregs, m_multistart, m_dual, m_bexhausted;
 
     private IFunctionMinimizer m_min = null;// new
+    private MinimizerState m_warm, m_state;
+    private MinimizerBudget m_budget;
     // ec.tstoolkit.maths.functions.minpack.LMMinimizer();
 
     private double m_dsmall = 0.01;
@@ -91,30 +98,18 @@ public class BsmMonitor {
         }
         fn_ = null;
         fnmax_ = null;
+        m_state = null;
 
-        IFunctionMinimizer fmin;
-        if (m_min != null) {
-            fmin = m_min.exemplar();
-        } else {
-            // ec.tstoolkit.maths.realfunctions.QRMarquardt qr=new
-            // ec.tstoolkit.maths.realfunctions.QRMarquardt();
-            // qr.setIncreaseStep(32);
-            // fmin = new ProxyMinimizer(qr);
-            fmin = new ProxyMinimizer(new ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer());
-            //fmin = new ec.tstoolkit.maths.realfunctions.riso.LbfgsMinimizer();
-            //fmin = new ec.tstoolkit.maths.realfunctions.jbfgs.Bfgs();
-            fmin.setConvergenceCriterion(m_eps);
-        }
-
+        IFunctionMinimizer fmin = minimizer();
+        fmin.setWarmStart(m_warm);
         fmin.setMaxIter(10);
         for (int i = 0; i < 3; ++i) {
-            fn_ = buildFunction(null);
-            IReadDataBlock parameters = m_mapping.map(m_bsm);
-            fmin.minimize(fn_.evaluate(parameters));
-            m_bconverged = fmin.getIterCount() < fmin.getMaxIter();
-            fnmax_ = (SsfFunctionInstance<BasicStructuralModel, SsfBsm>) fmin.getResult();
+            fnmax_ = minimize(fmin);
             m_bsm = fnmax_.getCore();
             m_ll = (DkConcentratedLikelihood) fnmax_.getLikelihood();
+            if (m_bexhausted) {
+                return true;
+            }
 
             Component cmp = m_bsm.fixMaxVariance(1);
             if (cmp != m_mapping.getFixedComponent()) {
@@ -126,13 +121,12 @@ public class BsmMonitor {
 
         if (!m_bconverged) {
             fmin.setMaxIter(30);
-            fn_ = buildFunction(null);
-            IReadDataBlock parameters = m_mapping.map(m_bsm);
-            fmin.minimize(fn_.evaluate(parameters));
-            m_bconverged = fmin.getIterCount() < fmin.getMaxIter();
-            fnmax_ = (SsfFunctionInstance<BasicStructuralModel, SsfBsm>) fmin.getResult();
+            fnmax_ = minimize(fmin);
             m_bsm = fnmax_.getCore();
             m_ll = (DkConcentratedLikelihood) fnmax_.getLikelihood();
+            if (m_bexhausted) {
+                return true;
+            }
             Component cmp = m_bsm.fixMaxVariance(1);
             if (cmp != m_mapping.getFixedComponent()) {
                 m_mapping.setFixedComponent(cmp);
@@ -156,11 +150,62 @@ public class BsmMonitor {
         return ok;
     }
 
+    /**
+     * Minimizes the likelihood from the current model, under the budget (if
+     * any). When the budget is exhausted, the best point evaluated so far is
+     * returned and the estimation is considered as not converged.
+     *
+     * @param fmin
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private SsfFunctionInstance<BasicStructuralModel, SsfBsm> minimize(IFunctionMinimizer fmin) {
+        fn_ = buildFunction(null);
+        IReadDataBlock parameters = m_mapping.map(m_bsm);
+        IFunctionPoint rslt;
+        if (m_budget == null) {
+            fmin.minimize(fn_.evaluate(parameters));
+            rslt = fmin.getResult();
+        } else {
+            // the starting point is evaluated outside the budget, so that it
+            // is available (as result) even if the budget is already exhausted
+            IFunctionPoint start = fn_.evaluate(parameters);
+            fn_.setBudget(m_budget);
+            try {
+                rslt = m_budget.minimize(fmin, start);
+            } finally {
+                fn_.setBudget(null);
+            }
+            m_bexhausted = m_budget.isExhausted();
+        }
+        m_bconverged = !m_bexhausted && fmin.getIterCount() < fmin.getMaxIter();
+        m_state = fmin.getState();
+        return (SsfFunctionInstance<BasicStructuralModel, SsfBsm>) rslt;
+    }
+
+    private IFunctionMinimizer minimizer() {
+        IFunctionMinimizer fmin;
+        if (m_min != null) {
+            fmin = m_min.exemplar();
+        } else {
+            // ec.tstoolkit.maths.realfunctions.QRMarquardt qr=new
+            // ec.tstoolkit.maths.realfunctions.QRMarquardt();
+            // qr.setIncreaseStep(32);
+            // fmin = new ProxyMinimizer(qr);
+            fmin = new ProxyMinimizer(new ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer());
+            //fmin = new ec.tstoolkit.maths.realfunctions.riso.LbfgsMinimizer();
+            //fmin = new ec.tstoolkit.maths.realfunctions.jbfgs.Bfgs();
+            fmin.setConvergenceCriterion(m_eps);
+        }
+        return fmin;
+    }
+
     private SsfFunction<BasicStructuralModel, SsfBsm> buildFunction(BsmMapping mapping) {
         SsfData data = new SsfData(m_y);
         SsfFunction<BasicStructuralModel, SsfBsm> fn = new SsfFunction<>(
                 data, m_x, diffuseItems(), mapping == null ? m_mapping : mapping, (BasicStructuralModel bsm) -> SsfBsm.create(bsm));
         fn.setFast(true);
+        fn.setDualDerivatives(m_dual);
         return fn;
     }
 
@@ -176,8 +221,9 @@ public class BsmMonitor {
     }
 
     private boolean estimate() {
+        m_bexhausted = false;
         for (int i = 0; i < 4; ++i) {
-            if (_estimate()) {
+            if (_estimate() || m_bexhausted) {
                 return true;
             }
         }
@@ -301,6 +347,12 @@ public class BsmMonitor {
         SsfFunctionInstance instance = new SsfFunctionInstance(fn, mapping.getDefault());
         double lmax = instance.getLikelihood().getLogLikelihood();
         IReadDataBlock p = instance.getParameters();
+        if (m_multistart) {
+            BasicStructuralModel best = multiStart(mapping, p);
+            if (best != null) {
+                return best;
+            }
+        }
         int imax = -1;
         int nvars = mapping.getVarsCount();
         for (int i = 0; i < nvars; ++i) {
@@ -346,6 +398,144 @@ public class BsmMonitor {
         }
     }
 
+    /**
+     * Short estimations of the model, each of them with another fixed
+     * component, are run concurrently. The best one provides the fixed
+     * component and the starting model. The concentrated likelihood doesn't
+     * depend on the fixed component, so that the results are comparable.
+     *
+     * @param mapping Mapping without transformation and without fixed
+     * component
+     * @param p Default parameters
+     * @return The best model or null if all the estimations failed
+     */
+    @SuppressWarnings("unchecked")
+    private BasicStructuralModel multiStart(BsmMapping mapping, IReadDataBlock p) {
+        int nvars = mapping.getVarsCount();
+        List<IFunctionPoint> starts = new ArrayList<>(nvars);
+        Component[] fixed = new Component[nvars];
+        for (int i = 0; i < nvars; ++i) {
+            DataBlock np = new DataBlock(p);
+            np.set(.1);
+            np.set(i, 1);
+            int ncur = nvars;
+            if (mapping.hasCycleDumpingFactor()) {
+                np.set(ncur++, .9);
+            }
+            if (mapping.hasCycleLength()) {
+                np.set(ncur, 1);
+            }
+            fixed[i] = mapping.getComponent(i);
+            BsmMapping cmapping = new BsmMapping(m_spec, m_freq);
+            cmapping.setFixedComponent(fixed[i]);
+            starts.add(buildFunction(cmapping).evaluate(cmapping.map(mapping.map(np))));
+        }
+        IFunctionMinimizer fmin = minimizer();
+        fmin.setMaxIter(10);
+        fmin.setBudget(m_budget);
+        MultiStartMinimizer ms = new MultiStartMinimizer(fmin);
+        IFunctionPoint rslt = ms.minimize(starts);
+        if (m_budget != null && m_budget.isExhausted()) {
+            m_bexhausted = true;
+        }
+        if (rslt == null) {
+            return null;
+        }
+        m_mapping.setFixedComponent(fixed[ms.getBestStart()]);
+        return ((SsfFunctionInstance<BasicStructuralModel, SsfBsm>) rslt).getCore();
+    }
+
+    /**
+     *
+     * @return The state of the minimizer at the end of the last estimation.
+     * May be null
+     */
+    public MinimizerState getMinimizerState() {
+        return m_state;
+    }
+
+    /**
+     * Uses the state of a previous estimation (for instance on the same
+     * series with less observations) to initialize the minimizer. The state is
+     * ignored if it doesn't correspond to the current parametrization
+     *
+     * @param state The state. Null to remove the warm start
+     */
+    public void setWarmStart(MinimizerState state) {
+        m_warm = state;
+    }
+
+    public MinimizerState getWarmStart() {
+        return m_warm;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isMultiStart() {
+        return m_multistart;
+    }
+
+    /**
+     * Starts the estimation from the different possible fixed components, in
+     * parallel, instead of choosing the fixed component on the likelihood of
+     * the starting models. Like the other options of the estimation, it
+     * doesn't discard the current results; it is used by the next estimation.
+     *
+     * @param value
+     */
+    public void setMultiStart(boolean value) {
+        m_multistart = value;
+    }
+
+    /**
+     *
+     * @return
+     */
+    public boolean isDualDerivatives() {
+        return m_dual;
+    }
+
+    /**
+     * Computes the gradient of the likelihood by a dual Kalman filter (exact
+     * derivatives) instead of numerical differences. Only used by the
+     * gradient-based optimizers (LBFGS), when the model has no regression
+     * variables.
+     *
+     * @param value
+     */
+    public void setDualDerivatives(boolean value) {
+        m_dual = value;
+    }
+
+    public MinimizerBudget getBudget() {
+        return m_budget;
+    }
+
+    /**
+     * Limits the time and/or the number of evaluations of the estimation, or
+     * allows its cancellation from another thread. The budget is not
+     * restarted by process (see MinimizerBudget.start), so that it can be
+     * shared by several estimations. When it is exhausted, the estimation stops
+     * and the best model found so far is kept (see isBudgetExceeded).
+     *
+     * @param budget The budget. Null for an unlimited estimation
+     */
+    public void setBudget(MinimizerBudget budget) {
+        m_budget = budget;
+    }
+
+    /**
+     *
+     * @return True if the last estimation was interrupted because its budget
+     * was exhausted (or cancelled). The results correspond then to the best
+     * model found before the interruption
+     */
+    public boolean isBudgetExceeded() {
+        return m_bexhausted;
+    }
+
     /**
      *
      * @return
@@ -408,14 +598,21 @@ public class BsmMonitor {
         m_dregs = spec.isDiffuseRegressors();
         switch (spec.getOptimizer()) {
             case LevenbergMarquardt:
-                m_min = new ProxyMinimizer(new ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer());
+                ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer lm = new ec.demetra.realfunctions.levmar.LevenbergMarquardtMinimzer();
+                lm.useBroydenUpdates(spec.isBroydenUpdates());
+                m_min = new ProxyMinimizer(lm);
                 break;
             case MinPack:
-                m_min = new ProxyMinimizer(new ec.demetra.realfunctions.minpack.LevenbergMarquardtMinimizer());
+                ec.demetra.realfunctions.minpack.LevenbergMarquardtMinimizer mp = new ec.demetra.realfunctions.minpack.LevenbergMarquardtMinimizer();
+                mp.useBroydenUpdates(spec.isBroydenUpdates());
+                m_min = new ProxyMinimizer(mp);
                 break;
             case LBFGS:
                 m_min = new ec.demetra.realfunctions.bfgs.Bfgs();
                 break;
+            case DogLeg:
+                m_min = new ProxyMinimizer(new ec.demetra.realfunctions.levmar.DogLegMethod());
+                break;
             default:
                 m_min = null;
         }
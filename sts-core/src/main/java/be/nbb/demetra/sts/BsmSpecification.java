@@ -31,21 +31,22 @@ import java.util.Objects;
 public class BsmSpecification implements IProcSpecification, Cloneable {
 
     public static final String OPTIMIZER = "optimizer", TOL = "tol", DREGS = "diffuseregs",
-            MSPEC = "modelspec";
+            MSPEC = "modelspec", BROYDEN = "broyden";
 
     public static enum Optimizer {
 
-        LevenbergMarquardt, MinPack, LBFGS
+        LevenbergMarquardt, MinPack, LBFGS, DogLeg
     }
 
     public static final double DEF_TOL = 1e-9;
     public static final Optimizer DEF_OPT = Optimizer.LevenbergMarquardt;
-    public static final boolean DEF_DREGS = false;
+    public static final boolean DEF_DREGS = false, DEF_BROYDEN = false;
 
     private ModelSpecification mspec_;
     private boolean dregs_ = DEF_DREGS;
     private double tol_ = DEF_TOL;
     private Optimizer opt_ = DEF_OPT;
+    private boolean broyden_ = DEF_BROYDEN;
 
     public BsmSpecification() {
         mspec_ = new ModelSpecification();
@@ -75,6 +76,20 @@ public class BsmSpecification implements IProcSpecification, Cloneable {
         dregs_ = dregs;
     }
 
+    /**
+     * Broyden updates of the Jacobian (Levenberg-Marquardt and MinPack
+     * optimizers only)
+     *
+     * @return
+     */
+    public boolean isBroydenUpdates() {
+        return broyden_;
+    }
+
+    public void setBroydenUpdates(boolean broyden) {
+        broyden_ = broyden;
+    }
+
     public ModelSpecification getModelSpecification() {
         return mspec_;
     }
@@ -106,6 +121,9 @@ public class BsmSpecification implements IProcSpecification, Cloneable {
         if (dregs_ != DEF_DREGS || verbose) {
             info.set(DREGS, dregs_);
         }
+        if (broyden_ != DEF_BROYDEN || verbose) {
+            info.set(BROYDEN, broyden_);
+        }
         InformationSet mspec = mspec_.write(verbose);
         if (mspec != null) {
             info.set(MSPEC, mspec);
@@ -130,6 +148,10 @@ public class BsmSpecification implements IProcSpecification, Cloneable {
         if (dregs != null) {
             dregs_ = dregs;
         }
+        Boolean broyden = info.get(BROYDEN, Boolean.class);
+        if (broyden != null) {
+            broyden_ = broyden;
+        }
         return mspec_.read(info.getSubSet(MSPEC));
     }
 
@@ -144,11 +166,13 @@ public class BsmSpecification implements IProcSpecification, Cloneable {
         hash = 67 * hash + (this.dregs_ ? 1 : 0);
         hash = 67 * hash + (int) (Double.doubleToLongBits(this.tol_) ^ (Double.doubleToLongBits(this.tol_) >>> 32));
         hash = 67 * hash + Objects.hashCode(this.opt_);
+        hash = 67 * hash + (this.broyden_ ? 1 : 0);
         return hash;
     }
 
     private boolean equals(BsmSpecification spec) {
         return spec.dregs_ == dregs_ && spec.opt_ == opt_ && spec.tol_ == tol_
+                && spec.broyden_ == broyden_
                 && Objects.deepEquals(spec.mspec_, mspec_);
     }
 
@@ -156,6 +180,7 @@ public class BsmSpecification implements IProcSpecification, Cloneable {
         dic.put(InformationSet.item(prefix, OPTIMIZER), String.class);
         dic.put(InformationSet.item(prefix, TOL), Double.class);
         dic.put(InformationSet.item(prefix, DREGS), Boolean.class);
+        dic.put(InformationSet.item(prefix, BROYDEN), Boolean.class);
         ModelSpecification.fillDictionary(InformationSet.item(prefix, MSPEC), dic);
     }
 
@@ -17,6 +17,9 @@
 package be.nbb.demetra.sts;
 
 import data.Data;
+import ec.demetra.realfunctions.MinimizerBudget;
+import ec.tstoolkit.timeseries.simplets.TsData;
+import org.junit.Ignore;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -34,5 +37,67 @@ public class BsmMonitorTest {
         BsmMonitor monitor=new BsmMonitor();
         assertTrue(monitor.process(Data.P, 12));
     }
-    
+
+    private static BsmMonitor monitor(BsmSpecification.Optimizer optimizer) {
+        BsmSpecification spec = new BsmSpecification();
+        spec.setOptimizer(optimizer);
+        BsmMonitor monitor = new BsmMonitor();
+        monitor.setSpecification(spec);
+        return monitor;
+    }
+
+    @Test
+    public void testDogLeg() {
+        BsmMonitor lm = monitor(BsmSpecification.Optimizer.LevenbergMarquardt);
+        assertTrue(lm.process(Data.P, 12));
+        BsmMonitor dl = monitor(BsmSpecification.Optimizer.DogLeg);
+        assertTrue(dl.process(Data.P, 12));
+        double llm = lm.getLikelihood().getLogLikelihood(), ldl = dl.getLikelihood().getLogLikelihood();
+        assertEquals(llm, ldl, 1e-3 * Math.abs(llm));
+    }
+
+    @Test
+    public void testExhaustedBudget() {
+        for (boolean multistart : new boolean[]{false, true}) {
+            MinimizerBudget budget = new MinimizerBudget(0, 20);
+            BsmMonitor first = new BsmMonitor();
+            first.setMultiStart(multistart);
+            first.setBudget(budget);
+            assertTrue(first.process(Data.P, 12));
+            assertTrue(first.isBudgetExceeded());
+            assertTrue(budget.isExhausted());
+            // the budget is already exhausted: the second monitor keeps its
+            // starting model
+            BsmMonitor second = new BsmMonitor();
+            second.setMultiStart(multistart);
+            second.setBudget(budget);
+            assertTrue(second.process(Data.P, 12));
+            assertTrue(second.isBudgetExceeded());
+            assertFalse(second.hasConverged());
+            assertNotNull(second.getResult());
+            assertTrue(Double.isFinite(second.getLikelihood().getLogLikelihood()));
+        }
+    }
+
+    @Test
+    @Ignore
+    public void stressTestDogLeg() {
+        TsData[] series = new TsData[]{Data.P, Data.X, Data.M1, Data.M2, Data.M3};
+        int K = 20;
+        for (BsmSpecification.Optimizer opt : new BsmSpecification.Optimizer[]{
+            BsmSpecification.Optimizer.LevenbergMarquardt, BsmSpecification.Optimizer.DogLeg}) {
+            double ll = 0;
+            long t0 = System.currentTimeMillis();
+            for (int k = 0; k < K; ++k) {
+                ll = 0;
+                for (TsData s : series) {
+                    BsmMonitor monitor = monitor(opt);
+                    monitor.process(s, s.getFrequency().intValue());
+                    ll += monitor.getLikelihood().getLogLikelihood();
+                }
+            }
+            long t1 = System.currentTimeMillis();
+            System.out.println(opt + ": " + (t1 - t0) + " ms, sum of the log-likelihoods: " + ll);
+        }
+    }
 }